@@ -0,0 +1,275 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import com.google.gson.Gson;
+import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
+import com.opsmatters.newrelic.api.model.alerts.conditions.AlertThreshold;
+import com.opsmatters.newrelic.api.model.alerts.conditions.InfraMetricAlertCondition;
+import com.opsmatters.newrelic.api.model.alerts.conditions.TimeFunction;
+import com.opsmatters.newrelic.batch.AlertManager;
+import com.opsmatters.newrelic.output.BeanColumns;
+import com.opsmatters.newrelic.output.RowReader;
+import com.opsmatters.newrelic.output.RowWriter;
+
+/**
+ * Measures the export and import of alert condition files with 1k, 10k and 100k rows.
+ * <P>
+ * Compares the in-memory workbook used by the AlertManager read and write methods
+ * with the streaming readers and writers used by the "stream" and "pipeline" options.
+ * The conditions are infrastructure metric conditions, which need no entities to be resolved.
+ *
+ * @author Gerald Curley (opsmatters)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class AlertConditionFileBenchmark
+{
+    private static final int POLICIES = 100;
+
+    @Param({"1000", "10000", "100000"})
+    private int rows;
+
+    private AlertManager manager;
+    private List<AlertPolicy> policies;
+    private List<InfraMetricAlertCondition> conditions;
+    private BeanColumns<InfraMetricAlertCondition> columns;
+    private File directory;
+    private File workbook;
+    private File delimited;
+
+    /**
+     * Generates the alert conditions and the input files.
+     * @throws IOException if the files could not be written
+     */
+    @Setup(Level.Trial)
+    public void setup() throws IOException
+    {
+        manager = new AlertManager("benchmark", false);
+        columns = new BeanColumns<InfraMetricAlertCondition>(InfraMetricAlertCondition.class);
+
+        Gson gson = new Gson();
+        policies = new ArrayList<AlertPolicy>(POLICIES);
+        for(int i = 1; i <= POLICIES; i++)
+        {
+            policies.add(gson.fromJson("{\"id\":"+i+",\"name\":\"policy-"+i+"\",\"incident_preference\":\"PER_POLICY\"}",
+                AlertPolicy.class));
+        }
+
+        conditions = new ArrayList<InfraMetricAlertCondition>(rows);
+        for(int i = 0; i < rows; i++)
+        {
+            conditions.add((InfraMetricAlertCondition)InfraMetricAlertCondition.builder()
+                .policyId(policies.get(i%POLICIES).getId())
+                .name("condition-"+i)
+                .eventType("SystemSample")
+                .selectValue("cpuPercent")
+                .comparison("above")
+                .criticalThreshold(new AlertThreshold().builder()
+                    .durationMinutes(5)
+                    .value(90)
+                    .timeFunction(TimeFunction.ALL.value())
+                    .build())
+                .enabled(true)
+                .build());
+        }
+
+        directory = File.createTempFile("newrelic-benchmark", "");
+        directory.delete();
+        directory.mkdirs();
+
+        workbook = new File(directory, "input.xlsx");
+        writeWorkbook(workbook);
+        delimited = new File(directory, "input.csv");
+        writeRows(delimited);
+    }
+
+    /**
+     * Deletes the files.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        File[] files = directory.listFiles();
+        if(files != null)
+        {
+            for(File file : files)
+                file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * Writes the conditions using the AlertManager workbook, as the export commands do by default.
+     * @return The file written
+     * @throws IOException if the file could not be written
+     */
+    @Benchmark
+    public File exportWorkbook() throws IOException
+    {
+        return writeWorkbook(new File(directory, "output.xlsx"));
+    }
+
+    /**
+     * Writes the conditions to an XLSX file a row at a time, as the export commands do with the "stream" option.
+     * @return The file written
+     * @throws IOException if the file could not be written
+     */
+    @Benchmark
+    public File exportStreamingXlsx() throws IOException
+    {
+        return writeRows(new File(directory, "output-stream.xlsx"));
+    }
+
+    /**
+     * Writes the conditions to a CSV file a row at a time, as the export commands do with the "stream" option.
+     * @return The file written
+     * @throws IOException if the file could not be written
+     */
+    @Benchmark
+    public File exportStreamingCsv() throws IOException
+    {
+        return writeRows(new File(directory, "output-stream.csv"));
+    }
+
+    /**
+     * Reads the conditions using the AlertManager workbook, as the import commands do by default.
+     * @return The conditions read
+     * @throws IOException if the file could not be read
+     */
+    @Benchmark
+    public Object importWorkbook() throws IOException
+    {
+        InputStream is = new FileInputStream(workbook);
+        try
+        {
+            return manager.readInfraMetricAlertConditions(policies, workbook.getName(), null, is);
+        }
+        finally
+        {
+            is.close();
+        }
+    }
+
+    /**
+     * Reads the rows of the XLSX file one at a time, as the import commands do with the "pipeline" option.
+     * @return The number of rows read
+     * @throws IOException if the file could not be read
+     */
+    @Benchmark
+    public long importStreamingXlsx() throws IOException
+    {
+        return readRows(workbook);
+    }
+
+    /**
+     * Reads the rows of the CSV file one at a time, as the import commands do with the "pipeline" option.
+     * @return The number of rows read
+     * @throws IOException if the file could not be read
+     */
+    @Benchmark
+    public long importStreamingCsv() throws IOException
+    {
+        return readRows(delimited);
+    }
+
+    /**
+     * Writes the conditions to the given file using the AlertManager workbook.
+     */
+    private File writeWorkbook(File file) throws IOException
+    {
+        OutputStream os = new FileOutputStream(file);
+        try
+        {
+            manager.writeInfraMetricAlertConditions(policies, conditions, file.getName(), null, os, null);
+        }
+        finally
+        {
+            os.close();
+        }
+        return file;
+    }
+
+    /**
+     * Writes the conditions to the given file using a row writer.
+     */
+    private File writeRows(File file) throws IOException
+    {
+        RowWriter writer = RowWriter.open(file.getPath(), null, false);
+        try
+        {
+            writer.writeHeader(columns.getNames());
+            for(InfraMetricAlertCondition condition : conditions)
+                writer.writeRow(columns.getValues(condition));
+        }
+        finally
+        {
+            writer.close();
+        }
+        return file;
+    }
+
+    /**
+     * Reads the rows of the given file using a row reader.
+     */
+    private long readRows(File file) throws IOException
+    {
+        final long[] count = new long[1];
+        RowReader reader = RowReader.open(file.getPath(), null);
+        try
+        {
+            reader.read(new RowReader.Handler()
+            {
+                public void row(List<String> values)
+                {
+                    ++count[0];
+                }
+            });
+        }
+        finally
+        {
+            reader.close();
+        }
+        return count[0];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.benchmarks;
+
+import java.io.IOException;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks, writing the results as JSON so that they can be compared between releases.
+ * <P>
+ * Accepts the same arguments as the JMH command line.
+ * Unless another format or file is given, the results are written to "jmh-result.json".
+ *
+ * @author Gerald Curley (opsmatters)
+ */
+public class BenchmarkRunner
+{
+    /**
+     * The default name of the results file.
+     */
+    public static final String RESULT_FILE = "jmh-result.json";
+
+    /**
+     * Entry point that runs the benchmarks.
+     * @param args The JMH command line arguments
+     * @throws CommandLineOptionException if the arguments are invalid
+     * @throws RunnerException if the benchmarks could not be run
+     * @throws IOException if the benchmarks could not be listed
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException
+    {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if(cli.shouldHelp() || cli.shouldList() || cli.shouldListProfilers() || cli.shouldListResultFormats())
+        {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+        if(!cli.getResultFormat().hasValue())
+            options = options.resultFormat(ResultFormatType.JSON);
+        if(!cli.getResult().hasValue())
+            options = options.result(RESULT_FILE);
+
+        new Runner(options.build()).run();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.benchmarks;
+
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.google.common.reflect.ClassPath;
+import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.executor.CommandRegistry;
+
+/**
+ * Measures the cold-start cost of locating the command to execute.
+ * <P>
+ * Each measurement runs in a fresh JVM so that class loading is included.
+ *
+ * @author Gerald Curley (opsmatters)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class CommandLoadingBenchmark
+{
+    private static final String COMMAND = "create_nrql_alert_condition";
+
+    private static final String BASE_PKG = "com.opsmatters.newrelic.commands";
+    private static final String[] PACKAGES =
+    {
+        "accounts", "alerts.channels", "alerts.conditions", "alerts.policies",
+        "applications", "deployments", "insights", "labels", "plugins",
+        "servers", "synthetics", "transactions"
+    };
+
+    /**
+     * Loads the command from the generated index.
+     * @return The command
+     */
+    @Benchmark
+    public BaseCommand commandIndex()
+    {
+        return CommandRegistry.load().getCommand(COMMAND);
+    }
+
+    /**
+     * Loads the command by scanning the classpath once for each package and
+     * instantiating every command, as the executor did before the index was introduced.
+     * @return The command
+     * @throws Exception if a command could not be loaded
+     */
+    @Benchmark
+    public BaseCommand classpathScan() throws Exception
+    {
+        Map<String,BaseCommand> commands = new LinkedHashMap<String,BaseCommand>();
+        ClassLoader loader = ClassLoader.getSystemClassLoader();
+        for(String pkg : PACKAGES)
+        {
+            for(ClassPath.ClassInfo ci : ClassPath.from(loader).getTopLevelClasses(BASE_PKG+"."+pkg))
+            {
+                Class cl = Class.forName(ci.getName());
+                if(BaseCommand.class.isAssignableFrom(cl))
+                {
+                    try
+                    {
+                        BaseCommand command = BaseCommand.class.cast(cl.newInstance());
+                        commands.put(command.getName(), command);
+                    }
+                    catch(InstantiationException e)
+                    {
+                    }
+                }
+            }
+        }
+
+        return commands.get(COMMAND);
+    }
+}
\ No newline at end of file
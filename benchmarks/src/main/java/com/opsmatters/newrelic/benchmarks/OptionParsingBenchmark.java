@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.alerts.conditions.CreateInfraMetricAlertCondition;
+
+/**
+ * Measures the cost of creating a command and parsing its options with commons-cli.
+ * <P>
+ * Uses one of the commands with the most options, with the API call replaced by a no-op.
+ *
+ * @author Gerald Curley (opsmatters)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class OptionParsingBenchmark
+{
+    private static final String[] ARGS =
+    {
+        "-x", "xxxxxxxxxxxxxxxxxxxxxxxxxxxxxx",
+        "-n", "benchmark-condition",
+        "-pi", "12345",
+        "-sv", "cpuPercent",
+        "-et", "SystemSample",
+        "-c", "above",
+        "-tf", "all",
+        "-d", "5",
+        "-ct", "90",
+        "-wt", "80",
+        "-wc", "(`hostname` LIKE '%prod%')"
+    };
+
+    /**
+     * The command with the API call removed, so that only the parsing is measured.
+     */
+    public static class ParseOnly extends CreateInfraMetricAlertCondition
+    {
+        @Override
+        protected void execute()
+        {
+        }
+    }
+
+    /**
+     * Creates the command, which builds its commons-cli options.
+     * @return The command
+     */
+    @Benchmark
+    public BaseCommand createCommand()
+    {
+        return new ParseOnly();
+    }
+
+    /**
+     * Creates the command and parses the arguments.
+     * @return The command
+     */
+    @Benchmark
+    public BaseCommand parseArguments()
+    {
+        BaseCommand command = new ParseOnly().embedded(true);
+        command.args(ARGS).parse();
+        return command;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,4 @@
+/**
+ * The JMH benchmarks used for New Relic.
+ */
+package com.opsmatters.newrelic.benchmarks;
@@ -0,0 +1,25 @@
+@echo off
+REM ********************************************************************************
+REM *                                                                              *
+REM *  DESCRIPTION                                                                 *
+REM *    Executes a New Relic operation using a running server                     *
+REM *                                                                              *
+REM *  AUTHOR                                                                      *
+REM *    Gerald CURLEY (opsmatters)                                                *
+REM *                                                                              *
+REM *  DATE                                                                        *
+REM *    17/10/2026                                                                *
+REM *                                                                              *
+REM ********************************************************************************
+
+REM Check for JAVA_HOME being set
+if [%JAVA_HOME%]==[] goto error
+
+REM Forward the command to the server
+if [%NEW_RELIC_SERVER_PORT%]==[] set NEW_RELIC_SERVER_PORT=7867
+%JAVA_HOME%\bin\java -Dnewrelic.server.port=%NEW_RELIC_SERVER_PORT% -classpath "..\jar\*" com.opsmatters.newrelic.executor.NewRelicClient %*
+goto :eof
+
+:error
+@echo ERROR: JAVA_HOME not set
+exit /B 1
@@ -0,0 +1,24 @@
+#!/bin/bash
+
+#==============================================================================#
+#                                                                              #
+# DESCRIPTION                                                                  #
+#   Executes a New Relic operation using a running server                      #
+#                                                                              #
+#==============================================================================#
+#                                                                              #
+# AUTHOR                                                                       #
+#   Gerald CURLEY (opsmatters)                                                 #
+#                                                                              #
+#==============================================================================#
+#                                                                              #
+# DATE                                                                         #
+#   17/10/2026                                                                 #
+#                                                                              #
+#==============================================================================#
+
+# Check for JAVA_HOME being set
+[ -z "$JAVA_HOME" ] && echo "${JAVA_HOME}: JAVA_HOME not set" && exit 1
+
+# Forward the command to the server
+${JAVA_HOME}/bin/java -Dnewrelic.server.port=${NEW_RELIC_SERVER_PORT:-7867} -classpath "../jar/*" com.opsmatters.newrelic.executor.NewRelicClient "$@"
\ No newline at end of file
@@ -21,4 +21,4 @@
 [ -z "$JAVA_HOME" ] && echo "${JAVA_HOME}: JAVA_HOME not set" && exit 1
 
 # Execute the command
-${JAVA_HOME}/bin/java -classpath "../jar/*" com.opsmatters.newrelic.executor.NewRelicExecutor "$@"
\ No newline at end of file
+${JAVA_HOME}/bin/java ${JAVA_OPTS} -classpath "../jar/*" com.opsmatters.newrelic.executor.NewRelicExecutor "$@"
\ No newline at end of file
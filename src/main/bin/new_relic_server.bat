@@ -0,0 +1,24 @@
+@echo off
+REM ********************************************************************************
+REM *                                                                              *
+REM *  DESCRIPTION                                                                 *
+REM *    Starts a server that executes New Relic operations sent by clients        *
+REM *                                                                              *
+REM *  AUTHOR                                                                      *
+REM *    Gerald CURLEY (opsmatters)                                                *
+REM *                                                                              *
+REM *  DATE                                                                        *
+REM *    17/10/2026                                                                *
+REM *                                                                              *
+REM ********************************************************************************
+
+REM Check for JAVA_HOME being set
+if [%JAVA_HOME%]==[] goto error
+
+REM Start the server
+%JAVA_HOME%\bin\java -classpath "..\jar\*" com.opsmatters.newrelic.executor.NewRelicServer %*
+goto :eof
+
+:error
+@echo ERROR: JAVA_HOME not set
+exit /B 1
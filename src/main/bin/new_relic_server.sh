@@ -0,0 +1,24 @@
+#!/bin/bash
+
+#==============================================================================#
+#                                                                              #
+# DESCRIPTION                                                                  #
+#   Starts a server that executes New Relic operations sent by clients         #
+#                                                                              #
+#==============================================================================#
+#                                                                              #
+# AUTHOR                                                                       #
+#   Gerald CURLEY (opsmatters)                                                 #
+#                                                                              #
+#==============================================================================#
+#                                                                              #
+# DATE                                                                         #
+#   17/10/2026                                                                 #
+#                                                                              #
+#==============================================================================#
+
+# Check for JAVA_HOME being set
+[ -z "$JAVA_HOME" ] && echo "${JAVA_HOME}: JAVA_HOME not set" && exit 1
+
+# Start the server
+${JAVA_HOME}/bin/java -classpath "../jar/*" com.opsmatters.newrelic.executor.NewRelicServer "$@"
\ No newline at end of file
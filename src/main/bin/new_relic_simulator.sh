@@ -0,0 +1,24 @@
+#!/bin/bash
+
+#==============================================================================#
+#                                                                              #
+# DESCRIPTION                                                                  #
+#   Starts a local simulator of the New Relic APIs for offline testing         #
+#                                                                              #
+#==============================================================================#
+#                                                                              #
+# AUTHOR                                                                       #
+#   Gerald CURLEY (opsmatters)                                                 #
+#                                                                              #
+#==============================================================================#
+#                                                                              #
+# DATE                                                                         #
+#   17/10/2026                                                                 #
+#                                                                              #
+#==============================================================================#
+
+# Check for JAVA_HOME being set
+[ -z "$JAVA_HOME" ] && echo "${JAVA_HOME}: JAVA_HOME not set" && exit 1
+
+# Start the simulator
+${JAVA_HOME}/bin/java -classpath "../jar/*" com.opsmatters.newrelic.simulator.NewRelicSimulator "$@"
\ No newline at end of file
@@ -0,0 +1,356 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opsmatters.newrelic.clients;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+import com.opsmatters.newrelic.api.NewRelicApi;
+import com.opsmatters.newrelic.api.NewRelicInfraApi;
+import com.opsmatters.newrelic.api.NewRelicSyntheticsApi;
+
+/**
+ * Creates and caches the API clients, keyed by endpoint, base URL and API key.
+ * <P>
+ * The clients are shared by all the commands executed within the same JVM,
+ * so that their HTTP connections and JSON mappers are reused.
+ * <P>
+ * The clients connect to the New Relic hosts unless a base URL is given by the command,
+ * eg. to run the command against a local stand-in server.
+ * The default base URL is given by the "newrelic.api.url" system property.
+ * <P>
+ * Each client is created together with the {@link RateGovernor} of its API key,
+ * which admits every call made with the clients of the key through {@link #call(String, String, String, Callable)},
+ * and is also the governor used by the bulk operations and fetches of the commands.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class ApiClientFactory
+{
+    private static final Logger logger = Logger.getLogger(ApiClientFactory.class.getName());
+
+    /**
+     * The default maximum number of idle keep-alive connections kept for each host.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 5;
+
+    /**
+     * The system property containing the base URL that overrides the New Relic hosts.
+     */
+    public static final String BASE_URL_PROPERTY = "newrelic.api.url";
+
+    private static final String REST = "rest";
+    private static final String INFRA = "infra";
+    private static final String SYNTHETICS = "synthetics";
+    private static final String GOVERNOR = "governor";
+    private static final String BREAKER = "breaker";
+
+    private static final ApiClientFactory instance = new ApiClientFactory();
+
+    private ConcurrentMap<String,Object> clients = new ConcurrentHashMap<String,Object>();
+    private ConcurrentMap<String,RateGovernor> governors = new ConcurrentHashMap<String,RateGovernor>();
+    private ConcurrentMap<String,CircuitBreaker> breakers = new ConcurrentHashMap<String,CircuitBreaker>();
+
+    /**
+     * Private constructor as this class is a singleton.
+     */
+    private ApiClientFactory()
+    {
+    }
+
+    /**
+     * Returns the shared instance of the factory.
+     * @return The shared instance of the factory
+     */
+    public static ApiClientFactory getInstance()
+    {
+        return instance;
+    }
+
+    /**
+     * Sets the maximum number of idle keep-alive connections kept for each host.
+     * <P>
+     * The setting applies to the whole JVM and is only read when the first connection is opened,
+     * so it must be called at startup, eg. by the server, rather than by each command.
+     * Otherwise set the "http.maxConnections" system property when starting the JVM.
+     * @param maxConnections The maximum number of idle connections for each host
+     */
+    public static void setMaxConnections(int maxConnections)
+    {
+        if(maxConnections < 1)
+            throw new IllegalArgumentException("max connections must be at least 1");
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", Integer.toString(maxConnections));
+    }
+
+    /**
+     * Returns the default base URL used in place of the New Relic hosts, from the "newrelic.api.url" system property.
+     * @return The default base URL, or <CODE>null</CODE> if the New Relic hosts are used
+     */
+    public static String getDefaultBaseUrl()
+    {
+        String url = System.getProperty(BASE_URL_PROPERTY);
+        return url != null && url.length() > 0 ? url : null;
+    }
+
+    /**
+     * Checks that the given base URL is valid.
+     * <P>
+     * The REST, Infrastructure and Synthetics APIs are all served from the base URL,
+     * eg. "http://localhost:8089".
+     * @param url The base URL
+     * @throws IllegalArgumentException if the URL is not valid
+     */
+    public static void validateBaseUrl(String url)
+    {
+        url(url);
+    }
+
+    /**
+     * Returns the REST API client for the given API key, creating it if necessary.
+     * @param apiKey The New Relic API key
+     * @param baseUrl The base URL used in place of the New Relic hosts, or <CODE>null</CODE> to use the New Relic hosts
+     * @param verbose <CODE>true</CODE> if the creation of the client should be logged
+     * @return The REST API client
+     */
+    public NewRelicApi getApi(String apiKey, String baseUrl, boolean verbose)
+    {
+        String key = key(REST, apiKey, baseUrl);
+        NewRelicApi api = (NewRelicApi)clients.get(key);
+        if(api == null)
+        {
+            if(verbose)
+                logger.info("Creating REST API client");
+
+            // The calls made with the client are admitted by the governor of the API key
+            getGovernor(apiKey, baseUrl);
+
+            NewRelicApi.Builder builder = NewRelicApi.builder()
+                .apiKey(apiKey);
+            URL url = url(baseUrl);
+            if(url != null)
+            {
+                builder = builder.protocol(url.getProtocol())
+                    .hostname(url.getHost())
+                    .port(url.getPort() != -1 ? url.getPort() : url.getDefaultPort());
+            }
+
+            api = builder.build();
+            api = (NewRelicApi)cache(key, api);
+        }
+
+        return api;
+    }
+
+    /**
+     * Returns the Infrastructure API client for the given API key, creating it if necessary.
+     * @param apiKey The New Relic API key
+     * @param baseUrl The base URL used in place of the New Relic hosts, or <CODE>null</CODE> to use the New Relic hosts
+     * @param verbose <CODE>true</CODE> if the creation of the client should be logged
+     * @return The Infrastructure API client
+     */
+    public NewRelicInfraApi getInfraApi(String apiKey, String baseUrl, boolean verbose)
+    {
+        String key = key(INFRA, apiKey, baseUrl);
+        NewRelicInfraApi api = (NewRelicInfraApi)clients.get(key);
+        if(api == null)
+        {
+            if(verbose)
+                logger.info("Creating Infra API client");
+
+            // The calls made with the client are admitted by the governor of the API key
+            getGovernor(apiKey, baseUrl);
+
+            NewRelicInfraApi.Builder builder = NewRelicInfraApi.builder()
+                .apiKey(apiKey);
+            URL url = url(baseUrl);
+            if(url != null)
+            {
+                builder = builder.protocol(url.getProtocol())
+                    .hostname(url.getHost())
+                    .port(url.getPort() != -1 ? url.getPort() : url.getDefaultPort());
+            }
+
+            api = builder.build();
+            api = (NewRelicInfraApi)cache(key, api);
+        }
+
+        return api;
+    }
+
+    /**
+     * Returns the Synthetics API client for the given API key, creating it if necessary.
+     * @param apiKey The New Relic API key
+     * @param baseUrl The base URL used in place of the New Relic hosts, or <CODE>null</CODE> to use the New Relic hosts
+     * @param verbose <CODE>true</CODE> if the creation of the client should be logged
+     * @return The Synthetics API client
+     */
+    public NewRelicSyntheticsApi getSyntheticsApi(String apiKey, String baseUrl, boolean verbose)
+    {
+        String key = key(SYNTHETICS, apiKey, baseUrl);
+        NewRelicSyntheticsApi api = (NewRelicSyntheticsApi)clients.get(key);
+        if(api == null)
+        {
+            if(verbose)
+                logger.info("Creating Synthetics API client");
+
+            // The calls made with the client are admitted by the governor of the API key
+            getGovernor(apiKey, baseUrl);
+
+            NewRelicSyntheticsApi.Builder builder = NewRelicSyntheticsApi.builder()
+                .apiKey(apiKey);
+            URL url = url(baseUrl);
+            if(url != null)
+            {
+                builder = builder.protocol(url.getProtocol())
+                    .hostname(url.getHost())
+                    .port(url.getPort() != -1 ? url.getPort() : url.getDefaultPort());
+            }
+
+            api = builder.build();
+            api = (NewRelicSyntheticsApi)cache(key, api);
+        }
+
+        return api;
+    }
+
+    /**
+     * Returns the rate governor for the given API key, creating it if necessary.
+     * @param apiKey The New Relic API key
+     * @param baseUrl The base URL used in place of the New Relic hosts, or <CODE>null</CODE> to use the New Relic hosts
+     * @return The rate governor for the API key
+     */
+    public RateGovernor getGovernor(String apiKey, String baseUrl)
+    {
+        String key = key(GOVERNOR, apiKey, baseUrl);
+        RateGovernor governor = governors.get(key);
+        if(governor == null)
+        {
+            governor = new RateGovernor();
+            RateGovernor existing = governors.putIfAbsent(key, governor);
+            if(existing != null)
+                governor = existing;
+        }
+
+        return governor;
+    }
+
+    /**
+     * Returns the circuit breaker for the given API endpoint and API key, creating it if necessary.
+     * @param apiKey The New Relic API key
+     * @param baseUrl The base URL used in place of the New Relic hosts, or <CODE>null</CODE> to use the New Relic hosts
+     * @param endpoint The API endpoint, eg. "alerts_policies"
+     * @return The circuit breaker for the endpoint
+     */
+    public CircuitBreaker getCircuitBreaker(String apiKey, String baseUrl, String endpoint)
+    {
+        String key = key(BREAKER+"/"+endpoint, apiKey, baseUrl);
+        CircuitBreaker breaker = breakers.get(key);
+        if(breaker == null)
+        {
+            breaker = new CircuitBreaker(endpoint);
+            CircuitBreaker existing = breakers.putIfAbsent(key, breaker);
+            if(existing != null)
+                breaker = existing;
+        }
+
+        return breaker;
+    }
+
+    /**
+     * Makes the given call with a client for the API key once admitted by the circuit breaker of the API endpoint
+     * and the rate governor of the API key.
+     * @param apiKey The New Relic API key
+     * @param baseUrl The base URL used in place of the New Relic hosts, or <CODE>null</CODE> to use the New Relic hosts
+     * @param endpoint The API endpoint, eg. "alerts_policies"
+     * @param call The API call to make
+     * @return The result of the call
+     * @throws Exception if the call fails or is not admitted by the circuit breaker
+     */
+    public <T> T call(String apiKey, String baseUrl, String endpoint, final Callable<T> call) throws Exception
+    {
+        final RateGovernor governor = getGovernor(apiKey, baseUrl);
+        return getCircuitBreaker(apiKey, baseUrl, endpoint).call(new Callable<T>()
+        {
+            public T call() throws Exception
+            {
+                return governor.call(call);
+            }
+        });
+    }
+
+    /**
+     * Returns the number of clients in the cache.
+     * @return The number of clients in the cache
+     */
+    public int size()
+    {
+        return clients.size();
+    }
+
+    /**
+     * Removes all the clients, rate governors and circuit breakers from the cache.
+     */
+    public void clear()
+    {
+        clients.clear();
+        governors.clear();
+        breakers.clear();
+    }
+
+    /**
+     * Adds the given client to the cache, returning the existing client if another thread got there first.
+     */
+    private Object cache(String key, Object client)
+    {
+        Object existing = clients.putIfAbsent(key, client);
+        return existing != null ? existing : client;
+    }
+
+    /**
+     * Returns the cache key for the given endpoint, API key and base URL.
+     */
+    private static String key(String endpoint, String apiKey, String baseUrl)
+    {
+        if(apiKey == null)
+            throw new IllegalArgumentException("null API key");
+        URL url = url(baseUrl);
+        if(url != null)
+            endpoint = endpoint+"@"+url;
+        return endpoint+":"+apiKey;
+    }
+
+    /**
+     * Returns the given string as a URL.
+     */
+    private static URL url(String url)
+    {
+        if(url == null || url.length() == 0)
+            return null;
+
+        try
+        {
+            return new URL(url);
+        }
+        catch(MalformedURLException e)
+        {
+            throw new IllegalArgumentException("invalid base URL: "+url, e);
+        }
+    }
+}
\ No newline at end of file
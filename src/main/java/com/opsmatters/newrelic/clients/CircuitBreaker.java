@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.clients;
+
+import java.util.concurrent.Callable;
+import java.util.logging.Logger;
+
+/**
+ * Stops calling an API endpoint that is failing, to let it recover rather than adding to its load.
+ * <P>
+ * The circuit opens after a number of consecutive calls fail with a 5xx response or an I/O error,
+ * after which calls fail immediately with a {@link CircuitOpenException}.
+ * Once the circuit has been open for a while a single trial call is allowed:
+ * the circuit closes again if it succeeds, or stays open if it fails.
+ * <P>
+ * A circuit breaker is shared by all the calls made to an endpoint with the same API key,
+ * see {@link ApiClientFactory#getCircuitBreaker(String, String, String)}.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class CircuitBreaker
+{
+    private static final Logger logger = Logger.getLogger(CircuitBreaker.class.getName());
+
+    /**
+     * The default number of consecutive failures that opens the circuit.
+     */
+    public static final int DEFAULT_THRESHOLD = 5;
+
+    /**
+     * The default time the circuit stays open before a trial call is allowed in milliseconds.
+     */
+    public static final long DEFAULT_OPEN_TIME = 30000L;
+
+    private String endpoint;
+    private int threshold = DEFAULT_THRESHOLD;
+    private long openTime = DEFAULT_OPEN_TIME;
+    private int failures = 0;
+    private long openedAt = 0L;
+    private boolean open = false;
+    private boolean trial = false;
+
+    /**
+     * Constructor that takes the endpoint.
+     * @param endpoint The API endpoint used in log messages, eg. "alerts_policies"
+     */
+    public CircuitBreaker(String endpoint)
+    {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Sets the number of consecutive failures that opens the circuit.
+     * @param threshold The number of consecutive failures
+     * @return This object
+     */
+    public CircuitBreaker threshold(int threshold)
+    {
+        if(threshold < 1)
+            throw new IllegalArgumentException("threshold must be at least 1");
+        this.threshold = threshold;
+        return this;
+    }
+
+    /**
+     * Sets the time the circuit stays open before a trial call is allowed.
+     * @param openTime The time the circuit stays open in milliseconds
+     * @return This object
+     */
+    public CircuitBreaker openTime(long openTime)
+    {
+        this.openTime = openTime;
+        return this;
+    }
+
+    /**
+     * Returns <CODE>true</CODE> if the circuit is open.
+     * @return <CODE>true</CODE> if the circuit is open
+     */
+    public synchronized boolean isOpen()
+    {
+        return open;
+    }
+
+    /**
+     * Executes the given call if the circuit is closed or a trial call is allowed.
+     * @param call The API call to execute
+     * @return The result of the call
+     * @throws CircuitOpenException if the circuit is open
+     * @throws Exception if the call fails
+     */
+    public <T> T call(Callable<T> call) throws Exception
+    {
+        acquire();
+        try
+        {
+            T ret = call.call();
+            succeeded();
+            return ret;
+        }
+        catch(Exception e)
+        {
+            failed(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Throws an exception if the circuit is open and a trial call is not allowed.
+     */
+    private synchronized void acquire()
+    {
+        if(open)
+        {
+            long remaining = openedAt+openTime-System.currentTimeMillis();
+            if(remaining > 0L || trial)
+                throw new CircuitOpenException(endpoint, Math.max(remaining, 0L));
+            trial = true;
+        }
+    }
+
+    /**
+     * Closes the circuit after a call succeeds.
+     */
+    private synchronized void succeeded()
+    {
+        if(open)
+            logger.info("Closing circuit for endpoint "+endpoint);
+        failures = 0;
+        open = false;
+        trial = false;
+    }
+
+    /**
+     * Counts a failed call, opening the circuit if there have been too many consecutive failures or the trial call failed.
+     * <P>
+     * Only 5xx responses and I/O errors are counted, as other errors do not indicate that the endpoint is failing.
+     */
+    private synchronized void failed(Exception e)
+    {
+        if(!RetryPolicy.isRetryable(e) || RetryPolicy.isRateLimited(e))
+        {
+            trial = false;
+            return;
+        }
+
+        ++failures;
+        if(trial || failures >= threshold)
+        {
+            if(!open)
+                logger.warning("Opening circuit for endpoint "+endpoint+" after "+failures+" failures");
+            open = true;
+            trial = false;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.clients;
+
+/**
+ * Thrown when an API call is not made because the circuit breaker of the endpoint is open.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class CircuitOpenException extends RuntimeException
+{
+    private long retryAfter;
+
+    /**
+     * Constructor that takes the endpoint and the time until the next call is allowed.
+     * @param endpoint The API endpoint
+     * @param retryAfter The time until the next call is allowed in milliseconds
+     */
+    public CircuitOpenException(String endpoint, long retryAfter)
+    {
+        super("circuit open for endpoint "+endpoint);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Returns the time until the next call is allowed.
+     * @return The time until the next call is allowed in milliseconds
+     */
+    public long getRetryAfter()
+    {
+        return retryAfter;
+    }
+}
\ No newline at end of file
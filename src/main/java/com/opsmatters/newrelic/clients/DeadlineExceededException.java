@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.clients;
+
+/**
+ * Thrown when an API call is not made because the deadline of the command has passed.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class DeadlineExceededException extends RuntimeException
+{
+    /**
+     * Default constructor.
+     */
+    public DeadlineExceededException()
+    {
+        super("command deadline exceeded");
+    }
+}
\ No newline at end of file
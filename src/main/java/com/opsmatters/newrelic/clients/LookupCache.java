@@ -0,0 +1,423 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.clients;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.logging.Logger;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Caches the reference lists used to look up objects (eg. alert policies, applications, servers and channels) on disk.
+ * <P>
+ * The lists are kept in a file for each account and list name, under the directory given by the
+ * "newrelic.cache.dir" system property, which defaults to ".newrelic/cache" in the user's home directory.
+ * Each account is identified by a hash of its API key, so the keys are not written to disk.
+ * Only the id, name and type of each object are written to the files, which can only be read by the owner,
+ * so that secrets such as the credentials of alert channels are not written to disk.
+ * Lists older than the TTL are reloaded, and the oldest files are evicted when the cache exceeds its maximum size.
+ * The most recently used lists are also kept in memory for commands executed within the same JVM.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class LookupCache
+{
+    private static final Logger logger = Logger.getLogger(LookupCache.class.getName());
+
+    /**
+     * The default time-to-live of a cached list in seconds.
+     */
+    public static final long DEFAULT_TTL = 300L;
+
+    /**
+     * The default maximum size of the cache directory in bytes.
+     */
+    public static final long DEFAULT_MAX_SIZE = 50L*1024L*1024L;
+
+    private static final int MAX_MEMORY_ENTRIES = 64;
+    private static final String SUFFIX = ".json";
+    private static final String[] PROPERTIES = {"id", "name", "type"};
+
+    private static final LookupCache instance = new LookupCache(defaultDirectory());
+
+    private File directory;
+    private long ttl = DEFAULT_TTL;
+    private long maxSize = DEFAULT_MAX_SIZE;
+    private Gson gson = new Gson();
+    private Map<String,Entry> entries = new LinkedHashMap<String,Entry>(16, 0.75f, true)
+    {
+        protected boolean removeEldestEntry(Map.Entry<String,Entry> eldest)
+        {
+            return size() > MAX_MEMORY_ENTRIES;
+        }
+    };
+
+    /**
+     * A list and the time it was loaded.
+     */
+    private static class Entry
+    {
+        private List<?> items;
+        private long loaded;
+
+        Entry(List<?> items, long loaded)
+        {
+            this.items = items;
+            this.loaded = loaded;
+        }
+    }
+
+    /**
+     * Constructor that takes the cache directory.
+     * @param directory The directory containing the cache files
+     */
+    public LookupCache(File directory)
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the shared instance of the cache.
+     * @return The shared instance of the cache
+     */
+    public static LookupCache getInstance()
+    {
+        return instance;
+    }
+
+    /**
+     * Returns the default cache directory.
+     */
+    private static File defaultDirectory()
+    {
+        String dir = System.getProperty("newrelic.cache.dir");
+        if(dir != null && dir.length() > 0)
+            return new File(dir);
+        return new File(new File(System.getProperty("user.home"), ".newrelic"), "cache");
+    }
+
+    /**
+     * Sets the time-to-live of a cached list.
+     * @param ttl The time-to-live of a cached list in seconds
+     * @return This object
+     */
+    public LookupCache ttl(long ttl)
+    {
+        this.ttl = ttl;
+        return this;
+    }
+
+    /**
+     * Sets the maximum size of the cache directory.
+     * @param maxSize The maximum size of the cache directory in bytes
+     * @return This object
+     */
+    public LookupCache maxSize(long maxSize)
+    {
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    /**
+     * Returns the cached list with the given name for the account, calling the loader if the list is missing or expired.
+     * @param apiKey The API key of the account
+     * @param name The name of the list, eg. "alert_policies"
+     * @param type The class used to read the objects in the list from the cache file
+     * @param refresh <CODE>true</CODE> if the list should be reloaded even if it has not expired
+     * @param loader The loader called to get the list from the API
+     * @return The list of objects
+     * @throws Exception if the loader failed
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> get(String apiKey, String name, Class<T> type, boolean refresh, Callable<List<T>> loader) throws Exception
+    {
+        String key = account(apiKey)+File.separator+name;
+        long now = System.currentTimeMillis();
+
+        if(!refresh)
+        {
+            synchronized(entries)
+            {
+                Entry entry = entries.get(key);
+                if(entry != null && !expired(entry.loaded, now))
+                    return (List<T>)entry.items;
+            }
+
+            File file = new File(directory, key+SUFFIX);
+            if(file.exists() && !expired(file.lastModified(), now))
+            {
+                try
+                {
+                    List<T> items = read(file, type);
+                    put(key, items, file.lastModified());
+                    return items;
+                }
+                catch(IOException e)
+                {
+                    logger.warning("Unable to read cache file: "+file.getName()+": "+e.getMessage());
+                }
+                catch(RuntimeException e)
+                {
+                    // The file is corrupt
+                    logger.warning("Unable to read cache file: "+file.getName()+": "+e.getMessage());
+                }
+            }
+        }
+
+        List<T> items = loader.call();
+        put(key, items, now);
+
+        try
+        {
+            write(new File(directory, key+SUFFIX), items);
+            evict();
+        }
+        catch(IOException e)
+        {
+            logger.warning("Unable to write cache file: "+name+": "+e.getMessage());
+        }
+
+        return items;
+    }
+
+    /**
+     * Removes the list with the given name for the account from the cache.
+     * @param apiKey The API key of the account
+     * @param name The name of the list, eg. "alert_policies"
+     */
+    public void invalidate(String apiKey, String name)
+    {
+        String key = account(apiKey)+File.separator+name;
+        synchronized(entries)
+        {
+            entries.remove(key);
+        }
+        new File(directory, key+SUFFIX).delete();
+    }
+
+    /**
+     * Removes all the lists from the cache.
+     */
+    public void clear()
+    {
+        synchronized(entries)
+        {
+            entries.clear();
+        }
+        for(File file : getFiles())
+            file.delete();
+    }
+
+    /**
+     * Returns <CODE>true</CODE> if an entry loaded at the given time has expired.
+     */
+    private boolean expired(long loaded, long now)
+    {
+        return now-loaded > ttl*1000L;
+    }
+
+    /**
+     * Adds the given list to the memory cache.
+     */
+    private void put(String key, List<?> items, long loaded)
+    {
+        synchronized(entries)
+        {
+            entries.put(key, new Entry(Collections.unmodifiableList(items), loaded));
+        }
+    }
+
+    /**
+     * Reads the list from the given file, creating each object using the given class.
+     */
+    private <T> List<T> read(File file, Class<T> type) throws IOException
+    {
+        Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try
+        {
+            List<T> ret = new ArrayList<T>();
+            JsonArray array = new JsonParser().parse(reader).getAsJsonArray();
+            for(JsonElement element : array)
+                ret.add(gson.fromJson(element, type));
+            return ret;
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Writes the id, name and type of each object in the list to the given file.
+     */
+    private void write(File file, List<?> items) throws IOException
+    {
+        File dir = file.getParentFile();
+        if(!directory.exists() && directory.mkdirs())
+            restrict(directory);
+        if(!dir.exists() && dir.mkdirs())
+            restrict(dir);
+
+        JsonArray array = new JsonArray();
+        for(Object item : items)
+        {
+            JsonObject value = gson.toJsonTree(item).getAsJsonObject();
+            JsonObject obj = new JsonObject();
+            for(String property : PROPERTIES)
+            {
+                if(value.has(property))
+                    obj.add(property, value.get(property));
+            }
+            array.add(obj);
+        }
+
+        // Write to a temporary file first so that readers never see a partial file,
+        // making it readable only by the owner before anything is written to it
+        File tmp = new File(dir, file.getName()+".tmp");
+        tmp.delete();
+        if(!tmp.createNewFile())
+            throw new IOException("unable to create file: "+tmp.getName());
+        restrict(tmp);
+        Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8");
+        try
+        {
+            gson.toJson(array, writer);
+        }
+        finally
+        {
+            writer.close();
+        }
+
+        if(!tmp.renameTo(file))
+        {
+            file.delete();
+            if(!tmp.renameTo(file))
+                throw new IOException("unable to rename file: "+tmp.getName());
+        }
+    }
+
+    /**
+     * Makes the given file or directory accessible only by the owner.
+     * <P>
+     * Removing the permissions of other users fails on file systems without them, so only granting the owner's permissions is checked.
+     */
+    private static void restrict(File file) throws IOException
+    {
+        file.setReadable(false, false);
+        file.setWritable(false, false);
+        boolean ret = file.setReadable(true, true) && file.setWritable(true, true);
+        if(file.isDirectory())
+        {
+            file.setExecutable(false, false);
+            ret = ret && file.setExecutable(true, true);
+        }
+        if(!ret)
+            throw new IOException("unable to set permissions: "+file.getName());
+    }
+
+    /**
+     * Deletes the oldest files until the cache is within its maximum size.
+     */
+    private void evict()
+    {
+        List<File> files = getFiles();
+        long size = 0L;
+        for(File file : files)
+            size += file.length();
+        if(size <= maxSize)
+            return;
+
+        Collections.sort(files, new Comparator<File>()
+        {
+            public int compare(File f1, File f2)
+            {
+                return Long.valueOf(f1.lastModified()).compareTo(Long.valueOf(f2.lastModified()));
+            }
+        });
+
+        for(File file : files)
+        {
+            if(size <= maxSize)
+                break;
+            size -= file.length();
+            if(file.delete())
+                logger.fine("Evicted cache file: "+file.getPath());
+        }
+    }
+
+    /**
+     * Returns the cache files for all accounts.
+     */
+    private List<File> getFiles()
+    {
+        List<File> ret = new ArrayList<File>();
+        File[] accounts = directory.listFiles();
+        if(accounts == null)
+            return ret;
+        for(File account : accounts)
+        {
+            File[] files = account.listFiles();
+            if(files != null)
+                ret.addAll(Arrays.asList(files));
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the identifier of the account used in the cache, which is a hash of the API key.
+     */
+    private static String account(String apiKey)
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(apiKey.getBytes("UTF-8"));
+            StringBuilder str = new StringBuilder();
+            for(int i = 0; i < 8; i++)
+                str.append(String.format("%02x", hash[i]));
+            return str.toString();
+        }
+        catch(NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        catch(IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+}
\ No newline at end of file
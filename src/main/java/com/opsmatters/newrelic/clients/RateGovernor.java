@@ -0,0 +1,280 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.clients;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Governs the rate and concurrency of the API calls made with an API key, adapting to the quota of the API.
+ * <P>
+ * Calls are admitted by a token bucket and a limit on the number of calls in flight.
+ * Both are doubled every second while the calls succeed until a call is first rejected
+ * with a 429 (Too Many Requests) response, and from then on are increased additively while the calls succeed
+ * and halved when a call is rejected, after which calls are paused for a short time.
+ * Only the first rejection of the calls in flight reduces the limits,
+ * so that a burst of rejections does not collapse the throughput.
+ * <P>
+ * A governor is shared by all the API clients and commands using the same API key, see {@link ApiClientFactory#getGovernor(String, String)}.
+ * The governor of the command being executed is held for its thread, so that the bulk operations
+ * and fetches started by the command use it without it being passed down.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class RateGovernor
+{
+    private static final Logger logger = Logger.getLogger(RateGovernor.class.getName());
+
+    /**
+     * The default number of calls per second when the governor is created.
+     */
+    public static final double DEFAULT_INITIAL_RATE = 10.0d;
+
+    /**
+     * The default maximum number of calls per second.
+     */
+    public static final double DEFAULT_MAX_RATE = 100.0d;
+
+    /**
+     * The default number of calls in flight when the governor is created.
+     */
+    public static final int DEFAULT_INITIAL_CONCURRENCY = 4;
+
+    /**
+     * The default maximum number of calls in flight.
+     */
+    public static final int DEFAULT_MAX_CONCURRENCY = 32;
+
+    /**
+     * The default time calls are paused after a call is rejected in milliseconds.
+     */
+    public static final long DEFAULT_PAUSE = 1000L;
+
+    private static final double MIN_RATE = 0.5d;
+    private static final double INCREASE = 1.0d;
+    private static final double DECREASE = 0.5d;
+
+    private static final ThreadLocal<RateGovernor> current = new ThreadLocal<RateGovernor>();
+
+    private double rate;
+    private double maxRate;
+    private double concurrency;
+    private int maxConcurrency;
+    private long pause = DEFAULT_PAUSE;
+    private double tokens = 1.0d;
+    private long refilled = System.nanoTime();
+    private long pausedUntil = refilled;
+    private long decreased = refilled;
+    private int inFlight;
+    private boolean slowStart = true;
+    private long throttled;
+
+    /**
+     * Default constructor.
+     */
+    public RateGovernor()
+    {
+        this(DEFAULT_INITIAL_RATE, DEFAULT_MAX_RATE, DEFAULT_INITIAL_CONCURRENCY, DEFAULT_MAX_CONCURRENCY);
+    }
+
+    /**
+     * Constructor that takes the initial and maximum limits.
+     * @param rate The initial number of calls per second
+     * @param maxRate The maximum number of calls per second
+     * @param concurrency The initial number of calls in flight
+     * @param maxConcurrency The maximum number of calls in flight
+     */
+    public RateGovernor(double rate, double maxRate, int concurrency, int maxConcurrency)
+    {
+        if(rate < MIN_RATE || maxRate < rate)
+            throw new IllegalArgumentException("invalid rate: "+rate+" (max "+maxRate+")");
+        if(concurrency < 1 || maxConcurrency < concurrency)
+            throw new IllegalArgumentException("invalid concurrency: "+concurrency+" (max "+maxConcurrency+")");
+        this.rate = rate;
+        this.maxRate = maxRate;
+        this.concurrency = concurrency;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Sets the governor of the command being executed by the current thread.
+     * @param governor The governor of the command, or <CODE>null</CODE> to clear it
+     */
+    public static void setCurrent(RateGovernor governor)
+    {
+        if(governor != null)
+            current.set(governor);
+        else
+            current.remove();
+    }
+
+    /**
+     * Returns the governor of the command being executed by the current thread.
+     * @return The governor of the command, or <CODE>null</CODE> if there is no command
+     */
+    public static RateGovernor getCurrent()
+    {
+        return current.get();
+    }
+
+    /**
+     * Sets the time calls are paused after a call is rejected.
+     * @param pause The time calls are paused in milliseconds
+     * @return This object
+     */
+    public RateGovernor pause(long pause)
+    {
+        this.pause = pause;
+        return this;
+    }
+
+    /**
+     * Returns the current number of calls per second.
+     * @return The current number of calls per second
+     */
+    public synchronized double getRate()
+    {
+        return rate;
+    }
+
+    /**
+     * Returns the current maximum number of calls in flight.
+     * @return The current maximum number of calls in flight
+     */
+    public synchronized int getConcurrency()
+    {
+        return (int)concurrency;
+    }
+
+    /**
+     * Returns the number of calls that have been rejected with a 429 response.
+     * @return The number of calls that have been rejected
+     */
+    public synchronized long getThrottled()
+    {
+        return throttled;
+    }
+
+    /**
+     * Executes the given call once it has been admitted, adjusting the limits according to its outcome.
+     * @param call The API call to execute
+     * @return The result of the call
+     * @throws Exception if the call fails
+     */
+    public <T> T call(Callable<T> call) throws Exception
+    {
+        long started = acquire();
+        boolean succeeded = false;
+        boolean rejected = false;
+        try
+        {
+            T ret = call.call();
+            succeeded = true;
+            return ret;
+        }
+        catch(Exception e)
+        {
+            rejected = RetryPolicy.isRateLimited(e);
+            throw e;
+        }
+        finally
+        {
+            release(started, succeeded, rejected);
+        }
+    }
+
+    /**
+     * Waits until a call can be admitted.
+     * @return The time the call was admitted in nanoseconds
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    private synchronized long acquire() throws InterruptedException
+    {
+        while(true)
+        {
+            long now = System.nanoTime();
+            refill(now);
+            if(now < pausedUntil)
+            {
+                TimeUnit.NANOSECONDS.timedWait(this, pausedUntil-now);
+            }
+            else if(inFlight >= (int)concurrency)
+            {
+                wait();
+            }
+            else if(tokens < 1.0d)
+            {
+                TimeUnit.NANOSECONDS.timedWait(this, Math.max(1L, (long)((1.0d-tokens)*1.0e9d/rate)));
+            }
+            else
+            {
+                tokens -= 1.0d;
+                ++inFlight;
+                return now;
+            }
+        }
+    }
+
+    /**
+     * Releases a call that has completed, increasing the limits if it succeeded or decreasing them if it was rejected.
+     * @param started The time the call was admitted in nanoseconds
+     * @param succeeded <CODE>true</CODE> if the call succeeded
+     * @param rejected <CODE>true</CODE> if the call was rejected with a 429 response
+     */
+    private synchronized void release(long started, boolean succeeded, boolean rejected)
+    {
+        long now = System.nanoTime();
+        refill(now);
+        --inFlight;
+
+        if(succeeded)
+        {
+            // Each call adds a call per second until the first rejection, otherwise a call per second every second
+            rate = Math.min(maxRate, rate+(slowStart ? INCREASE : INCREASE/rate));
+            concurrency = Math.min(maxConcurrency, concurrency+(slowStart ? 1.0d : 1.0d/concurrency));
+        }
+        else if(rejected)
+        {
+            ++throttled;
+
+            // Calls admitted before the last decrease were sent at the previous limits
+            if(started - decreased > 0L)
+            {
+                rate = Math.max(MIN_RATE, rate*DECREASE);
+                concurrency = Math.max(1.0d, concurrency*DECREASE);
+                tokens = 0.0d;
+                slowStart = false;
+                decreased = now;
+                pausedUntil = now+TimeUnit.MILLISECONDS.toNanos(pause);
+                logger.warning(String.format("API rate limit exceeded, reducing to %.1f calls/s with %d concurrent calls",
+                    rate, (int)concurrency));
+            }
+        }
+
+        notifyAll();
+    }
+
+    /**
+     * Adds the tokens accrued since the last refill, up to one second of calls.
+     */
+    private void refill(long now)
+    {
+        tokens = Math.min(Math.max(1.0d, rate), tokens+(now-refilled)*rate/1.0e9d);
+        refilled = now;
+    }
+}
\ No newline at end of file
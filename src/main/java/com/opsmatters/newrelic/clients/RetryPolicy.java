@@ -0,0 +1,232 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opsmatters.newrelic.clients;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.logging.Logger;
+import com.opsmatters.newrelic.api.exceptions.ErrorResponseException;
+
+/**
+ * Retries API calls that fail with a transient error, using exponential backoff with jitter.
+ * <P>
+ * Calls are retried if they fail with a 429 (Too Many Requests) or 5xx response,
+ * or with an I/O error such as a timeout, or if the circuit breaker of the endpoint is open.
+ * Calls that are not idempotent, such as creating an object, are only retried if the request was rejected
+ * before it was processed, to avoid creating duplicate objects.
+ * <P>
+ * No further calls or retries are made once the deadline has passed.
+ * The deadline is given explicitly rather than held for a thread,
+ * so that it also applies to the calls made by worker threads on behalf of a command.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class RetryPolicy
+{
+    private static final Logger logger = Logger.getLogger(RetryPolicy.class.getName());
+
+    /**
+     * The default maximum number of retries.
+     */
+    public static final int DEFAULT_RETRIES = 3;
+
+    /**
+     * The default delay before the first retry in milliseconds.
+     */
+    public static final long DEFAULT_BASE_DELAY = 500L;
+
+    /**
+     * The default maximum delay between retries in milliseconds.
+     */
+    public static final long DEFAULT_MAX_DELAY = 30000L;
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private static final Random random = new Random();
+
+    private int retries = DEFAULT_RETRIES;
+    private long baseDelay = DEFAULT_BASE_DELAY;
+    private long maxDelay = DEFAULT_MAX_DELAY;
+    private long deadline = 0L;
+
+    /**
+     * Default constructor.
+     */
+    public RetryPolicy()
+    {
+    }
+
+    /**
+     * Sets the maximum number of retries.
+     * @param retries The maximum number of retries
+     * @return This object
+     */
+    public RetryPolicy retries(int retries)
+    {
+        this.retries = retries;
+        return this;
+    }
+
+    /**
+     * Sets the delay before the first retry.
+     * @param baseDelay The delay before the first retry in milliseconds
+     * @return This object
+     */
+    public RetryPolicy baseDelay(long baseDelay)
+    {
+        this.baseDelay = baseDelay;
+        return this;
+    }
+
+    /**
+     * Sets the maximum delay between retries.
+     * @param maxDelay The maximum delay between retries in milliseconds
+     * @return This object
+     */
+    public RetryPolicy maxDelay(long maxDelay)
+    {
+        this.maxDelay = maxDelay;
+        return this;
+    }
+
+    /**
+     * Sets the time after which no further calls or retries are made, usually the deadline of the command.
+     * <P>
+     * Defaults to no deadline.
+     * @param deadline The deadline in milliseconds since the epoch, or 0 for no deadline
+     * @return This object
+     */
+    public RetryPolicy deadline(long deadline)
+    {
+        this.deadline = deadline;
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of retries.
+     * @return The maximum number of retries
+     */
+    public int getRetries()
+    {
+        return retries;
+    }
+
+    /**
+     * Executes the given idempotent call, retrying it if it fails with a transient error.
+     * @param call The API call to execute
+     * @return The result of the call
+     * @throws Exception if the call fails with a permanent error or the retries are exhausted
+     */
+    public <T> T call(Callable<T> call) throws Exception
+    {
+        return call(call, true);
+    }
+
+    /**
+     * Executes the given call, retrying it if it fails with a transient error.
+     * @param call The API call to execute
+     * @param idempotent <CODE>true</CODE> if the call can be repeated without side effects, eg. a GET or DELETE
+     * @return The result of the call
+     * @throws DeadlineExceededException if the deadline has passed before the call is made
+     * @throws Exception if the call fails with a permanent error or the retries are exhausted
+     */
+    public <T> T call(Callable<T> call, boolean idempotent) throws Exception
+    {
+        int attempt = 0;
+        while(true)
+        {
+            if(deadline > 0L && System.currentTimeMillis() >= deadline)
+                throw new DeadlineExceededException();
+
+            try
+            {
+                return call.call();
+            }
+            catch(Exception e)
+            {
+                if(attempt >= retries || !(idempotent ? isRetryable(e) : isRejected(e)))
+                    throw e;
+
+                long delay = getDelay(attempt++);
+                if(e instanceof CircuitOpenException)
+                    delay = Math.max(delay, ((CircuitOpenException)e).getRetryAfter());
+                if(deadline > 0L && System.currentTimeMillis()+delay >= deadline)
+                    throw e;
+
+                logger.warning("Retrying call in "+delay+"ms after error: "+e.getClass().getName()+": "+e.getMessage());
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * Returns the delay before the given retry, being half the exponential backoff plus a random jitter of up to the other half.
+     * @param attempt The number of the retry, starting at 0
+     * @return The delay before the retry in milliseconds
+     */
+    long getDelay(int attempt)
+    {
+        long backoff = Math.min(maxDelay, baseDelay << Math.min(attempt, 20));
+        return backoff/2 + (long)(random.nextDouble()*(backoff/2));
+    }
+
+    /**
+     * Returns <CODE>true</CODE> if the given error is transient and the call can be retried.
+     * @param e The error returned by the call
+     * @return <CODE>true</CODE> if the call can be retried
+     */
+    public static boolean isRetryable(Throwable e)
+    {
+        if(e instanceof CircuitOpenException)
+            return true;
+
+        if(e instanceof ErrorResponseException)
+        {
+            int status = ((ErrorResponseException)e).getStatus();
+            return status == TOO_MANY_REQUESTS || status >= 500;
+        }
+
+        for(Throwable t = e; t != null; t = t.getCause())
+        {
+            if(t instanceof IOException)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns <CODE>true</CODE> if the given error indicates the rate limit was exceeded.
+     * @param e The error returned by the call
+     * @return <CODE>true</CODE> if the rate limit was exceeded
+     */
+    public static boolean isRateLimited(Throwable e)
+    {
+        return e instanceof ErrorResponseException
+            && ((ErrorResponseException)e).getStatus() == TOO_MANY_REQUESTS;
+    }
+
+    /**
+     * Returns <CODE>true</CODE> if the given error indicates the call was rejected before it was processed.
+     * @param e The error returned by the call
+     * @return <CODE>true</CODE> if the call was rejected
+     */
+    public static boolean isRejected(Throwable e)
+    {
+        return isRateLimited(e) || e instanceof CircuitOpenException;
+    }
+}
\ No newline at end of file
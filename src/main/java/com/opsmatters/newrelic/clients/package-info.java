@@ -0,0 +1,4 @@
+/**
+ * The API client classes used for New Relic.
+ */
+package com.opsmatters.newrelic.clients;
@@ -16,6 +16,20 @@
 
 package com.opsmatters.newrelic.commands;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 import org.apache.commons.cli.BasicParser;
 import org.apache.commons.cli.CommandLine;
@@ -23,9 +37,25 @@ import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
+import com.google.common.base.Optional;
 import com.opsmatters.newrelic.api.NewRelicApi;
 import com.opsmatters.newrelic.api.NewRelicInfraApi;
 import com.opsmatters.newrelic.api.NewRelicSyntheticsApi;
+import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
+import com.opsmatters.newrelic.api.model.alerts.channels.AlertChannel;
+import com.opsmatters.newrelic.api.model.applications.Application;
+import com.opsmatters.newrelic.api.model.servers.Server;
+import com.opsmatters.newrelic.batch.AlertManager;
+import com.opsmatters.newrelic.batch.DashboardManager;
+import com.opsmatters.newrelic.clients.ApiClientFactory;
+import com.opsmatters.newrelic.clients.CircuitBreaker;
+import com.opsmatters.newrelic.clients.LookupCache;
+import com.opsmatters.newrelic.clients.RateGovernor;
+import com.opsmatters.newrelic.clients.RetryPolicy;
+import com.opsmatters.newrelic.metrics.Metrics;
+import com.opsmatters.newrelic.metrics.Timer;
+import com.opsmatters.newrelic.output.BeanWriter;
+import com.opsmatters.newrelic.output.RowWriter;
 
 /**
  * Implements the New Relic create alert command line option.  
@@ -36,10 +66,73 @@ public abstract class BaseCommand
 {
     private static final Logger logger = Logger.getLogger(BaseCommand.class.getName());
 
+    /**
+     * The name of the cached list of alert policies.
+     */
+    protected static final String ALERT_POLICIES = "alert_policies";
+
+    /**
+     * The name of the cached list of alert channels.
+     */
+    protected static final String ALERT_CHANNELS = "alert_channels";
+
+    /**
+     * The name of the cached list of applications.
+     */
+    protected static final String APPLICATIONS = "applications";
+
+    /**
+     * The name of the cached list of servers.
+     */
+    protected static final String SERVERS = "servers";
+
+    /**
+     * The phase of a command that looks up objects, eg. the policy of a condition.
+     */
+    protected static final String LOOKUP = "lookup";
+
+    /**
+     * The phase of a command that fetches the objects to export.
+     */
+    protected static final String FETCH = "fetch";
+
+    /**
+     * The phase of a command that reads the objects to import from a file.
+     */
+    protected static final String READ = "read";
+
+    /**
+     * The phase of a command that writes the exported objects to a file.
+     */
+    protected static final String WRITE = "write";
+
+    /**
+     * The phase of a command that creates, updates or deletes objects.
+     */
+    protected static final String CREATE = "create";
+
+    /**
+     * The options whose values are the names of files.
+     */
+    private static final EnumSet<Opt> FILE_OPTIONS = EnumSet.of(Opt.FILE, Opt.OUT, Opt.BASE, Opt.METRICS_FILE);
+
     private String[] args;
     private Options options = new Options();
     private String apiKey;
+    private String apiUrl = ApiClientFactory.getDefaultBaseUrl();
     private boolean verbose = false;
+    private boolean embedded = false;
+    private PrintStream out = System.out;
+    private String directory;
+    private boolean cache = Boolean.getBoolean("newrelic.cache");
+    private boolean refreshCache = false;
+    private String metricsFile;
+    private long deadline = 0L;
+    private long deadlineTime = 0L;
+    private String output;
+    private String outFile;
+    private List<String> fields;
+    private BeanWriter writer;
 
     /**
      * Default constructor.
@@ -74,6 +167,43 @@ public abstract class BaseCommand
         return this;
     }
 
+    /**
+     * Set to <CODE>true</CODE> if the command is running within a long-running process.
+     * <P>
+     * An embedded command throws a {@link CommandExitException} instead of exiting the JVM.
+     * @param embedded <CODE>true</CODE> if the command is running within a long-running process
+     * @return This object
+     */
+    public BaseCommand embedded(boolean embedded)
+    {
+        this.embedded = embedded;
+        return this;
+    }
+
+    /**
+     * Sets the stream used to print the usage statement.
+     * @param out The output stream
+     * @return This object
+     */
+    public BaseCommand out(PrintStream out)
+    {
+        this.out = out;
+        return this;
+    }
+
+    /**
+     * Sets the directory that relative file names are resolved against.
+     * <P>
+     * Used when the command is executed on behalf of a client with a different working directory.
+     * @param directory The working directory, or <CODE>null</CODE> to use the working directory of the process
+     * @return This object
+     */
+    public BaseCommand directory(String directory)
+    {
+        this.directory = directory;
+        return this;
+    }
+
     /**
      * Sets the default options for the command.
      */
@@ -82,6 +212,22 @@ public abstract class BaseCommand
         addOption(Opt.HELP);
         addOption(Opt.VERBOSE);
         addOption(Opt.X_API_KEY);
+        addOption(Opt.API_URL);
+        addOption(Opt.CACHE);
+        addOption(Opt.NO_CACHE);
+        addOption(Opt.REFRESH_CACHE);
+        addOption(Opt.METRICS_FILE);
+        addOption(Opt.DEADLINE);
+    }
+
+    /**
+     * Adds the options used to write the objects listed by the command to a file or the standard output.
+     */
+    protected void addOutputOptions()
+    {
+        addOption(Opt.OUTPUT);
+        addOption(Opt.OUT);
+        addOption(Opt.FIELDS);
     }
 
     /**
@@ -89,6 +235,7 @@ public abstract class BaseCommand
      */
     public void parse()
     {
+        Timer.Context phase = startPhase("parse");
         CommandLineParser parser = new BasicParser();
 
         try
@@ -115,17 +262,236 @@ public abstract class BaseCommand
                 logOptionValue(Opt.X_API_KEY, apiKey);
             }
 
+            // API URL option
+            if(hasOption(cli, Opt.API_URL, false))
+            {
+                apiUrl = getOptionValue(cli, Opt.API_URL);
+                logOptionValue(Opt.API_URL, apiUrl);
+                try
+                {
+                    ApiClientFactory.validateBaseUrl(apiUrl);
+                }
+                catch(IllegalArgumentException e)
+                {
+                    logOptionInvalid(Opt.API_URL);
+                }
+            }
+
+            // Cache option
+            if(hasOption(cli, Opt.CACHE, false))
+            {
+                cache = true;
+            }
+
+            // No cache option
+            if(hasOption(cli, Opt.NO_CACHE, false))
+            {
+                cache = false;
+            }
+
+            // Refresh cache option
+            if(hasOption(cli, Opt.REFRESH_CACHE, false))
+            {
+                refreshCache = true;
+            }
+
+            // Metrics file option
+            if(hasOption(cli, Opt.METRICS_FILE, false))
+            {
+                metricsFile = getOptionValue(cli, Opt.METRICS_FILE);
+                logOptionValue(Opt.METRICS_FILE, metricsFile);
+                if(!embedded)
+                    Metrics.getInstance().writeOnExit(metricsFile);
+            }
+
+            // Deadline option
+            if(hasOption(cli, Opt.DEADLINE, false))
+            {
+                try
+                {
+                    deadline = Long.parseLong(getOptionValue(cli, Opt.DEADLINE));
+                }
+                catch(NumberFormatException e)
+                {
+                    deadline = -1L;
+                }
+
+                if(deadline < 0L)
+                    logOptionInvalid(Opt.DEADLINE);
+                logOptionValue(Opt.DEADLINE, deadline);
+            }
+
+            // Output option
+            if(hasOption(cli, Opt.OUTPUT, false))
+            {
+                output = getOptionValue(cli, Opt.OUTPUT).toLowerCase();
+                if(RowWriter.isFormat(output))
+                    logOptionValue(Opt.OUTPUT, output);
+                else
+                    logOptionInvalid(Opt.OUTPUT);
+            }
+
+            // Out option
+            if(hasOption(cli, Opt.OUT, false))
+            {
+                outFile = getOptionValue(cli, Opt.OUT);
+                logOptionValue(Opt.OUT, outFile);
+                if(output == null)
+                {
+                    String name = outFile.toLowerCase();
+                    output = name.endsWith(".csv") ? RowWriter.CSV : name.endsWith(".tsv") ? RowWriter.TSV : RowWriter.JSON;
+                }
+            }
+
+            // Fields option
+            if(hasOption(cli, Opt.FIELDS, false))
+            {
+                fields = new ArrayList<String>();
+                for(String field : getOptionValue(cli, Opt.FIELDS).split(","))
+                {
+                    if(field.trim().length() > 0)
+                        fields.add(field.trim());
+                }
+                logOptionValue(Opt.FIELDS, fields.toString());
+            }
+
             // Parse command-specific options
             parse(cli);
         }
         catch(ParseException e)
         {
             logger.severe("Error parsing command line: "+e.getClass().getName()+e.getMessage());
-            help();
+            help(1);
         }
 
+        phase.stop();
+
         // Execute the command operation
-        execute();
+        phase = startPhase("execute");
+        RateGovernor.setCurrent(governor());
+        deadlineTime = deadline > 0L ? System.currentTimeMillis()+deadline*1000L : 0L;
+        try
+        {
+            execute();
+        }
+        catch(CommandExitException e)
+        {
+            if(e.getStatus() != 0)
+                phase.error();
+            throw e;
+        }
+        catch(RuntimeException e)
+        {
+            phase.error();
+            throw e;
+        }
+        finally
+        {
+            closeOutput();
+            phase.stop();
+            RateGovernor.setCurrent(null);
+
+            // An embedded command writes the metrics of the process after each command
+            if(metricsFile != null && embedded)
+                writeMetrics(metricsFile);
+        }
+    }
+
+    /**
+     * Outputs an object listed by the command.
+     * <P>
+     * The object is written as a row if an output format was given, otherwise the given text is logged.
+     * @param item The object to output
+     * @param text The description of the object that is logged
+     */
+    protected void print(Object item, String text)
+    {
+        if(output == null)
+        {
+            logger.info(text);
+            return;
+        }
+
+        try
+        {
+            if(writer == null)
+                writer = new BeanWriter(RowWriter.open(output, openOutput()), fields);
+            writer.write(item);
+        }
+        catch(IOException e)
+        {
+            logger.severe("Unable to write output: "+e.getClass().getName()+": "+e.getMessage());
+            exit(1);
+        }
+    }
+
+    /**
+     * Opens a buffered writer for the output file, or the standard output if there is no file.
+     */
+    private BufferedWriter openOutput() throws IOException
+    {
+        OutputStream stream = null;
+        if(outFile != null)
+        {
+            stream = new FileOutputStream(outFile);
+        }
+        else
+        {
+            // Flush rather than close the standard output
+            stream = new FilterOutputStream(out)
+            {
+                public void write(byte[] b, int off, int len) throws IOException
+                {
+                    out.write(b, off, len);
+                }
+
+                public void close() throws IOException
+                {
+                    flush();
+                }
+            };
+        }
+
+        return new BufferedWriter(new OutputStreamWriter(stream, "UTF-8"), 65536);
+    }
+
+    /**
+     * Closes the output of the objects listed by the command, if it was opened.
+     */
+    private void closeOutput()
+    {
+        if(writer == null)
+            return;
+
+        try
+        {
+            writer.close();
+            if(verbose() && outFile != null)
+                logger.info("Wrote "+writer.getCount()+" objects to: "+outFile);
+        }
+        catch(IOException e)
+        {
+            logger.severe("Unable to close output: "+e.getClass().getName()+": "+e.getMessage());
+        }
+        finally
+        {
+            writer = null;
+        }
+    }
+
+    /**
+     * Writes the metrics of the API calls and command phases to the given file.
+     */
+    private void writeMetrics(String filename)
+    {
+        try
+        {
+            Metrics.getInstance().write(filename);
+        }
+        catch(IOException e)
+        {
+            logger.severe("Unable to write metrics file: "+e.getClass().getName()+": "+e.getMessage());
+        }
     }
 
     /**
@@ -143,10 +509,35 @@ public abstract class BaseCommand
      * Print out the help statement.
      */
     protected void help()
+    {
+        help(0);
+    }
+
+    /**
+     * Print out the help statement and exit with the given status.
+     * @param status The exit status
+     */
+    protected void help(int status)
     {
         HelpFormatter formatter = new HelpFormatter();
-        formatter.printHelp(getName(), options);
-        System.exit(0);
+        PrintWriter pw = new PrintWriter(out);
+        formatter.printHelp(pw, formatter.getWidth(), getName(), null, options,
+            formatter.getLeftPadding(), formatter.getDescPadding(), null);
+        pw.flush();
+        exit(status);
+    }
+
+    /**
+     * Exit the command with the given status.
+     * <P>
+     * Throws a {@link CommandExitException} if the command is embedded, otherwise exits the JVM.
+     * @param status The exit status
+     */
+    protected void exit(int status)
+    {
+        if(embedded)
+            throw new CommandExitException(status);
+        System.exit(status);
     }
 
     /**
@@ -193,7 +584,63 @@ public abstract class BaseCommand
      */
     protected String getOptionValue(CommandLine cli, Opt opt)
     {
-        return cli.getOptionValue(opt.shortName());
+        String ret = cli.getOptionValue(opt.shortName());
+
+        // Resolve relative file names against the working directory of the client
+        if(ret != null && directory != null && FILE_OPTIONS.contains(opt) && !new File(ret).isAbsolute())
+            ret = new File(directory, ret).getPath();
+
+        return ret;
+    }
+
+    /**
+     * Returns the value of an option as an integer.
+     * <P>
+     * An option that is not an integer or is less than the minimum is logged as invalid.
+     * @param cli The parsed command line
+     * @param opt The option to be returned
+     * @param min The minimum value of the option
+     * @return The value of the option
+     */
+    protected int getIntOptionValue(CommandLine cli, Opt opt, int min)
+    {
+        int ret = min-1;
+        try
+        {
+            ret = Integer.parseInt(getOptionValue(cli, opt));
+        }
+        catch(NumberFormatException e)
+        {
+        }
+
+        if(ret < min)
+            logOptionInvalid(opt);
+        return ret;
+    }
+
+    /**
+     * Returns the value of an option as a decimal number.
+     * <P>
+     * An option that is not a number or is less than the minimum is logged as invalid.
+     * @param cli The parsed command line
+     * @param opt The option to be returned
+     * @param min The minimum value of the option
+     * @return The value of the option
+     */
+    protected double getDoubleOptionValue(CommandLine cli, Opt opt, double min)
+    {
+        double ret = Double.NaN;
+        try
+        {
+            ret = Double.parseDouble(getOptionValue(cli, opt));
+        }
+        catch(NumberFormatException e)
+        {
+        }
+
+        if(!(ret >= min))
+            logOptionInvalid(opt);
+        return ret;
     }
 
     /**
@@ -244,7 +691,7 @@ public abstract class BaseCommand
     protected void logOptionMissing(Opt opt)
     {
         logger.severe("\""+opt.longName()+"\" option is missing");
-        help();
+        help(1);
     }
 
     /**
@@ -254,7 +701,7 @@ public abstract class BaseCommand
     protected void logOptionInvalid(Opt opt)
     {
         logger.severe("\""+opt.longName()+"\" option is invalid");
-        help();
+        help(1);
     }
 
     /**
@@ -267,44 +714,421 @@ public abstract class BaseCommand
     }
 
     /**
-     * Create the REST API client.
+     * Returns the shared REST API client for the API key.
      * @return The REST API client
      */
     protected NewRelicApi getApi()
     {
-        if(verbose)
-            logger.info("Creating REST API client");
-
-        return NewRelicApi.builder()
-            .apiKey(apiKey)
-            .build();
+        return ApiClientFactory.getInstance().getApi(apiKey, apiUrl, verbose);
     }
 
     /**
-     * Create the Infrastructure API client.
+     * Returns the shared Infrastructure API client for the API key.
      * @return The Infrastructure API client
      */
     protected NewRelicInfraApi getInfraApi()
     {
-        if(verbose)
-            logger.info("Creating Infra API client");
-
-        return NewRelicInfraApi.builder()
-            .apiKey(apiKey)
-            .build();
+        return ApiClientFactory.getInstance().getInfraApi(apiKey, apiUrl, verbose);
     }
 
     /**
-     * Create the Synthetics API client.
+     * Returns the shared Synthetics API client for the API key.
      * @return The Synthetics API client
      */
     protected NewRelicSyntheticsApi getSyntheticsApi()
     {
-        if(verbose)
-            logger.info("Creating Synthetics API client");
+        return ApiClientFactory.getInstance().getSyntheticsApi(apiKey, apiUrl, verbose);
+    }
+
+    /**
+     * Returns a new alert manager for the API key.
+     * <P>
+     * The alert manager creates its own API clients, which always connect to the New Relic hosts,
+     * so the command exits with an error if the New Relic hosts are not being used.
+     * The calls made with the manager must be made through {@link #call(String, String, Callable)},
+     * so that they are admitted by the governor of the API key.
+     * @return The alert manager
+     */
+    protected AlertManager getAlertManager()
+    {
+        checkNewRelicHosts();
+        return new AlertManager(apiKey, verbose);
+    }
+
+    /**
+     * Returns a new dashboard manager for the API key.
+     * <P>
+     * The dashboard manager creates its own API clients, which always connect to the New Relic hosts,
+     * so the command exits with an error if the New Relic hosts are not being used.
+     * The calls made with the manager must be made through {@link #call(String, String, Callable)},
+     * so that they are admitted by the governor of the API key.
+     * @return The dashboard manager
+     */
+    protected DashboardManager getDashboardManager()
+    {
+        checkNewRelicHosts();
+        return new DashboardManager(apiKey, verbose);
+    }
+
+    /**
+     * Exits with an error if a base URL has been given in place of the New Relic hosts.
+     */
+    private void checkNewRelicHosts()
+    {
+        if(apiUrl != null)
+        {
+            logger.severe("\""+Opt.API_URL.longName()+"\" option or \""+ApiClientFactory.BASE_URL_PROPERTY
+                +"\" property is not supported by the \""+getName()+"\" command");
+            exit(1);
+        }
+    }
+
+    /**
+     * Returns the time after which the command makes no further calls.
+     * <P>
+     * The deadline is passed to the fetchers and operations started by the command,
+     * so that it also applies to the calls made by their threads.
+     * @return The deadline in milliseconds since the epoch, or 0 if there is no deadline
+     */
+    protected long getDeadline()
+    {
+        return deadlineTime;
+    }
+
+    /**
+     * Returns <CODE>true</CODE> if the lookup cache is enabled.
+     * @return <CODE>true</CODE> if the lookup cache is enabled
+     */
+    protected boolean cache()
+    {
+        return cache;
+    }
+
+    /**
+     * Starts timing the given phase of the command.
+     * @param phase The name of the phase, eg. "lookup" or "create"
+     * @return The context used to stop timing the phase
+     */
+    protected Timer.Context startPhase(String phase)
+    {
+        return Metrics.getInstance().phase(getName(), phase).start();
+    }
+
+    /**
+     * Returns the governor of the calls made with the API key, shared with the other commands using the key.
+     * @return The governor of the API calls, or <CODE>null</CODE> if there is no API key
+     */
+    protected RateGovernor governor()
+    {
+        return apiKey != null ? ApiClientFactory.getInstance().getGovernor(apiKey, apiUrl) : null;
+    }
+
+    /**
+     * Returns the circuit breaker of the given API endpoint, shared with the other commands using the API key.
+     * @param endpoint The API endpoint, eg. "alerts_policies"
+     * @return The circuit breaker of the endpoint
+     */
+    protected CircuitBreaker circuitBreaker(String endpoint)
+    {
+        return ApiClientFactory.getInstance().getCircuitBreaker(apiKey, apiUrl, endpoint);
+    }
 
-        return NewRelicSyntheticsApi.builder()
-            .apiKey(apiKey)
-            .build();
+    /**
+     * Returns the timer for the calls to the given API endpoint.
+     * @param endpoint The API endpoint, eg. "alerts_policies"
+     * @param method The HTTP method, eg. "GET"
+     * @return The timer for the API calls
+     */
+    protected Timer apiTimer(String endpoint, String method)
+    {
+        return Metrics.getInstance().apiCall(endpoint, method);
+    }
+
+    /**
+     * Executes the given API call once admitted by the governor of the API key and the circuit breaker of the endpoint,
+     * recording its latency against the endpoint and HTTP method.
+     * The call is admitted by {@link ApiClientFactory#call(String, String, String, Callable)}.
+     * <P>
+     * Calls that fail with a transient error are retried, except POST calls which are only retried if they were rejected.
+     * The API calls of a command outside a {@link BulkOperation} or {@link ParallelFetcher} are all made through this method.
+     * @param endpoint The API endpoint, eg. "alerts_policies"
+     * @param method The HTTP method, eg. "GET"
+     * @param call The API call to execute
+     * @return The result of the call
+     */
+    protected <T> T call(final String endpoint, final String method, final Callable<T> call)
+    {
+        final Callable<T> timed = new Callable<T>()
+        {
+            public T call() throws Exception
+            {
+                return Metrics.time(apiTimer(endpoint, method), call);
+            }
+        };
+
+        try
+        {
+            return new RetryPolicy().deadline(deadlineTime).call(new Callable<T>()
+            {
+                public T call() throws Exception
+                {
+                    return ApiClientFactory.getInstance().call(apiKey, apiUrl, endpoint, timed);
+                }
+            }, !method.equals("POST"));
+        }
+        catch(RuntimeException e)
+        {
+            throw e;
+        }
+        catch(Exception e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Submits the given API call to be executed in the background by the fetcher.
+     * <P>
+     * The call is made through {@link #call(String,String,Callable)} as a GET call against the given API endpoint.
+     * @param fetcher The fetcher used to execute the call
+     * @param endpoint The API endpoint, eg. "applications"
+     * @param call The API call to execute
+     * @return The future containing the result of the call
+     */
+    protected <T> Future<T> submit(ParallelFetcher fetcher, final String endpoint, final Callable<T> call)
+    {
+        return fetcher.submit(new Callable<T>()
+        {
+            public T call()
+            {
+                return BaseCommand.this.call(endpoint, "GET", call);
+            }
+        });
+    }
+
+    /**
+     * Returns the list with the given name from the lookup cache, calling the loader if the list is not cached.
+     * <P>
+     * If the cache is disabled the loader is always called.
+     * The calls to the loader are recorded against the given API endpoint.
+     * Only the id, name and type of the objects are kept in the cache files.
+     * @param name The name of the list, eg. "alert_policies"
+     * @param type The class of the objects in the list, eg. AlertPolicy
+     * @param endpoint The API endpoint called by the loader, eg. "alerts_policies"
+     * @param loader The loader called to get the list from the API
+     * @return The list of objects
+     */
+    protected <T> List<T> getCachedList(String name, Class<T> type, final String endpoint, final Callable<List<T>> loader)
+    {
+        Callable<List<T>> timed = new Callable<List<T>>()
+        {
+            public List<T> call()
+            {
+                return BaseCommand.this.call(endpoint, "GET", loader);
+            }
+        };
+
+        Timer.Context phase = startPhase(LOOKUP);
+        try
+        {
+            if(cache)
+                return LookupCache.getInstance().get(cacheKey(), name, type, refreshCache, timed);
+            return timed.call();
+        }
+        catch(RuntimeException e)
+        {
+            throw e;
+        }
+        catch(Exception e)
+        {
+            throw new IllegalStateException(e);
+        }
+        finally
+        {
+            phase.stop();
+        }
+    }
+
+    /**
+     * Removes the list with the given name from the lookup cache, eg. after an object in the list has been deleted.
+     * <P>
+     * The list is removed even if the cache is disabled for this command, as it may have been cached by another command.
+     * @param name The name of the list, eg. "alert_policies"
+     */
+    protected void invalidateCachedList(String name)
+    {
+        LookupCache.getInstance().invalidate(cacheKey(), name);
+    }
+
+    /**
+     * Returns the key of the lookup cache, which includes the base URL if the New Relic hosts are not used.
+     */
+    private String cacheKey()
+    {
+        return apiUrl != null ? apiUrl+" "+apiKey : apiKey;
+    }
+
+    /**
+     * Returns the alert policy with the given id, using the lookup cache if it is enabled.
+     * @param id The id of the alert policy
+     * @return The alert policy
+     */
+    protected Optional<AlertPolicy> getAlertPolicy(final long id)
+    {
+        if(cache)
+        {
+            List<AlertPolicy> policies = getCachedList(ALERT_POLICIES, AlertPolicy.class, "alerts_policies", new Callable<List<AlertPolicy>>()
+            {
+                public List<AlertPolicy> call()
+                {
+                    return new ArrayList<AlertPolicy>(getApi().alertPolicies().list((String)null));
+                }
+            });
+
+            for(AlertPolicy policy : policies)
+            {
+                if(policy.getId() != null && policy.getId().longValue() == id)
+                    return Optional.of(policy);
+            }
+        }
+
+        Timer.Context phase = startPhase(LOOKUP);
+        try
+        {
+            return call("alerts_policies", "GET", new Callable<Optional<AlertPolicy>>()
+            {
+                public Optional<AlertPolicy> call()
+                {
+                    return getApi().alertPolicies().show(id);
+                }
+            });
+        }
+        finally
+        {
+            phase.stop();
+        }
+    }
+
+    /**
+     * Returns the alert channel with the given id, using the lookup cache if it is enabled.
+     * @param id The id of the alert channel
+     * @return The alert channel
+     */
+    protected Optional<AlertChannel> getAlertChannel(final long id)
+    {
+        if(cache)
+        {
+            List<AlertChannel> channels = getCachedList(ALERT_CHANNELS, AlertChannel.class, "alerts_channels", new Callable<List<AlertChannel>>()
+            {
+                public List<AlertChannel> call()
+                {
+                    return new ArrayList<AlertChannel>(getApi().alertChannels().list((String)null));
+                }
+            });
+
+            for(AlertChannel channel : channels)
+            {
+                if(channel.getId() != null && channel.getId().longValue() == id)
+                    return Optional.of(channel);
+            }
+        }
+
+        Timer.Context phase = startPhase(LOOKUP);
+        try
+        {
+            return call("alerts_channels", "GET", new Callable<Optional<AlertChannel>>()
+            {
+                public Optional<AlertChannel> call()
+                {
+                    return getApi().alertChannels().show(id);
+                }
+            });
+        }
+        finally
+        {
+            phase.stop();
+        }
+    }
+
+    /**
+     * Returns the application with the given id, using the lookup cache if it is enabled.
+     * @param id The id of the application
+     * @return The application
+     */
+    protected Optional<Application> getApplication(final long id)
+    {
+        if(cache)
+        {
+            List<Application> applications = getCachedList(APPLICATIONS, Application.class, "applications", new Callable<List<Application>>()
+            {
+                public List<Application> call()
+                {
+                    return new ArrayList<Application>(getApi().applications().list((String)null));
+                }
+            });
+
+            for(Application application : applications)
+            {
+                if(application.getId() != null && application.getId().longValue() == id)
+                    return Optional.of(application);
+            }
+        }
+
+        Timer.Context phase = startPhase(LOOKUP);
+        try
+        {
+            return call("applications", "GET", new Callable<Optional<Application>>()
+            {
+                public Optional<Application> call()
+                {
+                    return getApi().applications().show(id);
+                }
+            });
+        }
+        finally
+        {
+            phase.stop();
+        }
+    }
+
+    /**
+     * Returns the server with the given id, using the lookup cache if it is enabled.
+     * @param id The id of the server
+     * @return The server
+     */
+    protected Optional<Server> getServer(final long id)
+    {
+        if(cache)
+        {
+            List<Server> servers = getCachedList(SERVERS, Server.class, "servers", new Callable<List<Server>>()
+            {
+                public List<Server> call()
+                {
+                    return new ArrayList<Server>(getApi().servers().list((String)null));
+                }
+            });
+
+            for(Server server : servers)
+            {
+                if(server.getId() != null && server.getId().longValue() == id)
+                    return Optional.of(server);
+            }
+        }
+
+        Timer.Context phase = startPhase(LOOKUP);
+        try
+        {
+            return call("servers", "GET", new Callable<Optional<Server>>()
+            {
+                public Optional<Server> call()
+                {
+                    return getApi().servers().show(id);
+                }
+            });
+        }
+        finally
+        {
+            phase.stop();
+        }
     }
 }
\ No newline at end of file
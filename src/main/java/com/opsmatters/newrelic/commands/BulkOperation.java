@@ -0,0 +1,379 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opsmatters.newrelic.commands;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import com.google.common.util.concurrent.RateLimiter;
+import com.opsmatters.newrelic.clients.CircuitBreaker;
+import com.opsmatters.newrelic.clients.DeadlineExceededException;
+import com.opsmatters.newrelic.clients.RateGovernor;
+import com.opsmatters.newrelic.clients.RetryPolicy;
+import com.opsmatters.newrelic.metrics.Metrics;
+import com.opsmatters.newrelic.metrics.Timer;
+
+/**
+ * Executes an API operation for each item in a collection on a bounded pool of threads.
+ * <P>
+ * The calls are admitted by the {@link RateGovernor} of the API key, which adapts the rate and concurrency of the calls
+ * to the API quota, and calls that fail with a transient error are retried.
+ * A fixed maximum rate can also be given for the operation.
+ * Calls are not made while the circuit breaker of the endpoint is open, or once the deadline of the command has passed.
+ * A summary of the number of successes and failures is logged when the operation completes.
+ * <P>
+ * Items can be passed all at once to {@link #execute}, or as they are produced using 
+ * {@link #start}, {@link #submit} and {@link #finish}.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public abstract class BulkOperation<T>
+{
+    private static final Logger logger = Logger.getLogger(BulkOperation.class.getName());
+
+    /**
+     * The default number of calls executed concurrently.
+     */
+    public static final int DEFAULT_PARALLELISM = 1;
+
+    /**
+     * The default maximum number of calls per second, being no fixed limit.
+     */
+    public static final double DEFAULT_RATE_LIMIT = 0.0d;
+
+    /**
+     * The default number of items that can be queued waiting for a thread.
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 100;
+
+    private String name;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private double rateLimit = DEFAULT_RATE_LIMIT;
+    private RetryPolicy retryPolicy = new RetryPolicy();
+    private AtomicInteger succeeded = new AtomicInteger();
+    private AtomicInteger failed = new AtomicInteger();
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private ExecutorService executor;
+    private Semaphore queue;
+    private RateLimiter limiter;
+    private RateGovernor governor;
+    private CircuitBreaker breaker;
+    private boolean idempotent = true;
+    private AtomicBoolean expired = new AtomicBoolean();
+    private long started;
+    private Timer timer;
+
+    /**
+     * Constructor that takes a name.
+     * @param name The name of the operation used in log messages, eg. "delete alert condition"
+     */
+    public BulkOperation(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Sets the number of calls executed concurrently.
+     * @param parallelism The number of calls executed concurrently
+     * @return This object
+     */
+    public BulkOperation<T> parallelism(int parallelism)
+    {
+        if(parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets a fixed maximum number of calls per second, in addition to the limits of the governor.
+     * @param rateLimit The maximum number of calls per second, or 0 for no fixed limit
+     * @return This object
+     */
+    public BulkOperation<T> rateLimit(double rateLimit)
+    {
+        this.rateLimit = rateLimit;
+        return this;
+    }
+
+    /**
+     * Sets the governor that admits the calls.
+     * <P>
+     * Defaults to the governor of the command being executed when the operation is started.
+     * @param governor The governor that admits the calls
+     * @return This object
+     */
+    public BulkOperation<T> governor(RateGovernor governor)
+    {
+        this.governor = governor;
+        return this;
+    }
+
+    /**
+     * Sets the circuit breaker of the API endpoint called by the operation.
+     * @param breaker The circuit breaker of the endpoint
+     * @return This object
+     */
+    public BulkOperation<T> circuitBreaker(CircuitBreaker breaker)
+    {
+        this.breaker = breaker;
+        return this;
+    }
+
+    /**
+     * Sets whether the calls can be repeated without side effects, and so retried after any transient error.
+     * <P>
+     * Calls that are not idempotent, such as creating an object, are only retried if they were rejected before being processed.
+     * @param idempotent <CODE>true</CODE> if the calls can be repeated without side effects
+     * @return This object
+     */
+    public BulkOperation<T> idempotent(boolean idempotent)
+    {
+        this.idempotent = idempotent;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of retries for each call.
+     * @param retries The maximum number of retries for each call
+     * @return This object
+     */
+    public BulkOperation<T> retries(int retries)
+    {
+        this.retryPolicy.retries(retries);
+        return this;
+    }
+
+    /**
+     * Sets the time after which no further calls are made, usually the deadline of the command.
+     * @param deadline The deadline in milliseconds since the epoch, or 0 for no deadline
+     * @return This object
+     */
+    public BulkOperation<T> deadline(long deadline)
+    {
+        this.retryPolicy.deadline(deadline);
+        return this;
+    }
+
+    /**
+     * Sets the number of items that can be queued waiting for a thread before {@link #submit} blocks.
+     * @param queueSize The number of items that can be queued
+     * @return This object
+     */
+    public BulkOperation<T> queueSize(int queueSize)
+    {
+        if(queueSize < 0)
+            throw new IllegalArgumentException("queue size cannot be negative");
+        this.queueSize = queueSize;
+        return this;
+    }
+
+    /**
+     * Sets the timer used to record the latency of each call, eg. the calls to an API endpoint.
+     * <P>
+     * Each attempt is recorded separately, so that the calls retried after an error are included.
+     * @param timer The timer used to record the calls
+     * @return This object
+     */
+    public BulkOperation<T> timer(Timer timer)
+    {
+        this.timer = timer;
+        return this;
+    }
+
+    /**
+     * Returns the number of items that were processed successfully.
+     * @return The number of items that were processed successfully
+     */
+    public int getSucceeded()
+    {
+        return succeeded.get();
+    }
+
+    /**
+     * Returns the number of items that failed.
+     * @return The number of items that failed
+     */
+    public int getFailed()
+    {
+        return failed.get();
+    }
+
+    /**
+     * Executes the API call for the given item.
+     * @param item The item to be processed
+     */
+    protected abstract void process(T item);
+
+    /**
+     * Returns <CODE>true</CODE> if the call for the given item can be repeated without side effects.
+     * @param item The item to be processed
+     * @return <CODE>true</CODE> if the call for the item is idempotent
+     */
+    protected boolean isIdempotent(T item)
+    {
+        return idempotent;
+    }
+
+    /**
+     * Returns a description of the given item for log messages.
+     * @param item The item to be described
+     * @return The description of the item
+     */
+    protected abstract String describe(T item);
+
+    /**
+     * Processes all the given items and logs a summary.
+     * @param items The items to be processed
+     * @return <CODE>true</CODE> if all the items were processed successfully
+     */
+    public boolean execute(Collection<T> items)
+    {
+        start(Math.min(parallelism, items.size()));
+        for(T item : items)
+            submit(item);
+        return finish();
+    }
+
+    /**
+     * Starts the threads used to process items passed to {@link #submit}.
+     * @param threads The number of threads to start
+     */
+    public void start(int threads)
+    {
+        threads = Math.max(1, threads);
+        started = System.currentTimeMillis();
+        limiter = rateLimit > 0.0d ? RateLimiter.create(rateLimit) : null;
+        if(governor == null)
+            governor = RateGovernor.getCurrent();
+        executor = Executors.newFixedThreadPool(threads);
+        queue = new Semaphore(threads+queueSize);
+    }
+
+    /**
+     * Starts the threads used to process items passed to {@link #submit}, using the configured parallelism.
+     */
+    public void start()
+    {
+        start(parallelism);
+    }
+
+    /**
+     * Queues the given item to be processed.
+     * <P>
+     * Blocks while the queue is full, so that the caller cannot produce items faster than they are processed.
+     * @param item The item to be processed
+     */
+    public void submit(final T item)
+    {
+        if(executor == null)
+            throw new IllegalStateException("operation not started");
+
+        final Callable<Void> call = new Callable<Void>()
+        {
+            public Void call() throws Exception
+            {
+                Callable<Void> process = new Callable<Void>()
+                {
+                    public Void call()
+                    {
+                        process(item);
+                        return null;
+                    }
+                };
+
+                return timer != null ? Metrics.time(timer, process) : process.call();
+            }
+        };
+
+        final Callable<Void> admitted = new Callable<Void>()
+        {
+            public Void call() throws Exception
+            {
+                return governor != null ? governor.call(call) : call.call();
+            }
+        };
+
+        queue.acquireUninterruptibly();
+        executor.execute(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    retryPolicy.call(new Callable<Void>()
+                    {
+                        public Void call() throws Exception
+                        {
+                            if(limiter != null)
+                                limiter.acquire();
+                            return breaker != null ? breaker.call(admitted) : admitted.call();
+                        }
+                    }, isIdempotent(item));
+                    succeeded.incrementAndGet();
+                }
+                catch(DeadlineExceededException e)
+                {
+                    failed.incrementAndGet();
+                    if(!expired.getAndSet(true))
+                        logger.severe("Unable to "+name+" remaining items: "+e.getMessage());
+                }
+                catch(Exception e)
+                {
+                    failed.incrementAndGet();
+                    logger.severe("Unable to "+name+" "+describe(item)+": "+e.getClass().getName()+": "+e.getMessage());
+                }
+                finally
+                {
+                    queue.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits for all the queued items to be processed and logs a summary.
+     * @return <CODE>true</CODE> if all the items were processed successfully
+     */
+    public boolean finish()
+    {
+        if(executor == null)
+            throw new IllegalStateException("operation not started");
+
+        executor.shutdown();
+        try
+        {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch(InterruptedException e)
+        {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        long elapsed = System.currentTimeMillis()-started;
+        logger.info(String.format("Completed %s: %d succeeded, %d failed in %.3fs",
+            name, succeeded.get(), failed.get(), elapsed/1000.0d));
+
+        return failed.get() == 0;
+    }
+}
\ No newline at end of file
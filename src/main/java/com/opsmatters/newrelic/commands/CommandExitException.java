@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.commands;
+
+/**
+ * Thrown in place of exiting the JVM when a command is run embedded in a long-running process.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class CommandExitException extends RuntimeException
+{
+    private int status;
+
+    /**
+     * Constructor that takes an exit status.
+     * @param status The exit status of the command
+     */
+    public CommandExitException(int status)
+    {
+        super("command exited with status "+status);
+        this.status = status;
+    }
+
+    /**
+     * Returns the exit status of the command.
+     * @return The exit status of the command
+     */
+    public int getStatus()
+    {
+        return status;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,565 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.commands;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.opsmatters.newrelic.clients.CircuitBreaker;
+import com.opsmatters.newrelic.metrics.Metrics;
+import com.opsmatters.newrelic.metrics.Timer;
+import com.opsmatters.newrelic.output.BeanColumns;
+
+/**
+ * Computes and applies the changes needed to make the existing objects match the objects read from an import file.
+ * <P>
+ * Objects are matched using a key (eg. the alert policy and name of an alert condition).
+ * An object in the file with no match is created, and a matched object is updated only if its properties differ.
+ * If pruning is enabled, existing objects in the same groups as the objects in the file (eg. the same alert policies)
+ * that are not in the file are deleted.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public abstract class ImportPlan<T>
+{
+    private static final Logger logger = Logger.getLogger(ImportPlan.class.getName());
+    private static final Gson gson = new GsonBuilder().serializeSpecialFloatingPointValues().create();
+
+    /**
+     * The type of change for an object.
+     */
+    public enum Action
+    {
+        CREATE("create"),
+        UPDATE("update"),
+        DELETE("delete"),
+        NONE("unchanged");
+
+        private String value;
+
+        Action(String value)
+        {
+            this.value = value;
+        }
+
+        /**
+         * Returns the value of the action.
+         * @return The value of the action
+         */
+        public String value()
+        {
+            return value;
+        }
+    }
+
+    /**
+     * Represents the change to a single object.
+     */
+    public static class Change<T>
+    {
+        private Action action;
+        private T current;
+        private T desired;
+        private List<String> properties;
+
+        Change(Action action, T current, T desired, List<String> properties)
+        {
+            this.action = action;
+            this.current = current;
+            this.desired = desired;
+            this.properties = properties;
+        }
+
+        /**
+         * Returns the type of change.
+         * @return The type of change
+         */
+        public Action getAction()
+        {
+            return action;
+        }
+
+        /**
+         * Returns the existing object.
+         * @return The existing object, or <CODE>null</CODE> if the object is to be created
+         */
+        public T getCurrent()
+        {
+            return current;
+        }
+
+        /**
+         * Returns the object read from the file.
+         * @return The object read from the file, or <CODE>null</CODE> if the object is to be deleted
+         */
+        public T getDesired()
+        {
+            return desired;
+        }
+
+        /**
+         * Returns the names of the properties that differ for an update.
+         * @return The names of the properties that differ
+         */
+        public List<String> getProperties()
+        {
+            return properties;
+        }
+    }
+
+    /**
+     * The properties that are assigned by New Relic, or matched using the group, and not compared.
+     */
+    private static final Set<String> IGNORED = new HashSet<String>();
+
+    static
+    {
+        IGNORED.add("id");
+        IGNORED.add("created_at");
+        IGNORED.add("updated_at");
+        IGNORED.add("policy_id");
+    }
+
+    private String type;
+    private String endpoint;
+    private CircuitBreaker breaker;
+    private long deadline = 0L;
+    private List<Change<T>> changes = new ArrayList<Change<T>>();
+    private Map<Class<?>,BeanColumns<Object>> columns = new LinkedHashMap<Class<?>,BeanColumns<Object>>();
+
+    /**
+     * Constructor that takes the type of the objects.
+     * @param type The type of the objects used in log messages, eg. "alert condition"
+     */
+    public ImportPlan(String type)
+    {
+        this.type = type;
+    }
+
+    /**
+     * Sets the API endpoint used to record the latency of the changes applied.
+     * @param endpoint The API endpoint of the objects, eg. "alerts_nrql_conditions"
+     * @return This object
+     */
+    public ImportPlan<T> endpoint(String endpoint)
+    {
+        this.endpoint = endpoint;
+        return this;
+    }
+
+    /**
+     * Sets the circuit breaker of the API endpoint used to apply the changes.
+     * @param breaker The circuit breaker of the endpoint
+     * @return This object
+     */
+    public ImportPlan<T> circuitBreaker(CircuitBreaker breaker)
+    {
+        this.breaker = breaker;
+        return this;
+    }
+
+    /**
+     * Sets the time after which no further changes are applied, usually the deadline of the command.
+     * @param deadline The deadline in milliseconds since the epoch, or 0 for no deadline
+     * @return This object
+     */
+    public ImportPlan<T> deadline(long deadline)
+    {
+        this.deadline = deadline;
+        return this;
+    }
+
+    /**
+     * Returns the key used to match an object in the file with an existing object in the same group.
+     * @param item The object
+     * @return The key of the object, eg. the name of an alert condition
+     */
+    protected abstract String key(T item);
+
+    /**
+     * Returns the group of an object read from the file.
+     * <P>
+     * The group is used to match the object with the existing objects, and to limit the objects that are pruned.
+     * @param item The object
+     * @return The group of the object, eg. the alert policy id
+     */
+    protected abstract Object group(T item);
+
+    /**
+     * Returns a description of the given object for log messages.
+     * @param item The object
+     * @return The description of the object
+     */
+    protected abstract String describe(T item);
+
+    /**
+     * Creates the given object.
+     * @param item The object to create
+     */
+    protected abstract void create(T item);
+
+    /**
+     * Deletes the given existing object.
+     * @param item The object to delete
+     */
+    protected abstract void delete(T item);
+
+    /**
+     * Updates the given existing object to match the object read from the file.
+     * <P>
+     * The existing object is updated in place, so that it keeps its id.
+     * @param current The existing object
+     * @param desired The object read from the file
+     */
+    protected abstract void update(T current, T desired);
+
+    /**
+     * Computes the changes needed to make the existing objects match the objects read from the file.
+     * <P>
+     * The group of each existing object is given by {@link #group(Object)}.
+     * @param current The existing objects
+     * @param desired The objects read from the file
+     * @param prune <CODE>true</CODE> if existing objects in the same groups that are not in the file should be deleted
+     * @return This object
+     */
+    public ImportPlan<T> compute(Collection<T> current, Collection<T> desired, boolean prune)
+    {
+        Map<Object,List<T>> groups = new LinkedHashMap<Object,List<T>>();
+        for(T item : current)
+        {
+            Object group = group(item);
+            List<T> items = groups.get(group);
+            if(items == null)
+            {
+                items = new ArrayList<T>();
+                groups.put(group, items);
+            }
+            items.add(item);
+        }
+
+        return compute(groups, desired, prune);
+    }
+
+    /**
+     * Computes the changes needed to make the existing objects match the objects read from the file.
+     * <P>
+     * The existing objects are given by the group they were fetched for (eg. the alert policy id),
+     * so that they are matched even if the objects returned do not include their group.
+     * @param current The existing objects in each group
+     * @param desired The objects read from the file
+     * @param prune <CODE>true</CODE> if existing objects in the same groups that are not in the file should be deleted
+     * @return This object
+     */
+    public ImportPlan<T> compute(Map<?,? extends Collection<T>> current, Collection<T> desired, boolean prune)
+    {
+        changes.clear();
+
+        Map<String,T> existing = new LinkedHashMap<String,T>();
+        Map<String,Object> existingGroups = new HashMap<String,Object>();
+        for(Map.Entry<?,? extends Collection<T>> entry : current.entrySet())
+        {
+            for(T item : entry.getValue())
+            {
+                String key = key(entry.getKey(), item);
+                existing.put(key, item);
+                existingGroups.put(key, entry.getKey());
+            }
+        }
+
+        Set<String> keys = new HashSet<String>();
+        Set<Object> groups = new HashSet<Object>();
+        for(T item : desired)
+        {
+            Object group = group(item);
+            String key = key(group, item);
+            keys.add(key);
+            groups.add(group);
+
+            T match = existing.get(key);
+            if(match == null)
+            {
+                changes.add(new Change<T>(Action.CREATE, null, item, null));
+            }
+            else
+            {
+                List<String> properties = differences(match, item);
+                changes.add(new Change<T>(properties.size() > 0 ? Action.UPDATE : Action.NONE, match, item, properties));
+            }
+        }
+
+        if(prune)
+        {
+            for(Map.Entry<String,T> entry : existing.entrySet())
+            {
+                if(!keys.contains(entry.getKey()) && groups.contains(existingGroups.get(entry.getKey())))
+                    changes.add(new Change<T>(Action.DELETE, entry.getValue(), null, null));
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Returns the key of the given object within the given group.
+     */
+    private String key(Object group, T item)
+    {
+        return group+":"+key(item);
+    }
+
+    /**
+     * Returns the changes computed for the objects.
+     * @return The changes computed for the objects
+     */
+    public List<Change<T>> getChanges()
+    {
+        return changes;
+    }
+
+    /**
+     * Returns the number of changes with the given action.
+     * @param action The action
+     * @return The number of changes with the given action
+     */
+    public int count(Action action)
+    {
+        int ret = 0;
+        for(Change<T> change : changes)
+        {
+            if(change.getAction() == action)
+                ++ret;
+        }
+        return ret;
+    }
+
+    /**
+     * Logs the changes, and a summary of the number of changes of each type.
+     * @param verbose <CODE>true</CODE> if unchanged objects should also be logged
+     */
+    public void log(boolean verbose)
+    {
+        for(Change<T> change : changes)
+        {
+            Action action = change.getAction();
+            if(action == Action.NONE && !verbose)
+                continue;
+
+            String message = "Plan: "+action.value()+" "+type+": "
+                +describe(change.getDesired() != null ? change.getDesired() : change.getCurrent());
+            if(action == Action.UPDATE)
+                message += " "+change.getProperties();
+            logger.info(message);
+        }
+
+        logger.info(String.format("Plan: %d to create, %d to update, %d to delete, %d unchanged",
+            count(Action.CREATE), count(Action.UPDATE), count(Action.DELETE), count(Action.NONE)));
+    }
+
+    /**
+     * Applies the changes, skipping any unchanged objects.
+     * <P>
+     * Only updates and deletions are retried after any transient error, as repeating a creation could duplicate the object.
+     * @param parallelism The number of changes to apply concurrently
+     * @param rateLimit The maximum number of changes per second
+     * @param retries The maximum number of retries for each change
+     * @return <CODE>true</CODE> if all the changes were applied successfully
+     */
+    public boolean apply(int parallelism, double rateLimit, int retries)
+    {
+        List<Change<T>> pending = new ArrayList<Change<T>>();
+        for(Change<T> change : changes)
+        {
+            if(change.getAction() != Action.NONE)
+                pending.add(change);
+        }
+
+        return new BulkOperation<Change<T>>("apply "+type+" change")
+        {
+            protected void process(Change<T> change)
+            {
+                Timer.Context context = null;
+                try
+                {
+                    switch(change.getAction())
+                    {
+                        case CREATE:
+                            context = start("POST");
+                            create(change.getDesired());
+                            break;
+                        case UPDATE:
+                            context = start("PUT");
+                            update(change.getCurrent(), change.getDesired());
+                            break;
+                        case DELETE:
+                            context = start("DELETE");
+                            delete(change.getCurrent());
+                            break;
+                        default:
+                            break;
+                    }
+                }
+                catch(RuntimeException e)
+                {
+                    if(context != null)
+                        context.error();
+                    throw e;
+                }
+                finally
+                {
+                    if(context != null)
+                        context.stop();
+                }
+
+                logger.info("Applied change: "+change.getAction().value()+" "+type+": "+describe(change));
+            }
+
+            /**
+             * Starts timing a call to the endpoint with the given method, if there is an endpoint.
+             */
+            private Timer.Context start(String method)
+            {
+                return endpoint != null ? Metrics.getInstance().apiCall(endpoint, method).start() : null;
+            }
+
+            protected boolean isIdempotent(Change<T> change)
+            {
+                return change.getAction() != Action.CREATE;
+            }
+
+            protected String describe(Change<T> change)
+            {
+                return ImportPlan.this.describe(change.getDesired() != null ? change.getDesired() : change.getCurrent());
+            }
+        }.parallelism(parallelism).rateLimit(rateLimit).retries(retries).deadline(deadline)
+            .circuitBreaker(breaker).execute(pending);
+    }
+
+    /**
+     * Returns the names of the properties that differ between the existing object and the object read from the file.
+     * <P>
+     * Properties that are not set in the file, or that are assigned by New Relic, are not compared.
+     * Collections are compared regardless of the order of their items, eg. the entities of an alert condition.
+     * @param current The existing object
+     * @param desired The object read from the file
+     * @return The names of the properties that differ
+     */
+    protected List<String> differences(T current, T desired)
+    {
+        List<String> ret = new ArrayList<String>();
+        if(current.getClass() != desired.getClass())
+        {
+            ret.add("type");
+            return ret;
+        }
+
+        BeanColumns<Object> beanColumns = getColumns(desired.getClass());
+        List<String> names = beanColumns.getNames();
+        List<Object> currentValues = beanColumns.getProperties(current, names);
+        List<Object> desiredValues = beanColumns.getProperties(desired, names);
+        for(int i = 0; i < names.size(); i++)
+        {
+            Object value = desiredValues.get(i);
+            if(value == null || IGNORED.contains(names.get(i)))
+                continue;
+            if(!normalize(value).equals(normalize(currentValues.get(i))))
+                ret.add(names.get(i));
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns the JSON of the given property value with the fields of each object sorted by name,
+     * the items of each collection sorted, and numbers in their simplest form.
+     */
+    private static String normalize(Object value)
+    {
+        return value != null ? normalize(gson.toJsonTree(value)).toString() : "null";
+    }
+
+    /**
+     * Returns a copy of the given JSON with the fields of each object sorted by name,
+     * the items of each array sorted, and numbers in their simplest form.
+     */
+    private static JsonElement normalize(JsonElement element)
+    {
+        if(element.isJsonObject())
+        {
+            Map<String,JsonElement> fields = new TreeMap<String,JsonElement>();
+            for(Map.Entry<String,JsonElement> field : element.getAsJsonObject().entrySet())
+                fields.put(field.getKey(), normalize(field.getValue()));
+            JsonObject ret = new JsonObject();
+            for(Map.Entry<String,JsonElement> field : fields.entrySet())
+                ret.add(field.getKey(), field.getValue());
+            return ret;
+        }
+        else if(element.isJsonArray())
+        {
+            List<String> items = new ArrayList<String>();
+            for(JsonElement item : element.getAsJsonArray())
+                items.add(normalize(item).toString());
+            Collections.sort(items);
+            JsonArray ret = new JsonArray();
+            for(String item : items)
+                ret.add(new JsonPrimitive(item));
+            return ret;
+        }
+        else if(element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber())
+        {
+            try
+            {
+                BigDecimal number = new BigDecimal(element.getAsString());
+                return new JsonPrimitive(number.signum() == 0 ? "0" : number.stripTrailingZeros().toPlainString());
+            }
+            catch(NumberFormatException e)
+            {
+                // NaN or infinity
+            }
+        }
+        return element;
+    }
+
+    /**
+     * Returns the bean columns for the given class.
+     */
+    @SuppressWarnings("unchecked")
+    private synchronized BeanColumns<Object> getColumns(Class<?> cls)
+    {
+        BeanColumns<Object> ret = columns.get(cls);
+        if(ret == null)
+        {
+            ret = new BeanColumns<Object>((Class<Object>)cls);
+            columns.put(cls, ret);
+        }
+        return ret;
+    }
+}
\ No newline at end of file
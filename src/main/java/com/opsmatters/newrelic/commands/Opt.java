@@ -26,6 +26,12 @@ public enum Opt
     HELP("h", "help", false, "Prints a usage statement"),
     VERBOSE("v", "verbose", false, "Enables verbose logging messages"),
     X_API_KEY("x", "x_api_key", true, "The New Relic API key for the account or user"),
+    API_URL("au", "api_url", true, "The base URL of the New Relic APIs, eg. for a local simulator, defaults to the New Relic hosts"),
+    CACHE("ca", "cache", false, "Cache the lists of alert policies, applications, servers and channels on disk to avoid lookups"),
+    NO_CACHE("nc", "no_cache", false, "Disables the lookup cache, even if enabled by the newrelic.cache property"),
+    REFRESH_CACHE("rfc", "refresh_cache", false, "Reloads the cached lists used by the command from the API"),
+    METRICS_FILE("mf", "metrics_file", true, "Writes the latency of the API calls and command phases to the file on exit, as JSON if the name ends with .json, otherwise in the Prometheus text format"),
+    DEADLINE("dl", "deadline", true, "The maximum time in seconds to spend executing the command, after which no further API calls are made"),
     ID("i", "id", true),
     NAME("n", "name", true),
     TYPE("t", "type", true),
@@ -92,7 +98,21 @@ public enum Opt
     SHEET("s", "sheet", true, "For XLS and XLSX files, the name of the worksheet to import/export"),
     DELETE("d", "delete", false, "Delete any existing object with that name before creating the new object"),
     APPEND("a", "append", false, "For export XLS and XLSX files, append the sheet to an existing workbook"),
-    POLICY("p", "policy", true, "The name of the alert policy (including wildcards)");
+    POLICY("p", "policy", true, "The name of the alert policy (including wildcards)"),
+    PARALLELISM("pa", "parallelism", true, "The number of API calls to execute concurrently, defaults to 1"),
+    RATE_LIMIT("rl", "rate_limit", true, "The maximum number of API calls per second, defaults to adapting to the API quota"),
+    RETRIES("rt", "retries", true, "The number of times to retry an API call that fails with a 429 or 5xx error, defaults to 3"),
+    STREAM("sm", "stream", false, "Write the rows to the CSV, TSV or XLSX file as they are fetched, using constant memory"),
+    PIPELINE("pl", "pipeline", false, "Create the objects while the file is still being read, using constant memory"),
+    RECONCILE("rc", "reconcile", false, "Only create, update or delete the objects that differ from the file"),
+    PLAN("pn", "plan", false, "Display the changes that would be made by the reconcile option without applying them"),
+    PAGE_SIZE("ps", "page_size", true, "The number of objects to fetch in each page"),
+    LIMIT("lm", "limit", true, "The maximum number of objects to list"),
+    OUTPUT("ot", "output", true, "Writes the objects as \"json\" (JSON Lines), \"csv\" or \"tsv\" instead of logging them, defaults to the extension of the out file"),
+    OUT("of", "out", true, "The name of the file to write the objects to, defaults to the standard output"),
+    FIELDS("fd", "fields", true, "Comma-separated list of the fields of the objects to write, defaults to all the fields"),
+    BASE("bs", "base", true, "The previous snapshot to compare with, writing only the objects that have changed since it was taken"),
+    DELTAS("dt", "deltas", true, "Comma-separated list of the incremental snapshots to apply to the snapshot, in the order they were taken");
 
     Opt(String shortOption, String longOption, boolean arg, String description)
     {
@@ -0,0 +1,423 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opsmatters.newrelic.commands;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import com.opsmatters.newrelic.clients.CircuitBreaker;
+import com.opsmatters.newrelic.clients.RateGovernor;
+import com.opsmatters.newrelic.clients.RetryPolicy;
+import com.opsmatters.newrelic.metrics.Metrics;
+import com.opsmatters.newrelic.metrics.Timer;
+
+/**
+ * Executes independent API fetches concurrently on a bounded pool of threads.
+ * <P>
+ * Used to fetch the objects of many parents (eg. the conditions of each alert policy)
+ * concurrently, as well as to fetch unrelated lists (eg. applications and servers) in parallel,
+ * and the pages of a paginated list ahead of the page being processed.
+ * <P>
+ * The fetches of parents are admitted by the {@link RateGovernor} of the command that created the fetcher,
+ * and are retried if they fail with a transient error.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class ParallelFetcher
+{
+    /**
+     * The default number of fetches executed concurrently.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private ExecutorService executor;
+    private int window;
+    private Timer timer;
+    private RateGovernor governor = RateGovernor.getCurrent();
+    private RetryPolicy retryPolicy = new RetryPolicy();
+    private CircuitBreaker breaker;
+
+    /**
+     * Constructor that takes the number of fetches to execute concurrently.
+     * @param parallelism The number of fetches executed concurrently
+     */
+    public ParallelFetcher(int parallelism)
+    {
+        if(parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        this.executor = Executors.newFixedThreadPool(parallelism);
+        this.window = parallelism*2;
+    }
+
+    /**
+     * Sets the timer used to record the latency of each fetch, eg. the calls to an API endpoint.
+     * @param timer The timer used to record the fetches
+     * @return This object
+     */
+    public ParallelFetcher timer(Timer timer)
+    {
+        this.timer = timer;
+        return this;
+    }
+
+    /**
+     * Sets the governor that admits the fetches of parents.
+     * @param governor The governor that admits the fetches
+     * @return This object
+     */
+    public ParallelFetcher governor(RateGovernor governor)
+    {
+        this.governor = governor;
+        return this;
+    }
+
+    /**
+     * Sets the circuit breaker of the API endpoint called by the fetches of parents.
+     * @param breaker The circuit breaker of the endpoint
+     * @return This object
+     */
+    public ParallelFetcher circuitBreaker(CircuitBreaker breaker)
+    {
+        this.breaker = breaker;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of retries for each fetch of a parent.
+     * @param retries The maximum number of retries for each fetch
+     * @return This object
+     */
+    public ParallelFetcher retries(int retries)
+    {
+        this.retryPolicy.retries(retries);
+        return this;
+    }
+
+    /**
+     * Sets the time after which no further calls are made, usually the deadline of the command.
+     * @param deadline The deadline in milliseconds since the epoch, or 0 for no deadline
+     * @return This object
+     */
+    public ParallelFetcher deadline(long deadline)
+    {
+        this.retryPolicy.deadline(deadline);
+        return this;
+    }
+
+    /**
+     * Interface used to fetch the objects belonging to a parent.
+     */
+    public interface Fetch<P,T>
+    {
+        /**
+         * Returns the objects belonging to the given parents.
+         * @param parents The parents of the objects
+         * @return The objects belonging to the parents
+         */
+        List<T> fetch(List<P> parents);
+    }
+
+    /**
+     * Interface used to receive the objects belonging to a parent as they are fetched.
+     */
+    public interface Sink<P,T>
+    {
+        /**
+         * Receives the objects belonging to the given parent.
+         * @param parent The parent of the objects
+         * @param items The objects belonging to the parent
+         * @throws IOException if the objects could not be written
+         */
+        void accept(P parent, List<T> items) throws IOException;
+    }
+
+    /**
+     * Interface used to fetch a page of objects from a paginated list.
+     */
+    public interface Page<T>
+    {
+        /**
+         * Returns the objects in the page.
+         * @param offset The offset of the first object in the page
+         * @param limit The maximum number of objects in the page
+         * @return The objects in the page
+         */
+        List<T> fetch(int offset, int limit);
+    }
+
+    /**
+     * Interface used to receive the pages of a paginated list as they are fetched.
+     */
+    public interface PageSink<T>
+    {
+        /**
+         * Receives the objects in a page.
+         * @param items The objects in the page
+         * @return <CODE>true</CODE> if more pages should be fetched
+         * @throws IOException if the objects could not be written
+         */
+        boolean accept(List<T> items) throws IOException;
+    }
+
+    /**
+     * Submits the given fetch to be executed in the background.
+     * @param task The fetch to be executed
+     * @return The future containing the result of the fetch
+     */
+    public <T> Future<T> submit(Callable<T> task)
+    {
+        return executor.submit(task);
+    }
+
+    /**
+     * Fetches the objects for each of the given parents concurrently.
+     * <P>
+     * The objects are returned in the order of the parents.
+     * @param parents The parents of the objects
+     * @param fetch The fetch to execute for each parent
+     * @return The objects belonging to the parents
+     */
+    public <P,T> List<T> fetchAll(List<P> parents, final Fetch<P,T> fetch)
+    {
+        List<T> ret = new ArrayList<T>();
+        for(List<T> items : fetchGroups(parents, fetch))
+            ret.addAll(items);
+        return ret;
+    }
+
+    /**
+     * Fetches the objects for each of the given parents concurrently, keeping the objects of each parent separate.
+     * @param parents The parents of the objects
+     * @param fetch The fetch to execute for each parent
+     * @return The objects belonging to each parent, in the order of the parents
+     */
+    public <P,T> List<List<T>> fetchGroups(List<P> parents, final Fetch<P,T> fetch)
+    {
+        List<Future<List<T>>> futures = new ArrayList<Future<List<T>>>(parents.size());
+        for(final P parent : parents)
+        {
+            futures.add(executor.submit(new Callable<List<T>>()
+            {
+                public List<T> call()
+                {
+                    return fetch(fetch, parent);
+                }
+            }));
+        }
+
+        List<List<T>> ret = new ArrayList<List<T>>(parents.size());
+        for(Future<List<T>> future : futures)
+            ret.add(get(future));
+        return ret;
+    }
+
+    /**
+     * Fetches the objects for each of the given parents concurrently, passing them to the sink as they arrive.
+     * <P>
+     * The objects are passed to the sink in the order of the parents.
+     * Only a bounded number of fetches are in progress at any time,
+     * so the memory used does not depend on the number of parents.
+     * @param parents The parents of the objects
+     * @param fetch The fetch to execute for each parent
+     * @param sink The sink that receives the objects for each parent
+     * @throws IOException if the sink could not write the objects
+     */
+    public <P,T> void fetchEach(List<P> parents, final Fetch<P,T> fetch, Sink<P,T> sink) throws IOException
+    {
+        Deque<Future<List<T>>> futures = new ArrayDeque<Future<List<T>>>();
+        int next = 0, done = 0;
+        while(done < parents.size())
+        {
+            while(next < parents.size() && futures.size() < window)
+            {
+                final P parent = parents.get(next++);
+                futures.add(executor.submit(new Callable<List<T>>()
+                {
+                    public List<T> call()
+                    {
+                        return fetch(fetch, parent);
+                    }
+                }));
+            }
+
+            sink.accept(parents.get(done++), get(futures.remove()));
+        }
+    }
+
+    /**
+     * Fetches the pages of a paginated list concurrently, passing them to the sink in order as they arrive.
+     * <P>
+     * The first page is fetched on its own, so that a short list needs a single call,
+     * and the following pages are fetched ahead of the page being passed to the sink, up to a bounded number of pages.
+     * Fetching stops at the first page that is not full, or when the sink does not want more pages,
+     * and any pages still being fetched are discarded.
+     * @param pageSize The number of objects in each page
+     * @param page The fetch to execute for each page
+     * @param sink The sink that receives the objects in each page
+     * @return The number of pages passed to the sink
+     * @throws IOException if the sink could not write the objects
+     */
+    public <T> int fetchPages(final int pageSize, final Page<T> page, PageSink<T> sink) throws IOException
+    {
+        if(pageSize < 1)
+            throw new IllegalArgumentException("page size must be at least 1");
+
+        final Fetch<Integer,T> fetch = new Fetch<Integer,T>()
+        {
+            public List<T> fetch(List<Integer> offsets)
+            {
+                return page.fetch(offsets.get(0), pageSize);
+            }
+        };
+
+        Deque<Future<List<T>>> futures = new ArrayDeque<Future<List<T>>>();
+        int offset = 0, pages = 0;
+        boolean more = true;
+        try
+        {
+            while(more)
+            {
+                while(futures.size() < (pages > 0 ? window : 1))
+                {
+                    final Integer next = offset;
+                    offset += pageSize;
+                    futures.add(executor.submit(new Callable<List<T>>()
+                    {
+                        public List<T> call()
+                        {
+                            return fetch(fetch, next);
+                        }
+                    }));
+                }
+
+                List<T> items = get(futures.remove());
+                ++pages;
+                more = sink.accept(items) && items.size() >= pageSize;
+            }
+        }
+        finally
+        {
+            for(Future<List<T>> future : futures)
+                future.cancel(true);
+        }
+
+        return pages;
+    }
+
+    /**
+     * Fetches the objects for the given parent once admitted by the governor and the circuit breaker,
+     * recording the latency of the fetch if there is a timer and retrying it after a transient error.
+     */
+    private <P,T> List<T> fetch(final Fetch<P,T> fetch, final P parent)
+    {
+        final Callable<List<T>> call = timed(new Callable<List<T>>()
+        {
+            public List<T> call()
+            {
+                return fetch.fetch(Collections.singletonList(parent));
+            }
+        });
+
+        final Callable<List<T>> admitted = new Callable<List<T>>()
+        {
+            public List<T> call() throws Exception
+            {
+                return governor != null ? governor.call(call) : call.call();
+            }
+        };
+
+        try
+        {
+            return retryPolicy.call(new Callable<List<T>>()
+            {
+                public List<T> call() throws Exception
+                {
+                    return breaker != null ? breaker.call(admitted) : admitted.call();
+                }
+            });
+        }
+        catch(RuntimeException e)
+        {
+            throw e;
+        }
+        catch(Exception e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the given fetch wrapped to record its latency if there is a timer.
+     */
+    private <T> Callable<T> timed(final Callable<T> call)
+    {
+        if(timer == null)
+            return call;
+
+        return new Callable<T>()
+        {
+            public T call() throws Exception
+            {
+                return Metrics.time(timer, call);
+            }
+        };
+    }
+
+    /**
+     * Waits for the given fetch to complete and returns its result.
+     * <P>
+     * An error thrown by the fetch is rethrown to the caller.
+     * @param future The future of the fetch
+     * @return The result of the fetch
+     */
+    public static <T> T get(Future<T> future)
+    {
+        try
+        {
+            return future.get();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted waiting for fetch", e);
+        }
+        catch(ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            if(cause instanceof Error)
+                throw (Error)cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Shuts down the threads used by the fetcher.
+     */
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+}
\ No newline at end of file
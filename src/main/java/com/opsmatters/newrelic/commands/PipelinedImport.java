@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.commands;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.logging.Logger;
+import com.opsmatters.newrelic.output.DelimitedRowWriter;
+import com.opsmatters.newrelic.output.RowReader;
+
+/**
+ * Imports the rows of a file in a pipeline, so that objects are created while the rest of the file is still being read.
+ * <P>
+ * A reader stage reads the rows of the file and parses them in chunks of rows.
+ * The objects parsed from each chunk are passed to a concurrent {@link BulkOperation} through a bounded queue,
+ * so that only a limited number of rows are held in memory at any time.
+ * <P>
+ * Each chunk is passed to {@link #read} as a CSV file with the header row of the original file,
+ * so that the existing readers for each type of object can be used to parse the rows.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public abstract class PipelinedImport<T>
+{
+    private static final Logger logger = Logger.getLogger(PipelinedImport.class.getName());
+
+    /**
+     * The default number of rows parsed together.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 100;
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /**
+     * Sets the number of rows parsed together.
+     * @param chunkSize The number of rows parsed together
+     * @return This object
+     */
+    public PipelinedImport<T> chunkSize(int chunkSize)
+    {
+        if(chunkSize < 1)
+            throw new IllegalArgumentException("chunk size must be at least 1");
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * Parses the objects from a chunk of rows.
+     * @param filename The name of the chunk file, used to select the format
+     * @param is The input stream for the chunk file
+     * @return The objects parsed from the rows
+     * @throws IOException if the rows could not be parsed
+     */
+    protected abstract List<T> read(String filename, InputStream is) throws IOException;
+
+    /**
+     * Reads the rows of the given file and passes the objects to the given operation as they are parsed.
+     * @param filename The name of the file
+     * @param worksheet For XLS and XLSX files, the name of the worksheet
+     * @param operation The operation to execute for each object
+     * @return <CODE>true</CODE> if all the objects were processed successfully
+     * @throws IOException if the file could not be read
+     */
+    public boolean execute(String filename, String worksheet, BulkOperation<T> operation) throws IOException
+    {
+        RowReader reader = RowReader.open(filename, worksheet);
+        ChunkHandler handler = new ChunkHandler(chunkName(filename), operation);
+
+        boolean ret = false;
+        operation.start();
+        try
+        {
+            reader.read(handler);
+            handler.flush();
+        }
+        finally
+        {
+            reader.close();
+            ret = operation.finish();
+        }
+
+        logger.info("Read "+handler.getRowCount()+" rows from: "+filename);
+        return ret;
+    }
+
+    /**
+     * Returns the name of the CSV file used for each chunk.
+     */
+    private static String chunkName(String filename)
+    {
+        String name = new File(filename).getName();
+        int pos = name.lastIndexOf('.');
+        if(pos > 0)
+            name = name.substring(0, pos);
+        return name+".csv";
+    }
+
+    /**
+     * Collects the rows into chunks and submits the objects parsed from each chunk.
+     */
+    private class ChunkHandler implements RowReader.Handler
+    {
+        private String name;
+        private BulkOperation<T> operation;
+        private List<String> header;
+        private List<List<String>> rows = new ArrayList<List<String>>();
+        private long count = 0L;
+
+        ChunkHandler(String name, BulkOperation<T> operation)
+        {
+            this.name = name;
+            this.operation = operation;
+        }
+
+        public void row(List<String> values) throws IOException
+        {
+            if(header == null)
+            {
+                header = values;
+                return;
+            }
+
+            rows.add(values);
+            ++count;
+            if(rows.size() >= chunkSize)
+                flush();
+        }
+
+        /**
+         * Parses the current chunk and submits the objects to the operation.
+         */
+        void flush() throws IOException
+        {
+            if(rows.size() == 0)
+                return;
+
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            DelimitedRowWriter writer = new DelimitedRowWriter(new OutputStreamWriter(os, "UTF-8"), ',');
+            writer.writeHeader(header);
+            for(List<String> row : rows)
+                writer.writeRow(new ArrayList<Object>(row));
+            writer.close();
+            rows.clear();
+
+            for(T item : read(name, new ByteArrayInputStream(os.toByteArray())))
+                operation.submit(item);
+        }
+
+        long getRowCount()
+        {
+            return count;
+        }
+    }
+}
\ No newline at end of file
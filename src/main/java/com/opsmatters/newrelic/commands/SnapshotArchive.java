@@ -0,0 +1,447 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.commands;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Writes a snapshot of the configuration of an account to a compressed archive.
+ * <P>
+ * The archive is a ZIP file containing an entry for each class of object in each section of the snapshot,
+ * eg. "channels/EmailChannel.jsonl", with each object written as a JSON object on its own line.
+ * The archive also contains a manifest that lists the entries with the class and number of objects in each,
+ * and an index of the SHA-256 hash of the canonical JSON of each object, keyed by section, class and id.
+ * <P>
+ * If the index of a previous snapshot is given as the base, the archive is incremental:
+ * only the objects that are new or whose hash has changed are written,
+ * and the manifest lists the keys of the objects that have been deleted since the base.
+ * The index always covers every object in the account, so an incremental snapshot can be the base of the next one.
+ * <P>
+ * Fields that report the current status of an object rather than its configuration (eg. the health status of an application)
+ * can be left out of a section, so that a change of status alone does not cause the object to be written again.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class SnapshotArchive
+{
+    /**
+     * The name of the manifest entry.
+     */
+    public static final String MANIFEST = "manifest.json";
+
+    /**
+     * The version of the archive format.
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * The name of the index entry.
+     */
+    public static final String INDEX = "index.json";
+
+    /**
+     * The extension of the entries containing the objects.
+     */
+    public static final String EXTENSION = ".jsonl";
+
+    private ZipOutputStream out;
+    private Writer writer;
+    private Gson gson = new Gson();
+    private JsonArray entries = new JsonArray();
+    private Map<String,Object> properties = new LinkedHashMap<String,Object>();
+    private long count = 0L;
+    private long unchanged = 0L;
+    private String id = UUID.randomUUID().toString();
+    private String baseId;
+    private Map<String,String> baseIndex;
+    private Map<String,String> index = new TreeMap<String,String>();
+    private List<String> deleted = new ArrayList<String>();
+    private Map<String,List<String>> statusFields = new HashMap<String,List<String>>();
+
+    /**
+     * Constructor that takes the stream to write the archive to.
+     * @param out The stream to write the archive to
+     * @throws IOException if the stream could not be opened
+     */
+    public SnapshotArchive(OutputStream out) throws IOException
+    {
+        this.out = new ZipOutputStream(new BufferedOutputStream(out, 65536));
+        this.writer = new OutputStreamWriter(this.out, "UTF-8");
+    }
+
+    /**
+     * Creates the archive with the given file name.
+     * @param filename The name of the archive file
+     * @return The archive
+     * @throws IOException if the file could not be created
+     */
+    public static SnapshotArchive create(String filename) throws IOException
+    {
+        return new SnapshotArchive(new FileOutputStream(filename));
+    }
+
+    /**
+     * Sets a property to be included in the manifest, eg. the elapsed time of the snapshot.
+     * @param name The name of the property
+     * @param value The value of the property
+     * @return This object
+     */
+    public SnapshotArchive property(String name, Object value)
+    {
+        properties.put(name, value);
+        return this;
+    }
+
+    /**
+     * Sets the snapshot this snapshot is based on, so that only the objects that have changed since the base are written.
+     * @param baseId The id of the base snapshot
+     * @param baseIndex The hashes of the objects in the base snapshot, keyed by the key of each object
+     * @return This object
+     */
+    public SnapshotArchive base(String baseId, Map<String,String> baseIndex)
+    {
+        this.baseId = baseId;
+        this.baseIndex = baseIndex;
+        return this;
+    }
+
+    /**
+     * Sets the fields of the objects in the given section that report their current status rather than their configuration.
+     * <P>
+     * The fields are left out of the objects written to the section and of their hashes.
+     * @param section The name of the section, eg. "applications"
+     * @param fields The names of the status fields, eg. "health_status"
+     * @return This object
+     */
+    public SnapshotArchive statusFields(String section, String... fields)
+    {
+        statusFields.put(section, Arrays.asList(fields));
+        return this;
+    }
+
+    /**
+     * Returns the id of the snapshot.
+     * @return The id of the snapshot
+     */
+    public String getId()
+    {
+        return id;
+    }
+
+    /**
+     * Returns the number of objects that were not written because they have not changed since the base snapshot.
+     * @return The number of unchanged objects
+     */
+    public long getUnchanged()
+    {
+        return unchanged;
+    }
+
+    /**
+     * Returns the keys of the objects in the base snapshot that have been deleted, once the archive has been closed.
+     * @return The keys of the deleted objects
+     */
+    public List<String> getDeleted()
+    {
+        return deleted;
+    }
+
+    /**
+     * Returns the number of objects written to the archive.
+     * @return The number of objects written
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Writes the given objects to the given section of the archive, with an entry for each class of object.
+     * @param section The name of the section, eg. "channels"
+     * @param items The objects to write
+     * @return The number of objects written
+     * @throws IOException if the objects could not be written
+     */
+    public int write(String section, Collection<?> items) throws IOException
+    {
+        Map<Class<?>,List<JsonElement>> classes = new LinkedHashMap<Class<?>,List<JsonElement>>();
+        for(Object item : items)
+            add(classes, item, gson.toJsonTree(item));
+        return writeEntries(section, classes);
+    }
+
+    /**
+     * Writes the objects belonging to each parent to the given section of the archive, with an entry for each class of object.
+     * <P>
+     * The id of the parent is added to each object that does not already include it, eg. the policy id of an alert condition.
+     * @param section The name of the section, eg. "conditions"
+     * @param children The objects belonging to each parent, keyed by the id of the parent
+     * @param parentField The name of the field containing the id of the parent, eg. "policy_id"
+     * @return The number of objects written
+     * @throws IOException if the objects could not be written
+     */
+    public int write(String section, Map<Long,? extends Collection<?>> children, String parentField) throws IOException
+    {
+        Map<Class<?>,List<JsonElement>> classes = new LinkedHashMap<Class<?>,List<JsonElement>>();
+        for(Map.Entry<Long,? extends Collection<?>> parent : children.entrySet())
+        {
+            for(Object item : parent.getValue())
+            {
+                JsonElement element = gson.toJsonTree(item);
+                if(element.isJsonObject() && !element.getAsJsonObject().has(parentField))
+                    element.getAsJsonObject().addProperty(parentField, parent.getKey());
+                add(classes, item, element);
+            }
+        }
+        return writeEntries(section, classes);
+    }
+
+    /**
+     * Adds the given object to the list for its class, keeping the order of the objects.
+     */
+    private void add(Map<Class<?>,List<JsonElement>> classes, Object item, JsonElement element)
+    {
+        List<JsonElement> list = classes.get(item.getClass());
+        if(list == null)
+        {
+            list = new ArrayList<JsonElement>();
+            classes.put(item.getClass(), list);
+        }
+        list.add(element);
+    }
+
+    /**
+     * Writes an entry for each class of object to the given section of the archive.
+     */
+    private int writeEntries(String section, Map<Class<?>,List<JsonElement>> classes) throws IOException
+    {
+        int ret = 0;
+        List<String> fields = statusFields.get(section);
+        for(Map.Entry<Class<?>,List<JsonElement>> entry : classes.entrySet())
+        {
+            // Only write the objects that have changed since the base snapshot
+            List<JsonElement> changed = new ArrayList<JsonElement>();
+            for(JsonElement element : entry.getValue())
+            {
+                if(fields != null && element.isJsonObject())
+                {
+                    for(String field : fields)
+                        element.getAsJsonObject().remove(field);
+                }
+
+                String hash = hash(element);
+                String key = key(section, entry.getKey().getName(), element, hash);
+                index.put(key, hash);
+                if(baseIndex != null && hash.equals(baseIndex.get(key)))
+                    ++unchanged;
+                else
+                    changed.add(element);
+            }
+
+            if(changed.size() == 0)
+                continue;
+
+            String name = section+"/"+entry.getKey().getSimpleName()+EXTENSION;
+            out.putNextEntry(new ZipEntry(name));
+            for(JsonElement element : changed)
+            {
+                gson.toJson(element, writer);
+                writer.write('\n');
+            }
+            writer.flush();
+            out.closeEntry();
+
+            JsonObject manifestEntry = new JsonObject();
+            manifestEntry.addProperty("name", name);
+            manifestEntry.addProperty("section", section);
+            manifestEntry.addProperty("type", entry.getKey().getName());
+            manifestEntry.addProperty("count", changed.size());
+            entries.add(manifestEntry);
+            ret += changed.size();
+        }
+
+        count += ret;
+        return ret;
+    }
+
+    /**
+     * Returns the key of the given object, made up of the section, class and id of the object.
+     * <P>
+     * Objects without an id or key are identified by their hash.
+     * @param section The section of the object, eg. "channels"
+     * @param type The name of the class of the object
+     * @param element The JSON of the object
+     * @param hash The hash of the object
+     * @return The key of the object
+     */
+    public static String key(String section, String type, JsonElement element, String hash)
+    {
+        String id = null;
+        if(element.isJsonObject())
+        {
+            JsonObject object = element.getAsJsonObject();
+            for(String field : new String[] {"id", "key"})
+            {
+                JsonElement value = object.get(field);
+                if(value != null && value.isJsonPrimitive())
+                {
+                    id = value.getAsString();
+                    break;
+                }
+            }
+        }
+        return section+"/"+type+"/"+(id != null ? id : "#"+hash);
+    }
+
+    /**
+     * Returns the SHA-256 hash of the canonical JSON of the given object, with the fields of each object sorted by name.
+     * @param element The JSON of the object
+     * @return The hash of the object as a hex string
+     */
+    public static String hash(JsonElement element)
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest(canonical(element).toString().getBytes(Charset.forName("UTF-8")));
+            StringBuilder ret = new StringBuilder(bytes.length*2);
+            for(byte b : bytes)
+                ret.append(String.format("%02x", b & 0xff));
+            return ret.toString();
+        }
+        catch(NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns a copy of the given JSON with the fields of each object sorted by name.
+     */
+    private static JsonElement canonical(JsonElement element)
+    {
+        if(element.isJsonObject())
+        {
+            Map<String,JsonElement> fields = new TreeMap<String,JsonElement>();
+            for(Map.Entry<String,JsonElement> field : element.getAsJsonObject().entrySet())
+                fields.put(field.getKey(), field.getValue());
+            JsonObject ret = new JsonObject();
+            for(Map.Entry<String,JsonElement> field : fields.entrySet())
+                ret.add(field.getKey(), canonical(field.getValue()));
+            return ret;
+        }
+        else if(element.isJsonArray())
+        {
+            JsonArray ret = new JsonArray();
+            for(JsonElement item : element.getAsJsonArray())
+                ret.add(canonical(item));
+            return ret;
+        }
+        return element;
+    }
+
+    /**
+     * Writes the manifest and closes the archive.
+     * @throws IOException if the archive could not be written
+     */
+    public void close() throws IOException
+    {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        JsonObject manifest = new JsonObject();
+        manifest.addProperty("version", VERSION);
+        manifest.addProperty("id", id);
+        manifest.addProperty("created", format.format(new Date()));
+        for(Map.Entry<String,Object> property : properties.entrySet())
+        {
+            Object value = property.getValue();
+            if(value instanceof Number)
+                manifest.addProperty(property.getKey(), (Number)value);
+            else if(value != null)
+                manifest.addProperty(property.getKey(), value.toString());
+        }
+        manifest.addProperty("count", count);
+        manifest.add("entries", entries);
+
+        // List the objects in the base snapshot that are no longer in the account
+        if(baseIndex != null)
+        {
+            JsonArray deletedKeys = new JsonArray();
+            for(String key : new TreeMap<String,String>(baseIndex).keySet())
+            {
+                if(!index.containsKey(key))
+                {
+                    deleted.add(key);
+                    deletedKeys.add(key);
+                }
+            }
+
+            manifest.addProperty("base", baseId);
+            manifest.addProperty("unchanged", unchanged);
+            manifest.add("deleted", deletedKeys);
+        }
+
+        JsonObject indexObject = new JsonObject();
+        for(Map.Entry<String,String> entry : index.entrySet())
+            indexObject.addProperty(entry.getKey(), entry.getValue());
+
+        try
+        {
+            out.putNextEntry(new ZipEntry(INDEX));
+            gson.toJson(indexObject, writer);
+            writer.flush();
+            out.closeEntry();
+
+            out.putNextEntry(new ZipEntry(MANIFEST));
+            new GsonBuilder().setPrettyPrinting().create().toJson(manifest, writer);
+            writer.flush();
+            out.closeEntry();
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+}
\ No newline at end of file
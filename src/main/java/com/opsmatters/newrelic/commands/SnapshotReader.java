@@ -0,0 +1,406 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.commands;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.LinkedHashSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * Reads the objects from a snapshot archive written by {@link SnapshotArchive}.
+ * <P>
+ * The objects are returned as JSON objects with the class given for their entry in the manifest,
+ * so that fields such as ids can be changed before the objects are created.
+ * A base snapshot can be composed with the incremental snapshots taken after it,
+ * in which case the objects returned are those in the account when the last snapshot was taken.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class SnapshotReader
+{
+    private static final Gson gson = new Gson();
+
+    private List<Archive> archives = new ArrayList<Archive>();
+
+    /**
+     * Constructor that takes the name of the archive file.
+     * @param filename The name of the archive file
+     * @throws IOException if the archive or its manifest could not be read
+     */
+    public SnapshotReader(String filename) throws IOException
+    {
+        this(filename, Collections.<String>emptyList());
+    }
+
+    /**
+     * Constructor that takes the name of the base archive file and the incremental archives to apply to it.
+     * @param filename The name of the base archive file
+     * @param deltas The names of the incremental archive files, in the order they were taken
+     * @throws IOException if an archive or its manifest could not be read, or the archives are not in sequence
+     */
+    public SnapshotReader(String filename, List<String> deltas) throws IOException
+    {
+        try
+        {
+            archives.add(new Archive(filename));
+            for(String delta : deltas)
+            {
+                Archive previous = archives.get(archives.size()-1);
+                Archive archive = new Archive(delta);
+                archives.add(archive);
+                String base = archive.getString("base");
+                if(base == null)
+                    throw new IOException("snapshot is not incremental: "+delta);
+                if(!base.equals(previous.getString("id")))
+                    throw new IOException("snapshot "+delta+" is not based on "+previous.filename);
+            }
+        }
+        catch(IOException e)
+        {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the manifest of the last archive.
+     * @return The manifest of the last archive
+     */
+    public JsonObject getManifest()
+    {
+        return archives.get(archives.size()-1).manifest;
+    }
+
+    /**
+     * Returns the id of the last archive.
+     * @return The id of the last archive, or <CODE>null</CODE> if the archive does not have an id
+     */
+    public String getId()
+    {
+        return archives.get(archives.size()-1).getString("id");
+    }
+
+    /**
+     * Returns <CODE>true</CODE> if the first archive is a full snapshot rather than an incremental snapshot.
+     * @return <CODE>true</CODE> if the objects returned cover the whole account
+     */
+    public boolean isComplete()
+    {
+        return archives.get(0).getString("base") == null;
+    }
+
+    /**
+     * Returns the hashes of the objects in the account when the last snapshot was taken, keyed by the key of each object.
+     * <P>
+     * The hashes are calculated from the objects if the last archive was written without an index.
+     * @return The hashes of the objects
+     * @throws IOException if the index could not be read
+     */
+    public Map<String,String> getIndex() throws IOException
+    {
+        Archive archive = archives.get(archives.size()-1);
+        ZipEntry entry = archive.zip.getEntry(SnapshotArchive.INDEX);
+        Map<String,String> ret = new HashMap<String,String>();
+        if(entry != null)
+        {
+            JsonElement element = parse(archive, entry);
+            for(Map.Entry<String,JsonElement> hash : element.getAsJsonObject().entrySet())
+                ret.put(hash.getKey(), hash.getValue().getAsString());
+        }
+        else
+        {
+            Set<String> sections = new LinkedHashSet<String>();
+            for(Archive a : archives)
+            {
+                for(JsonElement manifestEntry : a.manifest.getAsJsonArray("entries"))
+                    sections.add(manifestEntry.getAsJsonObject().get("section").getAsString());
+            }
+
+            for(String section : sections)
+            {
+                for(Item item : read(section))
+                    ret.put(item.getKey(), SnapshotArchive.hash(item.getObject()));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the objects in the given section, in the order they were written.
+     * <P>
+     * The objects in each incremental archive replace those with the same key,
+     * and the objects deleted in each incremental archive are removed.
+     * @param section The name of the section, eg. "channels"
+     * @return The objects in the section
+     * @throws IOException if the objects could not be read
+     */
+    public List<Item> read(String section) throws IOException
+    {
+        Map<String,Item> items = new LinkedHashMap<String,Item>();
+        for(Archive archive : archives)
+        {
+            JsonArray deleted = archive.manifest.getAsJsonArray("deleted");
+            if(deleted != null)
+            {
+                for(JsonElement key : deleted)
+                    items.remove(key.getAsString());
+            }
+
+            for(Item item : archive.read(section))
+                items.put(item.getKey(), item);
+        }
+        return new ArrayList<Item>(items.values());
+    }
+
+    /**
+     * Closes the archives.
+     * @throws IOException if an archive could not be closed
+     */
+    public void close() throws IOException
+    {
+        for(Archive archive : archives)
+            archive.zip.close();
+    }
+
+    /**
+     * Parses the JSON in the given entry.
+     */
+    private static JsonElement parse(Archive archive, ZipEntry entry) throws IOException
+    {
+        Reader reader = new InputStreamReader(archive.zip.getInputStream(entry), "UTF-8");
+        try
+        {
+            return new JsonParser().parse(reader);
+        }
+        catch(JsonParseException e)
+        {
+            throw new IOException("invalid "+entry.getName()+" in snapshot: "+archive.filename, e);
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * A snapshot archive and its manifest.
+     */
+    private static class Archive
+    {
+        private String filename;
+        private ZipFile zip;
+        private JsonObject manifest;
+
+        /**
+         * Opens the archive with the given file name and reads its manifest.
+         */
+        Archive(String filename) throws IOException
+        {
+            this.filename = filename;
+            this.zip = new ZipFile(filename);
+            try
+            {
+                ZipEntry entry = zip.getEntry(SnapshotArchive.MANIFEST);
+                if(entry == null)
+                    throw new IOException("missing manifest in snapshot: "+filename);
+                JsonElement element = parse(this, entry);
+                if(!element.isJsonObject())
+                    throw new IOException("invalid manifest in snapshot: "+filename);
+                manifest = element.getAsJsonObject();
+                if(!manifest.has("version") || manifest.get("version").getAsInt() > SnapshotArchive.VERSION)
+                    throw new IOException("unsupported snapshot version: "+manifest.get("version"));
+            }
+            catch(IOException e)
+            {
+                zip.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Returns the given property of the manifest.
+         */
+        String getString(String name)
+        {
+            JsonElement element = manifest.get(name);
+            return element != null && !element.isJsonNull() ? element.getAsString() : null;
+        }
+
+        /**
+         * Returns the objects in the given section of the archive.
+         */
+        List<Item> read(String section) throws IOException
+        {
+            List<Item> ret = new ArrayList<Item>();
+            for(JsonElement element : manifest.getAsJsonArray("entries"))
+            {
+                JsonObject entry = element.getAsJsonObject();
+                if(!entry.get("section").getAsString().equals(section))
+                    continue;
+
+                String name = entry.get("name").getAsString();
+                Class<?> type = null;
+                try
+                {
+                    type = Class.forName(entry.get("type").getAsString());
+                }
+                catch(ClassNotFoundException e)
+                {
+                    throw new IOException("unknown type for entry "+name+": "+e.getMessage());
+                }
+
+                ZipEntry zipEntry = zip.getEntry(name);
+                if(zipEntry == null)
+                    throw new IOException("missing entry in snapshot: "+name);
+
+                BufferedReader reader = new BufferedReader(new InputStreamReader(zip.getInputStream(zipEntry), "UTF-8"));
+                try
+                {
+                    JsonParser parser = new JsonParser();
+                    String line = null;
+                    int lineNumber = 0;
+                    while((line = reader.readLine()) != null)
+                    {
+                        ++lineNumber;
+                        if(line.trim().length() == 0)
+                            continue;
+                        try
+                        {
+                            ret.add(new Item(section, type, parser.parse(line).getAsJsonObject()));
+                        }
+                        catch(RuntimeException e)
+                        {
+                            throw new IOException("invalid object at line "+lineNumber+" of "+name+": "+e.getMessage());
+                        }
+                    }
+                }
+                finally
+                {
+                    reader.close();
+                }
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * An object read from the archive.
+     */
+    public static class Item
+    {
+        private String section;
+        private Class<?> type;
+        private JsonObject object;
+
+        /**
+         * Constructor that takes the section, class and JSON of the object.
+         * @param section The section of the object, eg. "channels"
+         * @param type The class of the object
+         * @param object The JSON of the object
+         */
+        public Item(String section, Class<?> type, JsonObject object)
+        {
+            this.section = section;
+            this.type = type;
+            this.object = object;
+        }
+
+        /**
+         * Returns the key of the object, made up of the section, class and id of the object.
+         * @return The key of the object
+         */
+        public String getKey()
+        {
+            return SnapshotArchive.key(section, type.getName(), object, SnapshotArchive.hash(object));
+        }
+
+        /**
+         * Returns the section of the object.
+         * @return The section of the object
+         */
+        public String getSection()
+        {
+            return section;
+        }
+
+        /**
+         * Returns the class of the object.
+         * @return The class of the object
+         */
+        public Class<?> getType()
+        {
+            return type;
+        }
+
+        /**
+         * Returns the JSON of the object, which can be changed before the object is created.
+         * @return The JSON of the object
+         */
+        public JsonObject getObject()
+        {
+            return object;
+        }
+
+        /**
+         * Returns the value of the given field of the object as a long.
+         * @param name The name of the field
+         * @return The value of the field, or <CODE>null</CODE> if the field is missing
+         */
+        public Long getLong(String name)
+        {
+            JsonElement element = object.get(name);
+            return element != null && !element.isJsonNull() ? element.getAsLong() : null;
+        }
+
+        /**
+         * Returns the value of the given field of the object as a string.
+         * @param name The name of the field
+         * @return The value of the field, or <CODE>null</CODE> if the field is missing
+         */
+        public String getString(String name)
+        {
+            JsonElement element = object.get(name);
+            return element != null && !element.isJsonNull() ? element.getAsString() : null;
+        }
+
+        /**
+         * Returns the object created from the JSON.
+         * @return The object created from the JSON
+         */
+        public Object toObject()
+        {
+            return gson.fromJson(object, type);
+        }
+    }
+}
\ No newline at end of file
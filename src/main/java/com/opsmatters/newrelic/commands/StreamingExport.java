@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opsmatters.newrelic.commands;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.ArrayList;
+import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
+import com.opsmatters.newrelic.output.DelimitedRowReader;
+import com.opsmatters.newrelic.output.RowReader;
+import com.opsmatters.newrelic.output.RowWriter;
+
+/**
+ * Exports the objects of each alert policy to a file as they are fetched, using constant memory.
+ * <P>
+ * The objects of each alert policy are passed to {@link #write(List, String, OutputStream)} to be written
+ * as a CSV file by the existing writers for each type of object, and the rows are then appended to the output file.
+ * The file therefore has the same columns as the file written without streaming, and can be imported in the same way.
+ * <P>
+ * The format of the file is selected from the file extension, see {@link RowWriter#open}.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public abstract class StreamingExport<T>
+{
+    private static final String CHUNK = "chunk.csv";
+
+    private boolean header = false;
+
+    /**
+     * Writes the given objects as a CSV file including a header row.
+     * @param items The objects to write
+     * @param filename The name of the chunk file, used to select the format
+     * @param os The output stream for the chunk file
+     * @throws IOException if the objects could not be written
+     */
+    protected abstract void write(List<T> items, String filename, OutputStream os) throws IOException;
+
+    /**
+     * Fetches the objects for each alert policy and writes them to the given file.
+     * @param fetcher The fetcher used to fetch the objects concurrently
+     * @param policies The alert policies to export
+     * @param fetch The fetch that returns the objects for each alert policy
+     * @param filename The name of the file
+     * @param worksheet For XLSX files, the name of the worksheet
+     * @param append <CODE>true</CODE> if the objects should be added to an existing CSV or TSV file
+     * @return The number of objects written
+     * @throws IOException if the file could not be written
+     */
+    public long write(ParallelFetcher fetcher, List<AlertPolicy> policies, ParallelFetcher.Fetch<AlertPolicy,T> fetch,
+        String filename, String worksheet, boolean append) throws IOException
+    {
+        final RowWriter writer = RowWriter.open(filename, worksheet, append);
+        try
+        {
+            fetcher.fetchEach(policies, fetch, new ParallelFetcher.Sink<AlertPolicy,T>()
+            {
+                public void accept(AlertPolicy policy, List<T> items) throws IOException
+                {
+                    if(items.size() > 0)
+                        copy(items, writer);
+                }
+            });
+
+            return writer.getRowCount();
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes the given objects as a CSV chunk and copies the rows to the output file,
+     * including the header row only for the first chunk.
+     */
+    private void copy(List<T> items, final RowWriter writer) throws IOException
+    {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        write(items, CHUNK, os);
+
+        RowReader reader = new DelimitedRowReader(new InputStreamReader(
+            new ByteArrayInputStream(os.toByteArray()), "UTF-8"), ',');
+        try
+        {
+            reader.read(new RowReader.Handler()
+            {
+                private boolean first = true;
+
+                public void row(List<String> values) throws IOException
+                {
+                    if(first)
+                    {
+                        first = false;
+                        if(!header)
+                            writer.writeHeader(values);
+                        header = true;
+                        return;
+                    }
+
+                    writer.writeRow(new ArrayList<Object>(values));
+                }
+            });
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+}
\ No newline at end of file
@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.accounts;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.NewRelicApi;
@@ -63,6 +64,7 @@ public class ListUsers extends BaseCommand
         super.options();
         addOption(Opt.NAME, "The name of the users");
         addOption(Opt.ROLE);
+        addOutputOptions();
     }
 
     /**
@@ -96,14 +98,20 @@ public class ListUsers extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting users: "+name+(role != null ? " ("+role+")":""));
-        Collection<User> users = api.users().list(name, role);
+        Collection<User> users = call("users", "GET", new Callable<Collection<User>>()
+        {
+            public Collection<User> call()
+            {
+                return api.users().list(name, role);
+            }
+        });
         if(verbose())
             logger.info("Found "+users.size()+" users");
         for(User user : users)
-            logger.info(user.getId()+" - "+user.getFirstName()+" "+user.getLastName()+" ("+user.getRole()+")");
+            print(user, user.getId()+" - "+user.getFirstName()+" "+user.getLastName()+" ("+user.getRole()+")");
     }
 }
\ No newline at end of file
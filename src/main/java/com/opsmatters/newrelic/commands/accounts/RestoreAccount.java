@@ -0,0 +1,589 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.commands.accounts;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import org.apache.commons.cli.CommandLine;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.opsmatters.newrelic.api.NewRelicApi;
+import com.opsmatters.newrelic.api.NewRelicInfraApi;
+import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
+import com.opsmatters.newrelic.api.model.alerts.channels.AlertChannel;
+import com.opsmatters.newrelic.api.model.alerts.conditions.AlertCondition;
+import com.opsmatters.newrelic.api.model.alerts.conditions.NrqlAlertCondition;
+import com.opsmatters.newrelic.api.model.alerts.conditions.ExternalServiceAlertCondition;
+import com.opsmatters.newrelic.api.model.alerts.conditions.SyntheticsAlertCondition;
+import com.opsmatters.newrelic.api.model.alerts.conditions.PluginsAlertCondition;
+import com.opsmatters.newrelic.api.model.alerts.conditions.InfraAlertCondition;
+import com.opsmatters.newrelic.api.model.applications.Application;
+import com.opsmatters.newrelic.api.model.servers.Server;
+import com.opsmatters.newrelic.commands.Opt;
+import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.BulkOperation;
+import com.opsmatters.newrelic.commands.ParallelFetcher;
+import com.opsmatters.newrelic.commands.SnapshotReader;
+import com.opsmatters.newrelic.clients.RetryPolicy;
+import com.opsmatters.newrelic.metrics.Timer;
+
+/**
+ * Implements the New Relic command line option to restore the alert configuration of an account from a snapshot archive.
+ * <P>
+ * The objects are created in layers given by their dependencies: the alert channels and policies first,
+ * then the links between policies and channels and the alert conditions of each type.
+ * The steps in each layer are executed concurrently, and the ids of the objects created are kept in memory
+ * to replace the ids in the snapshot, so the existing objects are not listed again for each step.
+ * The entities of each condition are replaced by the applications and servers in the account with the same names.
+ * Incremental snapshots taken after the snapshot can be applied to it to restore the configuration at the time of the last one.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class RestoreAccount extends BaseCommand
+{
+    private static final Logger logger = Logger.getLogger(RestoreAccount.class.getName());
+    private static final String NAME = "restore_account";
+
+    private String filename;
+    private List<String> deltas = new ArrayList<String>();
+    private int parallelism = ParallelFetcher.DEFAULT_PARALLELISM;
+    private double rateLimit = BulkOperation.DEFAULT_RATE_LIMIT;
+    private int retries = RetryPolicy.DEFAULT_RETRIES;
+
+    private Map<Long,Long> channelIds = new ConcurrentHashMap<Long,Long>();
+    private Map<Long,Long> policyIds = new ConcurrentHashMap<Long,Long>();
+    private Map<String,String> entityIds = new HashMap<String,String>();
+    private Set<String> snapshotEntities = new HashSet<String>();
+
+    /**
+     * Default constructor.
+     */
+    public RestoreAccount()
+    {
+        options();
+    }
+
+    /**
+     * Returns the name of the command.
+     * @return The name of the command
+     */
+    public String getName()
+    {
+        return NAME;
+    }
+
+    /**
+     * Sets the options for the command.
+     */
+    @Override
+    protected void options()
+    {
+        super.options();
+        addOption(Opt.FILE, "The name of the snapshot archive to restore");
+        addOption(Opt.DELTAS);
+        addOption(Opt.PARALLELISM, "The number of API calls to execute concurrently for each step, defaults to "+ParallelFetcher.DEFAULT_PARALLELISM);
+        addOption(Opt.RATE_LIMIT);
+        addOption(Opt.RETRIES);
+    }
+
+    /**
+     * Parse the command-specific options.
+     * @param cli The parsed command line
+     */
+    protected void parse(CommandLine cli)
+    {
+        // Filename option
+        if(hasOption(cli, Opt.FILE, true))
+        {
+            filename = getOptionValue(cli, Opt.FILE);
+            logOptionValue(Opt.FILE, filename);
+        }
+
+        // Deltas option
+        if(hasOption(cli, Opt.DELTAS, false))
+        {
+            String value = getOptionValue(cli, Opt.DELTAS);
+            for(String delta : value.split(","))
+            {
+                if(delta.trim().length() > 0)
+                    deltas.add(delta.trim());
+            }
+            logOptionValue(Opt.DELTAS, value);
+        }
+
+        // Parallelism option
+        if(hasOption(cli, Opt.PARALLELISM, false))
+        {
+            parallelism = getIntOptionValue(cli, Opt.PARALLELISM, 1);
+            logOptionValue(Opt.PARALLELISM, parallelism);
+        }
+
+        // Rate limit option
+        if(hasOption(cli, Opt.RATE_LIMIT, false))
+        {
+            rateLimit = getDoubleOptionValue(cli, Opt.RATE_LIMIT, 0.0d);
+            logOptionValue(Opt.RATE_LIMIT, rateLimit);
+        }
+
+        // Retries option
+        if(hasOption(cli, Opt.RETRIES, false))
+        {
+            retries = getIntOptionValue(cli, Opt.RETRIES, 0);
+            logOptionValue(Opt.RETRIES, retries);
+        }
+    }
+
+    /**
+     * Restore the account from the snapshot.
+     */
+    protected void execute()
+    {
+        final NewRelicApi api = getApi();
+        final NewRelicInfraApi infraApi = getInfraApi();
+
+        List<SnapshotReader.Item> channels = null;
+        List<SnapshotReader.Item> policies = null;
+        List<SnapshotReader.Item> conditions = null;
+        List<SnapshotReader.Item> entities = new ArrayList<SnapshotReader.Item>();
+
+        Timer.Context phase = startPhase(READ);
+        try
+        {
+            SnapshotReader snapshot = new SnapshotReader(filename, deltas);
+            try
+            {
+                if(!snapshot.isComplete())
+                {
+                    logger.severe("Snapshot is incremental, restore its base snapshot with this one in the \""+Opt.DELTAS.longName()
+                        +"\" option: "+filename);
+                    return;
+                }
+
+                channels = snapshot.read("channels");
+                policies = snapshot.read("policies");
+                conditions = snapshot.read("conditions");
+                entities.addAll(snapshot.read("applications"));
+                entities.addAll(snapshot.read("servers"));
+            }
+            finally
+            {
+                snapshot.close();
+            }
+        }
+        catch(IOException e)
+        {
+            logger.severe("Unable to read snapshot file: "+e.getClass().getName()+": "+e.getMessage());
+            return;
+        }
+        finally
+        {
+            phase.stop();
+        }
+
+        // Match the entities in the snapshot to the entities in the account by name
+        phase = startPhase(LOOKUP);
+        try
+        {
+            mapEntities(entities);
+        }
+        finally
+        {
+            phase.stop();
+        }
+
+        // Build the steps of the restore with their dependencies
+        List<Step> steps = new ArrayList<Step>();
+        steps.add(new Step("alert channels", "alerts_channels", "POST", channels)
+        {
+            protected void process(SnapshotReader.Item item)
+            {
+                AlertChannel channel = (AlertChannel)copy(item, "id", "links").toObject();
+                AlertChannel created = api.alertChannels().create(channel).get();
+                channelIds.put(item.getLong("id"), created.getId());
+            }
+        });
+
+        steps.add(new Step("alert policies", "alerts_policies", "POST", policies)
+        {
+            protected void process(SnapshotReader.Item item)
+            {
+                AlertPolicy policy = (AlertPolicy)copy(item, "id", "created_at", "updated_at").toObject();
+                AlertPolicy created = api.alertPolicies().create(policy).get();
+                policyIds.put(item.getLong("id"), created.getId());
+            }
+        });
+
+        steps.add(new Step("alert policy channels", "alerts_policy_channels", "PUT", getPolicyChannels(channels),
+            "alert channels", "alert policies")
+        {
+            protected void process(SnapshotReader.Item item)
+            {
+                api.alertPolicyChannels().update(getPolicyId(item), getId(channelIds, "alert channel", item.getLong("channel_id")));
+            }
+
+            protected String describe(SnapshotReader.Item item)
+            {
+                return "channel "+item.getLong("channel_id")+" of policy "+item.getLong("policy_id");
+            }
+        });
+
+        // Add a step for the alert conditions of each endpoint
+        Map<String,List<SnapshotReader.Item>> endpoints = new LinkedHashMap<String,List<SnapshotReader.Item>>();
+        for(SnapshotReader.Item item : conditions)
+        {
+            String endpoint = getEndpoint(item.getType());
+            List<SnapshotReader.Item> items = endpoints.get(endpoint);
+            if(items == null)
+            {
+                items = new ArrayList<SnapshotReader.Item>();
+                endpoints.put(endpoint, items);
+            }
+            items.add(item);
+        }
+
+        for(Map.Entry<String,List<SnapshotReader.Item>> entry : endpoints.entrySet())
+        {
+            steps.add(new Step(entry.getKey().replace('_', ' '), entry.getKey(), "POST", entry.getValue(), "alert policies")
+            {
+                protected void process(SnapshotReader.Item item)
+                {
+                    createCondition(api, infraApi, item);
+                }
+            });
+        }
+
+        // Execute the steps in each layer concurrently
+        phase = startPhase(CREATE);
+        try
+        {
+            List<List<Step>> layers = getLayers(steps);
+            for(int i = 0; i < layers.size(); i++)
+                execute(i+1, layers.get(i));
+        }
+        finally
+        {
+            phase.stop();
+        }
+
+        logger.info("Restored "+channelIds.size()+" alert channels and "+policyIds.size()+" alert policies from snapshot: "+filename);
+    }
+
+    /**
+     * Executes the steps in the given layer concurrently and logs the throughput of the layer.
+     */
+    private void execute(int layer, List<Step> steps)
+    {
+        long start = System.currentTimeMillis();
+        int count = 0;
+        List<String> names = new ArrayList<String>();
+        List<Step> started = new ArrayList<Step>();
+        for(Step step : steps)
+        {
+            if(step.items.size() == 0)
+                continue;
+            started.add(step);
+            step.start(Math.min(parallelism, step.items.size()));
+            count += step.items.size();
+            names.add(step.name);
+        }
+
+        for(Step step : started)
+        {
+            for(SnapshotReader.Item item : step.items)
+                step.submit(item);
+        }
+
+        int failed = 0;
+        for(Step step : started)
+        {
+            step.finish();
+            failed += step.getFailed();
+        }
+
+        long elapsed = System.currentTimeMillis()-start;
+        logger.info(String.format("Restored layer %d (%s): %d objects, %d failed in %.3fs (%.1f/s)",
+            layer, names, count, failed, elapsed/1000.0d, elapsed > 0 ? count*1000.0d/elapsed : 0.0d));
+    }
+
+    /**
+     * Returns the steps grouped into layers, where each step is in the layer after the last of its dependencies.
+     */
+    private List<List<Step>> getLayers(List<Step> steps)
+    {
+        Map<String,Integer> layers = new HashMap<String,Integer>();
+        List<List<Step>> ret = new ArrayList<List<Step>>();
+        int remaining = steps.size();
+        while(remaining > 0)
+        {
+            int assigned = 0;
+            for(Step step : steps)
+            {
+                if(layers.containsKey(step.name))
+                    continue;
+
+                int layer = 0;
+                for(String dependency : step.dependencies)
+                {
+                    Integer dependencyLayer = layers.get(dependency);
+                    if(dependencyLayer == null)
+                    {
+                        layer = -1;
+                        break;
+                    }
+                    layer = Math.max(layer, dependencyLayer+1);
+                }
+
+                if(layer < 0)
+                    continue;
+
+                layers.put(step.name, layer);
+                while(ret.size() <= layer)
+                    ret.add(new ArrayList<Step>());
+                ret.get(layer).add(step);
+                ++assigned;
+            }
+
+            if(assigned == 0)
+                throw new IllegalStateException("circular or missing dependency in restore steps");
+            remaining -= assigned;
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the links between the alert policies and each alert channel.
+     */
+    private List<SnapshotReader.Item> getPolicyChannels(List<SnapshotReader.Item> channels)
+    {
+        List<SnapshotReader.Item> ret = new ArrayList<SnapshotReader.Item>();
+        for(SnapshotReader.Item channel : channels)
+        {
+            JsonElement links = channel.getObject().get("links");
+            if(links == null || !links.isJsonObject() || !links.getAsJsonObject().has("policy_ids"))
+                continue;
+
+            for(JsonElement policyId : links.getAsJsonObject().getAsJsonArray("policy_ids"))
+            {
+                JsonObject link = new JsonObject();
+                link.addProperty("policy_id", policyId.getAsLong());
+                link.addProperty("channel_id", channel.getLong("id"));
+                ret.add(new SnapshotReader.Item("links", JsonObject.class, link));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the API endpoint used to create alert conditions of the given class.
+     */
+    private String getEndpoint(Class<?> type)
+    {
+        if(NrqlAlertCondition.class.isAssignableFrom(type))
+            return "alerts_nrql_conditions";
+        else if(ExternalServiceAlertCondition.class.isAssignableFrom(type))
+            return "alerts_external_service_conditions";
+        else if(SyntheticsAlertCondition.class.isAssignableFrom(type))
+            return "alerts_synthetics_conditions";
+        else if(PluginsAlertCondition.class.isAssignableFrom(type))
+            return "alerts_plugins_conditions";
+        else if(InfraAlertCondition.class.isAssignableFrom(type))
+            return "infra_alerts_conditions";
+        return "alerts_conditions";
+    }
+
+    /**
+     * Creates the given alert condition in the restored policy, with the entities of the account.
+     */
+    private void createCondition(NewRelicApi api, NewRelicInfraApi infraApi, SnapshotReader.Item item)
+    {
+        long policyId = getPolicyId(item);
+        SnapshotReader.Item copy = copy(item, "id", "policy_id", "created_at_epoch_millis", "updated_at_epoch_millis");
+        JsonObject object = copy.getObject();
+        if(object.has("entities") && object.get("entities").isJsonArray())
+            object.add("entities", mapEntities(object.getAsJsonArray("entities"), item));
+
+        Object condition = null;
+        if(InfraAlertCondition.class.isAssignableFrom(item.getType()))
+        {
+            object.addProperty("policy_id", policyId);
+            condition = copy.toObject();
+            infraApi.infraAlertConditions().create((InfraAlertCondition)condition).get();
+            return;
+        }
+
+        condition = copy.toObject();
+        if(condition instanceof NrqlAlertCondition)
+            api.nrqlAlertConditions().create(policyId, (NrqlAlertCondition)condition).get();
+        else if(condition instanceof ExternalServiceAlertCondition)
+            api.externalServiceAlertConditions().create(policyId, (ExternalServiceAlertCondition)condition).get();
+        else if(condition instanceof SyntheticsAlertCondition)
+            api.syntheticsAlertConditions().create(policyId, (SyntheticsAlertCondition)condition).get();
+        else if(condition instanceof PluginsAlertCondition)
+            api.pluginsAlertConditions().create(policyId, (PluginsAlertCondition)condition).get();
+        else if(condition instanceof AlertCondition)
+            api.alertConditions().create(policyId, (AlertCondition)condition).get();
+        else
+            throw new IllegalArgumentException("unknown alert condition type: "+item.getType().getName());
+    }
+
+    /**
+     * Returns the id of the restored policy of the given object.
+     */
+    private long getPolicyId(SnapshotReader.Item item)
+    {
+        return getId(policyIds, "alert policy", item.getLong("policy_id"));
+    }
+
+    /**
+     * Returns the new id for the given id from the snapshot.
+     */
+    private long getId(Map<Long,Long> ids, String type, Long id)
+    {
+        Long ret = id != null ? ids.get(id) : null;
+        if(ret == null)
+            throw new IllegalStateException(type+" "+id+" was not restored");
+        return ret;
+    }
+
+    /**
+     * Maps the ids of the applications and servers in the snapshot to the ids of those in the account with the same names.
+     */
+    private void mapEntities(List<SnapshotReader.Item> entities)
+    {
+        if(entities.size() == 0)
+            return;
+
+        Map<String,String> ids = new HashMap<String,String>();
+        List<Application> applications = call("applications", "GET", new Callable<List<Application>>()
+        {
+            public List<Application> call()
+            {
+                return new ArrayList<Application>(getApi().applications().list((String)null));
+            }
+        });
+
+        for(Application application : applications)
+            ids.put("application:"+application.getName(), Long.toString(application.getId()));
+
+        List<Server> servers = call("servers", "GET", new Callable<List<Server>>()
+        {
+            public List<Server> call()
+            {
+                return new ArrayList<Server>(getApi().servers().list((String)null));
+            }
+        });
+
+        for(Server server : servers)
+            ids.put("server:"+server.getName(), Long.toString(server.getId()));
+
+        for(SnapshotReader.Item entity : entities)
+        {
+            String id = entity.getString("id");
+            String prefix = Server.class.isAssignableFrom(entity.getType()) ? "server:" : "application:";
+            String newId = ids.get(prefix+entity.getString("name"));
+            snapshotEntities.add(id);
+            if(newId != null)
+                entityIds.put(id, newId);
+        }
+    }
+
+    /**
+     * Returns the given entity ids replaced by the ids of the entities in the account.
+     * <P>
+     * Entities from the snapshot that are not in the account are removed,
+     * and ids of other types of entity are kept.
+     */
+    private JsonArray mapEntities(JsonArray entities, SnapshotReader.Item condition)
+    {
+        JsonArray ret = new JsonArray();
+        for(JsonElement entity : entities)
+        {
+            String id = entity.getAsString();
+            String newId = entityIds.get(id);
+            if(newId != null)
+                ret.add(newId);
+            else if(!snapshotEntities.contains(id))
+                ret.add(id);
+            else
+                logger.warning("Unable to find entity "+id+" for alert condition: "+condition.getString("name"));
+        }
+        return ret;
+    }
+
+    /**
+     * Returns a copy of the given object without the given fields, so that the object in the snapshot is unchanged if the call is retried.
+     */
+    private static SnapshotReader.Item copy(SnapshotReader.Item item, String... exclude)
+    {
+        List<String> excluded = Arrays.asList(exclude);
+        JsonObject object = new JsonObject();
+        for(Map.Entry<String,JsonElement> field : item.getObject().entrySet())
+        {
+            if(!excluded.contains(field.getKey()))
+                object.add(field.getKey(), field.getValue());
+        }
+        return new SnapshotReader.Item(item.getSection(), item.getType(), object);
+    }
+
+    /**
+     * A step of the restore that creates the objects of one type once its dependencies have been restored.
+     */
+    private abstract class Step extends BulkOperation<SnapshotReader.Item>
+    {
+        private String name;
+        private List<SnapshotReader.Item> items;
+        private List<String> dependencies;
+
+        /**
+         * Constructor that takes the name, API endpoint and objects of the step, and the names of the steps it depends on.
+         */
+        Step(String name, String endpoint, String method, List<SnapshotReader.Item> items, String... dependencies)
+        {
+            super("restore "+name);
+            this.name = name;
+            this.items = items;
+            this.dependencies = Arrays.asList(dependencies);
+            timer(apiTimer(endpoint, method));
+            circuitBreaker(RestoreAccount.this.circuitBreaker(endpoint));
+            parallelism(RestoreAccount.this.parallelism);
+            rateLimit(RestoreAccount.this.rateLimit);
+            retries(RestoreAccount.this.retries);
+            deadline(getDeadline());
+            idempotent(!method.equals("POST"));
+        }
+
+        /**
+         * Returns a description of the given object for log messages.
+         */
+        protected String describe(SnapshotReader.Item item)
+        {
+            String name = item.getString("name");
+            return name != null ? name : String.valueOf(item.getLong("id"));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,443 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.commands.accounts;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import org.apache.commons.cli.CommandLine;
+import com.google.common.base.Optional;
+import com.opsmatters.newrelic.api.NewRelicApi;
+import com.opsmatters.newrelic.api.NewRelicInfraApi;
+import com.opsmatters.newrelic.api.NewRelicSyntheticsApi;
+import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
+import com.opsmatters.newrelic.api.model.alerts.channels.AlertChannel;
+import com.opsmatters.newrelic.api.model.applications.Application;
+import com.opsmatters.newrelic.api.model.insights.Dashboard;
+import com.opsmatters.newrelic.api.model.labels.Label;
+import com.opsmatters.newrelic.api.model.servers.Server;
+import com.opsmatters.newrelic.api.model.synthetics.Monitor;
+import com.opsmatters.newrelic.commands.Opt;
+import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.ParallelFetcher;
+import com.opsmatters.newrelic.commands.SnapshotArchive;
+import com.opsmatters.newrelic.commands.SnapshotReader;
+import com.opsmatters.newrelic.metrics.Timer;
+
+/**
+ * Implements the New Relic command line option to write a snapshot of the configuration of an account to an archive.
+ * <P>
+ * The alert policies, channels and conditions of every type, the dashboards, monitors and labels,
+ * and the applications and servers referred to by the conditions are each fetched once, with unrelated lists fetched in parallel,
+ * so the number of API calls depends on the number of policies and dashboards rather than the number of export commands.
+ * The entities of each alert condition are included in the condition.
+ * <P>
+ * If a previous snapshot is given as the base, only the objects whose content has changed since it was taken are written,
+ * along with the objects that have been deleted.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class SnapshotAccount extends BaseCommand
+{
+    private static final Logger logger = Logger.getLogger(SnapshotAccount.class.getName());
+    private static final String NAME = "snapshot_account";
+
+    /**
+     * The number of monitors fetched in each page.
+     */
+    private static final int PAGE_SIZE = 100;
+
+    /**
+     * The fields of an application that report its current status and metrics rather than its configuration.
+     */
+    private static final String[] APPLICATION_STATUS = {"health_status", "reporting", "last_reported_at",
+        "application_summary", "end_user_summary", "links"};
+
+    /**
+     * The fields of a server that report its current status and metrics rather than its configuration.
+     */
+    private static final String[] SERVER_STATUS = {"health_status", "reporting", "last_reported_at", "summary"};
+
+    private String filename;
+    private String base;
+    private int parallelism = ParallelFetcher.DEFAULT_PARALLELISM;
+
+    /**
+     * Default constructor.
+     */
+    public SnapshotAccount()
+    {
+        options();
+    }
+
+    /**
+     * Returns the name of the command.
+     * @return The name of the command
+     */
+    public String getName()
+    {
+        return NAME;
+    }
+
+    /**
+     * Sets the options for the command.
+     */
+    @Override
+    protected void options()
+    {
+        super.options();
+        addOption(Opt.FILE, "The name of the archive file to write the snapshot to");
+        addOption(Opt.BASE);
+        addOption(Opt.PARALLELISM, "The number of API calls to execute concurrently, defaults to "+ParallelFetcher.DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Parse the command-specific options.
+     * @param cli The parsed command line
+     */
+    protected void parse(CommandLine cli)
+    {
+        // Filename option
+        if(hasOption(cli, Opt.FILE, true))
+        {
+            filename = getOptionValue(cli, Opt.FILE);
+            logOptionValue(Opt.FILE, filename);
+        }
+
+        // Base option
+        if(hasOption(cli, Opt.BASE, false))
+        {
+            base = getOptionValue(cli, Opt.BASE);
+            logOptionValue(Opt.BASE, base);
+        }
+
+        // Parallelism option
+        if(hasOption(cli, Opt.PARALLELISM, false))
+        {
+            parallelism = getIntOptionValue(cli, Opt.PARALLELISM, 1);
+            logOptionValue(Opt.PARALLELISM, parallelism);
+        }
+    }
+
+    /**
+     * Write the snapshot of the account.
+     */
+    protected void execute()
+    {
+        // Read the hashes of the objects in the previous snapshot
+        String baseId = null;
+        Map<String,String> baseIndex = null;
+        if(base != null)
+        {
+            Timer.Context phase = startPhase(READ);
+            try
+            {
+                SnapshotReader reader = new SnapshotReader(base);
+                try
+                {
+                    baseId = reader.getId();
+                    baseIndex = reader.getIndex();
+                }
+                finally
+                {
+                    reader.close();
+                }
+            }
+            catch(IOException e)
+            {
+                logger.severe("Unable to read base snapshot file: "+e.getClass().getName()+": "+e.getMessage());
+                return;
+            }
+            finally
+            {
+                phase.stop();
+            }
+
+            if(baseId == null)
+            {
+                logger.severe("Base snapshot has no id: "+base);
+                return;
+            }
+        }
+
+        final NewRelicApi api = getApi();
+        final NewRelicInfraApi infraApi = getInfraApi();
+        final NewRelicSyntheticsApi syntheticsApi = getSyntheticsApi();
+
+        // Each call is admitted, timed and retried against its own endpoint, so the fetcher just provides the threads
+        ParallelFetcher fetcher = new ParallelFetcher(parallelism)
+            .deadline(getDeadline())
+            .governor(null)
+            .retries(0);
+
+        List<AlertPolicy> policies = null;
+        final Map<Long,List<Object>> conditions = new LinkedHashMap<Long,List<Object>>();
+        final int[] conditionCount = new int[1];
+        List<AlertChannel> channels = null;
+        List<Dashboard> dashboards = null;
+        List<Monitor> monitors = null;
+        List<Label> labels = null;
+        List<Application> applications = null;
+        List<Server> servers = null;
+
+        long start = System.currentTimeMillis();
+        Timer.Context phase = startPhase(FETCH);
+        try
+        {
+            // Get the lists that do not depend on the policies in the background
+            Future<List<AlertChannel>> channelList = submit(fetcher, "alerts_channels", new Callable<List<AlertChannel>>()
+            {
+                public List<AlertChannel> call()
+                {
+                    return new ArrayList<AlertChannel>(api.alertChannels().list((String)null));
+                }
+            });
+
+            Future<List<Dashboard>> dashboardList = submit(fetcher, "dashboards", new Callable<List<Dashboard>>()
+            {
+                public List<Dashboard> call()
+                {
+                    return new ArrayList<Dashboard>(api.dashboards().list((String)null));
+                }
+            });
+
+            Future<List<Monitor>> monitorList = fetcher.submit(new Callable<List<Monitor>>()
+            {
+                public List<Monitor> call()
+                {
+                    return getMonitors(syntheticsApi);
+                }
+            });
+
+            Future<List<Label>> labelList = submit(fetcher, "labels", new Callable<List<Label>>()
+            {
+                public List<Label> call()
+                {
+                    return new ArrayList<Label>(api.labels().list());
+                }
+            });
+
+            Future<List<Application>> applicationList = submit(fetcher, "applications", new Callable<List<Application>>()
+            {
+                public List<Application> call()
+                {
+                    return new ArrayList<Application>(api.applications().list((String)null));
+                }
+            });
+
+            Future<List<Server>> serverList = submit(fetcher, "servers", new Callable<List<Server>>()
+            {
+                public List<Server> call()
+                {
+                    return new ArrayList<Server>(api.servers().list((String)null));
+                }
+            });
+
+            // Get the policies and then the conditions of every type for each policy concurrently
+            policies = call("alerts_policies", "GET", new Callable<List<AlertPolicy>>()
+            {
+                public List<AlertPolicy> call()
+                {
+                    return new ArrayList<AlertPolicy>(api.alertPolicies().list((String)null));
+                }
+            });
+
+            fetcher.fetchEach(policies, new ParallelFetcher.Fetch<AlertPolicy,Object>()
+            {
+                public List<Object> fetch(List<AlertPolicy> batch)
+                {
+                    List<Object> ret = new ArrayList<Object>();
+                    for(AlertPolicy policy : batch)
+                        ret.addAll(getConditions(api, infraApi, policy.getId()));
+                    return ret;
+                }
+            }, new ParallelFetcher.Sink<AlertPolicy,Object>()
+            {
+                public void accept(AlertPolicy policy, List<Object> items)
+                {
+                    conditions.put(policy.getId(), items);
+                    conditionCount[0] += items.size();
+                }
+            });
+
+            // Get the details of each dashboard concurrently
+            dashboards = fetcher.fetchAll(ParallelFetcher.get(dashboardList), new ParallelFetcher.Fetch<Dashboard,Dashboard>()
+            {
+                public List<Dashboard> fetch(List<Dashboard> batch)
+                {
+                    List<Dashboard> ret = new ArrayList<Dashboard>();
+                    for(final Dashboard dashboard : batch)
+                    {
+                        Optional<Dashboard> details = SnapshotAccount.this.call("dashboards", "GET", new Callable<Optional<Dashboard>>()
+                        {
+                            public Optional<Dashboard> call()
+                            {
+                                return api.dashboards().show(dashboard.getId());
+                            }
+                        });
+                        ret.add(details.isPresent() ? details.get() : dashboard);
+                    }
+                    return ret;
+                }
+            });
+
+            channels = ParallelFetcher.get(channelList);
+            monitors = ParallelFetcher.get(monitorList);
+            labels = ParallelFetcher.get(labelList);
+            applications = ParallelFetcher.get(applicationList);
+            servers = ParallelFetcher.get(serverList);
+        }
+        catch(IOException e)
+        {
+            logger.severe("Unable to fetch alert conditions: "+e.getClass().getName()+": "+e.getMessage());
+            return;
+        }
+        finally
+        {
+            fetcher.shutdown();
+            phase.stop();
+        }
+
+        long elapsed = System.currentTimeMillis()-start;
+        if(verbose())
+            logger.info("Fetched "+policies.size()+" alert policies, "+conditionCount[0]+" alert conditions, "
+                +channels.size()+" alert channels, "+dashboards.size()+" dashboards and "+monitors.size()+" monitors in "+elapsed+"ms");
+
+        phase = startPhase(WRITE);
+        try
+        {
+            SnapshotArchive archive = SnapshotArchive.create(filename);
+            try
+            {
+                if(baseIndex != null)
+                    archive.base(baseId, baseIndex);
+                archive.statusFields("applications", APPLICATION_STATUS);
+                archive.statusFields("servers", SERVER_STATUS);
+                archive.property("fetch_time_ms", elapsed);
+                archive.write("policies", policies);
+                archive.write("channels", channels);
+                archive.write("conditions", conditions, "policy_id");
+                archive.write("dashboards", dashboards);
+                archive.write("monitors", monitors);
+                archive.write("labels", labels);
+                archive.write("applications", applications);
+                archive.write("servers", servers);
+            }
+            finally
+            {
+                archive.close();
+            }
+            if(baseIndex != null)
+                logger.info("Wrote "+archive.getCount()+" changed objects to snapshot: "+filename
+                    +" ("+archive.getUnchanged()+" unchanged, "+archive.getDeleted().size()+" deleted)");
+            else
+                logger.info("Wrote "+archive.getCount()+" objects to snapshot: "+filename);
+        }
+        catch(IOException e)
+        {
+            logger.severe("Unable to write snapshot file: "+e.getClass().getName()+": "+e.getMessage());
+        }
+        phase.stop();
+    }
+
+    /**
+     * Returns the alert conditions of every type for the given policy.
+     */
+    private List<Object> getConditions(final NewRelicApi api, final NewRelicInfraApi infraApi, final long policyId)
+    {
+        List<Object> ret = new ArrayList<Object>();
+
+        ret.addAll(call("alerts_conditions", "GET", new Callable<List<Object>>()
+        {
+            public List<Object> call()
+            {
+                return new ArrayList<Object>(api.alertConditions().list(policyId));
+            }
+        }));
+
+        ret.addAll(call("alerts_nrql_conditions", "GET", new Callable<List<Object>>()
+        {
+            public List<Object> call()
+            {
+                return new ArrayList<Object>(api.nrqlAlertConditions().list(policyId));
+            }
+        }));
+
+        ret.addAll(call("alerts_external_service_conditions", "GET", new Callable<List<Object>>()
+        {
+            public List<Object> call()
+            {
+                return new ArrayList<Object>(api.externalServiceAlertConditions().list(policyId));
+            }
+        }));
+
+        ret.addAll(call("alerts_synthetics_conditions", "GET", new Callable<List<Object>>()
+        {
+            public List<Object> call()
+            {
+                return new ArrayList<Object>(api.syntheticsAlertConditions().list(policyId));
+            }
+        }));
+
+        ret.addAll(call("alerts_plugins_conditions", "GET", new Callable<List<Object>>()
+        {
+            public List<Object> call()
+            {
+                return new ArrayList<Object>(api.pluginsAlertConditions().list(policyId));
+            }
+        }));
+
+        ret.addAll(call("infra_alerts_conditions", "GET", new Callable<List<Object>>()
+        {
+            public List<Object> call()
+            {
+                return new ArrayList<Object>(infraApi.infraAlertConditions().list(policyId));
+            }
+        }));
+
+        return ret;
+    }
+
+    /**
+     * Returns all the monitors, fetching each page until a page is not full.
+     */
+    private List<Monitor> getMonitors(final NewRelicSyntheticsApi syntheticsApi)
+    {
+        List<Monitor> ret = new ArrayList<Monitor>();
+        for(int offset = 0; ; offset += PAGE_SIZE)
+        {
+            final int pageOffset = offset;
+            List<Monitor> page = call("monitors", "GET", new Callable<List<Monitor>>()
+            {
+                public List<Monitor> call()
+                {
+                    return new ArrayList<Monitor>(syntheticsApi.monitors().list(null, null, pageOffset, PAGE_SIZE));
+                }
+            });
+
+            ret.addAll(page);
+            if(page.size() < PAGE_SIZE)
+                break;
+        }
+        return ret;
+    }
+}
\ No newline at end of file
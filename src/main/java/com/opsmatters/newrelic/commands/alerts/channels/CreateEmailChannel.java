@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.channels;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.NewRelicApi;
@@ -100,18 +101,27 @@ public class CreateEmailChannel extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        // The cached list will be out of date after the changes
+        invalidateCachedList(ALERT_CHANNELS);
+
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Creating Email channel: "+name);
 
-        EmailChannel c = EmailChannel.builder()
+        final EmailChannel c = EmailChannel.builder()
             .name(name)
             .recipients(recipients)
             .includeJsonAttachment(includeJsonAttachment)
             .build();
 
-        AlertChannel channel = api.alertChannels().create(c).get();
+        AlertChannel channel = call("alerts_channels", "POST", new Callable<AlertChannel>()
+        {
+            public AlertChannel call()
+            {
+                return api.alertChannels().create(c).get();
+            }
+        });
         logger.info("Created Email channel: "+channel.getId()+" - "+channel.getName());
     }
 }
\ No newline at end of file
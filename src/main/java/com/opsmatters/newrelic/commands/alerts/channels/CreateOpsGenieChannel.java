@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.channels;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.NewRelicApi;
@@ -118,12 +119,15 @@ public class CreateOpsGenieChannel extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        // The cached list will be out of date after the changes
+        invalidateCachedList(ALERT_CHANNELS);
+
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Creating OpsGenie channel: "+name);
 
-        OpsGenieChannel c = OpsGenieChannel.builder()
+        final OpsGenieChannel c = OpsGenieChannel.builder()
             .name(name)
             .apiKey(apiKey)
             .teams(teams)
@@ -131,7 +135,13 @@ public class CreateOpsGenieChannel extends BaseCommand
             .recipients(recipients)
             .build();
 
-        AlertChannel channel = api.alertChannels().create(c).get();
+        AlertChannel channel = call("alerts_channels", "POST", new Callable<AlertChannel>()
+        {
+            public AlertChannel call()
+            {
+                return api.alertChannels().create(c).get();
+            }
+        });
         logger.info("Created OpsGenie channel: "+channel.getId()+" - "+channel.getName());
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.channels;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.NewRelicApi;
@@ -100,18 +101,27 @@ public class CreateVictorOpsChannel extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        // The cached list will be out of date after the changes
+        invalidateCachedList(ALERT_CHANNELS);
+
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Creating VictorOps channel: "+name);
 
-        VictorOpsChannel c = VictorOpsChannel.builder()
+        final VictorOpsChannel c = VictorOpsChannel.builder()
             .name(name)
             .key(key)
             .routeKey(routeKey)
             .build();
 
-        AlertChannel channel = api.alertChannels().create(c).get();
+        AlertChannel channel = call("alerts_channels", "POST", new Callable<AlertChannel>()
+        {
+            public AlertChannel call()
+            {
+                return api.alertChannels().create(c).get();
+            }
+        });
         logger.info("Created VictorOps channel: "+channel.getId()+" - "+channel.getName());
     }
 }
\ No newline at end of file
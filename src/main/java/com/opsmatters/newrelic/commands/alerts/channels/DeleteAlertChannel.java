@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.channels;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -82,12 +83,15 @@ public class DeleteAlertChannel extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        // The cached list will be out of date after the changes
+        invalidateCachedList(ALERT_CHANNELS);
+
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting alert channel: "+id);
 
-        Optional<AlertChannel> channel = api.alertChannels().show(id);
+        Optional<AlertChannel> channel = getAlertChannel(id);
         if(!channel.isPresent())
         {
             logger.severe("Unable to find alert channel: "+id);
@@ -97,8 +101,15 @@ public class DeleteAlertChannel extends BaseCommand
         if(verbose())
             logger.info("Deleting  alert channel: "+id);
 
-        AlertChannel c = channel.get();
-        api.alertChannels().delete(c.getId());
+        final AlertChannel c = channel.get();
+        call("alerts_channels", "DELETE", new Callable<Void>()
+        {
+            public Void call()
+            {
+                api.alertChannels().delete(c.getId());
+                return null;
+            }
+        });
         logger.info("Deleted alert channel: "+c.getId()+" - "+c.getName());
     }
 }
\ No newline at end of file
@@ -17,12 +17,15 @@
 package com.opsmatters.newrelic.commands.alerts.channels;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.NewRelicApi;
 import com.opsmatters.newrelic.api.model.alerts.channels.AlertChannel;
+import com.opsmatters.newrelic.clients.RetryPolicy;
 import com.opsmatters.newrelic.commands.Opt;
 import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.BulkOperation;
 
 /**
  * Implements the New Relic command line option to delete alert channels.  
@@ -35,6 +38,9 @@ public class DeleteAlertChannels extends BaseCommand
     private static final String NAME = "delete_alert_channels";
 
     private String name;
+    private int parallelism = BulkOperation.DEFAULT_PARALLELISM;
+    private double rateLimit = BulkOperation.DEFAULT_RATE_LIMIT;
+    private int retries = RetryPolicy.DEFAULT_RETRIES;
 
     /**
      * Default constructor.
@@ -61,6 +67,9 @@ public class DeleteAlertChannels extends BaseCommand
     {
         super.options();
         addOption(Opt.NAME, "The name of the alert channels");
+        addOption(Opt.PARALLELISM);
+        addOption(Opt.RATE_LIMIT);
+        addOption(Opt.RETRIES);
     }
 
     /**
@@ -75,6 +84,27 @@ public class DeleteAlertChannels extends BaseCommand
             name = getOptionValue(cli, Opt.NAME);
             logOptionValue(Opt.NAME, name);
         }
+
+        // Parallelism option
+        if(hasOption(cli, Opt.PARALLELISM, false))
+        {
+            parallelism = getIntOptionValue(cli, Opt.PARALLELISM, 1);
+            logOptionValue(Opt.PARALLELISM, parallelism);
+        }
+
+        // Rate limit option
+        if(hasOption(cli, Opt.RATE_LIMIT, false))
+        {
+            rateLimit = getDoubleOptionValue(cli, Opt.RATE_LIMIT, 0.0d);
+            logOptionValue(Opt.RATE_LIMIT, rateLimit);
+        }
+
+        // Retries option
+        if(hasOption(cli, Opt.RETRIES, false))
+        {
+            retries = getIntOptionValue(cli, Opt.RETRIES, 0);
+            logOptionValue(Opt.RETRIES, retries);
+        }
     }
 
     /**
@@ -82,11 +112,20 @@ public class DeleteAlertChannels extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        // The cached list will be out of date after the changes
+        invalidateCachedList(ALERT_CHANNELS);
+
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting alert channels: "+name);
-        Collection<AlertChannel> channels = api.alertChannels().list(name);
+        Collection<AlertChannel> channels = call("alerts_channels", "GET", new Callable<Collection<AlertChannel>>()
+        {
+            public Collection<AlertChannel> call()
+            {
+                return api.alertChannels().list(name);
+            }
+        });
         if(channels.size() == 0)
         {
             logger.severe("Unable to find alert channels: "+name);
@@ -96,10 +135,19 @@ public class DeleteAlertChannels extends BaseCommand
         if(verbose())
             logger.info("Deleting "+channels.size()+" alert channels: "+name);
 
-        for(AlertChannel channel : channels)
+        new BulkOperation<AlertChannel>("delete alert channel")
         {
-            api.alertChannels().delete(channel.getId());
-            logger.info("Deleted alert channel: "+channel.getId()+" - "+channel.getName());
-        }
+            protected void process(AlertChannel channel)
+            {
+                api.alertChannels().delete(channel.getId());
+                logger.info("Deleted alert channel: "+describe(channel));
+            }
+
+            protected String describe(AlertChannel channel)
+            {
+                return channel.getId()+" - "+channel.getName();
+            }
+        }.parallelism(parallelism).rateLimit(rateLimit).retries(retries).deadline(getDeadline())
+            .circuitBreaker(circuitBreaker("alerts_channels")).execute(channels);
     }
 }
\ No newline at end of file
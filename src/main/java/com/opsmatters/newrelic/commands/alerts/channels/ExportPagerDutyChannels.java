@@ -20,14 +20,17 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
+import com.opsmatters.newrelic.api.model.alerts.channels.AlertChannel;
 import com.opsmatters.newrelic.api.model.alerts.channels.PagerDutyChannel;
 import com.opsmatters.newrelic.batch.AlertManager;
 import com.opsmatters.newrelic.batch.model.AlertConfiguration;
 import com.opsmatters.core.documents.Workbook;
 import com.opsmatters.newrelic.commands.Opt;
 import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.metrics.Timer;
 
 /**
  * Implements the New Relic command line option to export a set of PagerDuty alert channels.
@@ -104,13 +107,22 @@ public class ExportPagerDutyChannels extends BaseCommand
      */
     protected void execute()
     {
-        AlertManager manager = new AlertManager(getApiKey(), verbose());
+        final AlertManager manager = getAlertManager();
         AlertConfiguration config = new AlertConfiguration();
 
         // Get the channels
-        config.setAlertChannels(manager.getAlertChannels());
+        Timer.Context phase = startPhase(FETCH);
+        config.setAlertChannels(call("alerts_channels", "GET", new Callable<List<AlertChannel>>()
+        {
+            public List<AlertChannel> call()
+            {
+                return manager.getAlertChannels();
+            }
+        }));
+        phase.stop();
         List<PagerDutyChannel> channels = config.getPagerDutyChannels();
 
+        phase = startPhase(WRITE);
         try
         {
             Workbook workbook = null;
@@ -123,5 +135,6 @@ public class ExportPagerDutyChannels extends BaseCommand
         {
             logger.severe("Unable to write alert channel file: "+e.getClass().getName()+": "+e.getMessage());
         }
+        phase.stop();
     }
 }
\ No newline at end of file
@@ -18,12 +18,22 @@ package com.opsmatters.newrelic.commands.alerts.channels;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
+import com.opsmatters.newrelic.api.model.alerts.channels.AlertChannel;
 import com.opsmatters.newrelic.batch.AlertManager;
 import com.opsmatters.newrelic.batch.model.AlertConfiguration;
 import com.opsmatters.newrelic.commands.Opt;
 import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.BulkOperation;
+import com.opsmatters.newrelic.commands.PipelinedImport;
+import com.opsmatters.newrelic.clients.RetryPolicy;
+import com.opsmatters.newrelic.metrics.Timer;
 
 /**
  * Implements the New Relic command line option to import a set of email alert channels.
@@ -38,6 +48,10 @@ public class ImportEmailChannels extends BaseCommand
     private String filename;
     private String worksheet;
     private boolean delete = false;
+    private boolean pipeline = false;
+    private int parallelism = BulkOperation.DEFAULT_PARALLELISM;
+    private double rateLimit = BulkOperation.DEFAULT_RATE_LIMIT;
+    private int retries = RetryPolicy.DEFAULT_RETRIES;
 
     /**
      * Default constructor.
@@ -66,6 +80,10 @@ public class ImportEmailChannels extends BaseCommand
         addOption(Opt.FILE, "The name of the file containing alert channels");
         addOption(Opt.SHEET);
         addOption(Opt.DELETE, "Delete any existing alert channel with that name before creating the new alert channel");
+        addOption(Opt.PIPELINE);
+        addOption(Opt.PARALLELISM);
+        addOption(Opt.RATE_LIMIT);
+        addOption(Opt.RETRIES);
     }
 
     /**
@@ -93,6 +111,33 @@ public class ImportEmailChannels extends BaseCommand
         {
             delete = true;
         }
+
+        // Pipeline option
+        if(hasOption(cli, Opt.PIPELINE, false))
+        {
+            pipeline = true;
+        }
+
+        // Parallelism option
+        if(hasOption(cli, Opt.PARALLELISM, false))
+        {
+            parallelism = getIntOptionValue(cli, Opt.PARALLELISM, 1);
+            logOptionValue(Opt.PARALLELISM, parallelism);
+        }
+
+        // Rate limit option
+        if(hasOption(cli, Opt.RATE_LIMIT, false))
+        {
+            rateLimit = getDoubleOptionValue(cli, Opt.RATE_LIMIT, 0.0d);
+            logOptionValue(Opt.RATE_LIMIT, rateLimit);
+        }
+
+        // Retries option
+        if(hasOption(cli, Opt.RETRIES, false))
+        {
+            retries = getIntOptionValue(cli, Opt.RETRIES, 0);
+            logOptionValue(Opt.RETRIES, retries);
+        }
     }
 
     /**
@@ -100,9 +145,55 @@ public class ImportEmailChannels extends BaseCommand
      */
     protected void execute()
     {
-        AlertManager manager = new AlertManager(getApiKey(), verbose());
-        AlertConfiguration config = new AlertConfiguration();
+        // The cached list will be out of date after the changes
+        invalidateCachedList(ALERT_CHANNELS);
 
+        final AlertManager manager = getAlertManager();
+        Timer.Context phase = null;
+
+        // Create the alert channels as the rows are read from the file
+        if(pipeline)
+        {
+            BulkOperation<AlertChannel> operation = new BulkOperation<AlertChannel>("import alert channel")
+            {
+                protected void process(AlertChannel channel)
+                {
+                    List<AlertChannel> channels = Collections.singletonList(channel);
+                    if(delete)
+                        manager.deleteAlertChannels(channels);
+                    manager.createAlertChannels(channels);
+                }
+
+                protected String describe(AlertChannel channel)
+                {
+                    return channel.getName();
+                }
+            };
+
+            phase = startPhase(CREATE);
+            try
+            {
+                new PipelinedImport<AlertChannel>()
+                {
+                    protected List<AlertChannel> read(String name, InputStream is) throws IOException
+                    {
+                        return new ArrayList<AlertChannel>(manager.readEmailChannels(name, null, is));
+                    }
+                }.execute(filename, worksheet, operation.timer(apiTimer("alerts_channels", "POST"))
+                    .parallelism(parallelism).rateLimit(rateLimit).retries(retries).deadline(getDeadline()).idempotent(false)
+                    .circuitBreaker(circuitBreaker("alerts_channels")));
+            }
+            catch(IOException e)
+            {
+                logger.severe("Unable to read alert channel file: "+e.getClass().getName()+": "+e.getMessage());
+            }
+            phase.stop();
+            return;
+        }
+
+        final AlertConfiguration config = new AlertConfiguration();
+
+        phase = startPhase(READ);
         try
         {
             // Read the alert channels
@@ -113,12 +204,32 @@ public class ImportEmailChannels extends BaseCommand
         {
             logger.severe("Unable to read alert channel file: "+e.getClass().getName()+": "+e.getMessage());
         }
+        phase.stop();
+
+        phase = startPhase(CREATE);
 
         // Delete the existing alert channels
         if(delete)
-            manager.deleteAlertChannels(config.getAlertChannels());
+        {
+            call("alerts_channels", "DELETE", new Callable<Void>()
+            {
+                public Void call()
+                {
+                    manager.deleteAlertChannels(config.getAlertChannels());
+                    return null;
+                }
+            });
+        }
 
         // Create the new alert channels
-        manager.createAlertChannels(config.getAlertChannels());
+        call("alerts_channels", "POST", new Callable<Void>()
+        {
+            public Void call()
+            {
+                manager.createAlertChannels(config.getAlertChannels());
+                return null;
+            }
+        });
+        phase.stop();
     }
 }
\ No newline at end of file
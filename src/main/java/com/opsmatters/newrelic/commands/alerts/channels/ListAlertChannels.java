@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.alerts.channels;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.NewRelicApi;
@@ -64,6 +65,7 @@ public class ListAlertChannels extends BaseCommand
         super.options();
         addOption(Opt.NAME, "The name of the alert channels");
         addOption(Opt.TYPE, "The type of the alert channels");
+        addOutputOptions();
     }
 
     /**
@@ -97,14 +99,20 @@ public class ListAlertChannels extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting alert channels: "+name+(type != null ? " ("+type+")":""));
-        Collection<AlertChannel> channels = api.alertChannels().list(name, type);
+        Collection<AlertChannel> channels = call("alerts_channels", "GET", new Callable<Collection<AlertChannel>>()
+        {
+            public Collection<AlertChannel> call()
+            {
+                return api.alertChannels().list(name, type);
+            }
+        });
         if(verbose())
             logger.info("Found "+channels.size()+" alert channels");
         for(AlertChannel channel : channels)
-            logger.info(channel.getId()+" - "+channel.getName()+" ("+channel.getType()+")");
+            print(channel, channel.getId()+" - "+channel.getName()+" ("+channel.getType()+")");
     }
 }
\ No newline at end of file
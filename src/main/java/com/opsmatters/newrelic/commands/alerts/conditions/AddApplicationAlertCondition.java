@@ -16,37 +16,27 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
-import java.util.logging.Logger;
-import org.apache.commons.cli.CommandLine;
+import java.util.Collection;
 import com.google.common.base.Optional;
-import com.opsmatters.newrelic.api.NewRelicApi;
 import com.opsmatters.newrelic.api.model.applications.Application;
-import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
-import com.opsmatters.newrelic.api.model.alerts.conditions.AlertCondition;
-import com.opsmatters.newrelic.api.exceptions.ErrorResponseException;
 import com.opsmatters.newrelic.commands.Opt;
-import com.opsmatters.newrelic.commands.BaseCommand;
 
 /**
- * Implements the New Relic command line option to add an alert condition to an application.  
+ * Implements the New Relic command line option to add an alert condition to an application,
+ * or to all the applications with the given ids or name.
  * 
  * @author Gerald Curley (opsmatters)
  */
-public class AddApplicationAlertCondition extends BaseCommand
+public class AddApplicationAlertCondition extends AddEntityAlertCondition<Application>
 {
-    private static final Logger logger = Logger.getLogger(AddApplicationAlertCondition.class.getName());
     private static final String NAME = "add_application_alert_condition";
 
-    private Long applicationId;
-    private Long policyId;
-    private Long conditionId;
-
     /**
      * Default constructor.
      */
     public AddApplicationAlertCondition()
     {
-        options();
+        super("application", "applications", Opt.APPLICATION_ID);
     }
 
     /**
@@ -59,100 +49,21 @@ public class AddApplicationAlertCondition extends BaseCommand
     }
 
     /**
-     * Sets the options for the command.
-     */
-    @Override
-    protected void options()
-    {
-        super.options();
-        addOption(Opt.APPLICATION_ID);
-        addOption(Opt.POLICY_ID);
-        addOption(Opt.CONDITION_ID);
-    }
-
-    /**
-     * Parse the command-specific options.
-     * @param cli The parsed command line
+     * Returns the application with the given id.
+     * @param id The id of the application
+     * @return The application
      */
-    protected void parse(CommandLine cli)
+    protected Optional<Application> show(long id)
     {
-        // Application id option
-        if(hasOption(cli, Opt.APPLICATION_ID, true))
-        {
-            applicationId = Long.parseLong(getOptionValue(cli, Opt.APPLICATION_ID));
-            logOptionValue(Opt.APPLICATION_ID, applicationId);
-        }
-
-        // Policy id option
-        if(hasOption(cli, Opt.POLICY_ID, true))
-        {
-            policyId = Long.parseLong(getOptionValue(cli, Opt.POLICY_ID));
-            logOptionValue(Opt.POLICY_ID, policyId);
-        }
-
-        // Condition id option
-        if(hasOption(cli, Opt.CONDITION_ID, true))
-        {
-            conditionId = Long.parseLong(getOptionValue(cli, Opt.CONDITION_ID));
-            logOptionValue(Opt.CONDITION_ID, conditionId);
-        }
+        return getApplication(id);
     }
 
     /**
-     * Add the alert condition to the application.
+     * Returns all the applications.
+     * @return The applications
      */
-    protected void execute()
+    protected Collection<Application> list()
     {
-        NewRelicApi api = getApi();
-
-        if(verbose())
-            logger.info("Getting application: "+applicationId);
-
-        Optional<Application> application = Optional.absent();
-        try
-        {
-            application = api.applications().show(applicationId);
-        }
-        catch(ErrorResponseException e)
-        {
-            // throw 404 if not found
-        }
-
-        if(!application.isPresent())
-        {
-            logger.severe("Unable to find application: "+applicationId);
-            return;
-        }
-
-        Application a = application.get();
-
-        if(verbose())
-            logger.info("Getting alert policy: "+policyId);
-
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
-        if(!policy.isPresent())
-        {
-            logger.severe("Unable to find alert policy: "+policyId);
-            return;
-        }
-
-        AlertPolicy p = policy.get();
-
-        if(verbose())
-            logger.info("Getting alert condition: "+conditionId);
-
-        Optional<AlertCondition> condition = api.alertConditions().show(p.getId(), conditionId);
-        if(!condition.isPresent())
-        {
-            logger.severe("Unable to find alert condition: "+conditionId);
-            return;
-        }
-
-        AlertCondition c = condition.get();
-
-        if(verbose())
-            logger.info("Adding alert condition "+c.getId()+" to application "+a.getId());
-        c = api.alertEntityConditions().add(a, c.getId()).get();
-        logger.info("Added condition: "+c.getId()+" - "+c.getName()+" to application: "+a.getId()+" - "+a.getName());
+        return getApi().applications().list((String)null);
     }
 }
\ No newline at end of file
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.commands.alerts.conditions;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import org.apache.commons.cli.CommandLine;
+import com.google.common.base.Optional;
+import com.opsmatters.newrelic.api.NewRelicApi;
+import com.opsmatters.newrelic.api.model.Entity;
+import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
+import com.opsmatters.newrelic.api.model.alerts.conditions.AlertCondition;
+import com.opsmatters.newrelic.api.exceptions.ErrorResponseException;
+import com.opsmatters.newrelic.commands.Opt;
+import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.BulkOperation;
+import com.opsmatters.newrelic.commands.ParallelFetcher;
+import com.opsmatters.newrelic.clients.RetryPolicy;
+import com.opsmatters.newrelic.metrics.Timer;
+
+/**
+ * Base class for the New Relic command line options to add an alert condition to one or more entities.
+ * <P>
+ * The entities are given either as a comma-separated list of ids or as a name including wildcards.
+ * The alert policy and condition are looked up once, the entities are resolved with a single list call
+ * if there is more than one, and the condition is then added to each entity concurrently.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public abstract class AddEntityAlertCondition<E extends Entity> extends BaseCommand
+{
+    private static final Logger logger = Logger.getLogger(AddEntityAlertCondition.class.getName());
+
+    private String type;
+    private String endpoint;
+    private Opt idOption;
+    private List<Long> entityIds = new ArrayList<Long>();
+    private String name;
+    private Long policyId;
+    private Long conditionId;
+    private int parallelism = ParallelFetcher.DEFAULT_PARALLELISM;
+    private double rateLimit = BulkOperation.DEFAULT_RATE_LIMIT;
+    private int retries = RetryPolicy.DEFAULT_RETRIES;
+
+    /**
+     * Constructor that takes the type of the entities.
+     * @param type The type of the entities used in log messages, eg. "browser application"
+     * @param endpoint The API endpoint used to list the entities, eg. "browser_applications"
+     * @param idOption The option giving the ids of the entities
+     */
+    protected AddEntityAlertCondition(String type, String endpoint, Opt idOption)
+    {
+        this.type = type;
+        this.endpoint = endpoint;
+        this.idOption = idOption;
+        options();
+    }
+
+    /**
+     * Sets the options for the command.
+     */
+    @Override
+    protected void options()
+    {
+        super.options();
+        addOption(idOption, "The id of the "+type+", or a comma-separated list of ids");
+        addOption(Opt.NAME, "The name of the "+type+"s (including wildcards), instead of the ids");
+        addOption(Opt.POLICY_ID);
+        addOption(Opt.CONDITION_ID);
+        addOption(Opt.PARALLELISM, "The number of "+type+"s to add the condition to concurrently, defaults to "+ParallelFetcher.DEFAULT_PARALLELISM);
+        addOption(Opt.RATE_LIMIT);
+        addOption(Opt.RETRIES);
+    }
+
+    /**
+     * Parse the command-specific options.
+     * @param cli The parsed command line
+     */
+    protected void parse(CommandLine cli)
+    {
+        // Entity id option
+        if(hasOption(cli, idOption, false))
+        {
+            String value = getOptionValue(cli, idOption);
+            for(String id : value.split(","))
+            {
+                if(id.trim().length() > 0)
+                    entityIds.add(Long.parseLong(id.trim()));
+            }
+            logOptionValue(idOption, value);
+        }
+
+        // Name option
+        else if(hasOption(cli, Opt.NAME, false))
+        {
+            name = getOptionValue(cli, Opt.NAME);
+            logOptionValue(Opt.NAME, name);
+        }
+        else
+        {
+            logOptionMissing(idOption);
+        }
+
+        // Policy id option
+        if(hasOption(cli, Opt.POLICY_ID, true))
+        {
+            policyId = Long.parseLong(getOptionValue(cli, Opt.POLICY_ID));
+            logOptionValue(Opt.POLICY_ID, policyId);
+        }
+
+        // Condition id option
+        if(hasOption(cli, Opt.CONDITION_ID, true))
+        {
+            conditionId = Long.parseLong(getOptionValue(cli, Opt.CONDITION_ID));
+            logOptionValue(Opt.CONDITION_ID, conditionId);
+        }
+
+        // Parallelism option
+        if(hasOption(cli, Opt.PARALLELISM, false))
+        {
+            parallelism = getIntOptionValue(cli, Opt.PARALLELISM, 1);
+            logOptionValue(Opt.PARALLELISM, parallelism);
+        }
+
+        // Rate limit option
+        if(hasOption(cli, Opt.RATE_LIMIT, false))
+        {
+            rateLimit = getDoubleOptionValue(cli, Opt.RATE_LIMIT, 0.0d);
+            logOptionValue(Opt.RATE_LIMIT, rateLimit);
+        }
+
+        // Retries option
+        if(hasOption(cli, Opt.RETRIES, false))
+        {
+            retries = getIntOptionValue(cli, Opt.RETRIES, 0);
+            logOptionValue(Opt.RETRIES, retries);
+        }
+    }
+
+    /**
+     * Returns the entity with the given id.
+     * @param id The id of the entity
+     * @return The entity
+     */
+    protected abstract Optional<E> show(long id);
+
+    /**
+     * Returns all the entities of the type.
+     * @return The entities
+     */
+    protected abstract Collection<E> list();
+
+    /**
+     * Add the alert condition to the entities.
+     */
+    protected void execute()
+    {
+        final NewRelicApi api = getApi();
+
+        List<E> entities = getEntities();
+        if(entities.size() == 0)
+        {
+            logger.severe("Unable to find any "+type+"s");
+            return;
+        }
+
+        if(verbose())
+            logger.info("Getting alert policy: "+policyId);
+
+        Optional<AlertPolicy> policy = getAlertPolicy(policyId);
+        if(!policy.isPresent())
+        {
+            logger.severe("Unable to find alert policy: "+policyId);
+            return;
+        }
+
+        final AlertPolicy p = policy.get();
+
+        if(verbose())
+            logger.info("Getting alert condition: "+conditionId);
+
+        Optional<AlertCondition> condition = call("alerts_conditions", "GET", new Callable<Optional<AlertCondition>>()
+        {
+            public Optional<AlertCondition> call()
+            {
+                return api.alertConditions().show(p.getId(), conditionId);
+            }
+        });
+        if(!condition.isPresent())
+        {
+            logger.severe("Unable to find alert condition: "+conditionId);
+            return;
+        }
+
+        final AlertCondition c = condition.get();
+
+        // Add the alert condition to each entity concurrently
+        Timer.Context phase = startPhase(CREATE);
+        new BulkOperation<E>("add alert condition to "+type)
+        {
+            protected void process(E entity)
+            {
+                if(verbose())
+                    logger.info("Adding alert condition "+c.getId()+" to "+type+" "+entity.getId());
+                api.alertEntityConditions().add(entity, c.getId());
+                logger.info("Added condition: "+c.getId()+" - "+c.getName()+" to "+type+": "+entity.getId()+" - "+entity.getName());
+            }
+
+            protected String describe(E entity)
+            {
+                return entity.getId()+" - "+entity.getName();
+            }
+        }.timer(apiTimer("alerts_entity_conditions", "PUT")).circuitBreaker(circuitBreaker("alerts_entity_conditions"))
+            .parallelism(parallelism).rateLimit(rateLimit).retries(retries).deadline(getDeadline()).execute(entities);
+        phase.stop();
+    }
+
+    /**
+     * Returns the entities with the given ids or name.
+     * <P>
+     * A single entity is looked up by id, otherwise all the entities are listed with one call and then filtered.
+     */
+    private List<E> getEntities()
+    {
+        List<E> ret = new ArrayList<E>();
+        if(entityIds.size() == 1)
+        {
+            long id = entityIds.get(0);
+            if(verbose())
+                logger.info("Getting "+type+": "+id);
+
+            Optional<E> entity = Optional.absent();
+            try
+            {
+                entity = show(id);
+            }
+            catch(ErrorResponseException e)
+            {
+                // throw 404 if not found
+            }
+
+            if(entity.isPresent())
+                ret.add(entity.get());
+            else
+                logger.severe("Unable to find "+type+": "+id);
+            return ret;
+        }
+
+        if(verbose())
+            logger.info("Getting "+type+"s");
+
+        Collection<E> entities = null;
+        Timer.Context phase = startPhase(LOOKUP);
+        try
+        {
+            entities = call(endpoint, "GET", new Callable<Collection<E>>()
+            {
+                public Collection<E> call()
+                {
+                    return list();
+                }
+            });
+        }
+        finally
+        {
+            phase.stop();
+        }
+
+        if(name != null)
+        {
+            Pattern pattern = wildcard(name);
+            for(E entity : entities)
+            {
+                if(entity.getName() != null && pattern.matcher(entity.getName()).matches())
+                    ret.add(entity);
+            }
+        }
+        else
+        {
+            Map<Long,E> ids = new LinkedHashMap<Long,E>();
+            for(E entity : entities)
+                ids.put(entity.getId(), entity);
+            for(Long id : entityIds)
+            {
+                E entity = ids.get(id);
+                if(entity != null)
+                    ret.add(entity);
+                else
+                    logger.severe("Unable to find "+type+": "+id);
+            }
+        }
+
+        if(verbose())
+            logger.info("Found "+ret.size()+" "+type+"s");
+
+        return ret;
+    }
+
+    /**
+     * Returns the regular expression for the given name including the wildcards "*" and "?".
+     */
+    private static Pattern wildcard(String name)
+    {
+        StringBuilder ret = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for(char ch : name.toCharArray())
+        {
+            if(ch == '*' || ch == '?')
+            {
+                if(literal.length() > 0)
+                    ret.append(Pattern.quote(literal.toString()));
+                literal.setLength(0);
+                ret.append(ch == '*' ? ".*" : ".");
+            }
+            else
+            {
+                literal.append(ch);
+            }
+        }
+        if(literal.length() > 0)
+            ret.append(Pattern.quote(literal.toString()));
+        return Pattern.compile(ret.toString());
+    }
+}
\ No newline at end of file
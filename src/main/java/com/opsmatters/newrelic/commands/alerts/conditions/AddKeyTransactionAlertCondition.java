@@ -16,37 +16,28 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
-import java.util.logging.Logger;
-import org.apache.commons.cli.CommandLine;
+import java.util.Collection;
+import java.util.concurrent.Callable;
 import com.google.common.base.Optional;
-import com.opsmatters.newrelic.api.NewRelicApi;
 import com.opsmatters.newrelic.api.model.transactions.KeyTransaction;
-import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
-import com.opsmatters.newrelic.api.model.alerts.conditions.AlertCondition;
-import com.opsmatters.newrelic.api.exceptions.ErrorResponseException;
 import com.opsmatters.newrelic.commands.Opt;
-import com.opsmatters.newrelic.commands.BaseCommand;
 
 /**
- * Implements the New Relic command line option to add an alert condition to a key transaction.  
+ * Implements the New Relic command line option to add an alert condition to a key transaction,
+ * or to all the key transactions with the given ids or name.
  * 
  * @author Gerald Curley (opsmatters)
  */
-public class AddKeyTransactionAlertCondition extends BaseCommand
+public class AddKeyTransactionAlertCondition extends AddEntityAlertCondition<KeyTransaction>
 {
-    private static final Logger logger = Logger.getLogger(AddKeyTransactionAlertCondition.class.getName());
     private static final String NAME = "add_key_transaction_alert_condition";
 
-    private Long transactionId;
-    private Long policyId;
-    private Long conditionId;
-
     /**
      * Default constructor.
      */
     public AddKeyTransactionAlertCondition()
     {
-        options();
+        super("key transaction", "key_transactions", Opt.TRANSACTION_ID);
     }
 
     /**
@@ -59,100 +50,27 @@ public class AddKeyTransactionAlertCondition extends BaseCommand
     }
 
     /**
-     * Sets the options for the command.
+     * Returns the key transaction with the given id.
+     * @param id The id of the key transaction
+     * @return The key transaction
      */
-    @Override
-    protected void options()
+    protected Optional<KeyTransaction> show(final long id)
     {
-        super.options();
-        addOption(Opt.TRANSACTION_ID);
-        addOption(Opt.POLICY_ID);
-        addOption(Opt.CONDITION_ID);
-    }
-
-    /**
-     * Parse the command-specific options.
-     * @param cli The parsed command line
-     */
-    protected void parse(CommandLine cli)
-    {
-        // Transaction id option
-        if(hasOption(cli, Opt.TRANSACTION_ID, true))
+        return call("key_transactions", "GET", new Callable<Optional<KeyTransaction>>()
         {
-            transactionId = Long.parseLong(getOptionValue(cli, Opt.TRANSACTION_ID));
-            logOptionValue(Opt.TRANSACTION_ID, transactionId);
-        }
-
-        // Policy id option
-        if(hasOption(cli, Opt.POLICY_ID, true))
-        {
-            policyId = Long.parseLong(getOptionValue(cli, Opt.POLICY_ID));
-            logOptionValue(Opt.POLICY_ID, policyId);
-        }
-
-        // Condition id option
-        if(hasOption(cli, Opt.CONDITION_ID, true))
-        {
-            conditionId = Long.parseLong(getOptionValue(cli, Opt.CONDITION_ID));
-            logOptionValue(Opt.CONDITION_ID, conditionId);
-        }
+            public Optional<KeyTransaction> call()
+            {
+                return getApi().keyTransactions().show(id);
+            }
+        });
     }
 
     /**
-     * Add the alert condition to the key transaction.
+     * Returns all the key transactions.
+     * @return The key transactions
      */
-    protected void execute()
+    protected Collection<KeyTransaction> list()
     {
-        NewRelicApi api = getApi();
-
-        if(verbose())
-            logger.info("Getting key transaction: "+transactionId);
-
-        Optional<KeyTransaction> transaction = Optional.absent();
-        try
-        {
-            transaction = api.keyTransactions().show(transactionId);
-        }
-        catch(ErrorResponseException e)
-        {
-            // throw 404 if not found
-        }
-
-        if(!transaction.isPresent())
-        {
-            logger.severe("Unable to find key transaction: "+transactionId);
-            return;
-        }
-
-        KeyTransaction t = transaction.get();
-
-        if(verbose())
-            logger.info("Getting alert policy: "+policyId);
-
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
-        if(!policy.isPresent())
-        {
-            logger.severe("Unable to find alert policy: "+policyId);
-            return;
-        }
-
-        AlertPolicy p = policy.get();
-
-        if(verbose())
-            logger.info("Getting alert condition: "+conditionId);
-
-        Optional<AlertCondition> condition = api.alertConditions().show(p.getId(), conditionId);
-        if(!condition.isPresent())
-        {
-            logger.severe("Unable to find alert condition: "+conditionId);
-            return;
-        }
-
-        AlertCondition c = condition.get();
-
-        if(verbose())
-            logger.info("Adding alert condition "+c.getId()+" to key transaction "+t.getId());
-        c = api.alertEntityConditions().add(t, c.getId()).get();
-        logger.info("Added condition: "+c.getId()+" - "+c.getName()+" to key transaction: "+t.getId()+" - "+t.getName());
+        return getApi().keyTransactions().list((String)null);
     }
 }
\ No newline at end of file
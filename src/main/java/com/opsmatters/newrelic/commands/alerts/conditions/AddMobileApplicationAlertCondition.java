@@ -16,37 +16,28 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
-import java.util.logging.Logger;
-import org.apache.commons.cli.CommandLine;
+import java.util.Collection;
+import java.util.concurrent.Callable;
 import com.google.common.base.Optional;
-import com.opsmatters.newrelic.api.NewRelicApi;
 import com.opsmatters.newrelic.api.model.applications.MobileApplication;
-import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
-import com.opsmatters.newrelic.api.model.alerts.conditions.AlertCondition;
-import com.opsmatters.newrelic.api.exceptions.ErrorResponseException;
 import com.opsmatters.newrelic.commands.Opt;
-import com.opsmatters.newrelic.commands.BaseCommand;
 
 /**
- * Implements the New Relic command line option to add an alert condition to a mobile application.  
+ * Implements the New Relic command line option to add an alert condition to a mobile application,
+ * or to all the mobile applications with the given ids or name.
  * 
  * @author Gerald Curley (opsmatters)
  */
-public class AddMobileApplicationAlertCondition extends BaseCommand
+public class AddMobileApplicationAlertCondition extends AddEntityAlertCondition<MobileApplication>
 {
-    private static final Logger logger = Logger.getLogger(AddMobileApplicationAlertCondition.class.getName());
     private static final String NAME = "add_mobile_application_alert_condition";
 
-    private Long applicationId;
-    private Long policyId;
-    private Long conditionId;
-
     /**
      * Default constructor.
      */
     public AddMobileApplicationAlertCondition()
     {
-        options();
+        super("mobile application", "mobile_applications", Opt.APPLICATION_ID);
     }
 
     /**
@@ -59,100 +50,27 @@ public class AddMobileApplicationAlertCondition extends BaseCommand
     }
 
     /**
-     * Sets the options for the command.
+     * Returns the mobile application with the given id.
+     * @param id The id of the mobile application
+     * @return The mobile application
      */
-    @Override
-    protected void options()
+    protected Optional<MobileApplication> show(final long id)
     {
-        super.options();
-        addOption(Opt.APPLICATION_ID, "The id of the mobile application");
-        addOption(Opt.POLICY_ID);
-        addOption(Opt.CONDITION_ID);
-    }
-
-    /**
-     * Parse the command-specific options.
-     * @param cli The parsed command line
-     */
-    protected void parse(CommandLine cli)
-    {
-        // Application id option
-        if(hasOption(cli, Opt.APPLICATION_ID, true))
+        return call("mobile_applications", "GET", new Callable<Optional<MobileApplication>>()
         {
-            applicationId = Long.parseLong(getOptionValue(cli, Opt.APPLICATION_ID));
-            logOptionValue(Opt.APPLICATION_ID, applicationId);
-        }
-
-        // Policy id option
-        if(hasOption(cli, Opt.POLICY_ID, true))
-        {
-            policyId = Long.parseLong(getOptionValue(cli, Opt.POLICY_ID));
-            logOptionValue(Opt.POLICY_ID, policyId);
-        }
-
-        // Condition id option
-        if(hasOption(cli, Opt.CONDITION_ID, true))
-        {
-            conditionId = Long.parseLong(getOptionValue(cli, Opt.CONDITION_ID));
-            logOptionValue(Opt.CONDITION_ID, conditionId);
-        }
+            public Optional<MobileApplication> call()
+            {
+                return getApi().mobileApplications().show(id);
+            }
+        });
     }
 
     /**
-     * Add the alert condition to the mobile application.
+     * Returns all the mobile applications.
+     * @return The mobile applications
      */
-    protected void execute()
+    protected Collection<MobileApplication> list()
     {
-        NewRelicApi api = getApi();
-
-        if(verbose())
-            logger.info("Getting mobile application: "+applicationId);
-
-        Optional<MobileApplication> application = Optional.absent();
-        try
-        {
-            application = api.mobileApplications().show(applicationId);
-        }
-        catch(ErrorResponseException e)
-        {
-            // throw 404 if not found
-        }
-
-        if(!application.isPresent())
-        {
-            logger.severe("Unable to find mobile application: "+applicationId);
-            return;
-        }
-
-        MobileApplication a = application.get();
-
-        if(verbose())
-            logger.info("Getting alert policy: "+policyId);
-
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
-        if(!policy.isPresent())
-        {
-            logger.severe("Unable to find alert policy: "+policyId);
-            return;
-        }
-
-        AlertPolicy p = policy.get();
-
-        if(verbose())
-            logger.info("Getting alert condition: "+conditionId);
-
-        Optional<AlertCondition> condition = api.alertConditions().show(p.getId(), conditionId);
-        if(!condition.isPresent())
-        {
-            logger.severe("Unable to find alert condition: "+conditionId);
-            return;
-        }
-
-        AlertCondition c = condition.get();
-
-        if(verbose())
-            logger.info("Adding alert condition "+c.getId()+" to mobile application "+a.getId());
-        c = api.alertEntityConditions().add(a, c.getId()).get();
-        logger.info("Added condition: "+c.getId()+" - "+c.getName()+" to mobile application: "+a.getId()+" - "+a.getName());
+        return getApi().mobileApplications().list((String)null);
     }
 }
\ No newline at end of file
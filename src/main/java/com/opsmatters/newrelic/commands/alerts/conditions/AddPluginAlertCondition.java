@@ -16,37 +16,28 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
-import java.util.logging.Logger;
-import org.apache.commons.cli.CommandLine;
+import java.util.Collection;
+import java.util.concurrent.Callable;
 import com.google.common.base.Optional;
-import com.opsmatters.newrelic.api.NewRelicApi;
 import com.opsmatters.newrelic.api.model.plugins.Plugin;
-import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
-import com.opsmatters.newrelic.api.model.alerts.conditions.AlertCondition;
-import com.opsmatters.newrelic.api.exceptions.ErrorResponseException;
 import com.opsmatters.newrelic.commands.Opt;
-import com.opsmatters.newrelic.commands.BaseCommand;
 
 /**
- * Implements the New Relic command line option to add an alert condition to a plugin.  
+ * Implements the New Relic command line option to add an alert condition to a plugin,
+ * or to all the plugins with the given ids or name.
  * 
  * @author Gerald Curley (opsmatters)
  */
-public class AddPluginAlertCondition extends BaseCommand
+public class AddPluginAlertCondition extends AddEntityAlertCondition<Plugin>
 {
-    private static final Logger logger = Logger.getLogger(AddPluginAlertCondition.class.getName());
     private static final String NAME = "add_plugin_alert_condition";
 
-    private Long pluginId;
-    private Long policyId;
-    private Long conditionId;
-
     /**
      * Default constructor.
      */
     public AddPluginAlertCondition()
     {
-        options();
+        super("plugin", "plugins", Opt.PLUGIN_ID);
     }
 
     /**
@@ -59,100 +50,27 @@ public class AddPluginAlertCondition extends BaseCommand
     }
 
     /**
-     * Sets the options for the command.
+     * Returns the plugin with the given id.
+     * @param id The id of the plugin
+     * @return The plugin
      */
-    @Override
-    protected void options()
+    protected Optional<Plugin> show(final long id)
     {
-        super.options();
-        addOption(Opt.PLUGIN_ID);
-        addOption(Opt.POLICY_ID);
-        addOption(Opt.CONDITION_ID);
-    }
-
-    /**
-     * Parse the command-specific options.
-     * @param cli The parsed command line
-     */
-    protected void parse(CommandLine cli)
-    {
-        // Plugin id option
-        if(hasOption(cli, Opt.PLUGIN_ID, true))
+        return call("plugins", "GET", new Callable<Optional<Plugin>>()
         {
-            pluginId = Long.parseLong(getOptionValue(cli, Opt.PLUGIN_ID));
-            logOptionValue(Opt.PLUGIN_ID, pluginId);
-        }
-
-        // Policy id option
-        if(hasOption(cli, Opt.POLICY_ID, true))
-        {
-            policyId = Long.parseLong(getOptionValue(cli, Opt.POLICY_ID));
-            logOptionValue(Opt.POLICY_ID, policyId);
-        }
-
-        // Condition id option
-        if(hasOption(cli, Opt.CONDITION_ID, true))
-        {
-            conditionId = Long.parseLong(getOptionValue(cli, Opt.CONDITION_ID));
-            logOptionValue(Opt.CONDITION_ID, conditionId);
-        }
+            public Optional<Plugin> call()
+            {
+                return getApi().plugins().show(id, false);
+            }
+        });
     }
 
     /**
-     * Add the alert condition to the plugin.
+     * Returns all the plugins.
+     * @return The plugins
      */
-    protected void execute()
+    protected Collection<Plugin> list()
     {
-        NewRelicApi api = getApi();
-
-        if(verbose())
-            logger.info("Getting plugin: "+pluginId);
-
-        Optional<Plugin> plugin = Optional.absent();
-        try
-        {
-            plugin = api.plugins().show(pluginId, false);
-        }
-        catch(ErrorResponseException e)
-        {
-            // throw 404 if not found
-        }
-
-        if(!plugin.isPresent())
-        {
-            logger.severe("Unable to find plugin: "+pluginId);
-            return;
-        }
-
-        Plugin pl = plugin.get();
-
-        if(verbose())
-            logger.info("Getting alert policy: "+policyId);
-
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
-        if(!policy.isPresent())
-        {
-            logger.severe("Unable to find alert policy: "+policyId);
-            return;
-        }
-
-        AlertPolicy p = policy.get();
-
-        if(verbose())
-            logger.info("Getting alert condition: "+conditionId);
-
-        Optional<AlertCondition> condition = api.alertConditions().show(p.getId(), conditionId);
-        if(!condition.isPresent())
-        {
-            logger.severe("Unable to find alert condition: "+conditionId);
-            return;
-        }
-
-        AlertCondition c = condition.get();
-
-        if(verbose())
-            logger.info("Adding alert condition "+c.getId()+" to plugin "+pl.getId());
-        c = api.alertEntityConditions().add(pl, c.getId()).get();
-        logger.info("Added condition: "+c.getId()+" - "+c.getName()+" to plugin: "+pl.getId()+" - "+pl.getName());
+        return getApi().plugins().list(null, false);
     }
 }
\ No newline at end of file
@@ -16,37 +16,27 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
-import java.util.logging.Logger;
-import org.apache.commons.cli.CommandLine;
+import java.util.Collection;
 import com.google.common.base.Optional;
-import com.opsmatters.newrelic.api.NewRelicApi;
 import com.opsmatters.newrelic.api.model.servers.Server;
-import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
-import com.opsmatters.newrelic.api.model.alerts.conditions.AlertCondition;
-import com.opsmatters.newrelic.api.exceptions.ErrorResponseException;
 import com.opsmatters.newrelic.commands.Opt;
-import com.opsmatters.newrelic.commands.BaseCommand;
 
 /**
- * Implements the New Relic command line option to add an alert condition to a server.  
+ * Implements the New Relic command line option to add an alert condition to a server,
+ * or to all the servers with the given ids or name.
  * 
  * @author Gerald Curley (opsmatters)
  */
-public class AddServerAlertCondition extends BaseCommand
+public class AddServerAlertCondition extends AddEntityAlertCondition<Server>
 {
-    private static final Logger logger = Logger.getLogger(AddServerAlertCondition.class.getName());
     private static final String NAME = "add_server_alert_condition";
 
-    private Long serverId;
-    private Long policyId;
-    private Long conditionId;
-
     /**
      * Default constructor.
      */
     public AddServerAlertCondition()
     {
-        options();
+        super("server", "servers", Opt.SERVER_ID);
     }
 
     /**
@@ -59,100 +49,21 @@ public class AddServerAlertCondition extends BaseCommand
     }
 
     /**
-     * Sets the options for the command.
-     */
-    @Override
-    protected void options()
-    {
-        super.options();
-        addOption(Opt.SERVER_ID);
-        addOption(Opt.POLICY_ID);
-        addOption(Opt.CONDITION_ID);
-    }
-
-    /**
-     * Parse the command-specific options.
-     * @param cli The parsed command line
+     * Returns the server with the given id.
+     * @param id The id of the server
+     * @return The server
      */
-    protected void parse(CommandLine cli)
+    protected Optional<Server> show(long id)
     {
-        // Server id option
-        if(hasOption(cli, Opt.SERVER_ID, true))
-        {
-            serverId = Long.parseLong(getOptionValue(cli, Opt.SERVER_ID));
-            logOptionValue(Opt.SERVER_ID, serverId);
-        }
-
-        // Policy id option
-        if(hasOption(cli, Opt.POLICY_ID, true))
-        {
-            policyId = Long.parseLong(getOptionValue(cli, Opt.POLICY_ID));
-            logOptionValue(Opt.POLICY_ID, policyId);
-        }
-
-        // Condition id option
-        if(hasOption(cli, Opt.CONDITION_ID, true))
-        {
-            conditionId = Long.parseLong(getOptionValue(cli, Opt.CONDITION_ID));
-            logOptionValue(Opt.CONDITION_ID, conditionId);
-        }
+        return getServer(id);
     }
 
     /**
-     * Add the alert condition to the server.
+     * Returns all the servers.
+     * @return The servers
      */
-    protected void execute()
+    protected Collection<Server> list()
     {
-        NewRelicApi api = getApi();
-
-        if(verbose())
-            logger.info("Getting server: "+serverId);
-
-        Optional<Server> server = Optional.absent();
-        try
-        {
-            server = api.servers().show(serverId);
-        }
-        catch(ErrorResponseException e)
-        {
-            // throw 404 if not found
-        }
-
-        if(!server.isPresent())
-        {
-            logger.severe("Unable to find server: "+serverId);
-            return;
-        }
-
-        Server s = server.get();
-
-        if(verbose())
-            logger.info("Getting alert policy: "+policyId);
-
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
-        if(!policy.isPresent())
-        {
-            logger.severe("Unable to find alert policy: "+policyId);
-            return;
-        }
-
-        AlertPolicy p = policy.get();
-
-        if(verbose())
-            logger.info("Getting alert condition: "+conditionId);
-
-        Optional<AlertCondition> condition = api.alertConditions().show(p.getId(), conditionId);
-        if(!condition.isPresent())
-        {
-            logger.severe("Unable to find alert condition: "+conditionId);
-            return;
-        }
-
-        AlertCondition c = condition.get();
-
-        if(verbose())
-            logger.info("Adding alert condition "+c.getId()+" to server "+s.getId());
-        c = api.alertEntityConditions().add(s, c.getId()).get();
-        logger.info("Added condition: "+c.getId()+" - "+c.getName()+" to server: "+s.getId()+" - "+s.getName());
+        return getApi().servers().list((String)null);
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -218,12 +219,12 @@ public class CreateAlertCondition extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        final Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
@@ -233,7 +234,7 @@ public class CreateAlertCondition extends BaseCommand
         if(verbose())
             logger.info("Creating alert condition: "+name);
 
-        AlertCondition c = null;
+        final AlertCondition c;
         switch(AlertCondition.ConditionType.fromValue(type))
         {
             case APM_APP:
@@ -254,9 +255,18 @@ public class CreateAlertCondition extends BaseCommand
             case MOBILE:
                 c = getMobileMetricCondition();
                 break;
+            default:
+                c = null;
+                break;
         }
 
-        AlertCondition condition = api.alertConditions().create(policy.get().getId(), c).get();
+        AlertCondition condition = call("alerts_conditions", "POST", new Callable<AlertCondition>()
+        {
+            public AlertCondition call()
+            {
+                return api.alertConditions().create(policy.get().getId(), c).get();
+            }
+        });
         logger.info("Created alert condition: "+condition.getId()+" - "+condition.getName());
     }
 
@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -195,12 +196,12 @@ public class CreateExternalServiceAlertCondition extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        final Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
@@ -210,7 +211,7 @@ public class CreateExternalServiceAlertCondition extends BaseCommand
         if(verbose())
             logger.info("Creating external service alert condition: "+name);
 
-        ExternalServiceAlertCondition c = null;
+        final ExternalServiceAlertCondition c;
         switch(ExternalServiceAlertCondition.ConditionType.fromValue(type))
         {
             case APM:
@@ -219,9 +220,18 @@ public class CreateExternalServiceAlertCondition extends BaseCommand
             case MOBILE:
                 c = getMobileExternalServiceCondition();
                 break;
+            default:
+                c = null;
+                break;
         }
 
-        ExternalServiceAlertCondition condition = api.externalServiceAlertConditions().create(policy.get().getId(), c).get();
+        ExternalServiceAlertCondition condition = call("alerts_external_service_conditions", "POST", new Callable<ExternalServiceAlertCondition>()
+        {
+            public ExternalServiceAlertCondition call()
+            {
+                return api.externalServiceAlertConditions().create(policy.get().getId(), c).get();
+            }
+        });
         logger.info("Created external service alert condition: "+condition.getId()+" - "+condition.getName());
     }
 
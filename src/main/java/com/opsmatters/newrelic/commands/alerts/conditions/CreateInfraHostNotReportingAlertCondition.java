@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -114,13 +115,13 @@ public class CreateInfraHostNotReportingAlertCondition extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
-        NewRelicInfraApi infraApi = getInfraApi();
+        final NewRelicApi api = getApi();
+        final NewRelicInfraApi infraApi = getInfraApi();
 
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
@@ -130,7 +131,7 @@ public class CreateInfraHostNotReportingAlertCondition extends BaseCommand
         if(verbose())
             logger.info("Creating infra host condition: "+name);
 
-        InfraAlertCondition c = InfraHostNotReportingAlertCondition.builder()
+        final InfraAlertCondition c = InfraHostNotReportingAlertCondition.builder()
             .policyId(policy.get().getId())
             .name(name)
             .criticalThreshold(new AlertThreshold().builder().durationMinutes(duration).build())
@@ -138,7 +139,13 @@ public class CreateInfraHostNotReportingAlertCondition extends BaseCommand
             .enabled(true)
             .build();
 
-        InfraAlertCondition condition = infraApi.infraAlertConditions().create(c).get();
+        InfraAlertCondition condition = call("infra_alerts_conditions", "POST", new Callable<InfraAlertCondition>()
+        {
+            public InfraAlertCondition call()
+            {
+                return infraApi.infraAlertConditions().create(c).get();
+            }
+        });
         logger.info("Created infra host alert condition: "+condition.getId()+" - "+condition.getName());
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -185,13 +186,13 @@ public class CreateInfraMetricAlertCondition extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
-        NewRelicInfraApi infraApi = getInfraApi();
+        final NewRelicApi api = getApi();
+        final NewRelicInfraApi infraApi = getInfraApi();
 
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
@@ -226,8 +227,14 @@ public class CreateInfraMetricAlertCondition extends BaseCommand
         if(whereClause != null)
             builder = builder.whereClause(whereClause);
 
-        InfraAlertCondition c = builder.build();
-        InfraAlertCondition condition = infraApi.infraAlertConditions().create(c).get();
+        final InfraAlertCondition c = builder.build();
+        InfraAlertCondition condition = call("infra_alerts_conditions", "POST", new Callable<InfraAlertCondition>()
+        {
+            public InfraAlertCondition call()
+            {
+                return infraApi.infraAlertConditions().create(c).get();
+            }
+        });
         logger.info("Created infra metric alert condition: "+condition.getId()+" - "+condition.getName());
     }
 }
\ No newline at end of file
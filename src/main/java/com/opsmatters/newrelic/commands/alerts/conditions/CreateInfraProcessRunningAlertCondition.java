@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -147,13 +148,13 @@ public class CreateInfraProcessRunningAlertCondition extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
-        NewRelicInfraApi infraApi = getInfraApi();
+        final NewRelicApi api = getApi();
+        final NewRelicInfraApi infraApi = getInfraApi();
 
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
@@ -163,7 +164,7 @@ public class CreateInfraProcessRunningAlertCondition extends BaseCommand
         if(verbose())
             logger.info("Creating infra process condition: "+name);
 
-        InfraAlertCondition c = InfraProcessRunningAlertCondition.builder()
+        final InfraAlertCondition c = InfraProcessRunningAlertCondition.builder()
             .policyId(policy.get().getId())
             .name(name)
             .comparison(comparison)
@@ -173,7 +174,13 @@ public class CreateInfraProcessRunningAlertCondition extends BaseCommand
             .enabled(true)
             .build();
 
-        InfraAlertCondition condition = infraApi.infraAlertConditions().create(c).get();
+        InfraAlertCondition condition = call("infra_alerts_conditions", "POST", new Callable<InfraAlertCondition>()
+        {
+            public InfraAlertCondition call()
+            {
+                return infraApi.infraAlertConditions().create(c).get();
+            }
+        });
         logger.info("Created infra process alert condition: "+condition.getId()+" - "+condition.getName());
     }
 }
\ No newline at end of file
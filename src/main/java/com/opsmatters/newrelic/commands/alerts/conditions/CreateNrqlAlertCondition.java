@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -194,19 +195,19 @@ public class CreateNrqlAlertCondition extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Creating NRQL alert condition: "+name);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        final Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
             return;
         }
 
-        NrqlAlertCondition c = NrqlAlertCondition.builder()
+        final NrqlAlertCondition c = NrqlAlertCondition.builder()
             .name(name)
             .valueFunction(valueFunction)
             .addTerm(getTerm())
@@ -214,7 +215,13 @@ public class CreateNrqlAlertCondition extends BaseCommand
             .enabled(true)
             .build();
 
-        NrqlAlertCondition condition = api.nrqlAlertConditions().create(policy.get().getId(), c).get();
+        NrqlAlertCondition condition = call("alerts_nrql_conditions", "POST", new Callable<NrqlAlertCondition>()
+        {
+            public NrqlAlertCondition call()
+            {
+                return api.nrqlAlertConditions().create(policy.get().getId(), c).get();
+            }
+        });
         logger.info("Created NRQL alert condition: "+condition.getId()+" - "+condition.getName());
     }
 
@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -212,12 +213,12 @@ public class CreatePluginsAlertCondition extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        final Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
@@ -227,7 +228,7 @@ public class CreatePluginsAlertCondition extends BaseCommand
         if(verbose())
             logger.info("Creating Plugins alert condition: "+name);
 
-        PluginsAlertCondition c = PluginsAlertCondition.builder()
+        final PluginsAlertCondition c = PluginsAlertCondition.builder()
             .name(name)
             .metric(metric)
             .metricDescription(metricDescription)
@@ -237,7 +238,13 @@ public class CreatePluginsAlertCondition extends BaseCommand
             .enabled(true)
             .build();
 
-        PluginsAlertCondition condition = api.pluginsAlertConditions().create(policy.get().getId(), c).get();
+        PluginsAlertCondition condition = call("alerts_plugins_conditions", "POST", new Callable<PluginsAlertCondition>()
+        {
+            public PluginsAlertCondition call()
+            {
+                return api.pluginsAlertConditions().create(policy.get().getId(), c).get();
+            }
+        });
         logger.info("Created Plugins alert condition: "+condition.getId()+" - "+condition.getName());
     }
 
@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -102,25 +103,31 @@ public class CreateSyntheticsAlertCondition extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Creating Synthetics alert condition: "+name);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        final Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
             return;
         }
 
-        SyntheticsAlertCondition c = SyntheticsAlertCondition.builder()
+        final SyntheticsAlertCondition c = SyntheticsAlertCondition.builder()
             .name(name)
             .monitorId(monitorId)
             .enabled(true)
             .build();
 
-        SyntheticsAlertCondition condition = api.syntheticsAlertConditions().create(policy.get().getId(), c).get();
+        SyntheticsAlertCondition condition = call("alerts_synthetics_conditions", "POST", new Callable<SyntheticsAlertCondition>()
+        {
+            public SyntheticsAlertCondition call()
+            {
+                return api.syntheticsAlertConditions().create(policy.get().getId(), c).get();
+            }
+        });
         logger.info("Created Synthetics alert condition: "+condition.getId()+" - "+condition.getName());
     }
 }
\ No newline at end of file
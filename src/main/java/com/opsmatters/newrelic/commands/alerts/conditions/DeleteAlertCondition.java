@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -92,12 +93,12 @@ public class DeleteAlertCondition extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
@@ -107,7 +108,13 @@ public class DeleteAlertCondition extends BaseCommand
         if(verbose())
             logger.info("Getting alert condition: "+conditionId);
 
-        Optional<AlertCondition> condition = api.alertConditions().show(policyId, conditionId);
+        Optional<AlertCondition> condition = call("alerts_conditions", "GET", new Callable<Optional<AlertCondition>>()
+        {
+            public Optional<AlertCondition> call()
+            {
+                return api.alertConditions().show(policyId, conditionId);
+            }
+        });
         if(!condition.isPresent())
         {
             logger.severe("Unable to find alert condition: "+conditionId);
@@ -117,8 +124,15 @@ public class DeleteAlertCondition extends BaseCommand
         if(verbose())
             logger.info("Deleting alert condition: "+conditionId);
 
-        AlertCondition c = condition.get();
-        api.alertConditions().delete(c.getId());
+        final AlertCondition c = condition.get();
+        call("alerts_conditions", "DELETE", new Callable<Void>()
+        {
+            public Void call()
+            {
+                api.alertConditions().delete(c.getId());
+                return null;
+            }
+        });
         logger.info("Deleted alert condition: "+c.getId()+" - "+c.getName());
     }
 }
\ No newline at end of file
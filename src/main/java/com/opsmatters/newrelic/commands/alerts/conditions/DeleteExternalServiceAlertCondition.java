@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -92,12 +93,12 @@ public class DeleteExternalServiceAlertCondition extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
@@ -107,7 +108,13 @@ public class DeleteExternalServiceAlertCondition extends BaseCommand
         if(verbose())
             logger.info("Getting external service alert condition: "+conditionId);
 
-        Optional<ExternalServiceAlertCondition> condition = api.externalServiceAlertConditions().show(policyId, conditionId);
+        Optional<ExternalServiceAlertCondition> condition = call("alerts_external_service_conditions", "GET", new Callable<Optional<ExternalServiceAlertCondition>>()
+        {
+            public Optional<ExternalServiceAlertCondition> call()
+            {
+                return api.externalServiceAlertConditions().show(policyId, conditionId);
+            }
+        });
         if(!condition.isPresent())
         {
             logger.severe("Unable to find external service alert condition: "+conditionId);
@@ -117,8 +124,15 @@ public class DeleteExternalServiceAlertCondition extends BaseCommand
         if(verbose())
             logger.info("Deleting external service alert condition: "+conditionId);
 
-        ExternalServiceAlertCondition c = condition.get();
-        api.externalServiceAlertConditions().delete(c.getId());
+        final ExternalServiceAlertCondition c = condition.get();
+        call("alerts_external_service_conditions", "DELETE", new Callable<Void>()
+        {
+            public Void call()
+            {
+                api.externalServiceAlertConditions().delete(c.getId());
+                return null;
+            }
+        });
         logger.info("Deleted external service alert condition: "+c.getId()+" - "+c.getName());
     }
 }
\ No newline at end of file
@@ -17,14 +17,17 @@
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
 import com.opsmatters.newrelic.api.NewRelicApi;
 import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
 import com.opsmatters.newrelic.api.model.alerts.conditions.ExternalServiceAlertCondition;
+import com.opsmatters.newrelic.clients.RetryPolicy;
 import com.opsmatters.newrelic.commands.Opt;
 import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.BulkOperation;
 
 /**
  * Implements the New Relic command line option to delete external service alert conditions.  
@@ -38,6 +41,9 @@ public class DeleteExternalServiceAlertConditions extends BaseCommand
 
     private long policyId;
     private String name;
+    private int parallelism = BulkOperation.DEFAULT_PARALLELISM;
+    private double rateLimit = BulkOperation.DEFAULT_RATE_LIMIT;
+    private int retries = RetryPolicy.DEFAULT_RETRIES;
 
     /**
      * Default constructor.
@@ -65,6 +71,9 @@ public class DeleteExternalServiceAlertConditions extends BaseCommand
         super.options();
         addOption(Opt.POLICY_ID);
         addOption(Opt.NAME, "The name of the alert conditions");
+        addOption(Opt.PARALLELISM);
+        addOption(Opt.RATE_LIMIT);
+        addOption(Opt.RETRIES);
     }
 
     /**
@@ -86,6 +95,27 @@ public class DeleteExternalServiceAlertConditions extends BaseCommand
             name = getOptionValue(cli, Opt.NAME);
             logOptionValue(Opt.NAME, name);
         }
+
+        // Parallelism option
+        if(hasOption(cli, Opt.PARALLELISM, false))
+        {
+            parallelism = getIntOptionValue(cli, Opt.PARALLELISM, 1);
+            logOptionValue(Opt.PARALLELISM, parallelism);
+        }
+
+        // Rate limit option
+        if(hasOption(cli, Opt.RATE_LIMIT, false))
+        {
+            rateLimit = getDoubleOptionValue(cli, Opt.RATE_LIMIT, 0.0d);
+            logOptionValue(Opt.RATE_LIMIT, rateLimit);
+        }
+
+        // Retries option
+        if(hasOption(cli, Opt.RETRIES, false))
+        {
+            retries = getIntOptionValue(cli, Opt.RETRIES, 0);
+            logOptionValue(Opt.RETRIES, retries);
+        }
     }
 
     /**
@@ -93,12 +123,12 @@ public class DeleteExternalServiceAlertConditions extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
@@ -108,7 +138,13 @@ public class DeleteExternalServiceAlertConditions extends BaseCommand
         if(verbose())
             logger.info("Getting external service alert conditions: "+name);
 
-        Collection<ExternalServiceAlertCondition> conditions = api.externalServiceAlertConditions().list(policyId, name);
+        Collection<ExternalServiceAlertCondition> conditions = call("alerts_external_service_conditions", "GET", new Callable<Collection<ExternalServiceAlertCondition>>()
+        {
+            public Collection<ExternalServiceAlertCondition> call()
+            {
+                return api.externalServiceAlertConditions().list(policyId, name);
+            }
+        });
         if(conditions.size() == 0)
         {
             logger.severe("Unable to find external service alert conditions: "+name);
@@ -118,10 +154,19 @@ public class DeleteExternalServiceAlertConditions extends BaseCommand
         if(verbose())
             logger.info("Deleting "+conditions.size()+" external service alert conditions: "+name);
 
-        for(ExternalServiceAlertCondition condition : conditions)
+        new BulkOperation<ExternalServiceAlertCondition>("delete external service alert condition")
         {
-            api.externalServiceAlertConditions().delete(condition.getId());
-            logger.info("Deleted external service alert condition: "+condition.getId()+" - "+condition.getName());
-        }
+            protected void process(ExternalServiceAlertCondition condition)
+            {
+                api.externalServiceAlertConditions().delete(condition.getId());
+                logger.info("Deleted external service alert condition: "+describe(condition));
+            }
+
+            protected String describe(ExternalServiceAlertCondition condition)
+            {
+                return condition.getId()+" - "+condition.getName();
+            }
+        }.parallelism(parallelism).rateLimit(rateLimit).retries(retries).deadline(getDeadline())
+            .circuitBreaker(circuitBreaker("alerts_external_service_conditions")).execute(conditions);
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -94,13 +95,13 @@ public class DeleteInfraAlertCondition extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
-        NewRelicInfraApi infraApi = getInfraApi();
+        final NewRelicApi api = getApi();
+        final NewRelicInfraApi infraApi = getInfraApi();
 
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
@@ -113,7 +114,13 @@ public class DeleteInfraAlertCondition extends BaseCommand
         Optional<InfraAlertCondition> condition = Optional.absent();
         try
         {
-            condition = infraApi.infraAlertConditions().show(conditionId);
+            condition = call("infra_alerts_conditions", "GET", new Callable<Optional<InfraAlertCondition>>()
+            {
+                public Optional<InfraAlertCondition> call()
+                {
+                    return infraApi.infraAlertConditions().show(conditionId);
+                }
+            });
         }
         catch(ErrorResponseException e)
         {
@@ -129,8 +136,15 @@ public class DeleteInfraAlertCondition extends BaseCommand
         if(verbose())
             logger.info("Deleting infra alert condition: "+conditionId);
 
-        InfraAlertCondition c = condition.get();
-        infraApi.infraAlertConditions().delete(c.getId());
+        final InfraAlertCondition c = condition.get();
+        call("infra_alerts_conditions", "DELETE", new Callable<Void>()
+        {
+            public Void call()
+            {
+                infraApi.infraAlertConditions().delete(c.getId());
+                return null;
+            }
+        });
         logger.info("Deleted infra alert condition: "+c.getId()+" - "+c.getName());
     }
 }
\ No newline at end of file
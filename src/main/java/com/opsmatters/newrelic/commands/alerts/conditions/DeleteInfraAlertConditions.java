@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -24,8 +25,10 @@ import com.opsmatters.newrelic.api.NewRelicApi;
 import com.opsmatters.newrelic.api.NewRelicInfraApi;
 import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
 import com.opsmatters.newrelic.api.model.alerts.conditions.InfraAlertCondition;
+import com.opsmatters.newrelic.clients.RetryPolicy;
 import com.opsmatters.newrelic.commands.Opt;
 import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.BulkOperation;
 
 /**
  * Implements the New Relic command line option to delete Infrastructure alert conditions.  
@@ -39,6 +42,9 @@ public class DeleteInfraAlertConditions extends BaseCommand
 
     private long policyId;
     private String name;
+    private int parallelism = BulkOperation.DEFAULT_PARALLELISM;
+    private double rateLimit = BulkOperation.DEFAULT_RATE_LIMIT;
+    private int retries = RetryPolicy.DEFAULT_RETRIES;
 
     /**
      * Default constructor.
@@ -66,6 +72,9 @@ public class DeleteInfraAlertConditions extends BaseCommand
         super.options();
         addOption(Opt.POLICY_ID);
         addOption(Opt.NAME, "The name of the alert conditions");
+        addOption(Opt.PARALLELISM);
+        addOption(Opt.RATE_LIMIT);
+        addOption(Opt.RETRIES);
     }
 
     /**
@@ -87,6 +96,27 @@ public class DeleteInfraAlertConditions extends BaseCommand
             name = getOptionValue(cli, Opt.NAME);
             logOptionValue(Opt.NAME, name);
         }
+
+        // Parallelism option
+        if(hasOption(cli, Opt.PARALLELISM, false))
+        {
+            parallelism = getIntOptionValue(cli, Opt.PARALLELISM, 1);
+            logOptionValue(Opt.PARALLELISM, parallelism);
+        }
+
+        // Rate limit option
+        if(hasOption(cli, Opt.RATE_LIMIT, false))
+        {
+            rateLimit = getDoubleOptionValue(cli, Opt.RATE_LIMIT, 0.0d);
+            logOptionValue(Opt.RATE_LIMIT, rateLimit);
+        }
+
+        // Retries option
+        if(hasOption(cli, Opt.RETRIES, false))
+        {
+            retries = getIntOptionValue(cli, Opt.RETRIES, 0);
+            logOptionValue(Opt.RETRIES, retries);
+        }
     }
 
     /**
@@ -94,13 +124,13 @@ public class DeleteInfraAlertConditions extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
-        NewRelicInfraApi infraApi = getInfraApi();
+        final NewRelicApi api = getApi();
+        final NewRelicInfraApi infraApi = getInfraApi();
 
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
@@ -110,7 +140,13 @@ public class DeleteInfraAlertConditions extends BaseCommand
         if(verbose())
             logger.info("Getting infra alert conditions: "+name);
 
-        Collection<InfraAlertCondition> conditions = infraApi.infraAlertConditions().list(policyId, name);
+        Collection<InfraAlertCondition> conditions = call("infra_alerts_conditions", "GET", new Callable<Collection<InfraAlertCondition>>()
+        {
+            public Collection<InfraAlertCondition> call()
+            {
+                return infraApi.infraAlertConditions().list(policyId, name);
+            }
+        });
         if(conditions.size() == 0)
         {
             logger.severe("Unable to find infra alert conditions: "+name);
@@ -120,10 +156,19 @@ public class DeleteInfraAlertConditions extends BaseCommand
         if(verbose())
             logger.info("Deleting "+conditions.size()+" infra alert conditions: "+name);
 
-        for(InfraAlertCondition condition : conditions)
+        new BulkOperation<InfraAlertCondition>("delete infra alert condition")
         {
-            infraApi.infraAlertConditions().delete(condition.getId());
-            logger.info("Deleted infra alert condition: "+condition.getId()+" - "+condition.getName());
-        }
+            protected void process(InfraAlertCondition condition)
+            {
+                infraApi.infraAlertConditions().delete(condition.getId());
+                logger.info("Deleted infra alert condition: "+describe(condition));
+            }
+
+            protected String describe(InfraAlertCondition condition)
+            {
+                return condition.getId()+" - "+condition.getName();
+            }
+        }.parallelism(parallelism).rateLimit(rateLimit).retries(retries).deadline(getDeadline())
+            .circuitBreaker(circuitBreaker("infra_alerts_conditions")).execute(conditions);
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -92,12 +93,12 @@ public class DeleteNrqlAlertCondition extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
@@ -107,7 +108,13 @@ public class DeleteNrqlAlertCondition extends BaseCommand
         if(verbose())
             logger.info("Getting NRQL alert condition: "+conditionId);
 
-        Optional<NrqlAlertCondition> condition = api.nrqlAlertConditions().show(policyId, conditionId);
+        Optional<NrqlAlertCondition> condition = call("alerts_nrql_conditions", "GET", new Callable<Optional<NrqlAlertCondition>>()
+        {
+            public Optional<NrqlAlertCondition> call()
+            {
+                return api.nrqlAlertConditions().show(policyId, conditionId);
+            }
+        });
         if(!condition.isPresent())
         {
             logger.severe("Unable to find NRQL alert condition: "+conditionId);
@@ -117,8 +124,15 @@ public class DeleteNrqlAlertCondition extends BaseCommand
         if(verbose())
             logger.info("Deleting NRQL alert condition: "+conditionId);
 
-        NrqlAlertCondition c = condition.get();
-        api.nrqlAlertConditions().delete(c.getId());
+        final NrqlAlertCondition c = condition.get();
+        call("alerts_nrql_conditions", "DELETE", new Callable<Void>()
+        {
+            public Void call()
+            {
+                api.nrqlAlertConditions().delete(c.getId());
+                return null;
+            }
+        });
         logger.info("Deleted NRQL alert condition: "+c.getId()+" - "+c.getName());
     }
 }
\ No newline at end of file
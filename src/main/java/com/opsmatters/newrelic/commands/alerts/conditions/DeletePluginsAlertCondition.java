@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -92,12 +93,12 @@ public class DeletePluginsAlertCondition extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
@@ -107,7 +108,13 @@ public class DeletePluginsAlertCondition extends BaseCommand
         if(verbose())
             logger.info("Getting Plugins alert condition: "+conditionId);
 
-        Optional<PluginsAlertCondition> condition = api.pluginsAlertConditions().show(policyId, conditionId);
+        Optional<PluginsAlertCondition> condition = call("alerts_plugins_conditions", "GET", new Callable<Optional<PluginsAlertCondition>>()
+        {
+            public Optional<PluginsAlertCondition> call()
+            {
+                return api.pluginsAlertConditions().show(policyId, conditionId);
+            }
+        });
         if(!condition.isPresent())
         {
             logger.severe("Unable to find Plugins alert condition: "+conditionId);
@@ -117,8 +124,15 @@ public class DeletePluginsAlertCondition extends BaseCommand
         if(verbose())
             logger.info("Deleting Plugins alert condition: "+conditionId);
 
-        PluginsAlertCondition c = condition.get();
-        api.pluginsAlertConditions().delete(c.getId());
+        final PluginsAlertCondition c = condition.get();
+        call("alerts_plugins_conditions", "DELETE", new Callable<Void>()
+        {
+            public Void call()
+            {
+                api.pluginsAlertConditions().delete(c.getId());
+                return null;
+            }
+        });
         logger.info("Deleted Plugins alert condition: "+c.getId()+" - "+c.getName());
     }
 }
\ No newline at end of file
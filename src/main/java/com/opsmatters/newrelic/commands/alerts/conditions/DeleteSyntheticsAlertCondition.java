@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -92,12 +93,12 @@ public class DeleteSyntheticsAlertCondition extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
@@ -107,7 +108,13 @@ public class DeleteSyntheticsAlertCondition extends BaseCommand
         if(verbose())
             logger.info("Getting Synthetics alert condition: "+conditionId);
 
-        Optional<SyntheticsAlertCondition> condition = api.syntheticsAlertConditions().show(policyId, conditionId);
+        Optional<SyntheticsAlertCondition> condition = call("alerts_synthetics_conditions", "GET", new Callable<Optional<SyntheticsAlertCondition>>()
+        {
+            public Optional<SyntheticsAlertCondition> call()
+            {
+                return api.syntheticsAlertConditions().show(policyId, conditionId);
+            }
+        });
         if(!condition.isPresent())
         {
             logger.severe("Unable to find Synthetics alert condition: "+conditionId);
@@ -117,8 +124,15 @@ public class DeleteSyntheticsAlertCondition extends BaseCommand
         if(verbose())
             logger.info("Deleting Synthetics alert condition: "+conditionId);
 
-        SyntheticsAlertCondition c = condition.get();
-        api.syntheticsAlertConditions().delete(c.getId());
+        final SyntheticsAlertCondition c = condition.get();
+        call("alerts_synthetics_conditions", "DELETE", new Callable<Void>()
+        {
+            public Void call()
+            {
+                api.syntheticsAlertConditions().delete(c.getId());
+                return null;
+            }
+        });
         logger.info("Deleted Synthetics alert condition: "+c.getId()+" - "+c.getName());
     }
 }
\ No newline at end of file
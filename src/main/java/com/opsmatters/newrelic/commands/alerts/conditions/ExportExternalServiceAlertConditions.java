@@ -19,8 +19,11 @@ package com.opsmatters.newrelic.commands.alerts.conditions;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.model.Entity;
@@ -31,6 +34,9 @@ import com.opsmatters.newrelic.batch.AlertManager;
 import com.opsmatters.core.documents.Workbook;
 import com.opsmatters.newrelic.commands.Opt;
 import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.ParallelFetcher;
+import com.opsmatters.newrelic.commands.StreamingExport;
+import com.opsmatters.newrelic.metrics.Timer;
 
 /**
  * Implements the New Relic command line option to export a set of external service alert conditions.
@@ -46,6 +52,8 @@ public class ExportExternalServiceAlertConditions extends BaseCommand
     private String worksheet;
     private boolean append = false;
     private String policy;
+    private int parallelism = ParallelFetcher.DEFAULT_PARALLELISM;
+    private boolean stream = false;
 
     /**
      * Default constructor.
@@ -75,6 +83,8 @@ public class ExportExternalServiceAlertConditions extends BaseCommand
         addOption(Opt.SHEET);
         addOption(Opt.APPEND);
         addOption(Opt.POLICY);
+        addOption(Opt.PARALLELISM, "The number of alert policies to fetch concurrently, defaults to "+ParallelFetcher.DEFAULT_PARALLELISM);
+        addOption(Opt.STREAM);
     }
 
     /**
@@ -109,6 +119,19 @@ public class ExportExternalServiceAlertConditions extends BaseCommand
             policy = getOptionValue(cli, Opt.POLICY);
             logOptionValue(Opt.POLICY, policy);
         }
+
+        // Parallelism option
+        if(hasOption(cli, Opt.PARALLELISM, false))
+        {
+            parallelism = getIntOptionValue(cli, Opt.PARALLELISM, 1);
+            logOptionValue(Opt.PARALLELISM, parallelism);
+        }
+
+        // Stream option
+        if(hasOption(cli, Opt.STREAM, false))
+        {
+            stream = true;
+        }
     }
 
     /**
@@ -116,18 +139,103 @@ public class ExportExternalServiceAlertConditions extends BaseCommand
      */
     protected void execute()
     {
-        AlertManager manager = new AlertManager(getApiKey(), verbose());
+        final AlertManager manager = getAlertManager();
+        ParallelFetcher fetcher = new ParallelFetcher(parallelism)
+            .deadline(getDeadline())
+            .timer(apiTimer("alerts_external_service_conditions", "GET"))
+            .circuitBreaker(circuitBreaker("alerts_external_service_conditions"));
+        ParallelFetcher.Fetch<AlertPolicy,ExternalServiceAlertCondition> fetch = new ParallelFetcher.Fetch<AlertPolicy,ExternalServiceAlertCondition>()
+        {
+            public List<ExternalServiceAlertCondition> fetch(List<AlertPolicy> batch)
+            {
+                return manager.getExternalServiceAlertConditions(batch);
+            }
+        };
+
+        // Get the lists of entities in the background
+        Future<List<Entity>> applications = submit(fetcher, "applications", new Callable<List<Entity>>()
+        {
+            public List<Entity> call()
+            {
+                return new ArrayList<Entity>(manager.getApplications());
+            }
+        });
+
+        Future<List<Entity>> servers = submit(fetcher, "servers", new Callable<List<Entity>>()
+        {
+            public List<Entity> call()
+            {
+                return new ArrayList<Entity>(manager.getServers());
+            }
+        });
 
-        // Get the policies and conditions
-        List<AlertPolicy> policies = manager.getAlertPolicies();
-        AlertPolicyList policyList = new AlertPolicyList(policies);
-        List<ExternalServiceAlertCondition> conditions = manager.getExternalServiceAlertConditions(policyList.list(policy));
+        // Write the conditions to the file as the conditions for each policy are fetched
+        if(stream)
+        {
+            Timer.Context phase = startPhase(FETCH);
+            try
+            {
+                final List<AlertPolicy> policies = call("alerts_policies", "GET", new Callable<List<AlertPolicy>>()
+                {
+                    public List<AlertPolicy> call()
+                    {
+                        return manager.getAlertPolicies();
+                    }
+                });
+                final List<Entity> entities = new ArrayList<Entity>();
+                entities.addAll(ParallelFetcher.get(applications));
+                entities.addAll(ParallelFetcher.get(servers));
+                AlertPolicyList policyList = new AlertPolicyList(policies);
+                long rows = new StreamingExport<ExternalServiceAlertCondition>()
+                {
+                    protected void write(List<ExternalServiceAlertCondition> items, String name, OutputStream os) throws IOException
+                    {
+                        manager.writeExternalServiceAlertConditions(policies, entities, items, name, null, os, null);
+                    }
+                }.write(fetcher, policyList.list(policy), fetch, filename, worksheet, append);
+                logger.info("Exported "+rows+" alert conditions to: "+filename);
+            }
+            catch(IOException e)
+            {
+                logger.severe("Unable to write external service alert condition file: "+e.getClass().getName()+": "+e.getMessage());
+            }
+            finally
+            {
+                fetcher.shutdown();
+                phase.stop();
+            }
+            return;
+        }
 
-        // Get the list of entities
+        List<AlertPolicy> policies = null;
+        List<ExternalServiceAlertCondition> conditions = null;
         List<Entity> entities = new ArrayList<Entity>();
-        entities.addAll(manager.getApplications());
-        entities.addAll(manager.getServers());
 
+        Timer.Context phase = startPhase(FETCH);
+        try
+        {
+            // Get the policies and the conditions for each policy concurrently
+            policies = call("alerts_policies", "GET", new Callable<List<AlertPolicy>>()
+            {
+                public List<AlertPolicy> call()
+                {
+                    return manager.getAlertPolicies();
+                }
+            });
+            AlertPolicyList policyList = new AlertPolicyList(policies);
+            conditions = fetcher.fetchAll(policyList.list(policy), fetch);
+
+            // Get the list of entities
+            entities.addAll(ParallelFetcher.get(applications));
+            entities.addAll(ParallelFetcher.get(servers));
+        }
+        finally
+        {
+            fetcher.shutdown();
+            phase.stop();
+        }
+
+        phase = startPhase(WRITE);
         try
         {
             Workbook workbook = null;
@@ -140,5 +248,6 @@ public class ExportExternalServiceAlertConditions extends BaseCommand
         {
             logger.severe("Unable to write external service alert condition file: "+e.getClass().getName()+": "+e.getMessage());
         }
+        phase.stop();
     }
 }
\ No newline at end of file
@@ -19,8 +19,10 @@ package com.opsmatters.newrelic.commands.alerts.conditions;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
@@ -30,6 +32,9 @@ import com.opsmatters.newrelic.batch.AlertManager;
 import com.opsmatters.core.documents.Workbook;
 import com.opsmatters.newrelic.commands.Opt;
 import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.ParallelFetcher;
+import com.opsmatters.newrelic.commands.StreamingExport;
+import com.opsmatters.newrelic.metrics.Timer;
 
 /**
  * Implements the New Relic command line option to export a set of infrastructure host alert conditions.
@@ -45,6 +50,8 @@ public class ExportInfraHostNotReportingAlertConditions extends BaseCommand
     private String worksheet;
     private boolean append = false;
     private String policy;
+    private int parallelism = ParallelFetcher.DEFAULT_PARALLELISM;
+    private boolean stream = false;
 
     /**
      * Default constructor.
@@ -74,6 +81,8 @@ public class ExportInfraHostNotReportingAlertConditions extends BaseCommand
         addOption(Opt.SHEET);
         addOption(Opt.APPEND);
         addOption(Opt.POLICY);
+        addOption(Opt.PARALLELISM, "The number of alert policies to fetch concurrently, defaults to "+ParallelFetcher.DEFAULT_PARALLELISM);
+        addOption(Opt.STREAM);
     }
 
     /**
@@ -108,6 +117,19 @@ public class ExportInfraHostNotReportingAlertConditions extends BaseCommand
             policy = getOptionValue(cli, Opt.POLICY);
             logOptionValue(Opt.POLICY, policy);
         }
+
+        // Parallelism option
+        if(hasOption(cli, Opt.PARALLELISM, false))
+        {
+            parallelism = getIntOptionValue(cli, Opt.PARALLELISM, 1);
+            logOptionValue(Opt.PARALLELISM, parallelism);
+        }
+
+        // Stream option
+        if(hasOption(cli, Opt.STREAM, false))
+        {
+            stream = true;
+        }
     }
 
     /**
@@ -115,13 +137,78 @@ public class ExportInfraHostNotReportingAlertConditions extends BaseCommand
      */
     protected void execute()
     {
-        AlertManager manager = new AlertManager(getApiKey(), verbose());
+        final AlertManager manager = getAlertManager();
+        ParallelFetcher fetcher = new ParallelFetcher(parallelism)
+            .deadline(getDeadline())
+            .timer(apiTimer("infra_alerts_conditions", "GET"))
+            .circuitBreaker(circuitBreaker("infra_alerts_conditions"));
+        ParallelFetcher.Fetch<AlertPolicy,InfraHostNotReportingAlertCondition> fetch = new ParallelFetcher.Fetch<AlertPolicy,InfraHostNotReportingAlertCondition>()
+        {
+            public List<InfraHostNotReportingAlertCondition> fetch(List<AlertPolicy> batch)
+            {
+                return manager.getInfraHostNotReportingAlertConditions(batch);
+            }
+        };
+
+        // Write the conditions to the file as the conditions for each policy are fetched
+        if(stream)
+        {
+            Timer.Context phase = startPhase(FETCH);
+            try
+            {
+                final List<AlertPolicy> policies = call("alerts_policies", "GET", new Callable<List<AlertPolicy>>()
+                {
+                    public List<AlertPolicy> call()
+                    {
+                        return manager.getAlertPolicies();
+                    }
+                });
+                AlertPolicyList policyList = new AlertPolicyList(policies);
+                long rows = new StreamingExport<InfraHostNotReportingAlertCondition>()
+                {
+                    protected void write(List<InfraHostNotReportingAlertCondition> items, String name, OutputStream os) throws IOException
+                    {
+                        manager.writeInfraHostNotReportingAlertConditions(policies, items, name, null, os, null);
+                    }
+                }.write(fetcher, policyList.list(policy), fetch, filename, worksheet, append);
+                logger.info("Exported "+rows+" alert conditions to: "+filename);
+            }
+            catch(IOException e)
+            {
+                logger.severe("Unable to write infra host alert condition file: "+e.getClass().getName()+": "+e.getMessage());
+            }
+            finally
+            {
+                fetcher.shutdown();
+                phase.stop();
+            }
+            return;
+        }
 
-        // Get the policies and conditions
-        List<AlertPolicy> policies = manager.getAlertPolicies();
-        AlertPolicyList policyList = new AlertPolicyList(policies);
-        List<InfraHostNotReportingAlertCondition> conditions = manager.getInfraHostNotReportingAlertConditions(policyList.list(policy));
+        List<AlertPolicy> policies = null;
+        List<InfraHostNotReportingAlertCondition> conditions = null;
+
+        Timer.Context phase = startPhase(FETCH);
+        try
+        {
+            // Get the policies and the conditions for each policy concurrently
+            policies = call("alerts_policies", "GET", new Callable<List<AlertPolicy>>()
+            {
+                public List<AlertPolicy> call()
+                {
+                    return manager.getAlertPolicies();
+                }
+            });
+            AlertPolicyList policyList = new AlertPolicyList(policies);
+            conditions = fetcher.fetchAll(policyList.list(policy), fetch);
+        }
+        finally
+        {
+            fetcher.shutdown();
+            phase.stop();
+        }
 
+        phase = startPhase(WRITE);
         try
         {
             Workbook workbook = null;
@@ -134,5 +221,6 @@ public class ExportInfraHostNotReportingAlertConditions extends BaseCommand
         {
             logger.severe("Unable to write infra host alert condition file: "+e.getClass().getName()+": "+e.getMessage());
         }
+        phase.stop();
     }
 }
\ No newline at end of file
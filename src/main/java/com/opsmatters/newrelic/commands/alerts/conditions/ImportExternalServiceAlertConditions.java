@@ -18,16 +18,33 @@ package com.opsmatters.newrelic.commands.alerts.conditions;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.LinkedHashMap;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
+import com.opsmatters.newrelic.api.NewRelicApi;
 import com.opsmatters.newrelic.api.model.Entity;
+import com.opsmatters.newrelic.api.model.applications.Application;
+import com.opsmatters.newrelic.api.model.servers.Server;
 import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
+import com.opsmatters.newrelic.api.model.alerts.conditions.ExternalServiceAlertCondition;
 import com.opsmatters.newrelic.batch.AlertManager;
 import com.opsmatters.newrelic.batch.model.AlertConfiguration;
 import com.opsmatters.newrelic.commands.Opt;
 import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.BulkOperation;
+import com.opsmatters.newrelic.commands.PipelinedImport;
+import com.opsmatters.newrelic.commands.ParallelFetcher;
+import com.opsmatters.newrelic.commands.ImportPlan;
+import com.opsmatters.newrelic.clients.RetryPolicy;
+import com.opsmatters.newrelic.metrics.Timer;
 
 /**
  * Implements the New Relic command line option to import a set of external service alert conditions.
@@ -42,6 +59,12 @@ public class ImportExternalServiceAlertConditions extends BaseCommand
     private String filename;
     private String worksheet;
     private boolean delete = false;
+    private boolean pipeline = false;
+    private boolean reconcile = false;
+    private boolean plan = false;
+    private int parallelism = BulkOperation.DEFAULT_PARALLELISM;
+    private double rateLimit = BulkOperation.DEFAULT_RATE_LIMIT;
+    private int retries = RetryPolicy.DEFAULT_RETRIES;
 
     /**
      * Default constructor.
@@ -70,6 +93,12 @@ public class ImportExternalServiceAlertConditions extends BaseCommand
         addOption(Opt.FILE, "The name of the file containing alert conditions");
         addOption(Opt.SHEET);
         addOption(Opt.DELETE, "Delete any existing alert condition with that name before creating the new alert condition");
+        addOption(Opt.PIPELINE);
+        addOption(Opt.RECONCILE);
+        addOption(Opt.PLAN);
+        addOption(Opt.PARALLELISM);
+        addOption(Opt.RATE_LIMIT);
+        addOption(Opt.RETRIES);
     }
 
     /**
@@ -97,6 +126,46 @@ public class ImportExternalServiceAlertConditions extends BaseCommand
         {
             delete = true;
         }
+
+        // Pipeline option
+        if(hasOption(cli, Opt.PIPELINE, false))
+        {
+            pipeline = true;
+        }
+
+        // Reconcile option
+        if(hasOption(cli, Opt.RECONCILE, false))
+        {
+            reconcile = true;
+        }
+
+        // Plan option
+        if(hasOption(cli, Opt.PLAN, false))
+        {
+            reconcile = true;
+            plan = true;
+        }
+
+        // Parallelism option
+        if(hasOption(cli, Opt.PARALLELISM, false))
+        {
+            parallelism = getIntOptionValue(cli, Opt.PARALLELISM, 1);
+            logOptionValue(Opt.PARALLELISM, parallelism);
+        }
+
+        // Rate limit option
+        if(hasOption(cli, Opt.RATE_LIMIT, false))
+        {
+            rateLimit = getDoubleOptionValue(cli, Opt.RATE_LIMIT, 0.0d);
+            logOptionValue(Opt.RATE_LIMIT, rateLimit);
+        }
+
+        // Retries option
+        if(hasOption(cli, Opt.RETRIES, false))
+        {
+            retries = getIntOptionValue(cli, Opt.RETRIES, 0);
+            logOptionValue(Opt.RETRIES, retries);
+        }
     }
 
     /**
@@ -104,15 +173,77 @@ public class ImportExternalServiceAlertConditions extends BaseCommand
      */
     protected void execute()
     {
-        AlertManager manager = new AlertManager(getApiKey(), verbose());
-        AlertConfiguration config = new AlertConfiguration();
+        final AlertManager manager = getAlertManager();
 
         // Get the lists of policies and entities
-        List<AlertPolicy> policies = manager.getAlertPolicies();
-        List<Entity> entities = new ArrayList<Entity>();
-        entities.addAll(manager.getApplications());
-        entities.addAll(manager.getServers());
+        Timer.Context phase = startPhase(LOOKUP);
+        final List<AlertPolicy> policies = call("alerts_policies", "GET", new Callable<List<AlertPolicy>>()
+        {
+            public List<AlertPolicy> call()
+            {
+                return manager.getAlertPolicies();
+            }
+        });
+        final List<Entity> entities = new ArrayList<Entity>();
+        entities.addAll(call("applications", "GET", new Callable<List<Application>>()
+        {
+            public List<Application> call()
+            {
+                return manager.getApplications();
+            }
+        }));
+        entities.addAll(call("servers", "GET", new Callable<List<Server>>()
+        {
+            public List<Server> call()
+            {
+                return manager.getServers();
+            }
+        }));
+        phase.stop();
 
+        // Create the external service alert conditions as the rows are read from the file
+        if(pipeline && !reconcile)
+        {
+            BulkOperation<ExternalServiceAlertCondition> operation = new BulkOperation<ExternalServiceAlertCondition>("import external service alert condition")
+            {
+                protected void process(ExternalServiceAlertCondition condition)
+                {
+                    List<ExternalServiceAlertCondition> conditions = Collections.singletonList(condition);
+                    if(delete)
+                        manager.deleteExternalServiceAlertConditions(conditions);
+                    manager.createExternalServiceAlertConditions(conditions);
+                }
+
+                protected String describe(ExternalServiceAlertCondition condition)
+                {
+                    return condition.getName();
+                }
+            };
+
+            phase = startPhase(CREATE);
+            try
+            {
+                new PipelinedImport<ExternalServiceAlertCondition>()
+                {
+                    protected List<ExternalServiceAlertCondition> read(String name, InputStream is) throws IOException
+                    {
+                        return manager.readExternalServiceAlertConditions(policies, entities, name, null, is);
+                    }
+                }.execute(filename, worksheet, operation.timer(apiTimer("alerts_external_service_conditions", "POST"))
+                    .parallelism(parallelism).rateLimit(rateLimit).retries(retries).deadline(getDeadline()).idempotent(false)
+                    .circuitBreaker(circuitBreaker("alerts_external_service_conditions")));
+            }
+            catch(IOException e)
+            {
+                logger.severe("Unable to read external service alert condition file: "+e.getClass().getName()+": "+e.getMessage());
+            }
+            phase.stop();
+            return;
+        }
+
+        final AlertConfiguration config = new AlertConfiguration();
+
+        phase = startPhase(READ);
         try
         {
             // Read the alert conditions
@@ -123,12 +254,120 @@ public class ImportExternalServiceAlertConditions extends BaseCommand
         {
             logger.severe("Unable to read external service alert condition file: "+e.getClass().getName()+": "+e.getMessage());
         }
+        phase.stop();
+
+        // Apply only the differences between the file and the existing alert conditions
+        if(reconcile)
+        {
+            final NewRelicApi api = getApi();
+            ImportPlan<ExternalServiceAlertCondition> changes = new ImportPlan<ExternalServiceAlertCondition>("alert condition")
+            {
+                protected String key(ExternalServiceAlertCondition condition)
+                {
+                    return condition.getName();
+                }
+
+                protected Object group(ExternalServiceAlertCondition condition)
+                {
+                    return condition.getPolicyId();
+                }
+
+                protected String describe(ExternalServiceAlertCondition condition)
+                {
+                    return condition.getPolicyId()+" - "+condition.getName();
+                }
+
+                protected void create(ExternalServiceAlertCondition condition)
+                {
+                    manager.createExternalServiceAlertConditions(Collections.singletonList(condition));
+                }
+
+                protected void delete(ExternalServiceAlertCondition condition)
+                {
+                    api.externalServiceAlertConditions().delete(condition.getId());
+                }
+
+                protected void update(ExternalServiceAlertCondition current, ExternalServiceAlertCondition desired)
+                {
+                    desired.setId(current.getId());
+                    api.externalServiceAlertConditions().update(desired);
+                }
+            }.endpoint("alerts_external_service_conditions").circuitBreaker(circuitBreaker("alerts_external_service_conditions"))
+                .deadline(getDeadline());
+
+            // Get the policies of the alert conditions in the file
+            List<ExternalServiceAlertCondition> conditions = config.getExternalServiceAlertConditions();
+            Set<Long> policyIds = new HashSet<Long>();
+            for(ExternalServiceAlertCondition condition : conditions)
+                policyIds.add(condition.getPolicyId());
+            List<AlertPolicy> filePolicies = new ArrayList<AlertPolicy>();
+            for(AlertPolicy policy : policies)
+            {
+                if(policyIds.contains(policy.getId()))
+                    filePolicies.add(policy);
+            }
+
+            // Compare with the existing alert conditions for those policies
+            phase = startPhase(FETCH);
+            ParallelFetcher fetcher = new ParallelFetcher(parallelism)
+                .deadline(getDeadline())
+                .timer(apiTimer("alerts_external_service_conditions", "GET"))
+                .circuitBreaker(circuitBreaker("alerts_external_service_conditions"));
+            try
+            {
+                // Key the existing alert conditions on the policy they were fetched for
+                List<List<ExternalServiceAlertCondition>> fetched = fetcher.fetchGroups(filePolicies, new ParallelFetcher.Fetch<AlertPolicy,ExternalServiceAlertCondition>()
+                {
+                    public List<ExternalServiceAlertCondition> fetch(List<AlertPolicy> batch)
+                    {
+                        return manager.getExternalServiceAlertConditions(batch);
+                    }
+                });
+                Map<Long,List<ExternalServiceAlertCondition>> current = new LinkedHashMap<Long,List<ExternalServiceAlertCondition>>();
+                for(int i = 0; i < filePolicies.size(); i++)
+                    current.put(filePolicies.get(i).getId(), fetched.get(i));
+                changes.compute(current, conditions, delete);
+            }
+            finally
+            {
+                fetcher.shutdown();
+                phase.stop();
+            }
+
+            changes.log(verbose());
+            if(!plan)
+            {
+                phase = startPhase(CREATE);
+                changes.apply(parallelism, rateLimit, retries);
+                phase.stop();
+            }
+            return;
+        }
+
+        phase = startPhase(CREATE);
 
         // Delete the existing alert conditions
         if(delete)
-            manager.deleteExternalServiceAlertConditions(config.getExternalServiceAlertConditions());
+        {
+            call("alerts_external_service_conditions", "DELETE", new Callable<Void>()
+            {
+                public Void call()
+                {
+                    manager.deleteExternalServiceAlertConditions(config.getExternalServiceAlertConditions());
+                    return null;
+                }
+            });
+        }
 
         // Create the new alert conditions
-        manager.createExternalServiceAlertConditions(config.getExternalServiceAlertConditions());
+        call("alerts_external_service_conditions", "POST", new Callable<Void>()
+        {
+            public Void call()
+            {
+                manager.createExternalServiceAlertConditions(config.getExternalServiceAlertConditions());
+                return null;
+            }
+        });
+        phase.stop();
     }
 }
\ No newline at end of file
@@ -18,15 +18,30 @@ package com.opsmatters.newrelic.commands.alerts.conditions;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.LinkedHashMap;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
+import com.opsmatters.newrelic.api.NewRelicInfraApi;
 import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
+import com.opsmatters.newrelic.api.model.alerts.conditions.InfraAlertCondition;
 import com.opsmatters.newrelic.batch.AlertManager;
 import com.opsmatters.newrelic.batch.model.AlertConfiguration;
 import com.opsmatters.newrelic.commands.Opt;
 import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.BulkOperation;
+import com.opsmatters.newrelic.commands.PipelinedImport;
+import com.opsmatters.newrelic.commands.ParallelFetcher;
+import com.opsmatters.newrelic.commands.ImportPlan;
+import com.opsmatters.newrelic.clients.RetryPolicy;
+import com.opsmatters.newrelic.metrics.Timer;
 
 /**
  * Implements the New Relic command line option to import a set of infrastructure metric alert conditions.
@@ -41,6 +56,12 @@ public class ImportInfraMetricAlertConditions extends BaseCommand
     private String filename;
     private String worksheet;
     private boolean delete = false;
+    private boolean pipeline = false;
+    private boolean reconcile = false;
+    private boolean plan = false;
+    private int parallelism = BulkOperation.DEFAULT_PARALLELISM;
+    private double rateLimit = BulkOperation.DEFAULT_RATE_LIMIT;
+    private int retries = RetryPolicy.DEFAULT_RETRIES;
 
     /**
      * Default constructor.
@@ -69,6 +90,12 @@ public class ImportInfraMetricAlertConditions extends BaseCommand
         addOption(Opt.FILE, "The name of the file containing alert conditions");
         addOption(Opt.SHEET);
         addOption(Opt.DELETE, "Delete any existing alert condition with that name before creating the new alert condition");
+        addOption(Opt.PIPELINE);
+        addOption(Opt.RECONCILE);
+        addOption(Opt.PLAN);
+        addOption(Opt.PARALLELISM);
+        addOption(Opt.RATE_LIMIT);
+        addOption(Opt.RETRIES);
     }
 
     /**
@@ -96,6 +123,46 @@ public class ImportInfraMetricAlertConditions extends BaseCommand
         {
             delete = true;
         }
+
+        // Pipeline option
+        if(hasOption(cli, Opt.PIPELINE, false))
+        {
+            pipeline = true;
+        }
+
+        // Reconcile option
+        if(hasOption(cli, Opt.RECONCILE, false))
+        {
+            reconcile = true;
+        }
+
+        // Plan option
+        if(hasOption(cli, Opt.PLAN, false))
+        {
+            reconcile = true;
+            plan = true;
+        }
+
+        // Parallelism option
+        if(hasOption(cli, Opt.PARALLELISM, false))
+        {
+            parallelism = getIntOptionValue(cli, Opt.PARALLELISM, 1);
+            logOptionValue(Opt.PARALLELISM, parallelism);
+        }
+
+        // Rate limit option
+        if(hasOption(cli, Opt.RATE_LIMIT, false))
+        {
+            rateLimit = getDoubleOptionValue(cli, Opt.RATE_LIMIT, 0.0d);
+            logOptionValue(Opt.RATE_LIMIT, rateLimit);
+        }
+
+        // Retries option
+        if(hasOption(cli, Opt.RETRIES, false))
+        {
+            retries = getIntOptionValue(cli, Opt.RETRIES, 0);
+            logOptionValue(Opt.RETRIES, retries);
+        }
     }
 
     /**
@@ -103,12 +170,62 @@ public class ImportInfraMetricAlertConditions extends BaseCommand
      */
     protected void execute()
     {
-        AlertManager manager = new AlertManager(getApiKey(), verbose());
-        AlertConfiguration config = new AlertConfiguration();
+        final AlertManager manager = getAlertManager();
 
         // Get the lists of policies
-        List<AlertPolicy> policies = manager.getAlertPolicies();
+        Timer.Context phase = startPhase(LOOKUP);
+        final List<AlertPolicy> policies = call("alerts_policies", "GET", new Callable<List<AlertPolicy>>()
+        {
+            public List<AlertPolicy> call()
+            {
+                return manager.getAlertPolicies();
+            }
+        });
+        phase.stop();
+
+        // Create the infra metric alert conditions as the rows are read from the file
+        if(pipeline && !reconcile)
+        {
+            BulkOperation<InfraAlertCondition> operation = new BulkOperation<InfraAlertCondition>("import infra metric alert condition")
+            {
+                protected void process(InfraAlertCondition condition)
+                {
+                    List<InfraAlertCondition> conditions = Collections.singletonList(condition);
+                    if(delete)
+                        manager.deleteInfraAlertConditions(conditions);
+                    manager.createInfraAlertConditions(conditions);
+                }
+
+                protected String describe(InfraAlertCondition condition)
+                {
+                    return condition.getName();
+                }
+            };
+
+            phase = startPhase(CREATE);
+            try
+            {
+                new PipelinedImport<InfraAlertCondition>()
+                {
+                    protected List<InfraAlertCondition> read(String name, InputStream is) throws IOException
+                    {
+                        return new ArrayList<InfraAlertCondition>(manager.readInfraMetricAlertConditions(policies, name, null, is));
+                    }
+                }.execute(filename, worksheet, operation.timer(apiTimer("infra_alerts_conditions", "POST"))
+                    .parallelism(parallelism).rateLimit(rateLimit).retries(retries).deadline(getDeadline()).idempotent(false)
+                    .circuitBreaker(circuitBreaker("infra_alerts_conditions")));
+            }
+            catch(IOException e)
+            {
+                logger.severe("Unable to read infra metric alert condition file: "+e.getClass().getName()+": "+e.getMessage());
+            }
+            phase.stop();
+            return;
+        }
+
+        final AlertConfiguration config = new AlertConfiguration();
 
+        phase = startPhase(READ);
         try
         {
             // Read the alert conditions
@@ -119,12 +236,120 @@ public class ImportInfraMetricAlertConditions extends BaseCommand
         {
             logger.severe("Unable to read infra metric alert condition file: "+e.getClass().getName()+": "+e.getMessage());
         }
+        phase.stop();
+
+        // Apply only the differences between the file and the existing alert conditions
+        if(reconcile)
+        {
+            final NewRelicInfraApi infraApi = getInfraApi();
+            ImportPlan<InfraAlertCondition> changes = new ImportPlan<InfraAlertCondition>("alert condition")
+            {
+                protected String key(InfraAlertCondition condition)
+                {
+                    return condition.getName();
+                }
+
+                protected Object group(InfraAlertCondition condition)
+                {
+                    return condition.getPolicyId();
+                }
+
+                protected String describe(InfraAlertCondition condition)
+                {
+                    return condition.getPolicyId()+" - "+condition.getName();
+                }
+
+                protected void create(InfraAlertCondition condition)
+                {
+                    manager.createInfraAlertConditions(Collections.singletonList(condition));
+                }
+
+                protected void delete(InfraAlertCondition condition)
+                {
+                    infraApi.infraAlertConditions().delete(condition.getId());
+                }
+
+                protected void update(InfraAlertCondition current, InfraAlertCondition desired)
+                {
+                    desired.setId(current.getId());
+                    infraApi.infraAlertConditions().update(desired);
+                }
+            }.endpoint("infra_alerts_conditions").circuitBreaker(circuitBreaker("infra_alerts_conditions"))
+                .deadline(getDeadline());
+
+            // Get the policies of the alert conditions in the file
+            List<InfraAlertCondition> conditions = new ArrayList<InfraAlertCondition>(config.getInfraMetricAlertConditions());
+            Set<Long> policyIds = new HashSet<Long>();
+            for(InfraAlertCondition condition : conditions)
+                policyIds.add(condition.getPolicyId());
+            List<AlertPolicy> filePolicies = new ArrayList<AlertPolicy>();
+            for(AlertPolicy policy : policies)
+            {
+                if(policyIds.contains(policy.getId()))
+                    filePolicies.add(policy);
+            }
+
+            // Compare with the existing alert conditions for those policies
+            phase = startPhase(FETCH);
+            ParallelFetcher fetcher = new ParallelFetcher(parallelism)
+                .deadline(getDeadline())
+                .timer(apiTimer("infra_alerts_conditions", "GET"))
+                .circuitBreaker(circuitBreaker("infra_alerts_conditions"));
+            try
+            {
+                // Key the existing alert conditions on the policy they were fetched for
+                List<List<InfraAlertCondition>> fetched = fetcher.fetchGroups(filePolicies, new ParallelFetcher.Fetch<AlertPolicy,InfraAlertCondition>()
+                {
+                    public List<InfraAlertCondition> fetch(List<AlertPolicy> batch)
+                    {
+                        return new ArrayList<InfraAlertCondition>(manager.getInfraMetricAlertConditions(batch));
+                    }
+                });
+                Map<Long,List<InfraAlertCondition>> current = new LinkedHashMap<Long,List<InfraAlertCondition>>();
+                for(int i = 0; i < filePolicies.size(); i++)
+                    current.put(filePolicies.get(i).getId(), fetched.get(i));
+                changes.compute(current, conditions, delete);
+            }
+            finally
+            {
+                fetcher.shutdown();
+                phase.stop();
+            }
+
+            changes.log(verbose());
+            if(!plan)
+            {
+                phase = startPhase(CREATE);
+                changes.apply(parallelism, rateLimit, retries);
+                phase.stop();
+            }
+            return;
+        }
+
+        phase = startPhase(CREATE);
 
         // Delete the existing alert conditions
         if(delete)
-            manager.deleteInfraAlertConditions(config.getInfraMetricAlertConditions());
+        {
+            call("infra_alerts_conditions", "DELETE", new Callable<Void>()
+            {
+                public Void call()
+                {
+                    manager.deleteInfraAlertConditions(config.getInfraMetricAlertConditions());
+                    return null;
+                }
+            });
+        }
 
         // Create the new alert conditions
-        manager.createInfraAlertConditions(config.getInfraMetricAlertConditions());
+        call("infra_alerts_conditions", "POST", new Callable<Void>()
+        {
+            public Void call()
+            {
+                manager.createInfraAlertConditions(config.getInfraMetricAlertConditions());
+                return null;
+            }
+        });
+        phase.stop();
     }
 }
\ No newline at end of file
@@ -18,15 +18,30 @@ package com.opsmatters.newrelic.commands.alerts.conditions;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.LinkedHashMap;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
+import com.opsmatters.newrelic.api.NewRelicApi;
 import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
+import com.opsmatters.newrelic.api.model.alerts.conditions.NrqlAlertCondition;
 import com.opsmatters.newrelic.batch.AlertManager;
 import com.opsmatters.newrelic.batch.model.AlertConfiguration;
 import com.opsmatters.newrelic.commands.Opt;
 import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.BulkOperation;
+import com.opsmatters.newrelic.commands.PipelinedImport;
+import com.opsmatters.newrelic.commands.ParallelFetcher;
+import com.opsmatters.newrelic.commands.ImportPlan;
+import com.opsmatters.newrelic.clients.RetryPolicy;
+import com.opsmatters.newrelic.metrics.Timer;
 
 /**
  * Implements the New Relic command line option to import a set of NRQL alert conditions.
@@ -41,6 +56,12 @@ public class ImportNrqlAlertConditions extends BaseCommand
     private String filename;
     private String worksheet;
     private boolean delete = false;
+    private boolean pipeline = false;
+    private boolean reconcile = false;
+    private boolean plan = false;
+    private int parallelism = BulkOperation.DEFAULT_PARALLELISM;
+    private double rateLimit = BulkOperation.DEFAULT_RATE_LIMIT;
+    private int retries = RetryPolicy.DEFAULT_RETRIES;
 
     /**
      * Default constructor.
@@ -69,6 +90,12 @@ public class ImportNrqlAlertConditions extends BaseCommand
         addOption(Opt.FILE, "The name of the file containing alert conditions");
         addOption(Opt.SHEET);
         addOption(Opt.DELETE, "Delete any existing alert condition with that name before creating the new alert condition");
+        addOption(Opt.PIPELINE);
+        addOption(Opt.RECONCILE);
+        addOption(Opt.PLAN);
+        addOption(Opt.PARALLELISM);
+        addOption(Opt.RATE_LIMIT);
+        addOption(Opt.RETRIES);
     }
 
     /**
@@ -96,6 +123,46 @@ public class ImportNrqlAlertConditions extends BaseCommand
         {
             delete = true;
         }
+
+        // Pipeline option
+        if(hasOption(cli, Opt.PIPELINE, false))
+        {
+            pipeline = true;
+        }
+
+        // Reconcile option
+        if(hasOption(cli, Opt.RECONCILE, false))
+        {
+            reconcile = true;
+        }
+
+        // Plan option
+        if(hasOption(cli, Opt.PLAN, false))
+        {
+            reconcile = true;
+            plan = true;
+        }
+
+        // Parallelism option
+        if(hasOption(cli, Opt.PARALLELISM, false))
+        {
+            parallelism = getIntOptionValue(cli, Opt.PARALLELISM, 1);
+            logOptionValue(Opt.PARALLELISM, parallelism);
+        }
+
+        // Rate limit option
+        if(hasOption(cli, Opt.RATE_LIMIT, false))
+        {
+            rateLimit = getDoubleOptionValue(cli, Opt.RATE_LIMIT, 0.0d);
+            logOptionValue(Opt.RATE_LIMIT, rateLimit);
+        }
+
+        // Retries option
+        if(hasOption(cli, Opt.RETRIES, false))
+        {
+            retries = getIntOptionValue(cli, Opt.RETRIES, 0);
+            logOptionValue(Opt.RETRIES, retries);
+        }
     }
 
     /**
@@ -103,12 +170,62 @@ public class ImportNrqlAlertConditions extends BaseCommand
      */
     protected void execute()
     {
-        AlertManager manager = new AlertManager(getApiKey(), verbose());
-        AlertConfiguration config = new AlertConfiguration();
+        final AlertManager manager = getAlertManager();
 
         // Get the lists of policies
-        List<AlertPolicy> policies = manager.getAlertPolicies();
+        Timer.Context phase = startPhase(LOOKUP);
+        final List<AlertPolicy> policies = call("alerts_policies", "GET", new Callable<List<AlertPolicy>>()
+        {
+            public List<AlertPolicy> call()
+            {
+                return manager.getAlertPolicies();
+            }
+        });
+        phase.stop();
+
+        // Create the NRQL alert conditions as the rows are read from the file
+        if(pipeline && !reconcile)
+        {
+            BulkOperation<NrqlAlertCondition> operation = new BulkOperation<NrqlAlertCondition>("import NRQL alert condition")
+            {
+                protected void process(NrqlAlertCondition condition)
+                {
+                    List<NrqlAlertCondition> conditions = Collections.singletonList(condition);
+                    if(delete)
+                        manager.deleteNrqlAlertConditions(conditions);
+                    manager.createNrqlAlertConditions(conditions);
+                }
+
+                protected String describe(NrqlAlertCondition condition)
+                {
+                    return condition.getName();
+                }
+            };
+
+            phase = startPhase(CREATE);
+            try
+            {
+                new PipelinedImport<NrqlAlertCondition>()
+                {
+                    protected List<NrqlAlertCondition> read(String name, InputStream is) throws IOException
+                    {
+                        return manager.readNrqlAlertConditions(policies, name, null, is);
+                    }
+                }.execute(filename, worksheet, operation.timer(apiTimer("alerts_nrql_conditions", "POST"))
+                    .parallelism(parallelism).rateLimit(rateLimit).retries(retries).deadline(getDeadline()).idempotent(false)
+                    .circuitBreaker(circuitBreaker("alerts_nrql_conditions")));
+            }
+            catch(IOException e)
+            {
+                logger.severe("Unable to read NRQL alert condition file: "+e.getClass().getName()+": "+e.getMessage());
+            }
+            phase.stop();
+            return;
+        }
+
+        final AlertConfiguration config = new AlertConfiguration();
 
+        phase = startPhase(READ);
         try
         {
             // Read the alert conditions
@@ -119,12 +236,120 @@ public class ImportNrqlAlertConditions extends BaseCommand
         {
             logger.severe("Unable to read NRQL alert condition file: "+e.getClass().getName()+": "+e.getMessage());
         }
+        phase.stop();
+
+        // Apply only the differences between the file and the existing alert conditions
+        if(reconcile)
+        {
+            final NewRelicApi api = getApi();
+            ImportPlan<NrqlAlertCondition> changes = new ImportPlan<NrqlAlertCondition>("alert condition")
+            {
+                protected String key(NrqlAlertCondition condition)
+                {
+                    return condition.getName();
+                }
+
+                protected Object group(NrqlAlertCondition condition)
+                {
+                    return condition.getPolicyId();
+                }
+
+                protected String describe(NrqlAlertCondition condition)
+                {
+                    return condition.getPolicyId()+" - "+condition.getName();
+                }
+
+                protected void create(NrqlAlertCondition condition)
+                {
+                    manager.createNrqlAlertConditions(Collections.singletonList(condition));
+                }
+
+                protected void delete(NrqlAlertCondition condition)
+                {
+                    api.nrqlAlertConditions().delete(condition.getId());
+                }
+
+                protected void update(NrqlAlertCondition current, NrqlAlertCondition desired)
+                {
+                    desired.setId(current.getId());
+                    api.nrqlAlertConditions().update(desired);
+                }
+            }.endpoint("alerts_nrql_conditions").circuitBreaker(circuitBreaker("alerts_nrql_conditions"))
+                .deadline(getDeadline());
+
+            // Get the policies of the alert conditions in the file
+            List<NrqlAlertCondition> conditions = config.getNrqlAlertConditions();
+            Set<Long> policyIds = new HashSet<Long>();
+            for(NrqlAlertCondition condition : conditions)
+                policyIds.add(condition.getPolicyId());
+            List<AlertPolicy> filePolicies = new ArrayList<AlertPolicy>();
+            for(AlertPolicy policy : policies)
+            {
+                if(policyIds.contains(policy.getId()))
+                    filePolicies.add(policy);
+            }
+
+            // Compare with the existing alert conditions for those policies
+            phase = startPhase(FETCH);
+            ParallelFetcher fetcher = new ParallelFetcher(parallelism)
+                .deadline(getDeadline())
+                .timer(apiTimer("alerts_nrql_conditions", "GET"))
+                .circuitBreaker(circuitBreaker("alerts_nrql_conditions"));
+            try
+            {
+                // Key the existing alert conditions on the policy they were fetched for
+                List<List<NrqlAlertCondition>> fetched = fetcher.fetchGroups(filePolicies, new ParallelFetcher.Fetch<AlertPolicy,NrqlAlertCondition>()
+                {
+                    public List<NrqlAlertCondition> fetch(List<AlertPolicy> batch)
+                    {
+                        return manager.getNrqlAlertConditions(batch);
+                    }
+                });
+                Map<Long,List<NrqlAlertCondition>> current = new LinkedHashMap<Long,List<NrqlAlertCondition>>();
+                for(int i = 0; i < filePolicies.size(); i++)
+                    current.put(filePolicies.get(i).getId(), fetched.get(i));
+                changes.compute(current, conditions, delete);
+            }
+            finally
+            {
+                fetcher.shutdown();
+                phase.stop();
+            }
+
+            changes.log(verbose());
+            if(!plan)
+            {
+                phase = startPhase(CREATE);
+                changes.apply(parallelism, rateLimit, retries);
+                phase.stop();
+            }
+            return;
+        }
+
+        phase = startPhase(CREATE);
 
         // Delete the existing alert conditions
         if(delete)
-            manager.deleteNrqlAlertConditions(config.getNrqlAlertConditions());
+        {
+            call("alerts_nrql_conditions", "DELETE", new Callable<Void>()
+            {
+                public Void call()
+                {
+                    manager.deleteNrqlAlertConditions(config.getNrqlAlertConditions());
+                    return null;
+                }
+            });
+        }
 
         // Create the new alert conditions
-        manager.createNrqlAlertConditions(config.getNrqlAlertConditions());
+        call("alerts_nrql_conditions", "POST", new Callable<Void>()
+        {
+            public Void call()
+            {
+                manager.createNrqlAlertConditions(config.getNrqlAlertConditions());
+                return null;
+            }
+        });
+        phase.stop();
     }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -64,6 +65,7 @@ public class ListApplicationAlertConditions extends BaseCommand
     {
         super.options();
         addOption(Opt.APPLICATION_ID);
+        addOutputOptions();
     }
 
     /**
@@ -85,7 +87,7 @@ public class ListApplicationAlertConditions extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting application: "+applicationId);
@@ -93,7 +95,7 @@ public class ListApplicationAlertConditions extends BaseCommand
         Optional<Application> application = Optional.absent();
         try
         {
-            application = api.applications().show(applicationId);
+            application = getApplication(applicationId);
         }
         catch(ErrorResponseException e)
         {
@@ -106,14 +108,20 @@ public class ListApplicationAlertConditions extends BaseCommand
             return;
         }
 
-        Application a = application.get();
+        final Application a = application.get();
 
         if(verbose())
             logger.info("Getting alert conditions for application: "+a.getId());
-        Collection<AlertCondition> conditions = api.alertEntityConditions().list(a);
+        Collection<AlertCondition> conditions = call("alerts_entity_conditions", "GET", new Callable<Collection<AlertCondition>>()
+        {
+            public Collection<AlertCondition> call()
+            {
+                return api.alertEntityConditions().list(a);
+            }
+        });
         if(verbose())
             logger.info("Found "+conditions.size()+" alert conditions");
         for(AlertCondition condition : conditions)
-            logger.info(condition.getId()+" - "+condition.getName()+" ("+condition.getType()+")");
+            print(condition, condition.getId()+" - "+condition.getName()+" ("+condition.getType()+")");
     }
 }
\ No newline at end of file
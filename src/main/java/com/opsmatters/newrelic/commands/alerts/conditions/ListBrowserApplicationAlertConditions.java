@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -64,6 +65,7 @@ public class ListBrowserApplicationAlertConditions extends BaseCommand
     {
         super.options();
         addOption(Opt.APPLICATION_ID, "The id of the browser application");
+        addOutputOptions();
     }
 
     /**
@@ -85,7 +87,7 @@ public class ListBrowserApplicationAlertConditions extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting browser application: "+applicationId);
@@ -93,7 +95,13 @@ public class ListBrowserApplicationAlertConditions extends BaseCommand
         Optional<BrowserApplication> application = Optional.absent();
         try
         {
-            application = api.browserApplications().show(applicationId);
+            application = call("browser_applications", "GET", new Callable<Optional<BrowserApplication>>()
+            {
+                public Optional<BrowserApplication> call()
+                {
+                    return api.browserApplications().show(applicationId);
+                }
+            });
         }
         catch(ErrorResponseException e)
         {
@@ -106,14 +114,20 @@ public class ListBrowserApplicationAlertConditions extends BaseCommand
             return;
         }
 
-        BrowserApplication a = application.get();
+        final BrowserApplication a = application.get();
 
         if(verbose())
             logger.info("Getting alert conditions for browser application: "+a.getId());
-        Collection<AlertCondition> conditions = api.alertEntityConditions().list(a);
+        Collection<AlertCondition> conditions = call("alerts_entity_conditions", "GET", new Callable<Collection<AlertCondition>>()
+        {
+            public Collection<AlertCondition> call()
+            {
+                return api.alertEntityConditions().list(a);
+            }
+        });
         if(verbose())
             logger.info("Found "+conditions.size()+" alert conditions");
         for(AlertCondition condition : conditions)
-            logger.info(condition.getId()+" - "+condition.getName()+" ("+condition.getType()+")");
+            print(condition, condition.getId()+" - "+condition.getName()+" ("+condition.getType()+")");
     }
 }
\ No newline at end of file
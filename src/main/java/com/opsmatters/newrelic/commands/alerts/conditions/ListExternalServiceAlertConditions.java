@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -63,6 +64,7 @@ public class ListExternalServiceAlertConditions extends BaseCommand
     {
         super.options();
         addOption(Opt.POLICY_ID);
+        addOutputOptions();
     }
 
     /**
@@ -84,23 +86,29 @@ public class ListExternalServiceAlertConditions extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
             return;
         }
 
-        AlertPolicy p = policy.get();
-        Collection<ExternalServiceAlertCondition> conditions = api.externalServiceAlertConditions().list(p.getId());
+        final AlertPolicy p = policy.get();
+        Collection<ExternalServiceAlertCondition> conditions = call("alerts_external_service_conditions", "GET", new Callable<Collection<ExternalServiceAlertCondition>>()
+        {
+            public Collection<ExternalServiceAlertCondition> call()
+            {
+                return api.externalServiceAlertConditions().list(p.getId());
+            }
+        });
         if(verbose())
             logger.info("Found "+conditions.size()+" external service alert conditions");
         for(ExternalServiceAlertCondition condition : conditions)
-            logger.info(condition.getId()+" - "+condition.getName()+" ("+condition.getType()+")");
+            print(condition, condition.getId()+" - "+condition.getName()+" ("+condition.getType()+")");
     }
 }
\ No newline at end of file
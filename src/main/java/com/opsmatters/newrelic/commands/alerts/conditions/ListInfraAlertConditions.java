@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -64,6 +65,7 @@ public class ListInfraAlertConditions extends BaseCommand
     {
         super.options();
         addOption(Opt.POLICY_ID);
+        addOutputOptions();
     }
 
     /**
@@ -85,24 +87,30 @@ public class ListInfraAlertConditions extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
-        NewRelicInfraApi infraApi = getInfraApi();
+        final NewRelicApi api = getApi();
+        final NewRelicInfraApi infraApi = getInfraApi();
 
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
             return;
         }
 
-        AlertPolicy p = policy.get();
-        Collection<InfraAlertCondition> conditions = infraApi.infraAlertConditions().list(p.getId());
+        final AlertPolicy p = policy.get();
+        Collection<InfraAlertCondition> conditions = call("infra_alerts_conditions", "GET", new Callable<Collection<InfraAlertCondition>>()
+        {
+            public Collection<InfraAlertCondition> call()
+            {
+                return infraApi.infraAlertConditions().list(p.getId());
+            }
+        });
         if(verbose())
             logger.info("Found "+conditions.size()+" infra alert conditions");
         for(InfraAlertCondition condition : conditions)
-            logger.info(condition.getId()+" - "+condition.getName());
+            print(condition, condition.getId()+" - "+condition.getName());
     }
 }
\ No newline at end of file
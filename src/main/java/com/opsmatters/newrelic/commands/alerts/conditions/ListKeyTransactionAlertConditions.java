@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -64,6 +65,7 @@ public class ListKeyTransactionAlertConditions extends BaseCommand
     {
         super.options();
         addOption(Opt.TRANSACTION_ID);
+        addOutputOptions();
     }
 
     /**
@@ -85,7 +87,7 @@ public class ListKeyTransactionAlertConditions extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting key transaction: "+transactionId);
@@ -93,7 +95,13 @@ public class ListKeyTransactionAlertConditions extends BaseCommand
         Optional<KeyTransaction> transaction = Optional.absent();
         try
         {
-            transaction = api.keyTransactions().show(transactionId);
+            transaction = call("key_transactions", "GET", new Callable<Optional<KeyTransaction>>()
+            {
+                public Optional<KeyTransaction> call()
+                {
+                    return api.keyTransactions().show(transactionId);
+                }
+            });
         }
         catch(ErrorResponseException e)
         {
@@ -106,14 +114,20 @@ public class ListKeyTransactionAlertConditions extends BaseCommand
             return;
         }
 
-        KeyTransaction t = transaction.get();
+        final KeyTransaction t = transaction.get();
 
         if(verbose())
             logger.info("Getting alert conditions for key transaction: "+t.getId());
-        Collection<AlertCondition> conditions = api.alertEntityConditions().list(t);
+        Collection<AlertCondition> conditions = call("alerts_entity_conditions", "GET", new Callable<Collection<AlertCondition>>()
+        {
+            public Collection<AlertCondition> call()
+            {
+                return api.alertEntityConditions().list(t);
+            }
+        });
         if(verbose())
             logger.info("Found "+conditions.size()+" alert conditions");
         for(AlertCondition condition : conditions)
-            logger.info(condition.getId()+" - "+condition.getName()+" ("+condition.getType()+")");
+            print(condition, condition.getId()+" - "+condition.getName()+" ("+condition.getType()+")");
     }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -64,6 +65,7 @@ public class ListPluginAlertConditions extends BaseCommand
     {
         super.options();
         addOption(Opt.PLUGIN_ID);
+        addOutputOptions();
     }
 
     /**
@@ -85,7 +87,7 @@ public class ListPluginAlertConditions extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting plugin: "+pluginId);
@@ -93,7 +95,13 @@ public class ListPluginAlertConditions extends BaseCommand
         Optional<Plugin> plugin = Optional.absent();
         try
         {
-            plugin = api.plugins().show(pluginId, false);
+            plugin = call("plugins", "GET", new Callable<Optional<Plugin>>()
+            {
+                public Optional<Plugin> call()
+                {
+                    return api.plugins().show(pluginId, false);
+                }
+            });
         }
         catch(ErrorResponseException e)
         {
@@ -106,14 +114,20 @@ public class ListPluginAlertConditions extends BaseCommand
             return;
         }
 
-        Plugin pl = plugin.get();
+        final Plugin pl = plugin.get();
 
         if(verbose())
             logger.info("Getting alert conditions for plugin: "+pl.getId());
-        Collection<AlertCondition> conditions = api.alertEntityConditions().list(pl);
+        Collection<AlertCondition> conditions = call("alerts_entity_conditions", "GET", new Callable<Collection<AlertCondition>>()
+        {
+            public Collection<AlertCondition> call()
+            {
+                return api.alertEntityConditions().list(pl);
+            }
+        });
         if(verbose())
             logger.info("Found "+conditions.size()+" alert conditions");
         for(AlertCondition condition : conditions)
-            logger.info(condition.getId()+" - "+condition.getName()+" ("+condition.getType()+")");
+            print(condition, condition.getId()+" - "+condition.getName()+" ("+condition.getType()+")");
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -103,7 +104,7 @@ public class RemoveBrowserApplicationAlertCondition extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting browser application: "+applicationId);
@@ -111,7 +112,13 @@ public class RemoveBrowserApplicationAlertCondition extends BaseCommand
         Optional<BrowserApplication> application = Optional.absent();
         try
         {
-            application = api.browserApplications().show(applicationId);
+            application = call("browser_applications", "GET", new Callable<Optional<BrowserApplication>>()
+            {
+                public Optional<BrowserApplication> call()
+                {
+                    return api.browserApplications().show(applicationId);
+                }
+            });
         }
         catch(ErrorResponseException e)
         {
@@ -124,35 +131,48 @@ public class RemoveBrowserApplicationAlertCondition extends BaseCommand
             return;
         }
 
-        BrowserApplication a = application.get();
+        final BrowserApplication a = application.get();
 
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
             return;
         }
 
-        AlertPolicy p = policy.get();
+        final AlertPolicy p = policy.get();
 
         if(verbose())
             logger.info("Getting alert condition: "+conditionId);
 
-        Optional<AlertCondition> condition = api.alertConditions().show(p.getId(), conditionId);
+        Optional<AlertCondition> condition = call("alerts_conditions", "GET", new Callable<Optional<AlertCondition>>()
+        {
+            public Optional<AlertCondition> call()
+            {
+                return api.alertConditions().show(p.getId(), conditionId);
+            }
+        });
         if(!condition.isPresent())
         {
             logger.severe("Unable to find alert condition: "+conditionId);
             return;
         }
 
-        AlertCondition c = condition.get();
+        final AlertCondition c = condition.get();
 
         if(verbose())
             logger.info("Removing alert condition "+c.getId()+" from browser application "+a.getId());
-        api.alertEntityConditions().remove(a, c.getId());
+        call("alerts_entity_conditions", "DELETE", new Callable<Void>()
+        {
+            public Void call()
+            {
+                api.alertEntityConditions().remove(a, c.getId());
+                return null;
+            }
+        });
         logger.info("Removed condition: "+c.getId()+" - "+c.getName()+" from browser application: "+a.getId()+" - "+a.getName());
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.conditions;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -103,7 +104,7 @@ public class RemoveKeyTransactionAlertCondition extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting key transaction: "+transactionId);
@@ -111,7 +112,13 @@ public class RemoveKeyTransactionAlertCondition extends BaseCommand
         Optional<KeyTransaction> transaction = Optional.absent();
         try
         {
-            transaction = api.keyTransactions().show(transactionId);
+            transaction = call("key_transactions", "GET", new Callable<Optional<KeyTransaction>>()
+            {
+                public Optional<KeyTransaction> call()
+                {
+                    return api.keyTransactions().show(transactionId);
+                }
+            });
         }
         catch(ErrorResponseException e)
         {
@@ -124,35 +131,48 @@ public class RemoveKeyTransactionAlertCondition extends BaseCommand
             return;
         }
 
-        KeyTransaction t = transaction.get();
+        final KeyTransaction t = transaction.get();
 
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
             return;
         }
 
-        AlertPolicy p = policy.get();
+        final AlertPolicy p = policy.get();
 
         if(verbose())
             logger.info("Getting alert condition: "+conditionId);
 
-        Optional<AlertCondition> condition = api.alertConditions().show(p.getId(), conditionId);
+        Optional<AlertCondition> condition = call("alerts_conditions", "GET", new Callable<Optional<AlertCondition>>()
+        {
+            public Optional<AlertCondition> call()
+            {
+                return api.alertConditions().show(p.getId(), conditionId);
+            }
+        });
         if(!condition.isPresent())
         {
             logger.severe("Unable to find alert condition: "+conditionId);
             return;
         }
 
-        AlertCondition c = condition.get();
+        final AlertCondition c = condition.get();
 
         if(verbose())
             logger.info("Removing alert condition "+c.getId()+" from transaction "+t.getId());
-        api.alertEntityConditions().remove(t, c.getId());
+        call("alerts_entity_conditions", "DELETE", new Callable<Void>()
+        {
+            public Void call()
+            {
+                api.alertEntityConditions().remove(t, c.getId());
+                return null;
+            }
+        });
         logger.info("Removed condition: "+c.getId()+" - "+c.getName()+" from transaction: "+t.getId()+" - "+t.getName());
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.policies;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.NewRelicApi;
@@ -96,17 +97,26 @@ public class CreateAlertPolicy extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        // The cached list will be out of date after the changes
+        invalidateCachedList(ALERT_POLICIES);
+
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Creating alert policy: "+name);
 
-        AlertPolicy p = AlertPolicy.builder()
+        final AlertPolicy p = AlertPolicy.builder()
             .name(name)
             .incidentPreference(incidentPreference)
             .build();
 
-        AlertPolicy policy = api.alertPolicies().create(p).get();
+        AlertPolicy policy = call("alerts_policies", "POST", new Callable<AlertPolicy>()
+        {
+            public AlertPolicy call()
+            {
+                return api.alertPolicies().create(p).get();
+            }
+        });
         logger.info("Created alert policy: "+policy.getId()+" - "+policy.getName());
     }
 }
\ No newline at end of file
@@ -17,12 +17,15 @@
 package com.opsmatters.newrelic.commands.alerts.policies;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.NewRelicApi;
 import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
+import com.opsmatters.newrelic.clients.RetryPolicy;
 import com.opsmatters.newrelic.commands.Opt;
 import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.BulkOperation;
 
 /**
  * Implements the New Relic command line option to delete alert policies.  
@@ -35,6 +38,9 @@ public class DeleteAlertPolicies extends BaseCommand
     private static final String NAME = "delete_alert_policies";
 
     private String name;
+    private int parallelism = BulkOperation.DEFAULT_PARALLELISM;
+    private double rateLimit = BulkOperation.DEFAULT_RATE_LIMIT;
+    private int retries = RetryPolicy.DEFAULT_RETRIES;
 
     /**
      * Default constructor.
@@ -61,6 +67,9 @@ public class DeleteAlertPolicies extends BaseCommand
     {
         super.options();
         addOption(Opt.NAME, "The name of the alert policies");
+        addOption(Opt.PARALLELISM);
+        addOption(Opt.RATE_LIMIT);
+        addOption(Opt.RETRIES);
     }
 
     /**
@@ -75,6 +84,27 @@ public class DeleteAlertPolicies extends BaseCommand
             name = getOptionValue(cli, Opt.NAME);
             logOptionValue(Opt.NAME, name);
         }
+
+        // Parallelism option
+        if(hasOption(cli, Opt.PARALLELISM, false))
+        {
+            parallelism = getIntOptionValue(cli, Opt.PARALLELISM, 1);
+            logOptionValue(Opt.PARALLELISM, parallelism);
+        }
+
+        // Rate limit option
+        if(hasOption(cli, Opt.RATE_LIMIT, false))
+        {
+            rateLimit = getDoubleOptionValue(cli, Opt.RATE_LIMIT, 0.0d);
+            logOptionValue(Opt.RATE_LIMIT, rateLimit);
+        }
+
+        // Retries option
+        if(hasOption(cli, Opt.RETRIES, false))
+        {
+            retries = getIntOptionValue(cli, Opt.RETRIES, 0);
+            logOptionValue(Opt.RETRIES, retries);
+        }
     }
 
     /**
@@ -82,11 +112,20 @@ public class DeleteAlertPolicies extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        // The cached list will be out of date after the changes
+        invalidateCachedList(ALERT_POLICIES);
+
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting alert policies: "+name);
-        Collection<AlertPolicy> policies = api.alertPolicies().list(name);
+        Collection<AlertPolicy> policies = call("alerts_policies", "GET", new Callable<Collection<AlertPolicy>>()
+        {
+            public Collection<AlertPolicy> call()
+            {
+                return api.alertPolicies().list(name);
+            }
+        });
         if(policies.size() == 0)
         {
             logger.severe("Unable to find alert policies: "+name);
@@ -96,10 +135,19 @@ public class DeleteAlertPolicies extends BaseCommand
         if(verbose())
             logger.info("Deleting "+policies.size()+" alert policies: "+name);
 
-        for(AlertPolicy policy : policies)
+        new BulkOperation<AlertPolicy>("delete alert policy")
         {
-            api.alertPolicies().delete(policy.getId());
-            logger.info("Deleted alert policy: "+policy.getId()+" - "+policy.getName());
-        }
+            protected void process(AlertPolicy policy)
+            {
+                api.alertPolicies().delete(policy.getId());
+                logger.info("Deleted alert policy: "+describe(policy));
+            }
+
+            protected String describe(AlertPolicy policy)
+            {
+                return policy.getId()+" - "+policy.getName();
+            }
+        }.parallelism(parallelism).rateLimit(rateLimit).retries(retries).deadline(getDeadline())
+            .circuitBreaker(circuitBreaker("alerts_policies")).execute(policies);
     }
 }
\ No newline at end of file
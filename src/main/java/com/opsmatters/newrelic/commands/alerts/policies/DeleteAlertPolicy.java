@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.policies;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -82,12 +83,15 @@ public class DeleteAlertPolicy extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        // The cached list will be out of date after the changes
+        invalidateCachedList(ALERT_POLICIES);
+
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting alert policy: "+id);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(id);
+        Optional<AlertPolicy> policy = getAlertPolicy(id);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+id);
@@ -97,8 +101,15 @@ public class DeleteAlertPolicy extends BaseCommand
         if(verbose())
             logger.info("Deleting alert policy: "+id);
 
-        AlertPolicy p = policy.get();
-        api.alertPolicies().delete(p.getId());
+        final AlertPolicy p = policy.get();
+        call("alerts_policies", "DELETE", new Callable<Void>()
+        {
+            public Void call()
+            {
+                api.alertPolicies().delete(p.getId());
+                return null;
+            }
+        });
         logger.info("Deleted alert policy: "+p.getId()+" - "+p.getName());
     }
 }
\ No newline at end of file
@@ -20,6 +20,8 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
@@ -28,6 +30,8 @@ import com.opsmatters.newrelic.batch.AlertManager;
 import com.opsmatters.core.documents.Workbook;
 import com.opsmatters.newrelic.commands.Opt;
 import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.ParallelFetcher;
+import com.opsmatters.newrelic.metrics.Timer;
 
 /**
  * Implements the New Relic command line option to export a set of alert policies.
@@ -104,12 +108,41 @@ public class ExportAlertPolicies extends BaseCommand
      */
     protected void execute()
     {
-        AlertManager manager = new AlertManager(getApiKey(), verbose());
+        final AlertManager manager = getAlertManager();
+        ParallelFetcher fetcher = new ParallelFetcher(2)
+            .deadline(getDeadline());
 
-        // Get the channels and policies
-        List<AlertChannel> channels = manager.getAlertChannels();
-        List<AlertPolicy> policies = manager.getAlertPolicies();
+        List<AlertChannel> channels = null;
+        List<AlertPolicy> policies = null;
 
+        Timer.Context phase = startPhase(FETCH);
+        try
+        {
+            // Get the channels in the background while getting the policies
+            Future<List<AlertChannel>> channelList = submit(fetcher, "alerts_channels", new Callable<List<AlertChannel>>()
+            {
+                public List<AlertChannel> call()
+                {
+                    return manager.getAlertChannels();
+                }
+            });
+
+            policies = call("alerts_policies", "GET", new Callable<List<AlertPolicy>>()
+            {
+                public List<AlertPolicy> call()
+                {
+                    return manager.getAlertPolicies();
+                }
+            });
+            channels = ParallelFetcher.get(channelList);
+        }
+        finally
+        {
+            fetcher.shutdown();
+            phase.stop();
+        }
+
+        phase = startPhase(WRITE);
         try
         {
             Workbook workbook = null;
@@ -122,5 +155,6 @@ public class ExportAlertPolicies extends BaseCommand
         {
             logger.severe("Unable to write alert policy file: "+e.getClass().getName()+": "+e.getMessage());
         }
+        phase.stop();
     }
 }
\ No newline at end of file
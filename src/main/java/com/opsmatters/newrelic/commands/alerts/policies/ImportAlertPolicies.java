@@ -18,7 +18,11 @@ package com.opsmatters.newrelic.commands.alerts.policies;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.model.alerts.policies.AlertPolicy;
@@ -27,6 +31,10 @@ import com.opsmatters.newrelic.batch.AlertManager;
 import com.opsmatters.newrelic.batch.model.AlertConfiguration;
 import com.opsmatters.newrelic.commands.Opt;
 import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.BulkOperation;
+import com.opsmatters.newrelic.commands.PipelinedImport;
+import com.opsmatters.newrelic.clients.RetryPolicy;
+import com.opsmatters.newrelic.metrics.Timer;
 
 /**
  * Implements the New Relic command line option to import a set of alert policies.
@@ -41,6 +49,10 @@ public class ImportAlertPolicies extends BaseCommand
     private String filename;
     private String worksheet;
     private boolean delete = false;
+    private boolean pipeline = false;
+    private int parallelism = BulkOperation.DEFAULT_PARALLELISM;
+    private double rateLimit = BulkOperation.DEFAULT_RATE_LIMIT;
+    private int retries = RetryPolicy.DEFAULT_RETRIES;
 
     /**
      * Default constructor.
@@ -69,6 +81,10 @@ public class ImportAlertPolicies extends BaseCommand
         addOption(Opt.FILE, "The name of the file containing alert policies");
         addOption(Opt.SHEET);
         addOption(Opt.DELETE, "Delete any existing alert policy with that name before creating the new alert policy");
+        addOption(Opt.PIPELINE);
+        addOption(Opt.PARALLELISM);
+        addOption(Opt.RATE_LIMIT);
+        addOption(Opt.RETRIES);
     }
 
     /**
@@ -96,6 +112,33 @@ public class ImportAlertPolicies extends BaseCommand
         {
             delete = true;
         }
+
+        // Pipeline option
+        if(hasOption(cli, Opt.PIPELINE, false))
+        {
+            pipeline = true;
+        }
+
+        // Parallelism option
+        if(hasOption(cli, Opt.PARALLELISM, false))
+        {
+            parallelism = getIntOptionValue(cli, Opt.PARALLELISM, 1);
+            logOptionValue(Opt.PARALLELISM, parallelism);
+        }
+
+        // Rate limit option
+        if(hasOption(cli, Opt.RATE_LIMIT, false))
+        {
+            rateLimit = getDoubleOptionValue(cli, Opt.RATE_LIMIT, 0.0d);
+            logOptionValue(Opt.RATE_LIMIT, rateLimit);
+        }
+
+        // Retries option
+        if(hasOption(cli, Opt.RETRIES, false))
+        {
+            retries = getIntOptionValue(cli, Opt.RETRIES, 0);
+            logOptionValue(Opt.RETRIES, retries);
+        }
     }
 
     /**
@@ -103,12 +146,64 @@ public class ImportAlertPolicies extends BaseCommand
      */
     protected void execute()
     {
-        AlertManager manager = new AlertManager(getApiKey(), verbose());
-        AlertConfiguration config = new AlertConfiguration();
+        // The cached list will be out of date after the changes
+        invalidateCachedList(ALERT_POLICIES);
+
+        final AlertManager manager = getAlertManager();
+        Timer.Context phase = null;
 
         // Get the list of channels
-        List<AlertChannel> channels = manager.getAlertChannels();
+        final List<AlertChannel> channels = getCachedList(ALERT_CHANNELS, AlertChannel.class, "alerts_channels", new Callable<List<AlertChannel>>()
+        {
+            public List<AlertChannel> call()
+            {
+                return manager.getAlertChannels();
+            }
+        });
+
+        // Create the alert policies as the rows are read from the file
+        if(pipeline)
+        {
+            BulkOperation<AlertPolicy> operation = new BulkOperation<AlertPolicy>("import alert policy")
+            {
+                protected void process(AlertPolicy policy)
+                {
+                    List<AlertPolicy> policys = Collections.singletonList(policy);
+                    if(delete)
+                        manager.deleteAlertPolicies(policys);
+                    manager.createAlertPolicies(policys);
+                }
+
+                protected String describe(AlertPolicy policy)
+                {
+                    return policy.getName();
+                }
+            };
+
+            phase = startPhase(CREATE);
+            try
+            {
+                new PipelinedImport<AlertPolicy>()
+                {
+                    protected List<AlertPolicy> read(String name, InputStream is) throws IOException
+                    {
+                        return manager.readAlertPolicies(channels, name, null, is);
+                    }
+                }.execute(filename, worksheet, operation.timer(apiTimer("alerts_policies", "POST"))
+                    .parallelism(parallelism).rateLimit(rateLimit).retries(retries).deadline(getDeadline()).idempotent(false)
+                    .circuitBreaker(circuitBreaker("alerts_policies")));
+            }
+            catch(IOException e)
+            {
+                logger.severe("Unable to read alert policy file: "+e.getClass().getName()+": "+e.getMessage());
+            }
+            phase.stop();
+            return;
+        }
+
+        final AlertConfiguration config = new AlertConfiguration();
 
+        phase = startPhase(READ);
         try
         {
             // Read the alert policies
@@ -119,12 +214,32 @@ public class ImportAlertPolicies extends BaseCommand
         {
             logger.severe("Unable to read alert policy file: "+e.getClass().getName()+": "+e.getMessage());
         }
+        phase.stop();
+
+        phase = startPhase(CREATE);
 
         // Delete the existing alert policies
         if(delete)
-            manager.deleteAlertPolicies(config.getAlertPolicies());
+        {
+            call("alerts_policies", "DELETE", new Callable<Void>()
+            {
+                public Void call()
+                {
+                    manager.deleteAlertPolicies(config.getAlertPolicies());
+                    return null;
+                }
+            });
+        }
 
         // Create the new alert policies
-        manager.createAlertPolicies(config.getAlertPolicies());
+        call("alerts_policies", "POST", new Callable<Void>()
+        {
+            public Void call()
+            {
+                manager.createAlertPolicies(config.getAlertPolicies());
+                return null;
+            }
+        });
+        phase.stop();
     }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.alerts.policies;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.NewRelicApi;
@@ -61,6 +62,7 @@ public class ListAlertPolicies extends BaseCommand
     {
         super.options();
         addOption(Opt.NAME, "The name of the alert policies");
+        addOutputOptions();
     }
 
     /**
@@ -82,14 +84,20 @@ public class ListAlertPolicies extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting alert policies: "+name);
-        Collection<AlertPolicy> policies = api.alertPolicies().list(name);
+        Collection<AlertPolicy> policies = call("alerts_policies", "GET", new Callable<Collection<AlertPolicy>>()
+        {
+            public Collection<AlertPolicy> call()
+            {
+                return api.alertPolicies().list(name);
+            }
+        });
         if(verbose())
             logger.info("Found "+policies.size()+" alert policies");
         for(AlertPolicy policy : policies)
-            logger.info(policy.getId()+" - "+policy.getName()+" ("+policy.getIncidentPreference()+")");
+            print(policy, policy.getId()+" - "+policy.getName()+" ("+policy.getIncidentPreference()+")");
     }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.alerts.policies;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import com.google.common.base.Optional;
 import org.apache.commons.cli.CommandLine;
@@ -63,6 +64,7 @@ public class ListAlertPolicyChannels extends BaseCommand
     {
         super.options();
         addOption(Opt.POLICY_ID);
+        addOutputOptions();
     }
 
     /**
@@ -84,11 +86,11 @@ public class ListAlertPolicyChannels extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
@@ -97,10 +99,16 @@ public class ListAlertPolicyChannels extends BaseCommand
 
         if(verbose())
             logger.info("Getting alert channels for policy: "+policyId);
-        Collection<AlertChannel> channels = api.alertChannels().list(policyId);
+        Collection<AlertChannel> channels = call("alerts_channels", "GET", new Callable<Collection<AlertChannel>>()
+        {
+            public Collection<AlertChannel> call()
+            {
+                return api.alertChannels().list(policyId);
+            }
+        });
         if(verbose())
             logger.info("Found "+channels.size()+" alert channels for policy: "+policyId);
         for(AlertChannel channel : channels)
-            logger.info(channel.getId()+" - "+channel.getName()+" ("+channel.getType()+")");
+            print(channel, channel.getId()+" - "+channel.getName()+" ("+channel.getType()+")");
     }
 }
\ No newline at end of file
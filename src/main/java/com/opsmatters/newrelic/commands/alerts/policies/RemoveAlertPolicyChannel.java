@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.alerts.policies;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -92,12 +93,12 @@ public class RemoveAlertPolicyChannel extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting alert policy: "+policyId);
 
-        Optional<AlertPolicy> policy = api.alertPolicies().show(policyId);
+        Optional<AlertPolicy> policy = getAlertPolicy(policyId);
         if(!policy.isPresent())
         {
             logger.severe("Unable to find alert policy: "+policyId);
@@ -107,18 +108,25 @@ public class RemoveAlertPolicyChannel extends BaseCommand
         if(verbose())
             logger.info("Getting alert channel: "+channelId);
 
-        Optional<AlertChannel> channel = api.alertChannels().show(channelId);
+        Optional<AlertChannel> channel = getAlertChannel(channelId);
         if(!channel.isPresent())
         {
             logger.severe("Unable to find alert channel: "+channelId);
             return;
         }
 
-        AlertPolicy p = policy.get();
-        AlertChannel c = channel.get();
+        final AlertPolicy p = policy.get();
+        final AlertChannel c = channel.get();
         if(verbose())
             logger.info("Removing alert channel "+c.getId()+" from policy "+p.getId());
-        api.alertPolicyChannels().delete(p.getId(), c.getId());
+        call("alerts_policy_channels", "DELETE", new Callable<Void>()
+        {
+            public Void call()
+            {
+                api.alertPolicyChannels().delete(p.getId(), c.getId());
+                return null;
+            }
+        });
         logger.info("Removed alert channel: "+c.getId()+" - "+c.getName()+" from policy: "+p.getId()+" - "+p.getName());
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.applications;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -83,7 +84,7 @@ public class DeleteApplication extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting application: "+id);
@@ -91,7 +92,7 @@ public class DeleteApplication extends BaseCommand
         Optional<Application> application = Optional.absent();
         try
         {
-            application = api.applications().show(id);
+            application = getApplication(id);
         }
         catch(ErrorResponseException e)
         {
@@ -107,8 +108,19 @@ public class DeleteApplication extends BaseCommand
         if(verbose())
             logger.info("Deleting  application: "+id);
 
-        Application a = application.get();
-        api.applications().delete(a.getId());
+        final Application a = application.get();
+        call("applications", "DELETE", new Callable<Void>()
+        {
+            public Void call()
+            {
+                api.applications().delete(a.getId());
+                return null;
+            }
+        });
+
+        // The cached list is out of date after the delete
+        invalidateCachedList(APPLICATIONS);
+
         logger.info("Deleted application: "+a.getId()+" - "+a.getName());
     }
 }
\ No newline at end of file
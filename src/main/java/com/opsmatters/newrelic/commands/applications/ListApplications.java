@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.applications;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.NewRelicApi;
@@ -61,6 +62,7 @@ public class ListApplications extends BaseCommand
     {
         super.options();
         addOption(Opt.NAME, "The name of the applications");
+        addOutputOptions();
     }
 
     /**
@@ -82,14 +84,20 @@ public class ListApplications extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting applications: "+name);
-        Collection<Application> applications = api.applications().list(name);
+        Collection<Application> applications = call("applications", "GET", new Callable<Collection<Application>>()
+        {
+            public Collection<Application> call()
+            {
+                return api.applications().list(name);
+            }
+        });
         if(verbose())
             logger.info("Found "+applications.size()+" applications");
         for(Application application : applications)
-            logger.info(application.getId()+" - "+application.getName());
+            print(application, application.getId()+" - "+application.getName());
     }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.applications;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.NewRelicApi;
@@ -61,6 +62,7 @@ public class ListBrowserApplications extends BaseCommand
     {
         super.options();
         addOption(Opt.NAME, "The name of the browser applications");
+        addOutputOptions();
     }
 
     /**
@@ -82,14 +84,20 @@ public class ListBrowserApplications extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting browser applications: "+name);
-        Collection<BrowserApplication> applications = api.browserApplications().list(name);
+        Collection<BrowserApplication> applications = call("browser_applications", "GET", new Callable<Collection<BrowserApplication>>()
+        {
+            public Collection<BrowserApplication> call()
+            {
+                return api.browserApplications().list(name);
+            }
+        });
         if(verbose())
             logger.info("Found "+applications.size()+" browser applications");
         for(BrowserApplication application : applications)
-            logger.info(application.getId()+" - "+application.getName());
+            print(application, application.getId()+" - "+application.getName());
     }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.applications;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.NewRelicApi;
@@ -61,6 +62,7 @@ public class ListMobileApplications extends BaseCommand
     {
         super.options();
         addOption(Opt.NAME, "The name of the mobile applications");
+        addOutputOptions();
     }
 
     /**
@@ -82,14 +84,20 @@ public class ListMobileApplications extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting mobile applications: "+name);
-        Collection<MobileApplication> applications = api.mobileApplications().list(name);
+        Collection<MobileApplication> applications = call("mobile_applications", "GET", new Callable<Collection<MobileApplication>>()
+        {
+            public Collection<MobileApplication> call()
+            {
+                return api.mobileApplications().list(name);
+            }
+        });
         if(verbose())
             logger.info("Found "+applications.size()+" mobile applications");
         for(MobileApplication application : applications)
-            logger.info(application.getId()+" - "+application.getName());
+            print(application, application.getId()+" - "+application.getName());
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.deployments;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -120,7 +121,7 @@ public class CreateDeployment extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting application: "+applicationId);
@@ -128,7 +129,7 @@ public class CreateDeployment extends BaseCommand
         Optional<Application> application = Optional.absent();
         try
         {
-            application = api.applications().show(applicationId);
+            application = getApplication(applicationId);
         }
         catch(ErrorResponseException e)
         {
@@ -144,15 +145,21 @@ public class CreateDeployment extends BaseCommand
         if(verbose())
             logger.info("Creating deployment: "+revision);
 
-        Deployment d = Deployment.builder()
+        final Deployment d = Deployment.builder()
             .revision(revision)
             .changelog(changelog)
             .description(description)
             .user(user)
             .build();
 
-        Application a = application.get();
-        Deployment deployment = api.deployments().create(a.getId(), d).get();
+        final Application a = application.get();
+        Deployment deployment = call("deployments", "POST", new Callable<Deployment>()
+        {
+            public Deployment call()
+            {
+                return api.deployments().create(a.getId(), d).get();
+            }
+        });
         logger.info("Created deployment: "+deployment.getId()+" - "+deployment.getRevision());
     }
 }
\ No newline at end of file
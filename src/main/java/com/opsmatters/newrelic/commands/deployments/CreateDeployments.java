@@ -0,0 +1,333 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.commands.deployments;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.logging.Logger;
+import org.apache.commons.cli.CommandLine;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonParseException;
+import com.opsmatters.newrelic.api.NewRelicApi;
+import com.opsmatters.newrelic.api.model.applications.Application;
+import com.opsmatters.newrelic.api.model.deployments.Deployment;
+import com.opsmatters.newrelic.commands.Opt;
+import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.BulkOperation;
+import com.opsmatters.newrelic.commands.ParallelFetcher;
+import com.opsmatters.newrelic.clients.RetryPolicy;
+import com.opsmatters.newrelic.metrics.Timer;
+
+/**
+ * Implements the New Relic command line option to create the deployments of a release across many applications.
+ * <P>
+ * The deployments are read from a manifest file in JSON Lines format, with one deployment on each line, eg.
+ * <CODE>{"application":"checkout","revision":"1.4.2","changelog":"...","user":"..."}</CODE>
+ * where the application is given by name or id.
+ * All the applications are resolved with a single list call,
+ * and the deployments are then created concurrently so that they are recorded at nearly the same time.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class CreateDeployments extends BaseCommand
+{
+    private static final Logger logger = Logger.getLogger(CreateDeployments.class.getName());
+    private static final String NAME = "create_deployments";
+
+    private String filename;
+    private String revision;
+    private String changelog;
+    private String description;
+    private String user;
+    private int parallelism = ParallelFetcher.DEFAULT_PARALLELISM;
+    private double rateLimit = BulkOperation.DEFAULT_RATE_LIMIT;
+    private int retries = RetryPolicy.DEFAULT_RETRIES;
+
+    /**
+     * Represents a deployment of an application read from the manifest.
+     */
+    private static class Marker
+    {
+        private String application;
+        private Application resolved;
+        private Deployment deployment;
+
+        Marker(String application, Deployment deployment)
+        {
+            this.application = application;
+            this.deployment = deployment;
+        }
+    }
+
+    /**
+     * Default constructor.
+     */
+    public CreateDeployments()
+    {
+        options();
+    }
+
+    /**
+     * Returns the name of the command.
+     * @return The name of the command
+     */
+    public String getName()
+    {
+        return NAME;
+    }
+
+    /**
+     * Sets the options for the command.
+     */
+    @Override
+    protected void options()
+    {
+        super.options();
+        addOption(Opt.FILE, "The name of the manifest file containing the deployments");
+        addOption(Opt.REVISION, "The revision of the deployments that do not give a revision");
+        addOption(Opt.CHANGELOG, "The changelog of the deployments that do not give a changelog");
+        addOption(Opt.DESCRIPTION, "The description of the deployments that do not give a description");
+        addOption(Opt.USER, "The user of the deployments that do not give a user");
+        addOption(Opt.PARALLELISM, "The number of deployments to create concurrently, defaults to "+ParallelFetcher.DEFAULT_PARALLELISM);
+        addOption(Opt.RATE_LIMIT);
+        addOption(Opt.RETRIES);
+    }
+
+    /**
+     * Parse the command-specific options.
+     * @param cli The parsed command line
+     */
+    protected void parse(CommandLine cli)
+    {
+        // Filename option
+        if(hasOption(cli, Opt.FILE, true))
+        {
+            filename = getOptionValue(cli, Opt.FILE);
+            logOptionValue(Opt.FILE, filename);
+        }
+
+        // Revision option
+        if(hasOption(cli, Opt.REVISION, false))
+        {
+            revision = getOptionValue(cli, Opt.REVISION);
+            logOptionValue(Opt.REVISION, revision);
+        }
+
+        // Changelog option
+        if(hasOption(cli, Opt.CHANGELOG, false))
+        {
+            changelog = getOptionValue(cli, Opt.CHANGELOG);
+            logOptionValue(Opt.CHANGELOG, changelog);
+        }
+
+        // Description option
+        if(hasOption(cli, Opt.DESCRIPTION, false))
+        {
+            description = getOptionValue(cli, Opt.DESCRIPTION);
+            logOptionValue(Opt.DESCRIPTION, description);
+        }
+
+        // User option
+        if(hasOption(cli, Opt.USER, false))
+        {
+            user = getOptionValue(cli, Opt.USER);
+            logOptionValue(Opt.USER, user);
+        }
+
+        // Parallelism option
+        if(hasOption(cli, Opt.PARALLELISM, false))
+        {
+            parallelism = getIntOptionValue(cli, Opt.PARALLELISM, 1);
+            logOptionValue(Opt.PARALLELISM, parallelism);
+        }
+
+        // Rate limit option
+        if(hasOption(cli, Opt.RATE_LIMIT, false))
+        {
+            rateLimit = getDoubleOptionValue(cli, Opt.RATE_LIMIT, 0.0d);
+            logOptionValue(Opt.RATE_LIMIT, rateLimit);
+        }
+
+        // Retries option
+        if(hasOption(cli, Opt.RETRIES, false))
+        {
+            retries = getIntOptionValue(cli, Opt.RETRIES, 0);
+            logOptionValue(Opt.RETRIES, retries);
+        }
+    }
+
+    /**
+     * Create the deployments.
+     */
+    protected void execute()
+    {
+        final NewRelicApi api = getApi();
+
+        // Read the deployments from the manifest
+        List<Marker> markers = null;
+        Timer.Context phase = startPhase(READ);
+        try
+        {
+            markers = readManifest();
+        }
+        catch(IOException e)
+        {
+            logger.severe("Unable to read deployment manifest: "+e.getClass().getName()+": "+e.getMessage());
+            return;
+        }
+        finally
+        {
+            phase.stop();
+        }
+
+        if(verbose())
+            logger.info("Read "+markers.size()+" deployments from manifest: "+filename);
+
+        // Resolve the applications by name or id using a single list call
+        List<Application> applications = getCachedList(APPLICATIONS, Application.class, "applications", new Callable<List<Application>>()
+        {
+            public List<Application> call()
+            {
+                return new ArrayList<Application>(api.applications().list((String)null));
+            }
+        });
+
+        Map<String,Application> names = new HashMap<String,Application>();
+        Map<String,Application> ids = new HashMap<String,Application>();
+        for(Application application : applications)
+        {
+            if(application.getName() != null && !names.containsKey(application.getName()))
+                names.put(application.getName(), application);
+            if(application.getId() != null)
+                ids.put(application.getId().toString(), application);
+        }
+
+        List<Marker> resolved = new ArrayList<Marker>();
+        for(Marker marker : markers)
+        {
+            marker.resolved = ids.get(marker.application);
+            if(marker.resolved == null)
+                marker.resolved = names.get(marker.application);
+            if(marker.resolved != null)
+                resolved.add(marker);
+            else
+                logger.severe("Unable to find application: "+marker.application);
+        }
+
+        // Create the deployments concurrently
+        phase = startPhase(CREATE);
+        BulkOperation<Marker> operation = new BulkOperation<Marker>("create deployment")
+        {
+            protected void process(Marker marker)
+            {
+                Deployment deployment = api.deployments().create(marker.resolved.getId(), marker.deployment).get();
+                logger.info("Created deployment: "+deployment.getId()+" - "+deployment.getRevision()
+                    +" for application: "+marker.resolved.getId()+" - "+marker.resolved.getName());
+            }
+
+            protected String describe(Marker marker)
+            {
+                return marker.application;
+            }
+        };
+        operation.timer(apiTimer("deployments", "POST")).circuitBreaker(circuitBreaker("deployments"))
+            .parallelism(parallelism).rateLimit(rateLimit).retries(retries).deadline(getDeadline()).idempotent(false).execute(resolved);
+        phase.stop();
+
+        logger.info(String.format("Created %d of %d deployments: %d failed, %d applications not found",
+            operation.getSucceeded(), markers.size(), operation.getFailed(), markers.size()-resolved.size()));
+    }
+
+    /**
+     * Returns the deployments read from the manifest, using the options for any missing properties.
+     */
+    private List<Marker> readManifest() throws IOException
+    {
+        List<Marker> ret = new ArrayList<Marker>();
+        JsonParser parser = new JsonParser();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(filename), "UTF-8"));
+        try
+        {
+            String line = null;
+            int lineNumber = 0;
+            while((line = reader.readLine()) != null)
+            {
+                ++lineNumber;
+                line = line.trim();
+                if(line.length() == 0 || line.startsWith("#"))
+                    continue;
+
+                JsonElement element = null;
+                try
+                {
+                    element = parser.parse(line);
+                }
+                catch(JsonParseException e)
+                {
+                    throw new IOException("invalid JSON at line "+lineNumber+": "+e.getMessage(), e);
+                }
+
+                if(!element.isJsonObject())
+                    throw new IOException("expected a JSON object at line "+lineNumber);
+
+                JsonObject object = element.getAsJsonObject();
+                String application = getString(object, "application", null, lineNumber);
+                if(application == null)
+                    throw new IOException("missing application at line "+lineNumber);
+
+                String r = getString(object, "revision", revision, lineNumber);
+                if(r == null)
+                    throw new IOException("missing revision at line "+lineNumber);
+
+                ret.add(new Marker(application, Deployment.builder()
+                    .revision(r)
+                    .changelog(getString(object, "changelog", changelog, lineNumber))
+                    .description(getString(object, "description", description, lineNumber))
+                    .user(getString(object, "user", user, lineNumber))
+                    .build()));
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns the value of the given field of the object, or the default value if the field is missing.
+     */
+    private String getString(JsonObject object, String name, String defaultValue, int lineNumber) throws IOException
+    {
+        JsonElement value = object.get(name);
+        if(value == null || value.isJsonNull())
+            return defaultValue;
+        if(!value.isJsonPrimitive())
+            throw new IOException("invalid "+name+" at line "+lineNumber);
+        return value.getAsString();
+    }
+}
\ No newline at end of file
@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.deployments;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -93,7 +94,7 @@ public class DeleteDeployment extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting application: "+applicationId);
@@ -101,7 +102,7 @@ public class DeleteDeployment extends BaseCommand
         Optional<Application> application = Optional.absent();
         try
         {
-            application = api.applications().show(applicationId);
+            application = getApplication(applicationId);
         }
         catch(ErrorResponseException e)
         {
@@ -114,9 +115,15 @@ public class DeleteDeployment extends BaseCommand
             return;
         }
 
-        Application a = application.get();
+        final Application a = application.get();
 
-        Optional<Deployment> deployment = api.deployments().show(a.getId(), deploymentId);
+        Optional<Deployment> deployment = call("deployments", "GET", new Callable<Optional<Deployment>>()
+        {
+            public Optional<Deployment> call()
+            {
+                return api.deployments().show(a.getId(), deploymentId);
+            }
+        });
         if(!deployment.isPresent())
         {
             logger.severe("Unable to find deployment: "+deploymentId);
@@ -126,8 +133,15 @@ public class DeleteDeployment extends BaseCommand
         if(verbose())
             logger.info("Deleting deployment: "+deploymentId);
 
-        Deployment d = deployment.get();
-        api.deployments().delete(a.getId(), d.getId());
+        final Deployment d = deployment.get();
+        call("deployments", "DELETE", new Callable<Void>()
+        {
+            public Void call()
+            {
+                api.deployments().delete(a.getId(), d.getId());
+                return null;
+            }
+        });
         logger.info("Deleted deployment: "+d.getId()+" - "+d.getRevision());
     }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.deployments;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -64,6 +65,7 @@ public class ListDeployments extends BaseCommand
     {
         super.options();
         addOption(Opt.APPLICATION_ID);
+        addOutputOptions();
     }
 
     /**
@@ -85,7 +87,7 @@ public class ListDeployments extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting application: "+applicationId);
@@ -93,7 +95,7 @@ public class ListDeployments extends BaseCommand
         Optional<Application> application = Optional.absent();
         try
         {
-            application = api.applications().show(applicationId);
+            application = getApplication(applicationId);
         }
         catch(ErrorResponseException e)
         {
@@ -110,10 +112,16 @@ public class ListDeployments extends BaseCommand
 
         if(verbose())
             logger.info("Getting deployments: "+applicationId);
-        Collection<Deployment> deployments = api.deployments().list(applicationId);
+        Collection<Deployment> deployments = call("deployments", "GET", new Callable<Collection<Deployment>>()
+        {
+            public Collection<Deployment> call()
+            {
+                return api.deployments().list(applicationId);
+            }
+        });
         if(verbose())
             logger.info("Found "+deployments.size()+" deployments");
         for(Deployment deployment : deployments)
-            logger.info(deployment.getId()+" - "+deployment.getRevision()+" ("+deployment.getDescription()+")");
+            print(deployment, deployment.getId()+" - "+deployment.getRevision()+" ("+deployment.getDescription()+")");
     }
 }
\ No newline at end of file
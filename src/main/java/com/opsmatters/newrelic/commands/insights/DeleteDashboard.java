@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.insights;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -82,9 +83,15 @@ public class DeleteDashboard extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
-        Optional<Dashboard> dashboard = api.dashboards().show(id);
+        Optional<Dashboard> dashboard = call("dashboards", "GET", new Callable<Optional<Dashboard>>()
+        {
+            public Optional<Dashboard> call()
+            {
+                return api.dashboards().show(id);
+            }
+        });
         if(!dashboard.isPresent())
         {
             logger.severe("Unable to find dashboard: "+id);
@@ -94,8 +101,15 @@ public class DeleteDashboard extends BaseCommand
         if(verbose())
             logger.info("Deleting dashboard: "+id);
 
-        Dashboard d = dashboard.get();
-        api.dashboards().delete(d.getId());
+        final Dashboard d = dashboard.get();
+        call("dashboards", "DELETE", new Callable<Void>()
+        {
+            public Void call()
+            {
+                api.dashboards().delete(d.getId());
+                return null;
+            }
+        });
         logger.info("Deleted dashboard: "+d.getId()+" - "+d.getTitle());
     }
 }
\ No newline at end of file
@@ -16,19 +16,34 @@
 
 package com.opsmatters.newrelic.commands.insights;
 
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
+import com.google.common.base.Optional;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import com.opsmatters.newrelic.api.NewRelicApi;
 import com.opsmatters.newrelic.api.model.insights.Dashboard;
 import com.opsmatters.newrelic.api.model.insights.DashboardList;
 import com.opsmatters.newrelic.batch.DashboardManager;
 import com.opsmatters.newrelic.commands.Opt;
 import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.ParallelFetcher;
+import com.opsmatters.newrelic.metrics.Timer;
 
 /**
- * Implements the New Relic command line option to export a set of alert policies.
+ * Implements the New Relic command line option to export a set of dashboards.
+ * <P>
+ * The details of the dashboards matching the name are fetched concurrently.
+ * If the file is a JSON file, each dashboard is written to the file as soon as it has been fetched,
+ * so that the memory used does not depend on the number or size of the dashboards.
  * 
  * @author Gerald Curley (opsmatters)
  */
@@ -39,6 +54,7 @@ public class ExportDashboards extends BaseCommand
 
     private String filename;
     private String name;
+    private int parallelism = ParallelFetcher.DEFAULT_PARALLELISM;
 
     /**
      * Default constructor.
@@ -66,6 +82,7 @@ public class ExportDashboards extends BaseCommand
         super.options();
         addOption(Opt.FILE, "The name of the file to export the dashboards to");
         addOption(Opt.NAME, "The name of the dashboards (including wildcards)");
+        addOption(Opt.PARALLELISM, "The number of dashboards to fetch concurrently, defaults to "+ParallelFetcher.DEFAULT_PARALLELISM);
     }
 
     /**
@@ -87,6 +104,13 @@ public class ExportDashboards extends BaseCommand
             name = getOptionValue(cli, Opt.NAME);
             logOptionValue(Opt.NAME, name);
         }
+
+        // Parallelism option
+        if(hasOption(cli, Opt.PARALLELISM, false))
+        {
+            parallelism = getIntOptionValue(cli, Opt.PARALLELISM, 1);
+            logOptionValue(Opt.PARALLELISM, parallelism);
+        }
     }
 
     /**
@@ -94,18 +118,131 @@ public class ExportDashboards extends BaseCommand
      */
     protected void execute()
     {
-        DashboardManager manager = new DashboardManager(getApiKey(), verbose());
-        List<Dashboard> dashboards = manager.getDashboards(true);
-        DashboardList dashboardList = new DashboardList(dashboards);
+        final NewRelicApi api = getApi();
+        ParallelFetcher fetcher = new ParallelFetcher(parallelism)
+            .deadline(getDeadline())
+            .timer(apiTimer("dashboards", "GET"))
+            .circuitBreaker(circuitBreaker("dashboards"));
+        ParallelFetcher.Fetch<Dashboard,Dashboard> fetch = new ParallelFetcher.Fetch<Dashboard,Dashboard>()
+        {
+            public List<Dashboard> fetch(List<Dashboard> batch)
+            {
+                List<Dashboard> ret = new ArrayList<Dashboard>();
+                for(Dashboard dashboard : batch)
+                {
+                    Optional<Dashboard> details = api.dashboards().show(dashboard.getId());
+                    if(details.isPresent())
+                        ret.add(details.get());
+                }
+                return ret;
+            }
+        };
+
+        // Get the summaries of the dashboards, and only fetch the details of those matching the name
+        List<Dashboard> dashboards = null;
+        Timer.Context phase = startPhase(LOOKUP);
+        try
+        {
+            List<Dashboard> summaries = call("dashboards", "GET", new Callable<List<Dashboard>>()
+            {
+                public List<Dashboard> call()
+                {
+                    return new ArrayList<Dashboard>(api.dashboards().list((String)null));
+                }
+            });
+            dashboards = new DashboardList(summaries).list(name);
+        }
+        finally
+        {
+            phase.stop();
+        }
+
+        if(verbose())
+            logger.info("Found "+dashboards.size()+" dashboards");
+
+        // Write the dashboards to the JSON file as the details of each dashboard are fetched
+        if(filename.toLowerCase().endsWith(".json"))
+        {
+            phase = startPhase(FETCH);
+            try
+            {
+                long count = writeDashboards(fetcher, dashboards, fetch);
+                logger.info("Exported "+count+" dashboards to: "+filename);
+            }
+            catch(IOException e)
+            {
+                logger.severe("Unable to write dashboard file: "+e.getClass().getName()+": "+e.getMessage());
+            }
+            finally
+            {
+                fetcher.shutdown();
+                phase.stop();
+            }
+            return;
+        }
+
+        phase = startPhase(FETCH);
+        try
+        {
+            dashboards = fetcher.fetchAll(dashboards, fetch);
+        }
+        finally
+        {
+            fetcher.shutdown();
+            phase.stop();
+        }
 
+        DashboardManager manager = getDashboardManager();
+        phase = startPhase(WRITE);
         try
         {
-            manager.writeDashboards(dashboardList.list(name), filename,
+            manager.writeDashboards(dashboards, filename,
                 new FileWriter(filename));
         }
         catch(IOException e)
         {
             logger.severe("Unable to write dashboard file: "+e.getClass().getName()+": "+e.getMessage());
         }
+        phase.stop();
+    }
+
+    /**
+     * Fetches the details of the given dashboards concurrently and writes each one to the JSON file as it arrives.
+     * <P>
+     * The file contains an object with the array of dashboards, as returned by the API.
+     * @return The number of dashboards written
+     */
+    private long writeDashboards(ParallelFetcher fetcher, List<Dashboard> dashboards,
+        ParallelFetcher.Fetch<Dashboard,Dashboard> fetch) throws IOException
+    {
+        final Gson gson = new Gson();
+        final JsonWriter writer = new JsonWriter(new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(filename), "UTF-8"), 65536));
+        final long[] count = new long[1];
+        try
+        {
+            writer.setIndent("  ");
+            writer.beginObject();
+            writer.name("dashboards");
+            writer.beginArray();
+            fetcher.fetchEach(dashboards, fetch, new ParallelFetcher.Sink<Dashboard,Dashboard>()
+            {
+                public void accept(Dashboard summary, List<Dashboard> details)
+                {
+                    for(Dashboard dashboard : details)
+                    {
+                        gson.toJson(dashboard, Dashboard.class, writer);
+                        ++count[0];
+                    }
+                }
+            });
+            writer.endArray();
+            writer.endObject();
+        }
+        finally
+        {
+            writer.close();
+        }
+        return count[0];
     }
 }
\ No newline at end of file
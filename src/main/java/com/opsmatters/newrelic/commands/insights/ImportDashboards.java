@@ -18,15 +18,39 @@ package com.opsmatters.newrelic.commands.insights;
 
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
+import com.google.common.base.Optional;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.opsmatters.newrelic.api.NewRelicApi;
+import com.opsmatters.newrelic.api.model.insights.Dashboard;
+import com.opsmatters.newrelic.api.model.insights.widgets.Widget;
 import com.opsmatters.newrelic.batch.DashboardManager;
 import com.opsmatters.newrelic.batch.model.DashboardConfiguration;
 import com.opsmatters.newrelic.commands.Opt;
 import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.BulkOperation;
+import com.opsmatters.newrelic.commands.ImportPlan;
+import com.opsmatters.newrelic.commands.ParallelFetcher;
+import com.opsmatters.newrelic.commands.SnapshotArchive;
+import com.opsmatters.newrelic.clients.RetryPolicy;
+import com.opsmatters.newrelic.metrics.Timer;
 
 /**
  * Implements the New Relic command line option to import a set of dashboards.
+ * <P>
+ * With the reconcile option, each dashboard in the file is compared with the existing dashboard with the same title,
+ * and only new or changed dashboards are created or updated.
+ * A changed dashboard is updated in place, keeping its id and URL, and any unchanged widgets keep their ids.
  * 
  * @author Gerald Curley (opsmatters)
  */
@@ -35,8 +59,24 @@ public class ImportDashboards extends BaseCommand
     private static final Logger logger = Logger.getLogger(ImportDashboards.class.getName());
     private static final String NAME = "import_dashboards";
 
+    /**
+     * The properties of a dashboard that are assigned by New Relic and not compared.
+     */
+    private static final String[] DASHBOARD_IGNORED = {"id", "created_at", "updated_at", "ui_url", "api_url", "owner_email", "widgets"};
+
+    /**
+     * The properties of a widget that are assigned by New Relic and not compared.
+     */
+    private static final String[] WIDGET_IGNORED = {"widget_id", "account_id"};
+
     private String filename;
     private boolean delete = false;
+    private boolean reconcile = false;
+    private boolean plan = false;
+    private int parallelism = BulkOperation.DEFAULT_PARALLELISM;
+    private double rateLimit = BulkOperation.DEFAULT_RATE_LIMIT;
+    private int retries = RetryPolicy.DEFAULT_RETRIES;
+    private Gson gson = new Gson();
 
     /**
      * Default constructor.
@@ -64,6 +104,11 @@ public class ImportDashboards extends BaseCommand
         super.options();
         addOption(Opt.FILE, "The name of the file containing dashboards");
         addOption(Opt.DELETE, "Delete any existing dashboard with that name before creating the new dashboard");
+        addOption(Opt.RECONCILE);
+        addOption(Opt.PLAN);
+        addOption(Opt.PARALLELISM);
+        addOption(Opt.RATE_LIMIT);
+        addOption(Opt.RETRIES);
     }
 
     /**
@@ -84,6 +129,40 @@ public class ImportDashboards extends BaseCommand
         {
             delete = true;
         }
+
+        // Reconcile option
+        if(hasOption(cli, Opt.RECONCILE, false))
+        {
+            reconcile = true;
+        }
+
+        // Plan option
+        if(hasOption(cli, Opt.PLAN, false))
+        {
+            reconcile = true;
+            plan = true;
+        }
+
+        // Parallelism option
+        if(hasOption(cli, Opt.PARALLELISM, false))
+        {
+            parallelism = getIntOptionValue(cli, Opt.PARALLELISM, 1);
+            logOptionValue(Opt.PARALLELISM, parallelism);
+        }
+
+        // Rate limit option
+        if(hasOption(cli, Opt.RATE_LIMIT, false))
+        {
+            rateLimit = getDoubleOptionValue(cli, Opt.RATE_LIMIT, 0.0d);
+            logOptionValue(Opt.RATE_LIMIT, rateLimit);
+        }
+
+        // Retries option
+        if(hasOption(cli, Opt.RETRIES, false))
+        {
+            retries = getIntOptionValue(cli, Opt.RETRIES, 0);
+            logOptionValue(Opt.RETRIES, retries);
+        }
     }
 
     /**
@@ -91,9 +170,11 @@ public class ImportDashboards extends BaseCommand
      */
     protected void execute()
     {
-        DashboardManager manager = new DashboardManager(getApiKey(), verbose());
-        DashboardConfiguration config = new DashboardConfiguration();
+        final DashboardManager manager = getDashboardManager();
+        final DashboardConfiguration config = new DashboardConfiguration();
+        Timer.Context phase = null;
 
+        phase = startPhase(READ);
         try
         {
             // Read the dashboards
@@ -104,12 +185,232 @@ public class ImportDashboards extends BaseCommand
         {
             logger.severe("Unable to read dashboard file: "+e.getClass().getName()+": "+e.getMessage());
         }
+        phase.stop();
+
+        // Apply only the differences between the file and the existing dashboards
+        if(reconcile)
+        {
+            reconcile(config.getDashboards());
+            return;
+        }
+
+        phase = startPhase(CREATE);
 
         // Delete the existing dashboards
         if(delete)
-            manager.deleteDashboards(config.getDashboards());
+        {
+            call("dashboards", "DELETE", new Callable<Void>()
+            {
+                public Void call()
+                {
+                    manager.deleteDashboards(config.getDashboards());
+                    return null;
+                }
+            });
+        }
 
         // Create the new dashboards
-        manager.createDashboards(config.getDashboards());
+        call("dashboards", "POST", new Callable<Void>()
+        {
+            public Void call()
+            {
+                manager.createDashboards(config.getDashboards());
+                return null;
+            }
+        });
+        phase.stop();
+    }
+
+    /**
+     * Creates or updates only the dashboards that differ from the existing dashboards with the same titles.
+     * <P>
+     * The existing dashboards are never deleted, as the dashboards in the file are matched by title.
+     */
+    private void reconcile(List<Dashboard> dashboards)
+    {
+        final NewRelicApi api = getApi();
+        ImportPlan<Dashboard> changes = new ImportPlan<Dashboard>("dashboard")
+        {
+            protected String key(Dashboard dashboard)
+            {
+                return dashboard.getTitle();
+            }
+
+            protected Object group(Dashboard dashboard)
+            {
+                return dashboard.getTitle();
+            }
+
+            protected String describe(Dashboard dashboard)
+            {
+                return dashboard.getTitle();
+            }
+
+            protected void create(Dashboard dashboard)
+            {
+                api.dashboards().create(dashboard);
+            }
+
+            protected void delete(Dashboard dashboard)
+            {
+                api.dashboards().delete(dashboard.getId());
+            }
+
+            protected void update(Dashboard current, Dashboard desired)
+            {
+                api.dashboards().update(merge(current, desired));
+            }
+
+            protected List<String> differences(Dashboard current, Dashboard desired)
+            {
+                return ImportDashboards.this.differences(current, desired);
+            }
+        }.endpoint("dashboards").circuitBreaker(circuitBreaker("dashboards"))
+            .deadline(getDeadline());
+
+        // Get the summaries of the existing dashboards with the same titles as the dashboards in the file
+        Set<String> titles = new HashSet<String>();
+        for(Dashboard dashboard : dashboards)
+            titles.add(dashboard.getTitle());
+        List<Dashboard> summaries = new ArrayList<Dashboard>();
+        Timer.Context phase = startPhase(LOOKUP);
+        try
+        {
+            for(Dashboard dashboard : call("dashboards", "GET", new Callable<List<Dashboard>>()
+            {
+                public List<Dashboard> call()
+                {
+                    return new ArrayList<Dashboard>(api.dashboards().list((String)null));
+                }
+            }))
+            {
+                if(titles.contains(dashboard.getTitle()))
+                    summaries.add(dashboard);
+            }
+        }
+        finally
+        {
+            phase.stop();
+        }
+
+        // Compare with the details of the existing dashboards
+        phase = startPhase(FETCH);
+        ParallelFetcher fetcher = new ParallelFetcher(parallelism)
+            .deadline(getDeadline())
+            .timer(apiTimer("dashboards", "GET"))
+            .circuitBreaker(circuitBreaker("dashboards"));
+        try
+        {
+            changes.compute(fetcher.fetchAll(summaries, new ParallelFetcher.Fetch<Dashboard,Dashboard>()
+            {
+                public List<Dashboard> fetch(List<Dashboard> batch)
+                {
+                    List<Dashboard> ret = new ArrayList<Dashboard>();
+                    for(Dashboard dashboard : batch)
+                    {
+                        Optional<Dashboard> details = api.dashboards().show(dashboard.getId());
+                        if(details.isPresent())
+                            ret.add(details.get());
+                    }
+                    return ret;
+                }
+            }), dashboards, false);
+        }
+        finally
+        {
+            fetcher.shutdown();
+            phase.stop();
+        }
+
+        changes.log(verbose());
+        if(!plan)
+        {
+            phase = startPhase(CREATE);
+            changes.apply(parallelism, rateLimit, retries);
+            phase.stop();
+        }
+    }
+
+    /**
+     * Returns the names of the properties and the positions of the widgets that differ between the dashboards.
+     */
+    private List<String> differences(Dashboard current, Dashboard desired)
+    {
+        List<String> ret = new ArrayList<String>();
+        JsonObject currentJson = json(current, DASHBOARD_IGNORED);
+        JsonObject desiredJson = json(desired, DASHBOARD_IGNORED);
+        for(Map.Entry<String,JsonElement> field : desiredJson.entrySet())
+        {
+            JsonElement value = currentJson.get(field.getKey());
+            if(value == null || !SnapshotArchive.hash(value).equals(SnapshotArchive.hash(field.getValue())))
+                ret.add(field.getKey());
+        }
+
+        // Each widget in the file must match an existing widget, and the number of widgets must be the same
+        Map<String,Widget> widgets = widgets(current);
+        List<Widget> desiredWidgets = desired.getWidgets() != null ? desired.getWidgets() : new ArrayList<Widget>();
+        for(int i = 0; i < desiredWidgets.size(); i++)
+        {
+            if(widgets.remove(hash(desiredWidgets.get(i))) == null)
+                ret.add("widgets["+i+"]");
+        }
+        if(widgets.size() > 0)
+            ret.add("widgets");
+
+        return ret;
+    }
+
+    /**
+     * Returns the dashboard from the file with the id of the existing dashboard,
+     * and with any unchanged widgets replaced by the existing widgets so that they keep their ids.
+     */
+    private Dashboard merge(Dashboard current, Dashboard desired)
+    {
+        Map<String,Widget> widgets = widgets(current);
+        if(desired.getWidgets() != null)
+        {
+            List<Widget> merged = new ArrayList<Widget>();
+            for(Widget widget : desired.getWidgets())
+            {
+                Widget match = widgets.remove(hash(widget));
+                merged.add(match != null ? match : widget);
+            }
+            desired.setWidgets(merged);
+        }
+        desired.setId(current.getId());
+        return desired;
+    }
+
+    /**
+     * Returns the widgets of the given dashboard indexed by the hash of each widget.
+     */
+    private Map<String,Widget> widgets(Dashboard dashboard)
+    {
+        Map<String,Widget> ret = new HashMap<String,Widget>();
+        if(dashboard.getWidgets() != null)
+        {
+            for(Widget widget : dashboard.getWidgets())
+                ret.put(hash(widget), widget);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the hash of the given widget, excluding the properties assigned by New Relic.
+     */
+    private String hash(Widget widget)
+    {
+        return SnapshotArchive.hash(json(widget, WIDGET_IGNORED));
+    }
+
+    /**
+     * Returns the JSON of the given object without the given properties.
+     */
+    private JsonObject json(Object obj, String[] ignored)
+    {
+        JsonObject ret = gson.toJsonTree(obj).getAsJsonObject();
+        for(String name : ignored)
+            ret.remove(name);
+        return ret;
     }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.insights;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.NewRelicApi;
@@ -61,6 +62,7 @@ public class ListDashboards extends BaseCommand
     {
         super.options();
         addOption(Opt.NAME, "The name of the dashboards");
+        addOutputOptions();
     }
 
     /**
@@ -82,14 +84,20 @@ public class ListDashboards extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting dashboards: "+name);
-        Collection<Dashboard> dashboards = api.dashboards().list(name);
+        Collection<Dashboard> dashboards = call("dashboards", "GET", new Callable<Collection<Dashboard>>()
+        {
+            public Collection<Dashboard> call()
+            {
+                return api.dashboards().list(name);
+            }
+        });
         if(verbose())
             logger.info("Found "+dashboards.size()+" dashboards");
         for(Dashboard dashboard : dashboards)
-            logger.info(dashboard.getId()+" - "+dashboard.getTitle());
+            print(dashboard, dashboard.getId()+" - "+dashboard.getTitle());
     }
 }
\ No newline at end of file
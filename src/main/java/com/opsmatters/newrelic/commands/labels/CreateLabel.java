@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.labels;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -112,7 +113,7 @@ public class CreateLabel extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(applicationId != null)
         {
@@ -122,7 +123,7 @@ public class CreateLabel extends BaseCommand
             Optional<Application> application = Optional.absent();
             try
             {
-                application = api.applications().show(applicationId);
+                application = getApplication(applicationId);
             }
             catch(ErrorResponseException e)
             {
@@ -144,7 +145,7 @@ public class CreateLabel extends BaseCommand
             Optional<Server> server = Optional.absent();
             try
             {
-                server = api.servers().show(serverId);
+                server = getServer(serverId);
             }
             catch(ErrorResponseException e)
             {
@@ -161,14 +162,20 @@ public class CreateLabel extends BaseCommand
         if(verbose())
             logger.info("Creating label: "+Label.getKey(category, name));
 
-        Label l = Label.builder()
+        final Label l = Label.builder()
             .category(category)
             .name(name)
             .addApplicationLink(applicationId != null ? applicationId.longValue() : 0L)
             .addServerLink(serverId != null ? serverId.longValue() : 0L)
             .build();
 
-        Label label = api.labels().create(l).get();
+        Label label = call("labels", "POST", new Callable<Label>()
+        {
+            public Label call()
+            {
+                return api.labels().create(l).get();
+            }
+        });
         logger.info("Created label: "+label.getKey());
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.labels;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -108,12 +109,18 @@ public class DeleteLabel extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting label: "+key);
 
-        Optional<Label> label = api.labels().show(key);
+        Optional<Label> label = call("labels", "GET", new Callable<Optional<Label>>()
+        {
+            public Optional<Label> call()
+            {
+                return api.labels().show(key);
+            }
+        });
         if(!label.isPresent())
         {
             logger.severe("Unable to find label: "+key);
@@ -123,8 +130,15 @@ public class DeleteLabel extends BaseCommand
         if(verbose())
             logger.info("Deleting label: "+key);
 
-        Label l = label.get();
-        api.labels().delete(l.getKey());
+        final Label l = label.get();
+        call("labels", "DELETE", new Callable<Void>()
+        {
+            public Void call()
+            {
+                api.labels().delete(l.getKey());
+                return null;
+            }
+        });
         logger.info("Deleted label: "+l.getKey());
     }
 }
\ No newline at end of file
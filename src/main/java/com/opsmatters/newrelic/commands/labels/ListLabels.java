@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.labels;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -59,6 +60,7 @@ public class ListLabels extends BaseCommand
     protected void options()
     {
         super.options();
+        addOutputOptions();
     }
 
     /**
@@ -74,15 +76,21 @@ public class ListLabels extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting labels: ");
-        Collection<Label> labels = api.labels().list();
+        Collection<Label> labels = call("labels", "GET", new Callable<Collection<Label>>()
+        {
+            public Collection<Label> call()
+            {
+                return api.labels().list();
+            }
+        });
         if(verbose())
             logger.info("Found "+labels.size()+" labels");
         for(Label label : labels)
-            logger.info(label.getKey()
+            print(label, label.getKey()
                 +" (applications="+label.getLinks().getApplications()
                 +", servers="+label.getLinks().getServers()+")");
     }
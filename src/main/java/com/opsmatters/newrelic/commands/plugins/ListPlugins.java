@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.plugins;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.NewRelicApi;
@@ -61,6 +62,7 @@ public class ListPlugins extends BaseCommand
     {
         super.options();
         addOption(Opt.NAME, "The name of the plugins");
+        addOutputOptions();
     }
 
     /**
@@ -82,14 +84,20 @@ public class ListPlugins extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting plugins: "+name);
-        Collection<Plugin> plugins = api.plugins().list(name, false);
+        Collection<Plugin> plugins = call("plugins", "GET", new Callable<Collection<Plugin>>()
+        {
+            public Collection<Plugin> call()
+            {
+                return api.plugins().list(name, false);
+            }
+        });
         if(verbose())
             logger.info("Found "+plugins.size()+" plugins");
         for(Plugin plugin : plugins)
-            logger.info(plugin.getId()+" - "+plugin.getName());
+            print(plugin, plugin.getId()+" - "+plugin.getName());
     }
 }
\ No newline at end of file
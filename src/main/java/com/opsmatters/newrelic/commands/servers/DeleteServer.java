@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.servers;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -83,7 +84,7 @@ public class DeleteServer extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting server: "+id);
@@ -91,7 +92,7 @@ public class DeleteServer extends BaseCommand
         Optional<Server> server = Optional.absent();
         try
         {
-            server = api.servers().show(id);
+            server = getServer(id);
         }
         catch(ErrorResponseException e)
         {
@@ -107,8 +108,19 @@ public class DeleteServer extends BaseCommand
         if(verbose())
             logger.info("Deleting  server: "+id);
 
-        Server s = server.get();
-        api.servers().delete(s.getId());
+        final Server s = server.get();
+        call("servers", "DELETE", new Callable<Void>()
+        {
+            public Void call()
+            {
+                api.servers().delete(s.getId());
+                return null;
+            }
+        });
+
+        // The cached list is out of date after the delete
+        invalidateCachedList(SERVERS);
+
         logger.info("Deleted server: "+s.getId()+" - "+s.getName());
     }
 }
\ No newline at end of file
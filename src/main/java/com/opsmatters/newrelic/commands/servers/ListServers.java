@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.servers;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.NewRelicApi;
@@ -61,6 +62,7 @@ public class ListServers extends BaseCommand
     {
         super.options();
         addOption(Opt.NAME, "The name of the servers");
+        addOutputOptions();
     }
 
     /**
@@ -82,14 +84,20 @@ public class ListServers extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting servers: "+name);
-        Collection<Server> servers = api.servers().list(name);
+        Collection<Server> servers = call("servers", "GET", new Callable<Collection<Server>>()
+        {
+            public Collection<Server> call()
+            {
+                return api.servers().list(name);
+            }
+        });
         if(verbose())
             logger.info("Found "+servers.size()+" servers");
         for(Server server : servers)
-            logger.info(server.getId()+" - "+server.getName());
+            print(server, server.getId()+" - "+server.getName());
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.synthetics;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -102,12 +103,18 @@ public class CreateMonitorLabel extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicSyntheticsApi syntheticsApi = getSyntheticsApi();
+        final NewRelicSyntheticsApi syntheticsApi = getSyntheticsApi();
 
         Optional<Monitor> monitor = Optional.absent();
         try
         {
-            monitor = syntheticsApi.monitors().show(monitorId);
+            monitor = call("monitors", "GET", new Callable<Optional<Monitor>>()
+            {
+                public Optional<Monitor> call()
+                {
+                    return syntheticsApi.monitors().show(monitorId);
+                }
+            });
         }
         catch(ErrorResponseException e)
         {
@@ -123,12 +130,18 @@ public class CreateMonitorLabel extends BaseCommand
         if(verbose())
             logger.info("Creating label: "+Label.getKey(category, name));
 
-        Label l = Label.builder()
+        final Label l = Label.builder()
             .category(category)
             .name(name)
             .build();
 
-        Label label = syntheticsApi.monitors().createLabel(monitorId, l).get();
+        Label label = call("monitors", "POST", new Callable<Label>()
+        {
+            public Label call()
+            {
+                return syntheticsApi.monitors().createLabel(monitorId, l).get();
+            }
+        });
         logger.info("Created label: "+label.getKey());
     }
 }
\ No newline at end of file
@@ -18,6 +18,7 @@ package com.opsmatters.newrelic.commands.synthetics;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -119,12 +120,12 @@ public class CreateScriptedApiMonitor extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicSyntheticsApi syntheticsApi = getSyntheticsApi();
+        final NewRelicSyntheticsApi syntheticsApi = getSyntheticsApi();
 
         if(verbose())
             logger.info("Creating monitor: "+name);
 
-        Monitor sm = ScriptApiMonitor.builder()
+        final Monitor sm = ScriptApiMonitor.builder()
             .name(name)
             .frequency(frequency)
             .slaThreshold(slaThreshold)
@@ -132,7 +133,13 @@ public class CreateScriptedApiMonitor extends BaseCommand
             .status(Monitor.Status.ENABLED)
             .build();
 
-        Monitor monitor = syntheticsApi.monitors().create(sm).get();
+        Monitor monitor = call("monitors", "POST", new Callable<Monitor>()
+        {
+            public Monitor call()
+            {
+                return syntheticsApi.monitors().create(sm).get();
+            }
+        });
         logger.info("Created monitor: "+monitor.getId()+" - "+monitor.getName());
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.synthetics;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -83,12 +84,18 @@ public class DeleteMonitor extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicSyntheticsApi syntheticsApi = getSyntheticsApi();
+        final NewRelicSyntheticsApi syntheticsApi = getSyntheticsApi();
 
         Optional<Monitor> monitor = Optional.absent();
         try
         {
-            monitor = syntheticsApi.monitors().show(id);
+            monitor = call("monitors", "GET", new Callable<Optional<Monitor>>()
+            {
+                public Optional<Monitor> call()
+                {
+                    return syntheticsApi.monitors().show(id);
+                }
+            });
         }
         catch(ErrorResponseException e)
         {
@@ -104,8 +111,15 @@ public class DeleteMonitor extends BaseCommand
         if(verbose())
             logger.info("Deleting monitor: "+id);
 
-        Monitor m = monitor.get();
-        syntheticsApi.monitors().delete(m.getId());
+        final Monitor m = monitor.get();
+        call("monitors", "DELETE", new Callable<Void>()
+        {
+            public Void call()
+            {
+                syntheticsApi.monitors().delete(m.getId());
+                return null;
+            }
+        });
         logger.info("Deleted monitor: "+m.getId()+" - "+m.getName());
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
 
 package com.opsmatters.newrelic.commands.synthetics;
 
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -120,13 +121,19 @@ public class DeleteMonitorLabel extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
-        NewRelicSyntheticsApi syntheticsApi = getSyntheticsApi();
+        final NewRelicApi api = getApi();
+        final NewRelicSyntheticsApi syntheticsApi = getSyntheticsApi();
 
         Optional<Monitor> monitor = Optional.absent();
         try
         {
-            monitor = syntheticsApi.monitors().show(monitorId);
+            monitor = call("monitors", "GET", new Callable<Optional<Monitor>>()
+            {
+                public Optional<Monitor> call()
+                {
+                    return syntheticsApi.monitors().show(monitorId);
+                }
+            });
         }
         catch(ErrorResponseException e)
         {
@@ -142,7 +149,13 @@ public class DeleteMonitorLabel extends BaseCommand
         if(verbose())
             logger.info("Getting label: "+key);
 
-        Optional<Label> label = api.labels().show(key);
+        Optional<Label> label = call("labels", "GET", new Callable<Optional<Label>>()
+        {
+            public Optional<Label> call()
+            {
+                return api.labels().show(key);
+            }
+        });
         if(!label.isPresent())
         {
             logger.severe("Unable to find label: "+key);
@@ -152,8 +165,15 @@ public class DeleteMonitorLabel extends BaseCommand
         if(verbose())
             logger.info("Deleting label: "+key);
 
-        Label l = label.get();
-        syntheticsApi.monitors().deleteLabel(monitorId, l);
+        final Label l = label.get();
+        call("monitors", "DELETE", new Callable<Void>()
+        {
+            public Void call()
+            {
+                syntheticsApi.monitors().deleteLabel(monitorId, l);
+                return null;
+            }
+        });
         logger.info("Deleted label: "+l.getKey());
     }
 }
\ No newline at end of file
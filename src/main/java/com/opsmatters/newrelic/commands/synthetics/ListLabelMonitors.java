@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.synthetics;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -68,6 +69,7 @@ public class ListLabelMonitors extends BaseCommand
         addOption(Opt.CATEGORY);
         addOption(Opt.NAME, "The name of the label");
         addOption(Opt.KEY, "The key of the label");
+        addOutputOptions();
     }
 
     /**
@@ -111,13 +113,19 @@ public class ListLabelMonitors extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
-        NewRelicSyntheticsApi syntheticsApi = getSyntheticsApi();
+        final NewRelicApi api = getApi();
+        final NewRelicSyntheticsApi syntheticsApi = getSyntheticsApi();
 
         if(verbose())
             logger.info("Getting label: "+key);
 
-        Optional<Label> label = api.labels().show(key);
+        final Optional<Label> label = call("labels", "GET", new Callable<Optional<Label>>()
+        {
+            public Optional<Label> call()
+            {
+                return api.labels().show(key);
+            }
+        });
         if(!label.isPresent())
         {
             logger.severe("Unable to find label: "+key);
@@ -126,10 +134,16 @@ public class ListLabelMonitors extends BaseCommand
 
         if(verbose())
             logger.info("Getting monitors for label: "+key);
-        Collection<Monitor> monitors = syntheticsApi.monitors().list(label.get());
+        Collection<Monitor> monitors = call("monitors", "GET", new Callable<Collection<Monitor>>()
+        {
+            public Collection<Monitor> call()
+            {
+                return syntheticsApi.monitors().list(label.get());
+            }
+        });
         if(verbose())
             logger.info("Found "+monitors.size()+" monitors");
         for(Monitor monitor : monitors)
-            logger.info(monitor.getId()+" - "+monitor.getName()+" ("+monitor.getType()+")");
+            print(monitor, monitor.getId()+" - "+monitor.getName()+" ("+monitor.getType()+")");
     }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.synthetics;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.NewRelicSyntheticsApi;
@@ -58,6 +59,7 @@ public class ListLocations extends BaseCommand
     protected void options()
     {
         super.options();
+        addOutputOptions();
     }
 
     /**
@@ -73,14 +75,20 @@ public class ListLocations extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicSyntheticsApi syntheticsApi = getSyntheticsApi();
+        final NewRelicSyntheticsApi syntheticsApi = getSyntheticsApi();
 
         if(verbose())
             logger.info("Getting locations: ");
-        Collection<Location> locations = syntheticsApi.locations().list();
+        Collection<Location> locations = call("locations", "GET", new Callable<Collection<Location>>()
+        {
+            public Collection<Location> call()
+            {
+                return syntheticsApi.locations().list();
+            }
+        });
         if(verbose())
             logger.info("Found "+locations.size()+" locations");
         for(Location location : locations)
-            logger.info(location.getName()+" ("+location.getLabel()+")");
+            print(location, location.getName()+" ("+location.getLabel()+")");
     }
 }
\ No newline at end of file
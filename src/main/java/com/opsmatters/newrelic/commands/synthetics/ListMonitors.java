@@ -16,7 +16,9 @@
 
 package com.opsmatters.newrelic.commands.synthetics;
 
-import java.util.Collection;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -24,9 +26,14 @@ import com.opsmatters.newrelic.api.NewRelicSyntheticsApi;
 import com.opsmatters.newrelic.api.model.synthetics.Monitor;
 import com.opsmatters.newrelic.commands.Opt;
 import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.ParallelFetcher;
+import com.opsmatters.newrelic.metrics.Timer;
 
 /**
  * Implements the New Relic command line option to list Synthetics monitors.  
+ * <P>
+ * All the pages of monitors are fetched, with the following pages fetched concurrently
+ * while the monitors in each page are listed.
  * 
  * @author Gerald Curley (opsmatters)
  */
@@ -35,8 +42,16 @@ public class ListMonitors extends BaseCommand
     private static final Logger logger = Logger.getLogger(ListMonitors.class.getName());
     private static final String NAME = "list_monitors";
 
+    /**
+     * The default number of monitors fetched in each page, being the maximum allowed by the API.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
     private String name;
     private String type;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private int parallelism = ParallelFetcher.DEFAULT_PARALLELISM;
+    private int limit = 0;
 
     /**
      * Default constructor.
@@ -64,6 +79,10 @@ public class ListMonitors extends BaseCommand
         super.options();
         addOption(Opt.NAME, "The name of the monitors");
         addOption(Opt.TYPE, "The type of the monitors, either \"SIMPLE\", \"BROWSER\", \"SCRIPT_BROWSER\" or \"SCRIPT_API\"");
+        addOption(Opt.PAGE_SIZE, "The number of monitors to fetch in each page, defaults to "+DEFAULT_PAGE_SIZE);
+        addOption(Opt.PARALLELISM, "The number of pages to fetch concurrently, defaults to "+ParallelFetcher.DEFAULT_PARALLELISM);
+        addOption(Opt.LIMIT, "The maximum number of monitors to list");
+        addOutputOptions();
     }
 
     /**
@@ -90,6 +109,30 @@ public class ListMonitors extends BaseCommand
             else
                 logOptionInvalid(Opt.TYPE);
         }
+
+        // Page size option
+        if(hasOption(cli, Opt.PAGE_SIZE, false))
+        {
+            pageSize = Integer.parseInt(getOptionValue(cli, Opt.PAGE_SIZE));
+            if(pageSize > 0 && pageSize <= DEFAULT_PAGE_SIZE)
+                logOptionValue(Opt.PAGE_SIZE, pageSize);
+            else
+                logOptionInvalid(Opt.PAGE_SIZE);
+        }
+
+        // Parallelism option
+        if(hasOption(cli, Opt.PARALLELISM, false))
+        {
+            parallelism = getIntOptionValue(cli, Opt.PARALLELISM, 1);
+            logOptionValue(Opt.PARALLELISM, parallelism);
+        }
+
+        // Limit option
+        if(hasOption(cli, Opt.LIMIT, false))
+        {
+            limit = Integer.parseInt(getOptionValue(cli, Opt.LIMIT));
+            logOptionValue(Opt.LIMIT, limit);
+        }
     }
 
     /**
@@ -97,14 +140,58 @@ public class ListMonitors extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicSyntheticsApi syntheticsApi = getSyntheticsApi();
+        final NewRelicSyntheticsApi syntheticsApi = getSyntheticsApi();
 
         if(verbose())
             logger.info("Getting monitors: "+name+(type != null ? " ("+type+")":""));
-        Collection<Monitor> monitors = syntheticsApi.monitors().list(name, type, 0, 100);
-        if(verbose())
-            logger.info("Found "+monitors.size()+" monitors");
-        for(Monitor monitor : monitors)
-            logger.info(monitor.getId()+" - "+monitor.getName()+" ("+monitor.getType()+")");
+
+        // Fetch the pages without a filter, so that a short page marks the end of the list
+        ParallelFetcher fetcher = new ParallelFetcher(parallelism)
+            .deadline(getDeadline())
+            .timer(apiTimer("monitors", "GET"))
+            .circuitBreaker(circuitBreaker("monitors"));
+        ParallelFetcher.Page<Monitor> page = new ParallelFetcher.Page<Monitor>()
+        {
+            public List<Monitor> fetch(int offset, int limit)
+            {
+                return new ArrayList<Monitor>(syntheticsApi.monitors().list(null, null, offset, limit));
+            }
+        };
+
+        final int[] count = new int[1];
+        Timer.Context phase = startPhase(FETCH);
+        try
+        {
+            int pages = fetcher.fetchPages(pageSize, page, new ParallelFetcher.PageSink<Monitor>()
+            {
+                public boolean accept(List<Monitor> monitors)
+                {
+                    for(Monitor monitor : monitors)
+                    {
+                        if(limit > 0 && count[0] >= limit)
+                            return false;
+                        if((name == null || name.equals(monitor.getName()))
+                            && (type == null || type.equals(monitor.getType())))
+                        {
+                            print(monitor, monitor.getId()+" - "+monitor.getName()+" ("+monitor.getType()+")");
+                            ++count[0];
+                        }
+                    }
+                    return limit <= 0 || count[0] < limit;
+                }
+            });
+
+            if(verbose())
+                logger.info("Found "+count[0]+" monitors in "+pages+" pages");
+        }
+        catch(IOException e)
+        {
+            logger.severe("Unable to list monitors: "+e.getClass().getName()+": "+e.getMessage());
+        }
+        finally
+        {
+            fetcher.shutdown();
+            phase.stop();
+        }
     }
 }
\ No newline at end of file
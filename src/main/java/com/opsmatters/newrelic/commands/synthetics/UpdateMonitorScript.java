@@ -18,6 +18,7 @@ package com.opsmatters.newrelic.commands.synthetics;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.google.common.base.Optional;
@@ -108,12 +109,18 @@ public class UpdateMonitorScript extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicSyntheticsApi syntheticsApi = getSyntheticsApi();
+        final NewRelicSyntheticsApi syntheticsApi = getSyntheticsApi();
 
         Optional<Monitor> monitor = Optional.absent();
         try
         {
-            monitor = syntheticsApi.monitors().show(monitorId);
+            monitor = call("monitors", "GET", new Callable<Optional<Monitor>>()
+            {
+                public Optional<Monitor> call()
+                {
+                    return syntheticsApi.monitors().show(monitorId);
+                }
+            });
         }
         catch(ErrorResponseException e)
         {
@@ -129,13 +136,20 @@ public class UpdateMonitorScript extends BaseCommand
         if(verbose())
             logger.info("Updating monitor script: "+monitorId);
 
-        Script script = Script.builder()
+        final Script script = Script.builder()
             .scriptText(scriptText)
             .scriptLocations(scriptLocations)
             .build();
 
-        Monitor m = monitor.get();
-        syntheticsApi.monitors().updateScript(m.getId(), script);
+        final Monitor m = monitor.get();
+        call("monitors", "PUT", new Callable<Void>()
+        {
+            public Void call()
+            {
+                syntheticsApi.monitors().updateScript(m.getId(), script);
+                return null;
+            }
+        });
         logger.info("Updated monitor: "+m.getId()+" - "+m.getName());
     }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@
 package com.opsmatters.newrelic.commands.transactions;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import org.apache.commons.cli.CommandLine;
 import com.opsmatters.newrelic.api.NewRelicApi;
@@ -61,6 +62,7 @@ public class ListKeyTransactions extends BaseCommand
     {
         super.options();
         addOption(Opt.NAME, "The name of the key transactions");
+        addOutputOptions();
     }
 
     /**
@@ -82,14 +84,20 @@ public class ListKeyTransactions extends BaseCommand
      */
     protected void execute()
     {
-        NewRelicApi api = getApi();
+        final NewRelicApi api = getApi();
 
         if(verbose())
             logger.info("Getting key transactions: "+name);
-        Collection<KeyTransaction> keyTransactions = api.keyTransactions().list(name);
+        Collection<KeyTransaction> keyTransactions = call("key_transactions", "GET", new Callable<Collection<KeyTransaction>>()
+        {
+            public Collection<KeyTransaction> call()
+            {
+                return api.keyTransactions().list(name);
+            }
+        });
         if(verbose())
             logger.info("Found "+keyTransactions.size()+" key transactions");
         for(KeyTransaction keyTransaction : keyTransactions)
-            logger.info(keyTransaction.getId()+" - "+keyTransaction.getName());
+            print(keyTransaction, keyTransaction.getId()+" - "+keyTransaction.getName());
     }
 }
\ No newline at end of file
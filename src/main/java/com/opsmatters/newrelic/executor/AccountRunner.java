@@ -0,0 +1,370 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.executor;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Executes a command against each of the accounts in a file of API keys concurrently.
+ * <P>
+ * Each line of the file contains an API key, optionally preceded by an alias for the account, eg. "prod=&lt;key&gt;".
+ * Blank lines and lines starting with "#" are ignored.
+ * The command is executed for each account with the "-x" option set to the API key of the account,
+ * and any "{account}" in the command line is replaced by the alias of the account, eg. to write a file per account.
+ * The output and log messages of each account are prefixed with the alias of the account.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class AccountRunner
+{
+    private static final Logger logger = Logger.getLogger(AccountRunner.class.getName());
+
+    /**
+     * The name of the accounts command.
+     */
+    public static final String NAME = "run_accounts";
+
+    /**
+     * The placeholder in the command line replaced by the alias of each account.
+     */
+    public static final String PLACEHOLDER = "{account}";
+
+    /**
+     * The default number of accounts processed concurrently.
+     */
+    public static final int DEFAULT_THREADS = 4;
+
+    private CommandRunner runner;
+    private int threads = DEFAULT_THREADS;
+    private int succeeded = 0;
+    private int failed = 0;
+
+    /**
+     * Constructor that takes a command runner.
+     * @param runner The runner used to execute the commands
+     */
+    public AccountRunner(CommandRunner runner)
+    {
+        this.runner = runner;
+    }
+
+    /**
+     * Sets the number of accounts processed concurrently.
+     * @param threads The number of accounts processed concurrently
+     * @return This object
+     */
+    public AccountRunner threads(int threads)
+    {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Returns the number of accounts for which the command succeeded.
+     * @return The number of accounts for which the command succeeded
+     */
+    public int getSucceeded()
+    {
+        return succeeded;
+    }
+
+    /**
+     * Returns the number of accounts for which the command failed.
+     * @return The number of accounts for which the command failed
+     */
+    public int getFailed()
+    {
+        return failed;
+    }
+
+    /**
+     * Executes the command for each account using the given arguments.
+     * @param registry The registry used to look up the commands
+     * @param args The argument list, the first argument being the name of the accounts command,
+     *             followed by its options, the name of the command to execute and the options of that command
+     * @return The exit status of the accounts command
+     */
+    public static int execute(CommandRegistry registry, String[] args)
+    {
+        Options options = new Options();
+        options.addOption("h", "help", false, "Prints a usage statement");
+        options.addOption("k", "keys", true, "The name of the file containing the API keys of the accounts, defaults to standard input");
+        options.addOption("t", "threads", true, "The number of accounts processed concurrently, defaults to "+DEFAULT_THREADS);
+
+        // Stop at the name of the command to execute
+        CommandLine cli = null;
+        try
+        {
+            String[] runnerArgs = new String[Math.max(args.length-1, 0)];
+            System.arraycopy(args, 1, runnerArgs, 0, runnerArgs.length);
+            cli = new BasicParser().parse(options, runnerArgs, true);
+        }
+        catch(ParseException e)
+        {
+            logger.severe("Error parsing command line: "+e.getClass().getName()+e.getMessage());
+            new HelpFormatter().printHelp(NAME+" [options] command [command options]", options);
+            return 1;
+        }
+
+        if(cli.hasOption("h"))
+        {
+            new HelpFormatter().printHelp(NAME+" [options] command [command options]", options);
+            return 0;
+        }
+
+        String[] commandArgs = cli.getArgs();
+        if(commandArgs.length == 0)
+        {
+            logger.severe("No command provided");
+            return 1;
+        }
+
+        for(String arg : commandArgs)
+        {
+            if(arg.startsWith("-x") || arg.startsWith("--x_api_key"))
+            {
+                logger.severe("The API key is set for each account and cannot be included in the command");
+                return 1;
+            }
+        }
+
+        AccountRunner accounts = new AccountRunner(new CommandRunner(registry));
+        if(cli.hasOption("t"))
+        {
+            try
+            {
+                int threads = Integer.parseInt(cli.getOptionValue("t"));
+                if(threads <= 0)
+                    throw new NumberFormatException();
+                accounts.threads(threads);
+            }
+            catch(NumberFormatException e)
+            {
+                logger.severe("Invalid number of threads: "+cli.getOptionValue("t"));
+                return 1;
+            }
+        }
+
+        // Route the log messages of each account to its own stream
+        ThreadLogHandler.install();
+
+        String filename = cli.getOptionValue("k");
+        BufferedReader reader = null;
+        try
+        {
+            reader = new BufferedReader(new InputStreamReader(filename != null
+                ? new FileInputStream(filename) : System.in, "UTF-8"));
+            accounts.run(readAccounts(reader), commandArgs);
+        }
+        catch(IOException e)
+        {
+            logger.severe("Unable to read keys file: "+e.getClass().getName()+": "+e.getMessage());
+            return 1;
+        }
+        finally
+        {
+            try
+            {
+                if(reader != null && filename != null)
+                    reader.close();
+            }
+            catch(IOException e)
+            {
+            }
+        }
+
+        return accounts.getFailed() > 0 ? 1 : 0;
+    }
+
+    /**
+     * Reads the accounts from the given reader.
+     * @param reader The reader containing the API keys
+     * @return The list of accounts
+     * @throws IOException if the API keys could not be read
+     */
+    static List<Account> readAccounts(BufferedReader reader) throws IOException
+    {
+        List<Account> ret = new ArrayList<Account>();
+        String line = null;
+        while((line = reader.readLine()) != null)
+        {
+            line = line.trim();
+            if(line.length() == 0 || line.startsWith("#"))
+                continue;
+
+            int pos = line.indexOf('=');
+            if(pos > 0)
+                ret.add(new Account(line.substring(0, pos).trim(), line.substring(pos+1).trim()));
+            else
+                ret.add(new Account("account-"+(ret.size()+1), line));
+        }
+        return ret;
+    }
+
+    /**
+     * Executes the given command for each of the accounts concurrently.
+     * @param accounts The accounts to execute the command against
+     * @param args The argument list, the first argument being the name of the command
+     */
+    public void run(List<Account> accounts, final String[] args)
+    {
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(Math.min(threads, accounts.size()), 1));
+        List<Future<Long>> futures = new ArrayList<Future<Long>>();
+        try
+        {
+            for(final Account account : accounts)
+            {
+                futures.add(executor.submit(new Callable<Long>()
+                {
+                    public Long call() throws Exception
+                    {
+                        return run(account, args);
+                    }
+                }));
+            }
+
+            for(int i = 0; i < accounts.size(); i++)
+            {
+                String alias = accounts.get(i).getAlias();
+                try
+                {
+                    long elapsed = futures.get(i).get();
+                    if(elapsed >= 0L)
+                    {
+                        ++succeeded;
+                        logger.info(alias+": "+args[0]+" completed in "+elapsed+"ms");
+                    }
+                    else
+                    {
+                        ++failed;
+                        logger.severe(alias+": "+args[0]+" failed in "+(-elapsed)+"ms");
+                    }
+                }
+                catch(ExecutionException e)
+                {
+                    ++failed;
+                    Throwable cause = e.getCause();
+                    logger.severe(alias+": "+args[0]+" failed: "+cause.getClass().getName()+": "+cause.getMessage());
+                }
+                catch(InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        long elapsed = System.currentTimeMillis()-start;
+        logger.info(String.format("Executed %s on %d accounts in %.3fs: %d succeeded, %d failed",
+            args[0], accounts.size(), elapsed/1000.0d, succeeded, failed));
+    }
+
+    /**
+     * Executes the given command for the given account.
+     * @return The elapsed time of the command in milliseconds, negated if the command failed
+     */
+    private long run(Account account, String[] args) throws UnsupportedEncodingException
+    {
+        String[] accountArgs = new String[args.length+2];
+        for(int i = 0; i < args.length; i++)
+            accountArgs[i] = args[i].replace(PLACEHOLDER, account.getAlias());
+        accountArgs[args.length] = "-x";
+        accountArgs[args.length+1] = account.getApiKey();
+
+        String prefix = "["+account.getAlias()+"] ";
+        PrintStream out = new PrintStream(new PrefixOutputStream(System.out, prefix), true, "UTF-8");
+        PrintStream err = new PrintStream(new PrefixOutputStream(System.err, prefix), true, "UTF-8");
+        ThreadLogHandler.setStream(err);
+
+        long start = System.currentTimeMillis();
+        int status = 1;
+        try
+        {
+            status = runner.run(accountArgs, out, err);
+        }
+        finally
+        {
+            ThreadLogHandler.setStream(null);
+            out.close();
+            err.close();
+        }
+
+        long elapsed = System.currentTimeMillis()-start;
+        return status == 0 ? elapsed : -Math.max(elapsed, 1L);
+    }
+
+    /**
+     * An account with an alias and an API key.
+     */
+    public static class Account
+    {
+        private String alias;
+        private String apiKey;
+
+        /**
+         * Constructor that takes an alias and an API key.
+         * @param alias The alias of the account
+         * @param apiKey The API key of the account
+         */
+        public Account(String alias, String apiKey)
+        {
+            this.alias = alias;
+            this.apiKey = apiKey;
+        }
+
+        /**
+         * Returns the alias of the account.
+         * @return The alias of the account
+         */
+        public String getAlias()
+        {
+            return alias;
+        }
+
+        /**
+         * Returns the API key of the account.
+         * @return The API key of the account
+         */
+        public String getApiKey()
+        {
+            return apiKey;
+        }
+    }
+}
\ No newline at end of file
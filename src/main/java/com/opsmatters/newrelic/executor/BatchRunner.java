@@ -0,0 +1,267 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opsmatters.newrelic.executor;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.logging.Logger;
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Executes a file of command lines within a single JVM.
+ * <P>
+ * Each line contains a command name followed by its options, quoted as they would be for the shell.
+ * Blank lines and lines starting with "#" are ignored.
+ * The command index and API clients are shared by all the commands in the batch.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class BatchRunner
+{
+    private static final Logger logger = Logger.getLogger(BatchRunner.class.getName());
+
+    /**
+     * The name of the batch command.
+     */
+    public static final String NAME = "run_batch";
+
+    private CommandRunner runner;
+    private boolean stopOnError = false;
+    private int succeeded = 0;
+    private int failed = 0;
+
+    /**
+     * Constructor that takes a command runner.
+     * @param runner The runner used to execute the commands
+     */
+    public BatchRunner(CommandRunner runner)
+    {
+        this.runner = runner;
+    }
+
+    /**
+     * Set to <CODE>true</CODE> if the batch should stop at the first command that fails.
+     * @param stopOnError <CODE>true</CODE> if the batch should stop at the first command that fails
+     * @return This object
+     */
+    public BatchRunner stopOnError(boolean stopOnError)
+    {
+        this.stopOnError = stopOnError;
+        return this;
+    }
+
+    /**
+     * Returns the number of commands that succeeded.
+     * @return The number of commands that succeeded
+     */
+    public int getSucceeded()
+    {
+        return succeeded;
+    }
+
+    /**
+     * Returns the number of commands that failed.
+     * @return The number of commands that failed
+     */
+    public int getFailed()
+    {
+        return failed;
+    }
+
+    /**
+     * Executes the batch using the given arguments.
+     * @param registry The registry used to look up the commands
+     * @param args The argument list, the first argument being the name of the batch command
+     * @return The exit status of the batch
+     */
+    public static int execute(CommandRegistry registry, String[] args)
+    {
+        Options options = new Options();
+        options.addOption("h", "help", false, "Prints a usage statement");
+        options.addOption("f", "file", true, "The name of the file containing the command lines, defaults to standard input");
+        options.addOption("s", "stop_on_error", false, "Stop at the first command that fails");
+
+        CommandLine cli = null;
+        try
+        {
+            cli = new BasicParser().parse(options, args);
+        }
+        catch(ParseException e)
+        {
+            logger.severe("Error parsing command line: "+e.getClass().getName()+e.getMessage());
+            new HelpFormatter().printHelp(NAME, options);
+            return 1;
+        }
+
+        if(cli.hasOption("h"))
+        {
+            new HelpFormatter().printHelp(NAME, options);
+            return 0;
+        }
+
+        BatchRunner batch = new BatchRunner(new CommandRunner(registry))
+            .stopOnError(cli.hasOption("s"));
+
+        String filename = cli.getOptionValue("f");
+        InputStream is = null;
+        try
+        {
+            is = filename != null ? new FileInputStream(filename) : System.in;
+            batch.run(new BufferedReader(new InputStreamReader(is, "UTF-8")));
+        }
+        catch(IOException e)
+        {
+            logger.severe("Unable to read batch file: "+e.getClass().getName()+": "+e.getMessage());
+            return 1;
+        }
+        finally
+        {
+            try
+            {
+                if(is != null && filename != null)
+                    is.close();
+            }
+            catch(IOException e)
+            {
+            }
+        }
+
+        return batch.getFailed() > 0 ? 1 : 0;
+    }
+
+    /**
+     * Executes each of the command lines read from the given reader.
+     * @param reader The reader containing the command lines
+     * @throws IOException if the command lines could not be read
+     */
+    public void run(BufferedReader reader) throws IOException
+    {
+        long start = System.currentTimeMillis();
+        int lineNumber = 0;
+        String line = null;
+        while((line = reader.readLine()) != null)
+        {
+            ++lineNumber;
+            line = line.trim();
+            if(line.length() == 0 || line.startsWith("#"))
+                continue;
+
+            String[] args = null;
+            try
+            {
+                args = tokenize(line);
+            }
+            catch(IllegalArgumentException e)
+            {
+                logger.severe("Line "+lineNumber+": "+e.getMessage());
+                ++failed;
+                if(stopOnError)
+                    break;
+                continue;
+            }
+
+            long lineStart = System.currentTimeMillis();
+            int status = runner.run(args, System.out, System.err);
+            long elapsed = System.currentTimeMillis()-lineStart;
+            if(status == 0)
+            {
+                ++succeeded;
+                logger.info("Line "+lineNumber+": "+args[0]+" completed in "+elapsed+"ms");
+            }
+            else
+            {
+                ++failed;
+                logger.severe("Line "+lineNumber+": "+args[0]+" failed with status "+status+" in "+elapsed+"ms");
+                if(stopOnError)
+                    break;
+            }
+        }
+
+        long elapsed = System.currentTimeMillis()-start;
+        int total = succeeded+failed;
+        logger.info(String.format("Executed %d commands in %.3fs (%.1f/s): %d succeeded, %d failed",
+            total, elapsed/1000.0d, elapsed > 0 ? total*1000.0d/elapsed : 0.0d, succeeded, failed));
+    }
+
+    /**
+     * Splits the given command line into arguments.
+     * <P>
+     * Supports single quotes, double quotes and backslash escapes.
+     * @param line The command line
+     * @return The argument list
+     */
+    static String[] tokenize(String line)
+    {
+        List<String> args = new ArrayList<String>();
+        StringBuilder arg = new StringBuilder();
+        boolean inArg = false;
+        char quote = 0;
+
+        for(int i = 0; i < line.length(); i++)
+        {
+            char c = line.charAt(i);
+            if(quote != 0)
+            {
+                if(c == quote)
+                    quote = 0;
+                else if(c == '\\' && quote == '"' && i+1 < line.length())
+                    arg.append(line.charAt(++i));
+                else
+                    arg.append(c);
+            }
+            else if(c == '"' || c == '\'')
+            {
+                quote = c;
+                inArg = true;
+            }
+            else if(c == '\\' && i+1 < line.length())
+            {
+                arg.append(line.charAt(++i));
+                inArg = true;
+            }
+            else if(Character.isWhitespace(c))
+            {
+                if(inArg)
+                {
+                    args.add(arg.toString());
+                    arg.setLength(0);
+                    inArg = false;
+                }
+            }
+            else
+            {
+                arg.append(c);
+                inArg = true;
+            }
+        }
+
+        if(quote != 0)
+            throw new IllegalArgumentException("unterminated quote in command line");
+        if(inArg)
+            args.add(arg.toString());
+
+        return args.toArray(new String[args.size()]);
+    }
+}
\ No newline at end of file
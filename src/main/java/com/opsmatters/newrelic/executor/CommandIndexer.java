@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.executor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Generates the command index used by {@link CommandRegistry}.
+ * <P>
+ * Executed during the build after the classes have been compiled.
+ *
+ * @author Gerald Curley (opsmatters)
+ */
+public class CommandIndexer
+{
+    /**
+     * Entry point that writes the command index to the given output directory.
+     * @param args The argument list, the first argument being the output directory
+     * @throws IOException if the index could not be written
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if(args.length == 0)
+            throw new IllegalArgumentException("no output directory provided");
+
+        File file = new File(args[0], CommandRegistry.INDEX);
+        file.getParentFile().mkdirs();
+
+        Map<String,String> commands = CommandRegistry.scanned().getClassNames();
+        if(commands.size() == 0)
+            throw new IllegalStateException("no commands found");
+
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try
+        {
+            writer.write("# Generated by "+CommandIndexer.class.getName()+"\n");
+            for(Map.Entry<String,String> entry : commands.entrySet())
+                writer.write(entry.getKey()+"="+entry.getValue()+"\n");
+        }
+        finally
+        {
+            writer.close();
+        }
+
+        System.out.println("Wrote "+commands.size()+" commands to "+file.getPath());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.executor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.logging.Logger;
+import com.google.common.reflect.ClassPath;
+import com.opsmatters.newrelic.commands.BaseCommand;
+
+/**
+ * Holds the index of command names to command classes.
+ * <P>
+ * The index is read from a resource generated at build time by {@link CommandIndexer},
+ * so that only the requested command is loaded and instantiated.
+ * If the resource is missing (eg. when running from an IDE) the classpath is scanned instead.
+ *
+ * @author Gerald Curley (opsmatters)
+ */
+public class CommandRegistry
+{
+    private static final Logger logger = Logger.getLogger(CommandRegistry.class.getName());
+
+    /**
+     * The name of the resource containing the command index.
+     */
+    public static final String INDEX = "META-INF/newrelic-commands.idx";
+
+    /**
+     * The packages containing the commands.
+     */
+    static final String[] PACKAGES =
+    {
+        "accounts",
+        "alerts.channels",
+        "alerts.conditions",
+        "alerts.policies",
+        "applications",
+        "deployments",
+        "insights",
+        "labels",
+        "plugins",
+        "servers",
+        "synthetics",
+        "transactions"
+    };
+
+    private static final String BASE_PKG = "com.opsmatters.newrelic.commands";
+
+    private Map<String,String> commands = new LinkedHashMap<String,String>();
+
+    /**
+     * Default constructor.
+     */
+    private CommandRegistry()
+    {
+    }
+
+    /**
+     * Returns the registry loaded from the command index.
+     * <P>
+     * Falls back to scanning the classpath if the index cannot be found.
+     * @return The command registry
+     */
+    public static CommandRegistry load()
+    {
+        CommandRegistry registry = new CommandRegistry();
+        if(!registry.readIndex())
+            registry.scan();
+        return registry;
+    }
+
+    /**
+     * Returns the registry created by scanning the classpath.
+     * @return The command registry
+     */
+    public static CommandRegistry scanned()
+    {
+        CommandRegistry registry = new CommandRegistry();
+        registry.scan();
+        return registry;
+    }
+
+    /**
+     * Returns the names of the commands in the registry.
+     * @return The names of the commands
+     */
+    public Set<String> getNames()
+    {
+        return commands.keySet();
+    }
+
+    /**
+     * Returns the map of command names to class names.
+     * @return The map of command names to class names
+     */
+    public Map<String,String> getClassNames()
+    {
+        return commands;
+    }
+
+    /**
+     * Returns <CODE>true</CODE> if the given command exists.
+     * @param name The name of the command
+     * @return <CODE>true</CODE> if the given command exists
+     */
+    public boolean contains(String name)
+    {
+        return commands.containsKey(name);
+    }
+
+    /**
+     * Returns a new instance of the given command.
+     * @param name The name of the command
+     * @return The new command, or <CODE>null</CODE> if the command does not exist
+     */
+    public BaseCommand getCommand(String name)
+    {
+        String className = commands.get(name);
+        if(className == null)
+            return null;
+
+        try
+        {
+            return BaseCommand.class.cast(Class.forName(className).newInstance());
+        }
+        catch(ClassNotFoundException e)
+        {
+            throw new IllegalStateException("command class not found: "+className, e);
+        }
+        catch(InstantiationException e)
+        {
+            throw new IllegalStateException("unable to create command: "+className, e);
+        }
+        catch(IllegalAccessException e)
+        {
+            throw new IllegalStateException("unable to create command: "+className, e);
+        }
+    }
+
+    /**
+     * Reads the commands from the index resource.
+     * @return <CODE>true</CODE> if the index was found
+     */
+    private boolean readIndex()
+    {
+        InputStream is = CommandRegistry.class.getClassLoader().getResourceAsStream(INDEX);
+        if(is == null)
+            return false;
+
+        BufferedReader reader = null;
+        try
+        {
+            reader = new BufferedReader(new InputStreamReader(is, "UTF-8"));
+            String line = null;
+            while((line = reader.readLine()) != null)
+            {
+                line = line.trim();
+                if(line.length() == 0 || line.startsWith("#"))
+                    continue;
+                int pos = line.indexOf('=');
+                if(pos > 0)
+                    commands.put(line.substring(0, pos).trim(), line.substring(pos+1).trim());
+            }
+        }
+        catch(IOException e)
+        {
+            logger.severe("Unable to read command index: "+e.getClass().getName()+": "+e.getMessage());
+            commands.clear();
+            return false;
+        }
+        finally
+        {
+            try
+            {
+                if(reader != null)
+                    reader.close();
+                else
+                    is.close();
+            }
+            catch(IOException e)
+            {
+            }
+        }
+
+        return commands.size() > 0;
+    }
+
+    /**
+     * Load the commands by scanning the classpath.
+     */
+    private void scan()
+    {
+        try
+        {
+            ClassLoader loader = CommandRegistry.class.getClassLoader();
+            ClassPath classpath = ClassPath.from(loader);
+            for(String pkg : PACKAGES)
+                scan(classpath, BASE_PKG+"."+pkg);
+        }
+        catch(IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Load the commands from the package.
+     */
+    private void scan(ClassPath classpath, String packageName)
+    {
+        Set<ClassPath.ClassInfo> classes = classpath.getTopLevelClasses(packageName);
+        for(ClassPath.ClassInfo ci : classes)
+        {
+            try
+            {
+                Class cl = Class.forName(ci.getName());
+                if(BaseCommand.class.isAssignableFrom(cl))
+                {
+                    BaseCommand command = BaseCommand.class.cast(cl.newInstance());
+                    commands.put(command.getName(), cl.getName());
+                }
+            }
+            catch(InstantiationException e)
+            {
+            }
+            catch(ClassNotFoundException e)
+            {
+                e.printStackTrace();
+            }
+            catch(IllegalAccessException e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opsmatters.newrelic.executor;
+
+import java.io.PrintStream;
+import java.util.logging.Logger;
+import com.opsmatters.newrelic.commands.BaseCommand;
+import com.opsmatters.newrelic.commands.CommandExitException;
+
+/**
+ * Executes commands within a long-running process, returning the exit status instead of exiting the JVM.  
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class CommandRunner
+{
+    private static final Logger logger = Logger.getLogger(CommandRunner.class.getName());
+
+    private CommandRegistry registry;
+
+    /**
+     * Constructor that takes a command registry.
+     * @param registry The registry used to look up the commands
+     */
+    public CommandRunner(CommandRegistry registry)
+    {
+        this.registry = registry;
+    }
+
+    /**
+     * Returns the registry used to look up the commands.
+     * @return The command registry
+     */
+    public CommandRegistry getRegistry()
+    {
+        return registry;
+    }
+
+    /**
+     * Executes the given command line.
+     * @param args The argument list, the first argument being the name of the command
+     * @param out The stream used to print the usage statement
+     * @param err The stream used to print errors
+     * @return The exit status of the command
+     */
+    public int run(String[] args, PrintStream out, PrintStream err)
+    {
+        return run(args, null, out, err);
+    }
+
+    /**
+     * Executes the given command line, resolving relative file names against the given directory.
+     * @param args The argument list, the first argument being the name of the command
+     * @param directory The working directory of the client, or <CODE>null</CODE> to use the working directory of the process
+     * @param out The stream used to print the usage statement
+     * @param err The stream used to print errors
+     * @return The exit status of the command
+     */
+    public int run(String[] args, String directory, PrintStream out, PrintStream err)
+    {
+        if(args.length == 0)
+        {
+            err.println("ERROR: No command provided");
+            return 1;
+        }
+
+        String commandName = args[0];
+        BaseCommand command = registry.getCommand(commandName);
+        if(command == null)
+        {
+            err.println("ERROR: Unknown command: "+commandName);
+            return 1;
+        }
+
+        try
+        {
+            command.args(args).embedded(true).directory(directory).out(out).parse();
+        }
+        catch(CommandExitException e)
+        {
+            return e.getStatus();
+        }
+        catch(RuntimeException e)
+        {
+            logger.severe("Error executing command "+commandName+": "+e.getClass().getName()+": "+e.getMessage());
+            return 1;
+        }
+
+        return 0;
+    }
+}
\ No newline at end of file
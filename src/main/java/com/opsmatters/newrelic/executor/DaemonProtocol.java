@@ -0,0 +1,278 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.executor;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ProtocolException;
+import java.security.MessageDigest;
+
+/**
+ * The wire format used between {@link NewRelicServer} and {@link NewRelicClient}.
+ * <P>
+ * The client sends the token of the server and its working directory,
+ * followed by the number of arguments and each argument, each string being length-prefixed UTF-8.
+ * The server replies with a sequence of frames, each being a type byte followed by a length-prefixed payload,
+ * ending with an exit frame containing the exit status of the command.
+ *
+ * @author Gerald Curley (opsmatters)
+ */
+class DaemonProtocol
+{
+    /**
+     * The default port of the server.
+     */
+    static final int DEFAULT_PORT = 7867;
+
+    /**
+     * Frame containing text for standard output.
+     */
+    static final byte STDOUT = 'O';
+
+    /**
+     * Frame containing text for standard error.
+     */
+    static final byte STDERR = 'E';
+
+    /**
+     * Frame containing the exit status.
+     */
+    static final byte EXIT = 'X';
+
+    /**
+     * The maximum number of arguments of a command.
+     */
+    static final int MAX_ARGS = 4096;
+
+    /**
+     * The maximum length in bytes of an argument.
+     */
+    static final int MAX_ARG_LENGTH = 1024*1024;
+
+    /**
+     * The maximum length in bytes of the payload of a frame.
+     */
+    static final int MAX_FRAME_LENGTH = 16*1024*1024;
+
+    /**
+     * The maximum length in bytes of the token and working directory.
+     */
+    static final int MAX_STRING_LENGTH = 4096;
+
+    private static final String CHARSET = "UTF-8";
+
+    /**
+     * Private constructor as this class shouldn't be instantiated.
+     */
+    private DaemonProtocol()
+    {
+    }
+
+    /**
+     * Returns the default file containing the token of the server on the given port.
+     * @param port The port of the server
+     * @return The token file in the home directory of the user
+     */
+    static File getTokenFile(int port)
+    {
+        return new File(System.getProperty("user.home"), ".new_relic_server_"+port+".token");
+    }
+
+    /**
+     * Returns <CODE>true</CODE> if the given tokens are equal, taking the same time whatever the position of the first difference.
+     * @param expected The token of the server
+     * @param token The token sent by the client
+     * @return <CODE>true</CODE> if the tokens are equal
+     * @throws IOException if the tokens could not be encoded
+     */
+    static boolean isValidToken(String expected, String token) throws IOException
+    {
+        return MessageDigest.isEqual(expected.getBytes(CHARSET), token.getBytes(CHARSET));
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string to the given stream.
+     * @param out The output stream
+     * @param str The string to write
+     * @throws IOException if the string could not be written
+     */
+    static void writeString(DataOutputStream out, String str) throws IOException
+    {
+        writeBytes(out, str.getBytes(CHARSET));
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string from the given stream.
+     * @param in The input stream
+     * @return The string read
+     * @throws IOException if the string could not be read
+     * @throws ProtocolException if the length of the string is invalid
+     */
+    static String readString(DataInputStream in) throws IOException
+    {
+        return new String(readBytes(in, MAX_STRING_LENGTH), CHARSET);
+    }
+
+    /**
+     * Writes the command arguments to the given stream.
+     * @param out The output stream
+     * @param args The argument list
+     * @throws IOException if the arguments could not be written
+     */
+    static void writeArgs(DataOutputStream out, String[] args) throws IOException
+    {
+        out.writeInt(args.length);
+        for(String arg : args)
+            writeBytes(out, arg.getBytes(CHARSET));
+        out.flush();
+    }
+
+    /**
+     * Reads the command arguments from the given stream.
+     * @param in The input stream
+     * @return The argument list
+     * @throws IOException if the arguments could not be read
+     * @throws ProtocolException if the number or length of the arguments is invalid
+     */
+    static String[] readArgs(DataInputStream in) throws IOException
+    {
+        int count = in.readInt();
+        if(count < 0 || count > MAX_ARGS)
+            throw new ProtocolException("invalid argument count: "+count);
+        String[] args = new String[count];
+        for(int i = 0; i < count; i++)
+            args[i] = new String(readBytes(in, MAX_ARG_LENGTH), CHARSET);
+        return args;
+    }
+
+    /**
+     * Writes a frame to the given stream.
+     * @param out The output stream
+     * @param type The type of the frame
+     * @param b The payload of the frame
+     * @param off The offset of the payload
+     * @param len The length of the payload
+     * @throws IOException if the frame could not be written
+     */
+    static void writeFrame(DataOutputStream out, byte type, byte[] b, int off, int len) throws IOException
+    {
+        synchronized(out)
+        {
+            out.writeByte(type);
+            out.writeInt(len);
+            out.write(b, off, len);
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes an exit frame to the given stream.
+     * @param out The output stream
+     * @param status The exit status
+     * @throws IOException if the frame could not be written
+     */
+    static void writeExit(DataOutputStream out, int status) throws IOException
+    {
+        synchronized(out)
+        {
+            out.writeByte(EXIT);
+            out.writeInt(status);
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes a length-prefixed byte array to the given stream.
+     */
+    private static void writeBytes(DataOutputStream out, byte[] b) throws IOException
+    {
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    /**
+     * Reads the length-prefixed payload of a frame from the given stream.
+     * @param in The input stream
+     * @return The payload of the frame
+     * @throws IOException if the payload could not be read
+     * @throws ProtocolException if the length of the payload is invalid
+     */
+    static byte[] readBytes(DataInputStream in) throws IOException
+    {
+        return readBytes(in, MAX_FRAME_LENGTH);
+    }
+
+    /**
+     * Reads a length-prefixed byte array from the given stream, rejecting lengths above the given maximum.
+     */
+    private static byte[] readBytes(DataInputStream in, int max) throws IOException
+    {
+        int len = in.readInt();
+        if(len < 0 || len > max)
+            throw new ProtocolException("invalid length: "+len);
+        byte[] b = new byte[len];
+        in.readFully(b);
+        return b;
+    }
+
+    /**
+     * An output stream that writes each block of data as a frame of the given type.
+     */
+    static class FrameOutputStream extends OutputStream
+    {
+        private DataOutputStream out;
+        private byte type;
+
+        /**
+         * Constructor that takes an output stream and frame type.
+         * @param out The underlying output stream
+         * @param type The type of the frames
+         */
+        FrameOutputStream(DataOutputStream out, byte type)
+        {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            write(new byte[]{(byte)b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            while(len > 0)
+            {
+                int n = Math.min(len, MAX_FRAME_LENGTH);
+                writeFrame(out, type, b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            out.flush();
+        }
+    }
+}
\ No newline at end of file
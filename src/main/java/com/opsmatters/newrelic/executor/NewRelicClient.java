@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opsmatters.newrelic.executor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+
+/**
+ * Forwards a command line to a running {@link NewRelicServer} and streams back the output and exit status.  
+ * <P>
+ * The port of the server is taken from the "newrelic.server.port" system property.
+ * The token of the server is read from the file given by the "newrelic.server.token_file" system property,
+ * defaulting to the token file of the port in the home directory of the user.
+ * The working directory of the client is sent with the command line, so that relative file names are resolved against it.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class NewRelicClient
+{
+    /**
+     * Entry point that forwards the command line to the server.
+     * @param args The argument list
+     */
+    public static void main(String[] args)
+    {
+        int port = Integer.getInteger("newrelic.server.port", DaemonProtocol.DEFAULT_PORT);
+        String tokenFile = System.getProperty("newrelic.server.token_file");
+        File file = tokenFile != null ? new File(tokenFile) : DaemonProtocol.getTokenFile(port);
+
+        String token = null;
+        try
+        {
+            token = new String(Files.readAllBytes(file.toPath()), "UTF-8").trim();
+        }
+        catch(IOException e)
+        {
+            System.err.println("ERROR: Unable to read server token file "+file+": "+e.getClass().getName()+": "+e.getMessage());
+            System.exit(1);
+        }
+
+        int status = 1;
+        try
+        {
+            status = execute(port, token, args);
+        }
+        catch(IOException e)
+        {
+            System.err.println("ERROR: Unable to connect to server on port "+port+": "+e.getMessage());
+        }
+
+        System.exit(status);
+    }
+
+    /**
+     * Forwards the command line to the server on the given port.
+     * @param port The port of the server
+     * @param token The token of the server
+     * @param args The argument list
+     * @return The exit status of the command
+     * @throws IOException if the server could not be reached
+     */
+    public static int execute(int port, String token, String[] args) throws IOException
+    {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        try
+        {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DaemonProtocol.writeString(out, token);
+            DaemonProtocol.writeString(out, System.getProperty("user.dir"));
+            DaemonProtocol.writeArgs(out, args);
+
+            while(true)
+            {
+                byte type = in.readByte();
+                if(type == DaemonProtocol.EXIT)
+                    return in.readInt();
+
+                byte[] b = DaemonProtocol.readBytes(in);
+                if(type == DaemonProtocol.STDOUT)
+                {
+                    System.out.write(b);
+                    System.out.flush();
+                }
+                else
+                {
+                    System.err.write(b);
+                    System.err.flush();
+                }
+            }
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+}
\ No newline at end of file
@@ -16,11 +16,6 @@
 
 package com.opsmatters.newrelic.executor;
 
-import java.io.IOException;
-import java.util.Map;
-import java.util.LinkedHashMap;
-import java.util.Set;
-import com.google.common.reflect.ClassPath;
 import com.opsmatters.newrelic.commands.BaseCommand;
 
 /**
@@ -30,9 +25,7 @@ import com.opsmatters.newrelic.commands.BaseCommand;
  */
 public class NewRelicExecutor
 {
-    private static Map<String,BaseCommand> commands = new LinkedHashMap<String,BaseCommand>();
-
-    private static final String BASE_PKG = "com.opsmatters.newrelic.commands";
+    private static CommandRegistry registry;
 
     /**
      * Entry point that selects the command to execute.
@@ -42,19 +35,8 @@ public class NewRelicExecutor
     {
         System.setProperty("java.util.logging.config.file","logging.properties");
 
-        // Load all the commands
-        loadCommands(BASE_PKG+".accounts");
-        loadCommands(BASE_PKG+".alerts.channels");
-        loadCommands(BASE_PKG+".alerts.conditions");
-        loadCommands(BASE_PKG+".alerts.policies");
-        loadCommands(BASE_PKG+".applications");
-        loadCommands(BASE_PKG+".deployments");
-        loadCommands(BASE_PKG+".insights");
-        loadCommands(BASE_PKG+".labels");
-        loadCommands(BASE_PKG+".plugins");
-        loadCommands(BASE_PKG+".servers");
-        loadCommands(BASE_PKG+".synthetics");
-        loadCommands(BASE_PKG+".transactions");
+        // Load the command index
+        registry = CommandRegistry.load();
 
         // Exit if no arguments provided
         if(args.length == 0)
@@ -64,9 +46,21 @@ public class NewRelicExecutor
             System.exit(1);
         }
 
-        // Otherwise execute the command
+        // Execute a file of command lines
         String commandName = args[0];
-        BaseCommand command = commands.get(commandName);
+        if(commandName.equals(BatchRunner.NAME))
+        {
+            System.exit(BatchRunner.execute(registry, args));
+        }
+
+        // Execute a command against a file of accounts
+        if(commandName.equals(AccountRunner.NAME))
+        {
+            System.exit(AccountRunner.execute(registry, args));
+        }
+
+        // Otherwise execute the command
+        BaseCommand command = registry.getCommand(commandName);
         if(command != null)
         {
             command.args(args).parse();
@@ -86,52 +80,17 @@ public class NewRelicExecutor
     {
         System.err.println("The supported commands are:");
         StringBuilder str = new StringBuilder();
-        for(BaseCommand command : commands.values())
+        str.append("  ");
+        str.append(BatchRunner.NAME);
+        str.append("\n  ");
+        str.append(AccountRunner.NAME);
+        for(String name : registry.getNames())
         {
             if(str.length() > 0)
                 str.append("\n");
             str.append("  ");
-            str.append(command.getName());
+            str.append(name);
         }
         System.err.println(str.toString());
     }
-
-    /**
-     * Load the commands from the package.
-     */
-    private static void loadCommands(String packageName)
-    {
-        try
-        {
-            ClassLoader loader = ClassLoader.getSystemClassLoader();
-            Set<ClassPath.ClassInfo> classes = ClassPath.from(loader).getTopLevelClasses(packageName);
-            for(ClassPath.ClassInfo ci : classes)
-            {
-                Class cl = Class.forName(ci.getName());
-                if(BaseCommand.class.isAssignableFrom(cl))
-                {
-                    try
-                    {
-                        BaseCommand command = BaseCommand.class.cast(cl.newInstance());
-                        commands.put(command.getName(), command);
-                    }
-                    catch(InstantiationException e)
-                    {
-                    }
-                }
-            }
-        }
-        catch(IOException e)
-        {
-            e.printStackTrace();
-        }
-        catch(ClassNotFoundException e)
-        {
-            e.printStackTrace();
-        }
-        catch(IllegalAccessException e)
-        {
-            e.printStackTrace();
-        }
-    }
 }
\ No newline at end of file
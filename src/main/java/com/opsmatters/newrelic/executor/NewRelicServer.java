@@ -0,0 +1,338 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opsmatters.newrelic.executor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import com.opsmatters.newrelic.clients.ApiClientFactory;
+import com.opsmatters.newrelic.metrics.Metrics;
+
+/**
+ * Runs a long-running process that executes the command lines sent by {@link NewRelicClient}.
+ * <P>
+ * The JVM, the command index and the API clients for each API key are kept warm between commands.
+ * The server only accepts connections on the loopback interface.
+ * A new random token is written to a file readable only by the user running the server each time it starts,
+ * and connections that do not send the token are rejected, so only that user can execute commands through the server.
+ * Relative file names in the commands are resolved against the working directory sent by the client.
+ * <P>
+ * The "server_metrics" command prints the latency of the API calls and command phases executed by the server,
+ * in the Prometheus text format or as JSON if followed by "json".
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class NewRelicServer
+{
+    static
+    {
+        // Must be set before the first logger is created for the logging configuration to be read
+        if(System.getProperty("java.util.logging.config.file") == null)
+            System.setProperty("java.util.logging.config.file","logging.properties");
+    }
+
+    private static final Logger logger = Logger.getLogger(NewRelicServer.class.getName());
+    private static final String NAME = "new_relic_server";
+
+    private static final int DEFAULT_THREADS = 8;
+
+    /**
+     * The name of the command that prints the metrics of the server.
+     */
+    public static final String METRICS = "server_metrics";
+
+    private CommandRunner runner;
+    private int port;
+    private int threads;
+    private String metricsFile;
+    private File tokenFile;
+    private String token;
+
+    /**
+     * Constructor that takes a port and number of threads.
+     * @param runner The runner used to execute the commands
+     * @param port The port to listen on
+     * @param threads The maximum number of commands to execute concurrently
+     */
+    public NewRelicServer(CommandRunner runner, int port, int threads)
+    {
+        this.runner = runner;
+        this.port = port;
+        this.threads = threads;
+        this.tokenFile = DaemonProtocol.getTokenFile(port);
+    }
+
+    /**
+     * Sets the file the metrics are written to when the server exits and when the metrics are requested.
+     * @param metricsFile The name of the metrics file
+     * @return This object
+     */
+    public NewRelicServer metricsFile(String metricsFile)
+    {
+        this.metricsFile = metricsFile;
+        if(metricsFile != null)
+            Metrics.getInstance().writeOnExit(metricsFile);
+        return this;
+    }
+
+    /**
+     * Sets the file the token of the server is written to.
+     * @param tokenFile The token file, or <CODE>null</CODE> to use the default file for the port in the home directory of the user
+     * @return This object
+     */
+    public NewRelicServer tokenFile(File tokenFile)
+    {
+        if(tokenFile != null)
+            this.tokenFile = tokenFile;
+        return this;
+    }
+
+    /**
+     * Entry point that starts the server.
+     * @param args The argument list
+     */
+    public static void main(String[] args)
+    {
+        Options options = new Options();
+        options.addOption("h", "help", false, "Prints a usage statement");
+        options.addOption("p", "port", true, "The port to listen on, defaults to "+DaemonProtocol.DEFAULT_PORT);
+        options.addOption("t", "threads", true, "The maximum number of commands to execute concurrently, defaults to "+DEFAULT_THREADS);
+        options.addOption("mc", "max_connections", true, "The maximum number of idle keep-alive connections for each API host, defaults to "
+            +ApiClientFactory.DEFAULT_MAX_CONNECTIONS);
+        options.addOption("mf", "metrics_file", true, "The file the metrics are written to on exit and when requested, as JSON if the name ends with .json");
+        options.addOption("tf", "token_file", true, "The file the token of the server is written to, defaults to "
+            +DaemonProtocol.getTokenFile(DaemonProtocol.DEFAULT_PORT).getName()+" (for the port) in the home directory of the user");
+
+        int port = DaemonProtocol.DEFAULT_PORT;
+        int threads = DEFAULT_THREADS;
+        String metricsFile = null;
+        File tokenFile = null;
+
+        try
+        {
+            CommandLine cli = new BasicParser().parse(options, args);
+            if(cli.hasOption("h"))
+            {
+                new HelpFormatter().printHelp(NAME, options);
+                System.exit(0);
+            }
+
+            if(cli.hasOption("p"))
+                port = Integer.parseInt(cli.getOptionValue("p"));
+            if(cli.hasOption("t"))
+                threads = Integer.parseInt(cli.getOptionValue("t"));
+            if(cli.hasOption("mc"))
+                ApiClientFactory.setMaxConnections(Integer.parseInt(cli.getOptionValue("mc")));
+            if(cli.hasOption("mf"))
+                metricsFile = cli.getOptionValue("mf");
+            if(cli.hasOption("tf"))
+                tokenFile = new File(cli.getOptionValue("tf"));
+        }
+        catch(ParseException e)
+        {
+            System.err.println("ERROR: "+e.getMessage());
+            new HelpFormatter().printHelp(NAME, options);
+            System.exit(1);
+        }
+        catch(NumberFormatException e)
+        {
+            System.err.println("ERROR: Invalid number: "+e.getMessage());
+            new HelpFormatter().printHelp(NAME, options);
+            System.exit(1);
+        }
+
+        ThreadLogHandler.install();
+
+        try
+        {
+            new NewRelicServer(new CommandRunner(CommandRegistry.load()), port, threads)
+                .metricsFile(metricsFile)
+                .tokenFile(tokenFile)
+                .start();
+        }
+        catch(IOException e)
+        {
+            logger.severe("Unable to start server: "+e.getClass().getName()+": "+e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Accepts connections until the process is stopped.
+     * @throws IOException if the server socket could not be opened
+     */
+    public void start() throws IOException
+    {
+        writeToken();
+        ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        logger.info("Listening on "+server.getInetAddress().getHostAddress()+":"+server.getLocalPort()
+            +" with token file "+tokenFile);
+
+        try
+        {
+            while(true)
+            {
+                final Socket socket = server.accept();
+                executor.execute(new Runnable()
+                {
+                    public void run()
+                    {
+                        handle(socket);
+                    }
+                });
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+            server.close();
+        }
+    }
+
+    /**
+     * Creates a new random token and writes it to the token file, readable and writable only by the owner.
+     * @throws IOException if the token file could not be written
+     */
+    private void writeToken() throws IOException
+    {
+        byte[] b = new byte[32];
+        new SecureRandom().nextBytes(b);
+        StringBuilder str = new StringBuilder();
+        for(byte x : b)
+            str.append(String.format("%02x", x));
+        token = str.toString();
+
+        // Create the file with the permissions set so that the token is never readable by other users
+        Path path = tokenFile.toPath();
+        Files.deleteIfExists(path);
+        try
+        {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+        catch(UnsupportedOperationException e)
+        {
+            Files.createFile(path);
+            File file = path.toFile();
+            file.setReadable(false, false);
+            file.setWritable(false, false);
+            file.setReadable(true, true);
+            file.setWritable(true, true);
+        }
+
+        Files.write(path, token.getBytes("UTF-8"));
+        tokenFile.deleteOnExit();
+    }
+
+    /**
+     * Executes the command sent on the given connection.
+     * @param socket The client connection
+     */
+    private void handle(Socket socket)
+    {
+        try
+        {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            PrintStream stdout = new PrintStream(new DaemonProtocol.FrameOutputStream(out, DaemonProtocol.STDOUT), true, "UTF-8");
+            PrintStream stderr = new PrintStream(new DaemonProtocol.FrameOutputStream(out, DaemonProtocol.STDERR), true, "UTF-8");
+
+            String clientToken = DaemonProtocol.readString(in);
+            String directory = DaemonProtocol.readString(in);
+            String[] args = DaemonProtocol.readArgs(in);
+            if(!DaemonProtocol.isValidToken(token, clientToken))
+            {
+                logger.warning("Rejected connection with an invalid token");
+                stderr.println("ERROR: Invalid server token, check the token file: "+tokenFile);
+                DaemonProtocol.writeExit(out, 1);
+                return;
+            }
+
+            int status = 1;
+            ThreadLogHandler.setStream(stderr);
+            try
+            {
+                if(args.length > 0 && args[0].equals(METRICS))
+                    status = writeMetrics(args, stdout);
+                else
+                    status = runner.run(args, directory.length() > 0 ? directory : null, stdout, stderr);
+            }
+            finally
+            {
+                ThreadLogHandler.setStream(null);
+            }
+
+            DaemonProtocol.writeExit(out, status);
+        }
+        catch(IOException e)
+        {
+            logger.warning("Error handling connection: "+e.getClass().getName()+": "+e.getMessage());
+        }
+        catch(RuntimeException e)
+        {
+            logger.warning("Error handling connection: "+e.getClass().getName()+": "+e.getMessage());
+        }
+        finally
+        {
+            try
+            {
+                socket.close();
+            }
+            catch(IOException e)
+            {
+            }
+        }
+    }
+
+    /**
+     * Prints the metrics of the server, also writing them to the metrics file if there is one.
+     * @param args The argument list, with "json" as the second argument to print the metrics as JSON
+     * @param out The stream to print the metrics to
+     * @return The exit status of the command
+     * @throws IOException if the metrics could not be written
+     */
+    private int writeMetrics(String[] args, PrintStream out) throws IOException
+    {
+        boolean json = args.length > 1 && args[1].equalsIgnoreCase("json");
+        OutputStreamWriter writer = new OutputStreamWriter(out, "UTF-8");
+        Metrics.getInstance().write(writer, json);
+        writer.flush();
+
+        if(metricsFile != null)
+            Metrics.getInstance().write(metricsFile);
+        return 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.executor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream that writes each line to a shared stream with a prefix, eg. to tag the output of an account.
+ * <P>
+ * Lines are buffered until they are complete, so that the lines written by different threads are not interleaved.
+ *
+ * @author Gerald Curley (opsmatters)
+ */
+class PrefixOutputStream extends OutputStream
+{
+    private OutputStream out;
+    private byte[] prefix;
+    private ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+    /**
+     * Constructor that takes the shared stream and the prefix.
+     * @param out The shared stream that the lines are written to
+     * @param prefix The prefix written at the start of each line
+     */
+    PrefixOutputStream(OutputStream out, String prefix)
+    {
+        this.out = out;
+        this.prefix = prefix.getBytes();
+    }
+
+    /**
+     * Writes the given byte, writing the line to the shared stream if it is complete.
+     * @param b The byte to write
+     * @throws IOException if the line could not be written
+     */
+    @Override
+    public synchronized void write(int b) throws IOException
+    {
+        line.write(b);
+        if(b == '\n')
+            writeLine();
+    }
+
+    /**
+     * Flushes the shared stream, leaving any incomplete line in the buffer.
+     * @throws IOException if the stream could not be flushed
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        out.flush();
+    }
+
+    /**
+     * Writes any incomplete line to the shared stream, leaving the shared stream open.
+     * @throws IOException if the line could not be written
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if(line.size() > 0)
+        {
+            line.write('\n');
+            writeLine();
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the buffered line to the shared stream with the prefix.
+     */
+    private void writeLine() throws IOException
+    {
+        synchronized(out)
+        {
+            out.write(prefix);
+            line.writeTo(out);
+        }
+        line.reset();
+    }
+}
\ No newline at end of file
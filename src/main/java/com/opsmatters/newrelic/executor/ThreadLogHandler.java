@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opsmatters.newrelic.executor;
+
+import java.io.PrintStream;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * A log handler that writes each record to the stream registered for the current thread.
+ * <P>
+ * Allows the log messages of commands executing concurrently to be returned to the client that requested them.
+ * Threads started by a command inherit the stream of the command.
+ * Records from threads without a registered stream are written to standard error.
+ *
+ * @author Gerald Curley (opsmatters)
+ */
+public class ThreadLogHandler extends Handler
+{
+    private static final InheritableThreadLocal<PrintStream> streams = new InheritableThreadLocal<PrintStream>();
+
+    /**
+     * Default constructor.
+     */
+    public ThreadLogHandler()
+    {
+        setFormatter(new SimpleFormatter());
+        setLevel(Level.ALL);
+    }
+
+    /**
+     * Replaces the handlers of the root logger with a new thread log handler.
+     */
+    public static void install()
+    {
+        Logger root = Logger.getLogger("");
+        for(Handler handler : root.getHandlers())
+            root.removeHandler(handler);
+        root.addHandler(new ThreadLogHandler());
+    }
+
+    /**
+     * Sets the stream used for log records of the current thread.
+     * @param stream The stream for log records, or <CODE>null</CODE> to use standard error
+     */
+    public static void setStream(PrintStream stream)
+    {
+        if(stream != null)
+            streams.set(stream);
+        else
+            streams.remove();
+    }
+
+    /**
+     * Publishes the given log record to the stream of the current thread.
+     * @param record The log record
+     */
+    @Override
+    public void publish(LogRecord record)
+    {
+        if(!isLoggable(record))
+            return;
+
+        PrintStream stream = streams.get();
+        if(stream == null)
+            stream = System.err;
+        stream.print(getFormatter().format(record));
+        stream.flush();
+    }
+
+    /**
+     * Flushes the stream of the current thread.
+     */
+    @Override
+    public void flush()
+    {
+        PrintStream stream = streams.get();
+        if(stream != null)
+            stream.flush();
+    }
+
+    /**
+     * Closes the handler.
+     */
+    @Override
+    public void close()
+    {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Holds the timers of the API calls and command phases executed within the JVM, and writes them as a report.
+ * <P>
+ * The report is written in the Prometheus text format, or as JSON if the file name ends with ".json".
+ * It is written when the JVM exits if a file is given using {@link #writeOnExit(String)}
+ * or the "newrelic.metrics.file" system property.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class Metrics
+{
+    private static final Logger logger = Logger.getLogger(Metrics.class.getName());
+
+    /**
+     * The system property containing the name of the report file written when the JVM exits.
+     */
+    public static final String FILE_PROPERTY = "newrelic.metrics.file";
+
+    /**
+     * The name of the metric for the API calls, labelled by endpoint and HTTP method.
+     */
+    public static final String API_CALLS = "newrelic_api_call_seconds";
+
+    /**
+     * The name of the metric for the command phases, labelled by command and phase.
+     */
+    public static final String COMMAND_PHASES = "newrelic_command_phase_seconds";
+
+    private static final String JSON = ".json";
+    private static final String SECONDS = "_seconds";
+
+    private static final Metrics instance = new Metrics();
+
+    private ConcurrentMap<String,Timer> timers = new ConcurrentHashMap<String,Timer>();
+    private volatile String exitFile;
+    private boolean hook = false;
+
+    /**
+     * Private constructor as this class is a singleton.
+     */
+    private Metrics()
+    {
+        String filename = System.getProperty(FILE_PROPERTY);
+        if(filename != null && filename.length() > 0)
+            writeOnExit(filename);
+    }
+
+    /**
+     * Returns the shared instance of the metrics.
+     * @return The shared instance of the metrics
+     */
+    public static Metrics getInstance()
+    {
+        return instance;
+    }
+
+    /**
+     * Returns the timer for the calls to the given API endpoint, creating it if necessary.
+     * @param endpoint The API endpoint, eg. "alerts_policies"
+     * @param method The HTTP method, eg. "GET"
+     * @return The timer for the API calls
+     */
+    public Timer apiCall(String endpoint, String method)
+    {
+        return timer(API_CALLS, "endpoint", endpoint, "method", method);
+    }
+
+    /**
+     * Returns the timer for the given phase of a command, creating it if necessary.
+     * @param command The name of the command
+     * @param phase The name of the phase, eg. "parse", "lookup", "fetch", "read", "write" or "create"
+     * @return The timer for the command phase
+     */
+    public Timer phase(String command, String phase)
+    {
+        return timer(COMMAND_PHASES, "command", command, "phase", phase);
+    }
+
+    /**
+     * Returns the timer with the given name and labels, creating it if necessary.
+     * @param name The name of the metric
+     * @param labels The names and values of the labels
+     * @return The timer
+     */
+    public Timer timer(String name, String... labels)
+    {
+        if(labels.length%2 != 0)
+            throw new IllegalArgumentException("labels must be name and value pairs");
+
+        StringBuilder key = new StringBuilder(name);
+        Map<String,String> map = new LinkedHashMap<String,String>();
+        for(int i = 0; i < labels.length; i += 2)
+        {
+            map.put(labels[i], labels[i+1]);
+            key.append('|').append(labels[i+1]);
+        }
+
+        Timer timer = timers.get(key.toString());
+        if(timer == null)
+        {
+            timer = new Timer(name, map);
+            Timer existing = timers.putIfAbsent(key.toString(), timer);
+            if(existing != null)
+                timer = existing;
+        }
+
+        return timer;
+    }
+
+    /**
+     * Executes the given call, recording its latency and whether it failed.
+     * @param timer The timer used to record the call
+     * @param call The call to execute
+     * @return The result of the call
+     * @throws Exception if the call fails
+     */
+    public static <T> T time(Timer timer, Callable<T> call) throws Exception
+    {
+        Timer.Context context = timer.start();
+        try
+        {
+            return call.call();
+        }
+        catch(Exception e)
+        {
+            context.error();
+            throw e;
+        }
+        finally
+        {
+            context.stop();
+        }
+    }
+
+    /**
+     * Returns the timers recorded, in the order of their names and labels.
+     * @return The timers recorded
+     */
+    public List<Timer> getTimers()
+    {
+        Map<String,Timer> sorted = new TreeMap<String,Timer>(timers);
+        return new ArrayList<Timer>(sorted.values());
+    }
+
+    /**
+     * Removes all the timers.
+     */
+    public void clear()
+    {
+        timers.clear();
+    }
+
+    /**
+     * Writes the report to the given file when the JVM exits.
+     * @param filename The name of the report file
+     */
+    public synchronized void writeOnExit(String filename)
+    {
+        exitFile = filename;
+        if(!hook)
+        {
+            hook = true;
+            Runtime.getRuntime().addShutdownHook(new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        write(exitFile);
+                    }
+                    catch(IOException e)
+                    {
+                        logger.severe("Unable to write metrics file: "+e.getClass().getName()+": "+e.getMessage());
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes the report to the given file, as JSON if the file name ends with ".json",
+     * otherwise in the Prometheus text format.
+     * @param filename The name of the report file
+     * @throws IOException if the file could not be written
+     */
+    public void write(String filename) throws IOException
+    {
+        File file = new File(filename);
+        File tmp = new File(file.getPath()+".tmp");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8");
+        try
+        {
+            write(writer, filename.toLowerCase().endsWith(JSON));
+        }
+        finally
+        {
+            writer.close();
+        }
+
+        // Replace the file in one step so that a scraper never reads a partial report
+        if(!tmp.renameTo(file))
+        {
+            file.delete();
+            if(!tmp.renameTo(file))
+                throw new IOException("unable to rename file: "+tmp.getPath());
+        }
+    }
+
+    /**
+     * Writes the report to the given writer.
+     * @param writer The writer to write the report to
+     * @param json <CODE>true</CODE> if the report should be written as JSON, otherwise in the Prometheus text format
+     * @throws IOException if the report could not be written
+     */
+    public void write(Writer writer, boolean json) throws IOException
+    {
+        if(json)
+            writeJson(writer);
+        else
+            writePrometheus(writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes the report as JSON, with an array of timers for each metric.
+     * @param writer The writer to write the report to
+     * @throws IOException if the report could not be written
+     */
+    public void writeJson(Writer writer) throws IOException
+    {
+        JsonObject report = new JsonObject();
+        report.addProperty("timestamp", System.currentTimeMillis());
+        for(Timer timer : getTimers())
+        {
+            JsonArray array = report.getAsJsonArray(timer.getName());
+            if(array == null)
+            {
+                array = new JsonArray();
+                report.add(timer.getName(), array);
+            }
+
+            JsonObject object = new JsonObject();
+            for(Map.Entry<String,String> label : timer.getLabels().entrySet())
+                object.addProperty(label.getKey(), label.getValue());
+            object.addProperty("count", timer.getCount());
+            object.addProperty("errors", timer.getErrors());
+            object.addProperty("sum_seconds", timer.getSum());
+            object.addProperty("max_ms", timer.getMax());
+            object.addProperty("p50_ms", timer.getPercentile(0.50d));
+            object.addProperty("p95_ms", timer.getPercentile(0.95d));
+            object.addProperty("p99_ms", timer.getPercentile(0.99d));
+
+            JsonObject buckets = new JsonObject();
+            long[] counts = timer.getBuckets();
+            for(int i = 0; i < counts.length; i++)
+                buckets.addProperty(Double.toString(Timer.BUCKETS[i]), counts[i]);
+            buckets.addProperty("+Inf", timer.getCount());
+            object.add("buckets", buckets);
+
+            array.add(object);
+        }
+
+        new GsonBuilder().setPrettyPrinting().create().toJson(report, writer);
+    }
+
+    /**
+     * Writes the report in the Prometheus text format, with a histogram and an error counter for each metric.
+     * @param writer The writer to write the report to
+     * @throws IOException if the report could not be written
+     */
+    public void writePrometheus(Writer writer) throws IOException
+    {
+        PrintWriter pw = new PrintWriter(writer);
+        String name = null;
+        List<Timer> timers = getTimers();
+        for(Timer timer : timers)
+        {
+            if(!timer.getName().equals(name))
+            {
+                name = timer.getName();
+                pw.print("# TYPE "+name+" histogram\n");
+            }
+
+            String labels = labels(timer);
+            long[] counts = timer.getBuckets();
+            for(int i = 0; i < counts.length; i++)
+                pw.print(name+"_bucket{"+labels+",le=\""+Timer.BUCKETS[i]+"\"} "+counts[i]+"\n");
+            pw.print(name+"_bucket{"+labels+",le=\"+Inf\"} "+timer.getCount()+"\n");
+            pw.print(name+"_sum{"+labels+"} "+timer.getSum()+"\n");
+            pw.print(name+"_count{"+labels+"} "+timer.getCount()+"\n");
+        }
+
+        name = null;
+        for(Timer timer : timers)
+        {
+            String errors = errors(timer.getName());
+            if(!errors.equals(name))
+            {
+                name = errors;
+                pw.print("# TYPE "+name+" counter\n");
+            }
+            pw.print(name+"{"+labels(timer)+"} "+timer.getErrors()+"\n");
+        }
+
+        pw.flush();
+    }
+
+    /**
+     * Returns the name of the error counter for the given metric, eg. "newrelic_api_call_errors_total".
+     */
+    private static String errors(String name)
+    {
+        if(name.endsWith(SECONDS))
+            name = name.substring(0, name.length()-SECONDS.length());
+        return name+"_errors_total";
+    }
+
+    /**
+     * Returns the labels of the given timer in the Prometheus text format.
+     */
+    private static String labels(Timer timer)
+    {
+        StringBuilder ret = new StringBuilder();
+        for(Map.Entry<String,String> label : timer.getLabels().entrySet())
+        {
+            if(ret.length() > 0)
+                ret.append(',');
+            ret.append(label.getKey()).append("=\"").append(escape(label.getValue())).append('"');
+        }
+        return ret.toString();
+    }
+
+    /**
+     * Returns the given label value with the backslashes, quotes and newlines escaped.
+     */
+    private static String escape(String value)
+    {
+        if(value == null)
+            return "";
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.metrics;
+
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the count, errors and latency histogram of an operation, eg. the calls to an API endpoint.
+ * <P>
+ * The histogram uses the default buckets of the Prometheus client libraries, from 5ms to 10s.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class Timer
+{
+    /**
+     * The upper bounds of the histogram buckets in seconds.
+     */
+    public static final double[] BUCKETS = {0.005d, 0.01d, 0.025d, 0.05d, 0.1d, 0.25d, 0.5d, 1.0d, 2.5d, 5.0d, 10.0d};
+
+    private String name;
+    private Map<String,String> labels;
+    private long count = 0L;
+    private long errors = 0L;
+    private long sum = 0L;
+    private long max = 0L;
+    private long[] buckets = new long[BUCKETS.length];
+
+    /**
+     * Constructor that takes a name and labels.
+     * @param name The name of the metric, eg. "newrelic_api_call_seconds"
+     * @param labels The labels of the timer, eg. the endpoint and method
+     */
+    public Timer(String name, Map<String,String> labels)
+    {
+        this.name = name;
+        this.labels = new LinkedHashMap<String,String>(labels);
+    }
+
+    /**
+     * Returns the name of the metric.
+     * @return The name of the metric
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the labels of the timer.
+     * @return The labels of the timer
+     */
+    public Map<String,String> getLabels()
+    {
+        return labels;
+    }
+
+    /**
+     * Starts timing an operation.
+     * @return The context used to stop the timing
+     */
+    public Context start()
+    {
+        return new Context();
+    }
+
+    /**
+     * Records the latency of an operation.
+     * @param nanos The latency of the operation in nanoseconds
+     * @param error <CODE>true</CODE> if the operation failed
+     */
+    public synchronized void record(long nanos, boolean error)
+    {
+        ++count;
+        if(error)
+            ++errors;
+        sum += nanos;
+        if(nanos > max)
+            max = nanos;
+
+        double seconds = nanos/1.0e9d;
+        for(int i = 0; i < BUCKETS.length; i++)
+        {
+            if(seconds <= BUCKETS[i])
+            {
+                ++buckets[i];
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of operations recorded.
+     * @return The number of operations recorded
+     */
+    public synchronized long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the number of operations that failed.
+     * @return The number of operations that failed
+     */
+    public synchronized long getErrors()
+    {
+        return errors;
+    }
+
+    /**
+     * Returns the total latency of the operations in seconds.
+     * @return The total latency of the operations in seconds
+     */
+    public synchronized double getSum()
+    {
+        return sum/1.0e9d;
+    }
+
+    /**
+     * Returns the maximum latency of the operations in milliseconds.
+     * @return The maximum latency of the operations in milliseconds
+     */
+    public synchronized double getMax()
+    {
+        return max/1.0e6d;
+    }
+
+    /**
+     * Returns the cumulative count of operations in each bucket, ie. the number of operations with a latency
+     * less than or equal to the upper bound of the bucket.
+     * @return The cumulative count of operations in each bucket
+     */
+    public synchronized long[] getBuckets()
+    {
+        long[] ret = new long[buckets.length];
+        long total = 0L;
+        for(int i = 0; i < buckets.length; i++)
+        {
+            total += buckets[i];
+            ret[i] = total;
+        }
+        return ret;
+    }
+
+    /**
+     * Returns an estimate of the given percentile of the latency in milliseconds, interpolated within the histogram buckets.
+     * @param percentile The percentile, between 0 and 1
+     * @return The estimated percentile of the latency in milliseconds
+     */
+    public synchronized double getPercentile(double percentile)
+    {
+        if(count == 0L)
+            return 0.0d;
+
+        double rank = percentile*count;
+        double lower = 0.0d;
+        long total = 0L;
+        for(int i = 0; i < buckets.length; i++)
+        {
+            if(buckets[i] > 0L && total+buckets[i] >= rank)
+            {
+                double upper = Math.min(BUCKETS[i]*1000.0d, getMax());
+                return lower+(upper-lower)*((rank-total)/buckets[i]);
+            }
+            total += buckets[i];
+            lower = BUCKETS[i]*1000.0d;
+        }
+
+        // The percentile is above the last bucket
+        return getMax();
+    }
+
+    /**
+     * Measures the latency of a single operation.
+     */
+    public class Context
+    {
+        private long start = System.nanoTime();
+        private boolean error = false;
+        private boolean stopped = false;
+
+        /**
+         * Private constructor, as contexts are created using {@link Timer#start()}.
+         */
+        private Context()
+        {
+        }
+
+        /**
+         * Marks the operation as failed.
+         */
+        public void error()
+        {
+            error = true;
+        }
+
+        /**
+         * Stops timing the operation and records its latency.
+         * <P>
+         * Only the first call has any effect.
+         * @return The latency of the operation in milliseconds
+         */
+        public long stop()
+        {
+            long nanos = System.nanoTime()-start;
+            if(!stopped)
+            {
+                stopped = true;
+                record(nanos, error);
+            }
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+    }
+}
\ No newline at end of file
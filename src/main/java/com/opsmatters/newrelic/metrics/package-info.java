@@ -0,0 +1,4 @@
+/**
+ * The classes used to record and report the latency of New Relic commands and API calls.
+ */
+package com.opsmatters.newrelic.metrics;
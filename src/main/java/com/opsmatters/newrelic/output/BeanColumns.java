@@ -0,0 +1,227 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opsmatters.newrelic.output;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
+
+/**
+ * Derives the columns of an output row from the bean properties of a class.
+ * <P>
+ * Each public getter of the class becomes a column, named in lower case with underscores (eg. "getPolicyId" becomes "policy_id").
+ * The "id" and "name" columns come first and the remaining columns are sorted by name.
+ * As cell values, collections are joined with commas, and other objects are written using their string value.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class BeanColumns<T>
+{
+    private List<String> names = new ArrayList<String>();
+    private List<Method> getters = new ArrayList<Method>();
+    private Map<String,Method> columns = new HashMap<String,Method>();
+
+    /**
+     * Constructor that takes the class of the beans.
+     * @param type The class of the beans
+     */
+    public BeanColumns(Class<T> type)
+    {
+        Method[] methods = type.getMethods();
+        Arrays.sort(methods, new Comparator<Method>()
+        {
+            public int compare(Method m1, Method m2)
+            {
+                int r1 = rank(m1), r2 = rank(m2);
+                return r1 != r2 ? r1-r2 : columnName(m1).compareTo(columnName(m2));
+            }
+        });
+
+        for(Method method : methods)
+        {
+            if(isGetter(method))
+            {
+                names.add(columnName(method));
+                getters.add(method);
+                columns.put(columnName(method), method);
+            }
+        }
+    }
+
+    /**
+     * Returns the names of the columns.
+     * @return The names of the columns
+     */
+    public List<String> getNames()
+    {
+        return names;
+    }
+
+    /**
+     * Returns the column values for the given bean.
+     * @param bean The bean
+     * @return The values of the columns
+     */
+    public List<Object> getValues(T bean)
+    {
+        List<Object> ret = new ArrayList<Object>(getters.size());
+        for(Method getter : getters)
+            ret.add(value(invoke(getter, bean)));
+        return ret;
+    }
+
+    /**
+     * Returns the values of the given columns for the bean, eg. to output a subset of the columns.
+     * @param bean The bean
+     * @param names The names of the columns
+     * @return The values of the columns, with <CODE>null</CODE> for a column the bean does not have
+     */
+    public List<Object> getValues(T bean, List<String> names)
+    {
+        List<Object> ret = new ArrayList<Object>(names.size());
+        for(String name : names)
+        {
+            Method getter = columns.get(name);
+            ret.add(getter != null ? value(invoke(getter, bean)) : null);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the property values of the given columns for the bean without converting them to cell values,
+     * eg. for an output that can write nested objects and collections.
+     * @param bean The bean
+     * @param names The names of the columns
+     * @return The property values of the columns, with <CODE>null</CODE> for a column the bean does not have
+     */
+    public List<Object> getProperties(T bean, List<String> names)
+    {
+        List<Object> ret = new ArrayList<Object>(names.size());
+        for(String name : names)
+        {
+            Method getter = columns.get(name);
+            ret.add(getter != null ? invoke(getter, bean) : null);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the value of the given getter for the bean.
+     */
+    private static Object invoke(Method getter, Object bean)
+    {
+        try
+        {
+            return getter.invoke(bean);
+        }
+        catch(IllegalAccessException e)
+        {
+            return null;
+        }
+        catch(InvocationTargetException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Converts the given property value to a value for a cell.
+     */
+    private static Object value(Object value)
+    {
+        if(value == null || value instanceof Number || value instanceof Boolean || value instanceof String)
+            return value;
+        if(value instanceof Date)
+            return Long.valueOf(((Date)value).getTime());
+        if(value instanceof Collection)
+        {
+            StringBuilder str = new StringBuilder();
+            for(Object item : (Collection<?>)value)
+            {
+                if(str.length() > 0)
+                    str.append(",");
+                str.append(item);
+            }
+            return str.toString();
+        }
+        return value.toString();
+    }
+
+    /**
+     * Returns <CODE>true</CODE> if the given method is a property getter.
+     */
+    private static boolean isGetter(Method method)
+    {
+        if(Modifier.isStatic(method.getModifiers()) || method.getParameterTypes().length > 0
+            || method.getDeclaringClass() == Object.class)
+        {
+            return false;
+        }
+
+        String name = method.getName();
+        if(name.startsWith("get") && name.length() > 3)
+            return method.getReturnType() != Void.TYPE;
+        if(name.startsWith("is") && name.length() > 2)
+            return method.getReturnType() == Boolean.TYPE || method.getReturnType() == Boolean.class;
+        return false;
+    }
+
+    /**
+     * Returns the sort rank of the given getter.
+     */
+    private static int rank(Method method)
+    {
+        String name = columnName(method);
+        if(name.equals("id"))
+            return 0;
+        if(name.equals("name"))
+            return 1;
+        return 2;
+    }
+
+    /**
+     * Returns the column name of the given getter, eg. "getPolicyId" becomes "policy_id".
+     */
+    private static String columnName(Method method)
+    {
+        String name = method.getName();
+        name = name.substring(name.startsWith("is") ? 2 : 3);
+        StringBuilder str = new StringBuilder();
+        for(int i = 0; i < name.length(); i++)
+        {
+            char c = name.charAt(i);
+            if(Character.isUpperCase(c))
+            {
+                if(i > 0 && !Character.isUpperCase(name.charAt(i-1)))
+                    str.append('_');
+                str.append(Character.toLowerCase(c));
+            }
+            else
+            {
+                str.append(c);
+            }
+        }
+        return str.toString();
+    }
+}
\ No newline at end of file
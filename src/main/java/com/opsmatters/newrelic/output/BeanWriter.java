@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.HashMap;
+
+/**
+ * Writes beans as rows, using the bean properties as the columns.
+ * <P>
+ * The columns are taken from the first bean written, or from the list of fields if given.
+ * Beans of different classes can be written to the same output (eg. the different types of alert channel),
+ * with a column that a bean does not have left empty.
+ * Nested objects and collections are flattened to cell values unless the row writer can output them as they are.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class BeanWriter implements Closeable
+{
+    private RowWriter writer;
+    private List<String> columns;
+    private boolean header = false;
+    private Map<Class<?>,BeanColumns<Object>> beanColumns = new HashMap<Class<?>,BeanColumns<Object>>();
+
+    /**
+     * Constructor that takes a row writer and the fields to write.
+     * @param writer The row writer for the output
+     * @param fields The names of the fields to write, or <CODE>null</CODE> to write all the fields
+     */
+    public BeanWriter(RowWriter writer, List<String> fields)
+    {
+        this.writer = writer;
+        this.columns = fields;
+    }
+
+    /**
+     * Writes the given bean as a row, first writing the header if this is the first bean.
+     * @param bean The bean to write
+     * @throws IOException if the row could not be written
+     */
+    public void write(Object bean) throws IOException
+    {
+        BeanColumns<Object> columns = getColumns(bean.getClass());
+        if(!header)
+        {
+            if(this.columns == null)
+                this.columns = columns.getNames();
+            writer.writeHeader(this.columns);
+            header = true;
+        }
+
+        if(writer.isStructured())
+            writer.writeRow(columns.getProperties(bean, this.columns));
+        else
+            writer.writeRow(columns.getValues(bean, this.columns));
+    }
+
+    /**
+     * Returns the number of beans written.
+     * @return The number of beans written
+     */
+    public long getCount()
+    {
+        return writer.getRowCount();
+    }
+
+    /**
+     * Closes the output.
+     * @throws IOException if the output could not be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        writer.close();
+    }
+
+    /**
+     * Returns the columns for the given class, creating them if necessary.
+     */
+    @SuppressWarnings("unchecked")
+    private BeanColumns<Object> getColumns(Class<?> type)
+    {
+        BeanColumns<Object> ret = beanColumns.get(type);
+        if(ret == null)
+        {
+            ret = new BeanColumns<Object>((Class<Object>)type);
+            beanColumns.put(type, ret);
+        }
+        return ret;
+    }
+}
\ No newline at end of file
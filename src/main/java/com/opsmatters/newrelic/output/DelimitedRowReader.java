@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.output;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.ArrayList;
+
+/**
+ * Reads rows of delimited text (eg. CSV or TSV), including quoted values containing delimiters or line breaks.  
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class DelimitedRowReader extends RowReader
+{
+    private static final char QUOTE = '"';
+    private static final char BOM = '\uFEFF';
+
+    private Reader reader;
+    private char delimiter;
+
+    /**
+     * Constructor that takes a reader and delimiter.
+     * @param reader The reader for the input, which should be buffered
+     * @param delimiter The delimiter between values
+     */
+    public DelimitedRowReader(Reader reader, char delimiter)
+    {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Reads the rows of the file, passing each row to the given handler.
+     * @param handler The handler that receives the rows
+     * @throws IOException if the file could not be read
+     */
+    @Override
+    public void read(Handler handler) throws IOException
+    {
+        List<String> values = new ArrayList<String>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        boolean first = true;
+        int c, next = -1;
+
+        while((c = next != -1 ? next : reader.read()) != -1)
+        {
+            char ch = (char)c;
+            next = -1;
+            if(first)
+            {
+                first = false;
+                if(ch == BOM)
+                    continue;
+            }
+
+            if(quoted)
+            {
+                if(ch == QUOTE)
+                {
+                    // A doubled quote is an escaped quote, otherwise it ends the quoted value
+                    next = reader.read();
+                    if(next == QUOTE)
+                    {
+                        value.append(QUOTE);
+                        next = -1;
+                    }
+                    else
+                    {
+                        quoted = false;
+                    }
+                }
+                else
+                {
+                    value.append(ch);
+                }
+            }
+            else if(ch == QUOTE)
+            {
+                quoted = true;
+            }
+            else if(ch == delimiter)
+            {
+                values.add(value.toString());
+                value.setLength(0);
+            }
+            else if(ch == '\n')
+            {
+                values.add(value.toString());
+                value.setLength(0);
+                if(!isEmpty(values))
+                    handler.row(values);
+                values = new ArrayList<String>();
+            }
+            else if(ch != '\r')
+            {
+                value.append(ch);
+            }
+        }
+
+        // Handle a final row without a line break
+        if(value.length() > 0 || values.size() > 0)
+        {
+            values.add(value.toString());
+            if(!isEmpty(values))
+                handler.row(values);
+        }
+    }
+
+    /**
+     * Closes the input.
+     * @throws IOException if the input could not be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opsmatters.newrelic.output;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes rows as delimited text (eg. CSV or TSV), quoting values where necessary.  
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class DelimitedRowWriter extends RowWriter
+{
+    private Writer writer;
+    private char delimiter;
+    private boolean header = true;
+    private long rows = 0L;
+
+    /**
+     * Constructor that takes a writer and delimiter.
+     * @param writer The writer for the output, which should be buffered
+     * @param delimiter The delimiter between values
+     */
+    public DelimitedRowWriter(Writer writer, char delimiter)
+    {
+        this.writer = writer;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Set to <CODE>false</CODE> if the header row should not be written, eg. when appending to an existing file.
+     * @param header <CODE>true</CODE> if the header row should be written
+     * @return This object
+     */
+    public DelimitedRowWriter header(boolean header)
+    {
+        this.header = header;
+        return this;
+    }
+
+    /**
+     * Writes the header row containing the column names.
+     * @param columns The names of the columns
+     * @throws IOException if the row could not be written
+     */
+    @Override
+    public void writeHeader(List<String> columns) throws IOException
+    {
+        if(header)
+            writeLine(columns);
+    }
+
+    /**
+     * Writes a row of values.
+     * @param values The values of the row
+     * @throws IOException if the row could not be written
+     */
+    @Override
+    public void writeRow(List<Object> values) throws IOException
+    {
+        writeLine(values);
+        ++rows;
+    }
+
+    /**
+     * Returns the number of rows written, excluding the header.
+     * @return The number of rows written
+     */
+    @Override
+    public long getRowCount()
+    {
+        return rows;
+    }
+
+    /**
+     * Flushes the output.
+     * @throws IOException if the output could not be flushed
+     */
+    public void flush() throws IOException
+    {
+        writer.flush();
+    }
+
+    /**
+     * Closes the output.
+     * @throws IOException if the output could not be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        writer.close();
+    }
+
+    /**
+     * Writes the given values as a line.
+     */
+    private void writeLine(List<?> values) throws IOException
+    {
+        for(int i = 0; i < values.size(); i++)
+        {
+            if(i > 0)
+                writer.write(delimiter);
+            Object value = values.get(i);
+            if(value != null)
+                writeValue(value.toString());
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * Writes the given value, quoting it if it contains the delimiter, a quote or a line break.
+     */
+    private void writeValue(String value) throws IOException
+    {
+        boolean quote = false;
+        for(int i = 0; i < value.length() && !quote; i++)
+        {
+            char c = value.charAt(i);
+            quote = c == delimiter || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if(!quote)
+        {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
\ No newline at end of file
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.output;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Date;
+import java.util.List;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Writes rows as JSON Lines, with each row written as a JSON object keyed by the column names.
+ * <P>
+ * Nested objects and collections are written as JSON objects and arrays.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class JsonRowWriter extends RowWriter
+{
+    private static final Gson gson = new GsonBuilder()
+        .disableHtmlEscaping()
+        .serializeSpecialFloatingPointValues()
+        .create();
+
+    private Writer writer;
+    private List<String> columns;
+    private long rows = 0L;
+
+    /**
+     * Constructor that takes a writer.
+     * @param writer The writer for the output, which should be buffered
+     */
+    public JsonRowWriter(Writer writer)
+    {
+        this.writer = writer;
+    }
+
+    /**
+     * Sets the column names used as the keys of each row, as JSON Lines have no header row.
+     * @param columns The names of the columns
+     */
+    @Override
+    public void writeHeader(List<String> columns)
+    {
+        this.columns = columns;
+    }
+
+    /**
+     * Writes a row of values.
+     * @param values The values of the row
+     * @throws IOException if the row could not be written
+     */
+    @Override
+    public void writeRow(List<Object> values) throws IOException
+    {
+        if(columns == null)
+            throw new IllegalStateException("header not written");
+
+        writer.write('{');
+        for(int i = 0; i < values.size() && i < columns.size(); i++)
+        {
+            if(i > 0)
+                writer.write(',');
+            writeString(columns.get(i));
+            writer.write(':');
+            writeValue(values.get(i));
+        }
+        writer.write("}\n");
+        ++rows;
+    }
+
+    /**
+     * Returns the number of rows written.
+     * @return The number of rows written
+     */
+    @Override
+    public long getRowCount()
+    {
+        return rows;
+    }
+
+    /**
+     * Returns <CODE>true</CODE> as nested objects and collections are written as JSON.
+     * @return <CODE>true</CODE>
+     */
+    @Override
+    public boolean isStructured()
+    {
+        return true;
+    }
+
+    /**
+     * Flushes the output.
+     * @throws IOException if the output could not be flushed
+     */
+    public void flush() throws IOException
+    {
+        writer.flush();
+    }
+
+    /**
+     * Closes the output.
+     * @throws IOException if the output could not be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        writer.close();
+    }
+
+    /**
+     * Writes the given value as a JSON number, boolean, string or null,
+     * or as a JSON object or array for a nested object or collection.
+     * <P>
+     * Dates are written as milliseconds since the epoch, as in the other formats.
+     */
+    private void writeValue(Object value) throws IOException
+    {
+        if(value == null)
+            writer.write("null");
+        else if(value instanceof Boolean)
+            writer.write(value.toString());
+        else if(value instanceof Number && isFinite((Number)value))
+            writer.write(value.toString());
+        else if(value instanceof Date)
+            writer.write(Long.toString(((Date)value).getTime()));
+        else if(value instanceof Number || value instanceof String || value instanceof Character || value instanceof Enum)
+            writeString(value.toString());
+        else
+            gson.toJson(value, writer);
+    }
+
+    /**
+     * Returns <CODE>false</CODE> if the given number is not a valid JSON number, eg. NaN.
+     */
+    private static boolean isFinite(Number value)
+    {
+        if(value instanceof Double || value instanceof Float)
+            return !Double.isNaN(value.doubleValue()) && !Double.isInfinite(value.doubleValue());
+        return true;
+    }
+
+    /**
+     * Writes the given string quoted and escaped.
+     */
+    private void writeString(String value) throws IOException
+    {
+        writer.write('"');
+        int start = 0;
+        for(int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if(c >= 0x20 && c != '"' && c != '\\' && c != '\u2028' && c != '\u2029')
+                continue;
+
+            writer.write(value, start, i-start);
+            switch(c)
+            {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    writer.write(String.format("\\u%04x", (int)c));
+                    break;
+            }
+            start = i+1;
+        }
+        writer.write(value, start, value.length()-start);
+        writer.write('"');
+    }
+}
\ No newline at end of file
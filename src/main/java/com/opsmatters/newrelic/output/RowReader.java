@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.output;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.List;
+
+/**
+ * Base class for readers that pass the rows of a file to a handler one at a time without holding the whole file in memory.  
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public abstract class RowReader implements Closeable
+{
+    /**
+     * Interface used to receive the rows of a file as they are read.
+     */
+    public interface Handler
+    {
+        /**
+         * Receives the values of the next row.
+         * @param values The values of the row
+         * @throws IOException if the row could not be processed
+         */
+        void row(List<String> values) throws IOException;
+    }
+
+    /**
+     * Opens a row reader for the given file, selecting the format from the file extension.
+     * <P>
+     * Files with a ".csv" or ".tsv" extension are read as delimited text,
+     * files with a ".xls" extension are read as an XLS workbook,
+     * and any other file is read as an XLSX workbook.
+     * @param filename The name of the file
+     * @param worksheet For XLS and XLSX files, the name of the worksheet, or <CODE>null</CODE> for the first worksheet
+     * @return The row reader
+     * @throws IOException if the file could not be opened
+     */
+    public static RowReader open(String filename, String worksheet) throws IOException
+    {
+        String name = filename.toLowerCase();
+        if(name.endsWith(".csv") || name.endsWith(".tsv"))
+        {
+            return new DelimitedRowReader(new BufferedReader(new InputStreamReader(
+                new FileInputStream(filename), "UTF-8")), name.endsWith(".tsv") ? '\t' : ',');
+        }
+        else if(name.endsWith(".xls"))
+        {
+            return new XlsRowReader(new File(filename), worksheet);
+        }
+
+        return new XlsxRowReader(new File(filename), worksheet);
+    }
+
+    /**
+     * Reads the rows of the file, passing each row to the given handler.
+     * <P>
+     * Rows where every value is empty are skipped.
+     * @param handler The handler that receives the rows
+     * @throws IOException if the file could not be read
+     */
+    public abstract void read(Handler handler) throws IOException;
+
+    /**
+     * Returns <CODE>true</CODE> if all the given values are empty.
+     * @param values The values to check
+     * @return <CODE>true</CODE> if all the given values are empty
+     */
+    protected static boolean isEmpty(List<String> values)
+    {
+        for(String value : values)
+        {
+            if(value != null && value.length() > 0)
+                return false;
+        }
+        return true;
+    }
+}
\ No newline at end of file
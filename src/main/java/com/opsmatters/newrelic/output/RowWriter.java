@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opsmatters.newrelic.output;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Base class for writers that output rows one at a time without holding the whole file in memory.  
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public abstract class RowWriter implements Closeable
+{
+    /**
+     * The output format for JSON Lines.
+     */
+    public static final String JSON = "json";
+
+    /**
+     * The output format for comma-separated values.
+     */
+    public static final String CSV = "csv";
+
+    /**
+     * The output format for tab-separated values.
+     */
+    public static final String TSV = "tsv";
+
+    /**
+     * Opens a row writer for the given file, selecting the format from the file extension.
+     * <P>
+     * Files with a ".csv" or ".tsv" extension are written as delimited text,
+     * and files with a ".xlsx" extension are written as a streaming XLSX workbook.
+     * Other formats, and appending to an existing XLSX workbook, would need the whole workbook in memory and are not supported.
+     * @param filename The name of the file
+     * @param worksheet For XLSX files, the name of the worksheet
+     * @param append <CODE>true</CODE> if the rows should be added to an existing CSV or TSV file
+     * @return The row writer
+     * @throws IOException if the file could not be opened, or the format is not supported
+     */
+    public static RowWriter open(String filename, String worksheet, boolean append) throws IOException
+    {
+        String name = filename.toLowerCase();
+        File file = new File(filename);
+        if(name.endsWith(".csv") || name.endsWith(".tsv"))
+        {
+            boolean header = !append || file.length() == 0L;
+            return new DelimitedRowWriter(new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file, append), "UTF-8")), name.endsWith(".tsv") ? '\t' : ',')
+                .header(header);
+        }
+        else if(name.endsWith(".xlsx"))
+        {
+            if(append && file.length() > 0L)
+                throw new IOException("unable to append to an existing XLSX file while streaming: "+filename);
+            return new XlsxRowWriter(file, worksheet);
+        }
+
+        throw new IOException("streaming is only supported for CSV, TSV and XLSX files: "+filename);
+    }
+
+    /**
+     * Returns a row writer for the given output format, eg. to write to the standard output.
+     * @param format The output format, either "json" for JSON Lines, "csv" or "tsv"
+     * @param writer The writer for the output, which should be buffered
+     * @return The row writer
+     */
+    public static RowWriter open(String format, Writer writer)
+    {
+        if(format.equals(JSON))
+            return new JsonRowWriter(writer);
+        if(format.equals(CSV))
+            return new DelimitedRowWriter(writer, ',');
+        if(format.equals(TSV))
+            return new DelimitedRowWriter(writer, '\t');
+        throw new IllegalArgumentException("unknown output format: "+format);
+    }
+
+    /**
+     * Returns <CODE>true</CODE> if the given output format is supported by {@link #open(String, Writer)}.
+     * @param format The output format
+     * @return <CODE>true</CODE> if the output format is supported
+     */
+    public static boolean isFormat(String format)
+    {
+        return format.equals(JSON) || format.equals(CSV) || format.equals(TSV);
+    }
+
+    /**
+     * Writes the header row containing the column names.
+     * @param columns The names of the columns
+     * @throws IOException if the row could not be written
+     */
+    public abstract void writeHeader(List<String> columns) throws IOException;
+
+    /**
+     * Writes a row of values.
+     * @param values The values of the row
+     * @throws IOException if the row could not be written
+     */
+    public abstract void writeRow(List<Object> values) throws IOException;
+
+    /**
+     * Returns the number of rows written, excluding the header.
+     * @return The number of rows written
+     */
+    public abstract long getRowCount();
+
+    /**
+     * Returns <CODE>true</CODE> if the writer can output nested objects and collections as they are,
+     * rather than as the flattened cell values.
+     * @return <CODE>true</CODE> if the writer can output nested objects
+     */
+    public boolean isStructured()
+    {
+        return false;
+    }
+}
\ No newline at end of file
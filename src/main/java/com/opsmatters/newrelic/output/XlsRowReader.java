@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.output;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.ArrayList;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+
+/**
+ * Reads the rows of a worksheet in an XLS workbook.
+ * <P>
+ * The XLS format has no streaming reader, but is limited to 65536 rows per sheet.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class XlsRowReader extends RowReader
+{
+    private File file;
+    private String worksheet;
+
+    /**
+     * Constructor that takes a file and worksheet.
+     * @param file The XLS file
+     * @param worksheet The name of the worksheet, or <CODE>null</CODE> for the first worksheet
+     */
+    public XlsRowReader(File file, String worksheet)
+    {
+        this.file = file;
+        this.worksheet = worksheet;
+    }
+
+    /**
+     * Reads the rows of the worksheet, passing each row to the given handler.
+     * @param handler The handler that receives the rows
+     * @throws IOException if the file could not be read
+     */
+    @Override
+    public void read(Handler handler) throws IOException
+    {
+        InputStream is = new FileInputStream(file);
+        try
+        {
+            HSSFWorkbook workbook = new HSSFWorkbook(is);
+            Sheet sheet = worksheet != null ? workbook.getSheet(worksheet) : workbook.getSheetAt(0);
+            if(sheet == null)
+                throw new IOException("worksheet not found: "+worksheet);
+
+            DataFormatter formatter = new DataFormatter();
+            for(Row row : sheet)
+            {
+                List<String> values = new ArrayList<String>();
+                for(int i = 0; i < row.getLastCellNum(); i++)
+                {
+                    Cell cell = row.getCell(i);
+                    values.add(cell != null ? formatter.formatCellValue(cell) : "");
+                }
+                if(!isEmpty(values))
+                    handler.row(values);
+            }
+        }
+        finally
+        {
+            is.close();
+        }
+    }
+
+    /**
+     * Closes the reader.
+     */
+    @Override
+    public void close()
+    {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.output;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.ArrayList;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+
+/**
+ * Reads the rows of a worksheet in an XLSX workbook using the POI event model, without loading the whole sheet.  
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class XlsxRowReader extends RowReader
+{
+    private OPCPackage pkg;
+    private String worksheet;
+
+    /**
+     * Constructor that takes a file and worksheet.
+     * @param file The XLSX file
+     * @param worksheet The name of the worksheet, or <CODE>null</CODE> for the first worksheet
+     * @throws IOException if the file could not be opened
+     */
+    public XlsxRowReader(File file, String worksheet) throws IOException
+    {
+        try
+        {
+            this.pkg = OPCPackage.open(file, PackageAccess.READ);
+        }
+        catch(OpenXML4JException e)
+        {
+            throw new IOException("unable to open workbook: "+file.getName(), e);
+        }
+        this.worksheet = worksheet;
+    }
+
+    /**
+     * Reads the rows of the worksheet, passing each row to the given handler.
+     * @param handler The handler that receives the rows
+     * @throws IOException if the file could not be read
+     */
+    @Override
+    public void read(Handler handler) throws IOException
+    {
+        InputStream is = null;
+        try
+        {
+            XSSFReader reader = new XSSFReader(pkg);
+            is = getSheet(reader);
+
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            XMLReader parser = factory.newSAXParser().getXMLReader();
+            parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(),
+                new ReadOnlySharedStringsTable(pkg), new RowHandler(handler), new DataFormatter(), false));
+            parser.parse(new InputSource(is));
+        }
+        catch(HandlerException e)
+        {
+            throw e.getCause();
+        }
+        catch(OpenXML4JException e)
+        {
+            throw new IOException("unable to read workbook", e);
+        }
+        catch(SAXException e)
+        {
+            throw new IOException("unable to parse worksheet", e);
+        }
+        catch(ParserConfigurationException e)
+        {
+            throw new IOException("unable to create parser", e);
+        }
+        finally
+        {
+            if(is != null)
+                is.close();
+        }
+    }
+
+    /**
+     * Returns the stream for the worksheet.
+     */
+    private InputStream getSheet(XSSFReader reader) throws IOException, OpenXML4JException
+    {
+        XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator)reader.getSheetsData();
+        while(sheets.hasNext())
+        {
+            InputStream is = sheets.next();
+            if(worksheet == null || worksheet.equals(sheets.getSheetName()))
+                return is;
+            is.close();
+        }
+
+        throw new IOException("worksheet not found: "+worksheet);
+    }
+
+    /**
+     * Closes the workbook.
+     */
+    @Override
+    public void close()
+    {
+        pkg.revert();
+    }
+
+    /**
+     * Collects the cells of each row and passes the row to the handler.
+     */
+    private static class RowHandler implements XSSFSheetXMLHandler.SheetContentsHandler
+    {
+        private Handler handler;
+        private List<String> values = new ArrayList<String>();
+
+        RowHandler(Handler handler)
+        {
+            this.handler = handler;
+        }
+
+        public void startRow(int rowNum)
+        {
+            values.clear();
+        }
+
+        public void endRow(int rowNum)
+        {
+            if(isEmpty(values))
+                return;
+
+            try
+            {
+                handler.row(new ArrayList<String>(values));
+            }
+            catch(IOException e)
+            {
+                throw new HandlerException(e);
+            }
+        }
+
+        public void cell(String ref, String value, XSSFComment comment)
+        {
+            // Pad any missing cells before this one
+            int col = ref != null ? new CellReference(ref).getCol() : values.size();
+            while(values.size() < col)
+                values.add("");
+            values.add(value != null ? value : "");
+        }
+
+        public void headerFooter(String text, boolean isHeader, String tagName)
+        {
+        }
+    }
+
+    /**
+     * Carries an exception thrown by the handler through the SAX parser.
+     */
+    private static class HandlerException extends RuntimeException
+    {
+        HandlerException(IOException e)
+        {
+            super(e);
+        }
+
+        @Override
+        public IOException getCause()
+        {
+            return (IOException)super.getCause();
+        }
+    }
+}
\ No newline at end of file
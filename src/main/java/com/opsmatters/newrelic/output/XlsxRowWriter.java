@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.opsmatters.newrelic.output;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+/**
+ * Writes rows to an XLSX workbook, keeping only a small window of rows in memory.  
+ * <P>
+ * Rows outside the window are flushed to a temporary file until the workbook is closed.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class XlsxRowWriter extends RowWriter
+{
+    /**
+     * The number of rows kept in memory.
+     */
+    public static final int WINDOW_SIZE = 100;
+
+    private static final String DEFAULT_SHEET = "Sheet1";
+
+    private File file;
+    private SXSSFWorkbook workbook;
+    private Sheet sheet;
+    private int next = 0;
+
+    /**
+     * Constructor that takes a file and sheet name.
+     * @param file The output file
+     * @param worksheet The name of the worksheet, defaults to "Sheet1"
+     */
+    public XlsxRowWriter(File file, String worksheet)
+    {
+        this.file = file;
+        workbook = new SXSSFWorkbook(WINDOW_SIZE);
+        sheet = workbook.createSheet(worksheet != null ? worksheet : DEFAULT_SHEET);
+    }
+
+    /**
+     * Writes the header row containing the column names.
+     * @param columns The names of the columns
+     * @throws IOException if the row could not be written
+     */
+    @Override
+    public void writeHeader(List<String> columns) throws IOException
+    {
+        Row row = sheet.createRow(next++);
+        for(int i = 0; i < columns.size(); i++)
+            row.createCell(i).setCellValue(columns.get(i));
+    }
+
+    /**
+     * Writes a row of values.
+     * @param values The values of the row
+     * @throws IOException if the row could not be written
+     */
+    @Override
+    public void writeRow(List<Object> values) throws IOException
+    {
+        Row row = sheet.createRow(next++);
+        for(int i = 0; i < values.size(); i++)
+        {
+            Object value = values.get(i);
+            if(value == null)
+                continue;
+
+            Cell cell = row.createCell(i);
+            if(value instanceof Number)
+                cell.setCellValue(((Number)value).doubleValue());
+            else if(value instanceof Boolean)
+                cell.setCellValue((Boolean)value);
+            else
+                cell.setCellValue(value.toString());
+        }
+    }
+
+    /**
+     * Returns the number of rows written, excluding the header.
+     * @return The number of rows written
+     */
+    @Override
+    public long getRowCount()
+    {
+        return Math.max(0, next-1);
+    }
+
+    /**
+     * Writes the workbook to the file and removes the temporary files.
+     * @throws IOException if the workbook could not be written
+     */
+    @Override
+    public void close() throws IOException
+    {
+        OutputStream os = new FileOutputStream(file);
+        try
+        {
+            workbook.write(os);
+        }
+        finally
+        {
+            os.close();
+            workbook.dispose();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,4 @@
+/**
+ * The classes used to read and write the rows of large files for New Relic.
+ */
+package com.opsmatters.newrelic.output;
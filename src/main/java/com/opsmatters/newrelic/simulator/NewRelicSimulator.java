@@ -0,0 +1,936 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.simulator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.logging.Logger;
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.opsmatters.newrelic.clients.ApiClientFactory;
+import com.opsmatters.newrelic.simulator.Resource.Api;
+import com.opsmatters.newrelic.simulator.Resource.IdType;
+
+/**
+ * An in-process stand-in for the New Relic REST, Infrastructure and Synthetics APIs used for offline testing.
+ * <P>
+ * Serves the alert policies, conditions and channels, applications, servers, monitors, labels and dashboards
+ * from memory, with configurable latency, error rate and rate limiting (429 responses).
+ * The commands are pointed at the simulator using the "api_url" option or the "newrelic.api.url" system property,
+ * eg. "-au http://localhost:8089".
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class NewRelicSimulator
+{
+    private static final Logger logger = Logger.getLogger(NewRelicSimulator.class.getName());
+    private static final String NAME = "new_relic_simulator";
+
+    /**
+     * The default port to listen on.
+     */
+    public static final int DEFAULT_PORT = 8089;
+
+    private static final int DEFAULT_THREADS = 16;
+    private static final int PAGE_SIZE = 200;
+    private static final int DEFAULT_LIMIT = 50;
+    private static final String JSON = ".json";
+    private static final String POLICY_CHANNELS = "/v2/alerts_policy_channels";
+
+    private int port;
+    private int threads = DEFAULT_THREADS;
+    private long latency = 0L;
+    private long jitter = 0L;
+    private double errorRate = 0.0d;
+    private double throttleRate = 0.0d;
+    private RateLimiter rateLimiter;
+    private boolean verbose = false;
+    private Random random = new Random();
+    private Gson gson = new Gson();
+    private Map<String,Resource> resources = new HashMap<String,Resource>();
+    private List<Resource> routes = new ArrayList<Resource>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Constructor that takes a port.
+     * @param port The port to listen on, or 0 to use any free port
+     */
+    public NewRelicSimulator(int port)
+    {
+        this.port = port;
+
+        // REST API
+        add(new Resource("alerts_policies", "/v2/alerts_policies", "policies", "policy"));
+        add(new Resource("alerts_conditions", "/v2/alerts_conditions", "conditions", "condition")
+            .parent("policy_id", "/v2/alerts_conditions/policies/{parent}"));
+        add(new Resource("alerts_external_service_conditions", "/v2/alerts_external_service_conditions",
+            "external_service_conditions", "external_service_condition")
+            .parent("policy_id", "/v2/alerts_external_service_conditions/policies/{parent}"));
+        add(new Resource("alerts_nrql_conditions", "/v2/alerts_nrql_conditions", "nrql_conditions", "nrql_condition")
+            .parent("policy_id", "/v2/alerts_nrql_conditions/policies/{parent}"));
+        add(new Resource("alerts_synthetics_conditions", "/v2/alerts_synthetics_conditions",
+            "synthetics_conditions", "synthetics_condition")
+            .parent("policy_id", "/v2/alerts_synthetics_conditions/policies/{parent}"));
+        add(new Resource("alerts_plugins_conditions", "/v2/alerts_plugins_conditions", "plugins_conditions", "plugins_condition")
+            .parent("policy_id", "/v2/alerts_plugins_conditions/policies/{parent}"));
+        add(new Resource("alerts_channels", "/v2/alerts_channels", "channels", "channel")
+            .listOnCreate(true));
+        add(new Resource("applications", "/v2/applications", "applications", "application"));
+        add(new Resource("deployments", "/v2/applications/{parent}/deployments", "deployments", "deployment")
+            .parent("application_id", null));
+        add(new Resource("servers", "/v2/servers", "servers", "server"));
+        add(new Resource("labels", "/v2/labels", "labels", "label")
+            .idType(IdType.KEY));
+        add(new Resource("dashboards", "/v2/dashboards", "dashboards", "dashboard"));
+
+        // Infrastructure API
+        add(new Resource("infra_alerts_conditions", "/v2/alerts/conditions", "data", "data")
+            .api(Api.INFRA)
+            .parent("policy_id", null));
+
+        // Synthetics API
+        add(new Resource("monitors", "/synthetics/api/v3/monitors", "monitors", null)
+            .api(Api.SYNTHETICS)
+            .idType(IdType.UUID));
+    }
+
+    /**
+     * Adds the given resource to the resources served.
+     */
+    private void add(Resource resource)
+    {
+        resources.put(resource.getName(), resource);
+        routes.add(resource);
+    }
+
+    /**
+     * Sets the maximum number of requests to handle concurrently.
+     * @param threads The maximum number of requests to handle concurrently
+     * @return This object
+     */
+    public NewRelicSimulator threads(int threads)
+    {
+        if(threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1");
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Sets the latency added to each request.
+     * @param latency The fixed latency in milliseconds
+     * @param jitter The maximum random latency in milliseconds added to the fixed latency
+     * @return This object
+     */
+    public NewRelicSimulator latency(long latency, long jitter)
+    {
+        if(latency < 0L || jitter < 0L)
+            throw new IllegalArgumentException("latency cannot be negative");
+        this.latency = latency;
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * Sets the fraction of requests that fail with a 500 response.
+     * @param errorRate The fraction of requests that fail, between 0 and 1
+     * @return This object
+     */
+    public NewRelicSimulator errorRate(double errorRate)
+    {
+        this.errorRate = fraction("error rate", errorRate);
+        return this;
+    }
+
+    /**
+     * Sets the fraction of requests that are rejected with a 429 response.
+     * @param throttleRate The fraction of requests that are rejected, between 0 and 1
+     * @return This object
+     */
+    public NewRelicSimulator throttleRate(double throttleRate)
+    {
+        this.throttleRate = fraction("throttle rate", throttleRate);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of requests per second, above which requests are rejected with a 429 response.
+     * @param rateLimit The maximum number of requests per second, or 0 for no limit
+     * @return This object
+     */
+    public NewRelicSimulator rateLimit(double rateLimit)
+    {
+        if(rateLimit < 0.0d)
+            throw new IllegalArgumentException("rate limit cannot be negative");
+        this.rateLimiter = rateLimit > 0.0d ? RateLimiter.create(rateLimit) : null;
+        return this;
+    }
+
+    /**
+     * Set to <CODE>true</CODE> if each request should be logged.
+     * @param verbose <CODE>true</CODE> if each request should be logged
+     * @return This object
+     */
+    public NewRelicSimulator verbose(boolean verbose)
+    {
+        this.verbose = verbose;
+        return this;
+    }
+
+    /**
+     * Returns the given value if it is between 0 and 1.
+     */
+    private static double fraction(String name, double value)
+    {
+        if(value < 0.0d || value > 1.0d)
+            throw new IllegalArgumentException(name+" must be between 0 and 1");
+        return value;
+    }
+
+    /**
+     * Returns the resource with the given name, eg. "alerts_policies".
+     * @param name The name of the resource
+     * @return The resource, or <CODE>null</CODE> if the resource does not exist
+     */
+    public Resource getResource(String name)
+    {
+        return resources.get(name);
+    }
+
+    /**
+     * Loads the objects in the given JSON file into the resources.
+     * <P>
+     * The file contains a JSON object with an array of objects for each resource name,
+     * eg. {"alerts_policies":[{"name":"policy1","incident_preference":"PER_POLICY"}]}.
+     * @param file The JSON file to load
+     * @throws IOException if the file could not be read
+     */
+    public void load(File file) throws IOException
+    {
+        Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try
+        {
+            load(reader);
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Loads the objects in the given JSON reader into the resources.
+     * @param reader The reader containing the JSON objects
+     */
+    public void load(Reader reader)
+    {
+        JsonObject data = new JsonParser().parse(reader).getAsJsonObject();
+        for(Map.Entry<String,JsonElement> entry : data.entrySet())
+        {
+            Resource resource = resources.get(entry.getKey());
+            if(resource == null)
+                throw new IllegalArgumentException("unknown resource: "+entry.getKey());
+            for(JsonElement element : entry.getValue().getAsJsonArray())
+                resource.create(element.getAsJsonObject(), null);
+            logger.info("Loaded "+entry.getValue().getAsJsonArray().size()+" "+entry.getKey());
+        }
+    }
+
+    /**
+     * Starts the simulator listening on the loopback interface.
+     * @return The port the simulator is listening on
+     * @throws IOException if the server socket could not be opened
+     */
+    public int start() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 50);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler()
+        {
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                NewRelicSimulator.this.handle(exchange);
+            }
+        });
+        server.start();
+
+        int ret = server.getAddress().getPort();
+        logger.info("Listening on "+server.getAddress().getAddress().getHostAddress()+":"+ret);
+        return ret;
+    }
+
+    /**
+     * Stops the simulator.
+     */
+    public void stop()
+    {
+        if(server != null)
+            server.stop(0);
+        if(executor != null)
+            executor.shutdown();
+        server = null;
+        executor = null;
+    }
+
+    /**
+     * Returns the base URL of the simulator, for use with the "api_url" option.
+     * @return The base URL of the simulator
+     */
+    public String getUrl()
+    {
+        if(server == null)
+            throw new IllegalStateException("simulator not started");
+        return "http://"+server.getAddress().getAddress().getHostAddress()+":"+server.getAddress().getPort();
+    }
+
+    /**
+     * Handles the given request, applying the configured latency, rate limiting and errors.
+     * @param exchange The request and response
+     * @throws IOException if the response could not be written
+     */
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        int status = 0;
+        try
+        {
+            delay();
+
+            if(throttled())
+            {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                status = error(exchange, 429, "Rate limit exceeded");
+            }
+            else if(errorRate > 0.0d && random.nextDouble() < errorRate)
+            {
+                status = error(exchange, 500, "Internal server error");
+            }
+            else if(exchange.getRequestHeaders().getFirst("X-Api-Key") == null)
+            {
+                status = error(exchange, 401, "The API key was not provided");
+            }
+            else
+            {
+                status = dispatch(exchange);
+            }
+        }
+        catch(JsonParseException e)
+        {
+            status = error(exchange, 400, "Invalid JSON: "+e.getMessage());
+        }
+        catch(IllegalStateException e) // Body was not the expected JSON type
+        {
+            status = error(exchange, 400, "Invalid JSON: "+e.getMessage());
+        }
+        catch(RuntimeException e)
+        {
+            logger.severe("Error handling request: "+e.getClass().getName()+": "+e.getMessage());
+            status = error(exchange, 500, e.getClass().getName()+": "+e.getMessage());
+        }
+        finally
+        {
+            exchange.close();
+        }
+
+        if(verbose)
+            logger.info(exchange.getRequestMethod()+" "+exchange.getRequestURI()+" "+status);
+    }
+
+    /**
+     * Sleeps for the configured latency.
+     */
+    private void delay()
+    {
+        long millis = latency;
+        if(jitter > 0L)
+            millis += (long)(random.nextDouble()*jitter);
+        if(millis > 0L)
+        {
+            try
+            {
+                Thread.sleep(millis);
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns <CODE>true</CODE> if the request should be rejected with a 429 response.
+     */
+    private boolean throttled()
+    {
+        if(rateLimiter != null && !rateLimiter.tryAcquire())
+            return true;
+        return throttleRate > 0.0d && random.nextDouble() < throttleRate;
+    }
+
+    /**
+     * Routes the given request to the resource with a matching path.
+     * @param exchange The request and response
+     * @return The status of the response
+     * @throws IOException if the response could not be written
+     */
+    private int dispatch(HttpExchange exchange) throws IOException
+    {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        if(path.endsWith(JSON))
+            path = path.substring(0, path.length()-JSON.length());
+        Map<String,String> query = query(exchange.getRequestURI().getRawQuery());
+
+        if(path.equals(POLICY_CHANNELS))
+            return policyChannels(exchange, method, query);
+
+        for(Resource resource : routes)
+        {
+            Matcher m = resource.matchCreate(path);
+            if(m != null)
+            {
+                if(method.equals("POST"))
+                    return create(exchange, resource, m.group(1));
+                return error(exchange, 405, "Method not allowed");
+            }
+
+            m = resource.matchCollection(path);
+            if(m != null)
+            {
+                String parentId = null;
+                if(m.groupCount() > 0)
+                    parentId = m.group(1);
+                else if(resource.getParentField() != null)
+                    parentId = query.get(resource.getParentField());
+
+                if(method.equals("GET"))
+                    return list(exchange, resource, parentId, query);
+                else if(method.equals("POST") || method.equals("PUT"))
+                    return create(exchange, resource, parentId);
+                return error(exchange, 405, "Method not allowed");
+            }
+
+            m = resource.matchItem(path);
+            if(m != null)
+            {
+                String id = m.group(m.groupCount());
+                if(method.equals("GET"))
+                    return show(exchange, resource, id);
+                else if(method.equals("PUT") || method.equals("PATCH"))
+                    return update(exchange, resource, id);
+                else if(method.equals("DELETE"))
+                    return delete(exchange, resource, id);
+                return error(exchange, 405, "Method not allowed");
+            }
+        }
+
+        return error(exchange, 404, "Not found: "+path);
+    }
+
+    /**
+     * Returns a page of the objects in the resource.
+     */
+    private int list(HttpExchange exchange, Resource resource, String parentId, Map<String,String> query)
+        throws IOException
+    {
+        List<JsonObject> objects = filter(resource.list(parentId), query);
+        int total = objects.size();
+
+        JsonObject body = new JsonObject();
+        JsonArray array = new JsonArray();
+        if(resource.getApi() == Api.REST)
+        {
+            int page = Math.max(integer(query.get("page"), 1), 1);
+            int from = Math.min((page-1)*PAGE_SIZE, total);
+            int to = Math.min(from+PAGE_SIZE, total);
+            for(JsonObject object : objects.subList(from, to))
+                array.add(object);
+            body.add(resource.getListKey(), array);
+
+            int last = Math.max((total+PAGE_SIZE-1)/PAGE_SIZE, 1);
+            if(page < last)
+            {
+                exchange.getResponseHeaders().set("Link", "<"+pageUrl(exchange, page+1)+">; rel=\"next\", <"
+                    +pageUrl(exchange, last)+">; rel=\"last\"");
+            }
+        }
+        else
+        {
+            int offset = Math.max(integer(query.get("offset"), 0), 0);
+            int limit = Math.max(integer(query.get("limit"), DEFAULT_LIMIT), 1);
+            int from = Math.min(offset, total);
+            int to = Math.min(from+limit, total);
+            for(JsonObject object : objects.subList(from, to))
+                array.add(object);
+            body.add(resource.getListKey(), array);
+
+            if(resource.getApi() == Api.INFRA)
+            {
+                JsonObject meta = new JsonObject();
+                meta.addProperty("limit", limit);
+                meta.addProperty("offset", offset);
+                meta.addProperty("total", total);
+                body.add("meta", meta);
+                body.add("links", new JsonObject());
+            }
+            else
+            {
+                body.addProperty("count", total);
+            }
+        }
+
+        return send(exchange, 200, body);
+    }
+
+    /**
+     * Returns the objects that match the "filter[name]", "filter[ids]" and other "filter[field]" parameters.
+     */
+    private List<JsonObject> filter(List<JsonObject> objects, Map<String,String> query)
+    {
+        List<JsonObject> ret = objects;
+        for(Map.Entry<String,String> entry : query.entrySet())
+        {
+            String key = entry.getKey();
+            if(!key.startsWith("filter[") || !key.endsWith("]"))
+                continue;
+
+            String field = key.substring(7, key.length()-1);
+            String value = entry.getValue();
+            Set<String> ids = null;
+            if(field.equals("ids"))
+                ids = new LinkedHashSet<String>(Arrays.asList(value.split(",")));
+
+            List<JsonObject> filtered = new ArrayList<JsonObject>();
+            for(JsonObject object : ret)
+            {
+                String str = Resource.getString(object, ids != null ? "id" : field);
+                if(str == null)
+                    continue;
+                if((ids != null && ids.contains(str))
+                    || (ids == null && field.equals("name") && str.contains(value))
+                    || (ids == null && str.equals(value)))
+                {
+                    filtered.add(object);
+                }
+            }
+            ret = filtered;
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns the object with the given id.
+     */
+    private int show(HttpExchange exchange, Resource resource, String id) throws IOException
+    {
+        JsonObject object = resource.get(id);
+        if(object == null)
+            return error(exchange, 404, "Not found: "+id);
+        return send(exchange, 200, wrap(resource, object));
+    }
+
+    /**
+     * Creates an object from the request body.
+     */
+    private int create(HttpExchange exchange, Resource resource, String parentId) throws IOException
+    {
+        JsonObject object = unwrap(resource, body(exchange));
+        if(object == null)
+            return error(exchange, 400, "Missing \""+resource.getItemKey()+"\" object");
+
+        JsonObject created = resource.create(object, parentId);
+        if(resource.getApi() == Api.SYNTHETICS)
+        {
+            exchange.getResponseHeaders().set("Location", baseUrl(exchange)+resource.getPath()+"/"+Resource.getString(created, "id"));
+            return send(exchange, 201, null);
+        }
+        else if(resource.isListOnCreate())
+        {
+            JsonObject body = new JsonObject();
+            JsonArray array = new JsonArray();
+            array.add(created);
+            body.add(resource.getListKey(), array);
+            return send(exchange, 201, body);
+        }
+
+        return send(exchange, 201, wrap(resource, created));
+    }
+
+    /**
+     * Updates the object with the given id from the request body.
+     */
+    private int update(HttpExchange exchange, Resource resource, String id) throws IOException
+    {
+        JsonObject fields = unwrap(resource, body(exchange));
+        if(fields == null)
+            return error(exchange, 400, "Missing \""+resource.getItemKey()+"\" object");
+
+        JsonObject updated = resource.update(id, fields);
+        if(updated == null)
+            return error(exchange, 404, "Not found: "+id);
+        if(resource.getApi() == Api.SYNTHETICS)
+            return send(exchange, 204, null);
+        return send(exchange, 200, wrap(resource, updated));
+    }
+
+    /**
+     * Deletes the object with the given id.
+     */
+    private int delete(HttpExchange exchange, Resource resource, String id) throws IOException
+    {
+        JsonObject deleted = resource.delete(id);
+        if(deleted == null)
+            return error(exchange, 404, "Not found: "+id);
+        if(resource.getApi() != Api.REST)
+            return send(exchange, 204, null);
+        return send(exchange, 200, wrap(resource, deleted));
+    }
+
+    /**
+     * Adds channels to an alert policy (PUT), or removes a channel from an alert policy (DELETE).
+     * <P>
+     * The ids of the policies are held in the "links" of each channel.
+     */
+    private int policyChannels(HttpExchange exchange, String method, Map<String,String> query) throws IOException
+    {
+        Resource channels = resources.get("alerts_channels");
+        String policyId = query.get("policy_id");
+        if(policyId == null || resources.get("alerts_policies").get(policyId) == null)
+            return error(exchange, 404, "Alert policy not found: "+policyId);
+
+        if(method.equals("PUT"))
+        {
+            String channelIds = query.get("channel_ids");
+            if(channelIds == null)
+                return error(exchange, 400, "Missing channel_ids parameter");
+
+            JsonArray ids = new JsonArray();
+            synchronized(channels)
+            {
+                for(String channelId : channelIds.split(","))
+                {
+                    JsonObject channel = channels.get(channelId.trim());
+                    if(channel == null)
+                        return error(exchange, 404, "Alert channel not found: "+channelId);
+                    JsonArray policyIds = policyIds(channel);
+                    if(!policyIds.contains(new JsonPrimitive(Long.parseLong(policyId))))
+                        policyIds.add(new JsonPrimitive(Long.parseLong(policyId)));
+                }
+
+                for(JsonObject channel : channels.list(null))
+                {
+                    if(policyIds(channel).contains(new JsonPrimitive(Long.parseLong(policyId))))
+                        ids.add(channel.get("id"));
+                }
+            }
+
+            JsonObject policy = new JsonObject();
+            policy.add("id", new JsonPrimitive(Long.parseLong(policyId)));
+            policy.add("channel_ids", ids);
+            JsonObject body = new JsonObject();
+            body.add("policy", policy);
+            return send(exchange, 200, body);
+        }
+        else if(method.equals("DELETE"))
+        {
+            String channelId = query.get("channel_id");
+            JsonObject channel = channelId != null ? channels.get(channelId) : null;
+            if(channel == null)
+                return error(exchange, 404, "Alert channel not found: "+channelId);
+            synchronized(channels)
+            {
+                policyIds(channel).remove(new JsonPrimitive(Long.parseLong(policyId)));
+            }
+            return send(exchange, 200, wrap(channels, channel));
+        }
+
+        return error(exchange, 405, "Method not allowed");
+    }
+
+    /**
+     * Returns the array of policy ids in the links of the given channel, creating it if necessary.
+     */
+    private static JsonArray policyIds(JsonObject channel)
+    {
+        JsonObject links = channel.getAsJsonObject("links");
+        if(links == null)
+        {
+            links = new JsonObject();
+            channel.add("links", links);
+        }
+
+        JsonArray ret = links.getAsJsonArray("policy_ids");
+        if(ret == null)
+        {
+            ret = new JsonArray();
+            links.add("policy_ids", ret);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns the object wrapped in the item key of the resource.
+     */
+    private static JsonElement wrap(Resource resource, JsonObject object)
+    {
+        if(resource.getItemKey() == null)
+            return object;
+        JsonObject ret = new JsonObject();
+        ret.add(resource.getItemKey(), object);
+        return ret;
+    }
+
+    /**
+     * Returns the object within the item key of the resource.
+     */
+    private static JsonObject unwrap(Resource resource, JsonObject body)
+    {
+        if(resource.getItemKey() == null)
+            return body;
+        return body.getAsJsonObject(resource.getItemKey());
+    }
+
+    /**
+     * Returns the JSON object in the body of the request.
+     */
+    private static JsonObject body(HttpExchange exchange) throws IOException
+    {
+        Reader reader = new InputStreamReader(exchange.getRequestBody(), "UTF-8");
+        try
+        {
+            return new JsonParser().parse(reader).getAsJsonObject();
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Writes the given status and body to the response.
+     */
+    private int send(HttpExchange exchange, int status, JsonElement body) throws IOException
+    {
+        byte[] bytes = body != null ? gson.toJson(body).getBytes("UTF-8") : null;
+        if(bytes != null)
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes != null ? bytes.length : -1);
+        if(bytes != null)
+        {
+            OutputStream os = exchange.getResponseBody();
+            os.write(bytes);
+            os.flush();
+        }
+        return status;
+    }
+
+    /**
+     * Writes the given error status and message to the response.
+     */
+    private int error(HttpExchange exchange, int status, String message) throws IOException
+    {
+        JsonObject error = new JsonObject();
+        error.addProperty("title", message);
+        JsonObject body = new JsonObject();
+        body.add("error", error);
+        return send(exchange, status, body);
+    }
+
+    /**
+     * Returns the base URL of the request.
+     */
+    private static String baseUrl(HttpExchange exchange)
+    {
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        if(host == null)
+            host = exchange.getLocalAddress().getAddress().getHostAddress()+":"+exchange.getLocalAddress().getPort();
+        return "http://"+host;
+    }
+
+    /**
+     * Returns the URL of the request with the given page number.
+     */
+    private static String pageUrl(HttpExchange exchange, int page)
+    {
+        StringBuilder ret = new StringBuilder(baseUrl(exchange)+exchange.getRequestURI().getRawPath()+"?");
+        String query = exchange.getRequestURI().getRawQuery();
+        if(query != null)
+        {
+            for(String param : query.split("&"))
+            {
+                if(param.length() > 0 && !param.startsWith("page="))
+                    ret.append(param).append("&");
+            }
+        }
+        return ret.append("page=").append(page).toString();
+    }
+
+    /**
+     * Returns the parameters of the given query string.
+     */
+    private static Map<String,String> query(String query) throws UnsupportedEncodingException
+    {
+        Map<String,String> ret = new HashMap<String,String>();
+        if(query == null)
+            return ret;
+        for(String param : query.split("&"))
+        {
+            int pos = param.indexOf('=');
+            if(pos > 0)
+                ret.put(URLDecoder.decode(param.substring(0, pos), "UTF-8"), URLDecoder.decode(param.substring(pos+1), "UTF-8"));
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the given string as an integer, or the default value if the string is missing or invalid.
+     */
+    private static int integer(String str, int defaultValue)
+    {
+        if(str == null)
+            return defaultValue;
+        try
+        {
+            return Integer.parseInt(str);
+        }
+        catch(NumberFormatException e)
+        {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Entry point that starts the simulator.
+     * @param args The argument list
+     */
+    public static void main(String[] args)
+    {
+        System.setProperty("java.util.logging.config.file","logging.properties");
+
+        Options options = new Options();
+        options.addOption("h", "help", false, "Prints a usage statement");
+        options.addOption("v", "verbose", false, "Logs each request");
+        options.addOption("p", "port", true, "The port to listen on, defaults to "+DEFAULT_PORT);
+        options.addOption("t", "threads", true, "The maximum number of requests to handle concurrently, defaults to "+DEFAULT_THREADS);
+        options.addOption("l", "latency", true, "The latency added to each request in milliseconds, defaults to 0");
+        options.addOption("j", "jitter", true, "The maximum random latency added to each request in milliseconds, defaults to 0");
+        options.addOption("e", "error_rate", true, "The fraction of requests that fail with a 500 response, defaults to 0");
+        options.addOption("tr", "throttle_rate", true, "The fraction of requests that are rejected with a 429 response, defaults to 0");
+        options.addOption("rl", "rate_limit", true, "The maximum number of requests per second before requests are rejected with a 429 response");
+        options.addOption("sd", "seed", true, "A JSON file containing the objects to load for each resource");
+
+        NewRelicSimulator simulator = null;
+        String seed = null;
+
+        try
+        {
+            CommandLine cli = new BasicParser().parse(options, args);
+            if(cli.hasOption("h"))
+            {
+                new HelpFormatter().printHelp(NAME, options);
+                System.exit(0);
+            }
+
+            int port = DEFAULT_PORT;
+            if(cli.hasOption("p"))
+                port = Integer.parseInt(cli.getOptionValue("p"));
+            simulator = new NewRelicSimulator(port);
+
+            simulator.verbose(cli.hasOption("v"));
+            if(cli.hasOption("t"))
+                simulator.threads(Integer.parseInt(cli.getOptionValue("t")));
+            if(cli.hasOption("l") || cli.hasOption("j"))
+                simulator.latency(Long.parseLong(cli.getOptionValue("l", "0")), Long.parseLong(cli.getOptionValue("j", "0")));
+            if(cli.hasOption("e"))
+                simulator.errorRate(Double.parseDouble(cli.getOptionValue("e")));
+            if(cli.hasOption("tr"))
+                simulator.throttleRate(Double.parseDouble(cli.getOptionValue("tr")));
+            if(cli.hasOption("rl"))
+                simulator.rateLimit(Double.parseDouble(cli.getOptionValue("rl")));
+            if(cli.hasOption("sd"))
+                seed = cli.getOptionValue("sd");
+        }
+        catch(ParseException e)
+        {
+            System.err.println("ERROR: "+e.getMessage());
+            new HelpFormatter().printHelp(NAME, options);
+            System.exit(1);
+        }
+        catch(NumberFormatException e)
+        {
+            System.err.println("ERROR: Invalid number: "+e.getMessage());
+            new HelpFormatter().printHelp(NAME, options);
+            System.exit(1);
+        }
+        catch(IllegalArgumentException e)
+        {
+            System.err.println("ERROR: "+e.getMessage());
+            new HelpFormatter().printHelp(NAME, options);
+            System.exit(1);
+        }
+
+        try
+        {
+            if(seed != null)
+                simulator.load(new File(seed));
+            simulator.start();
+            logger.info("Use the option \"-au "+simulator.getUrl()+"\" or the property \""
+                +ApiClientFactory.BASE_URL_PROPERTY+"\" to run the commands against the simulator");
+        }
+        catch(IOException e)
+        {
+            logger.severe("Unable to start simulator: "+e.getClass().getName()+": "+e.getMessage());
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,396 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.simulator;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Represents a collection of objects served by the {@link NewRelicSimulator}, eg. the alert policies.
+ * <P>
+ * The objects are held in memory as JSON objects, in the order they were created.
+ * The path of a collection may include a "{parent}" placeholder for the id of the parent object,
+ * eg. the deployments of an application.
+ * 
+ * @author Gerald Curley (opsmatters)
+ */
+public class Resource
+{
+    /**
+     * The types of id used by the objects in a collection.
+     */
+    public enum IdType
+    {
+        NUMBER,
+        UUID,
+        KEY
+    };
+
+    /**
+     * The APIs that serve the collections, which differ in their pagination and responses.
+     */
+    public enum Api
+    {
+        /**
+         * The REST API, which uses pages of 200 objects with the next page given by the "Link" header.
+         */
+        REST,
+
+        /**
+         * The Infrastructure API, which uses the "offset" and "limit" parameters and returns no content for deletes.
+         */
+        INFRA,
+
+        /**
+         * The Synthetics API, which uses the "offset" and "limit" parameters, does not wrap single objects
+         * and returns no content for creates, updates and deletes.
+         */
+        SYNTHETICS
+    };
+
+    private static final String PARENT = "{parent}";
+    private static final String SEGMENT = "([^/]+)";
+    private static final AtomicLong ids = new AtomicLong(1000000L);
+
+    private String name;
+    private String path;
+    private String listKey;
+    private String itemKey;
+    private Api api = Api.REST;
+    private IdType idType = IdType.NUMBER;
+    private String parentField;
+    private String createPath;
+    private boolean listOnCreate = false;
+    private Pattern collectionPattern;
+    private Pattern itemPattern;
+    private Pattern createPattern;
+    private Map<String,JsonObject> objects = new LinkedHashMap<String,JsonObject>();
+
+    /**
+     * Constructor that takes a name, path and the keys used to wrap the objects.
+     * @param name The name of the collection
+     * @param path The path of the collection, without the ".json" suffix
+     * @param listKey The key of the array in list responses
+     * @param itemKey The key of the object in single object requests and responses, or <CODE>null</CODE> if the object is not wrapped
+     */
+    public Resource(String name, String path, String listKey, String itemKey)
+    {
+        this.name = name;
+        this.path = path;
+        this.listKey = listKey;
+        this.itemKey = itemKey;
+
+        String regex = Pattern.quote(path).replace(PARENT, "\\E"+SEGMENT+"\\Q");
+        this.collectionPattern = Pattern.compile(regex);
+        this.itemPattern = Pattern.compile(regex+"/"+SEGMENT);
+    }
+
+    /**
+     * Sets the API that serves the collection.
+     * @param api The API that serves the collection
+     * @return This object
+     */
+    public Resource api(Api api)
+    {
+        this.api = api;
+        return this;
+    }
+
+    /**
+     * Sets the type of id used by the objects.
+     * @param idType The type of id
+     * @return This object
+     */
+    public Resource idType(IdType idType)
+    {
+        this.idType = idType;
+        return this;
+    }
+
+    /**
+     * Sets the field holding the id of the parent object.
+     * <P>
+     * The field is used to filter lists by the query parameter of the same name,
+     * and is set from the path of objects created under a parent.
+     * @param parentField The name of the field holding the id of the parent object
+     * @param createPath The path used to create an object under a parent, or <CODE>null</CODE> if the collection path is used
+     * @return This object
+     */
+    public Resource parent(String parentField, String createPath)
+    {
+        this.parentField = parentField;
+        this.createPath = createPath;
+        if(createPath != null)
+            this.createPattern = Pattern.compile(Pattern.quote(createPath).replace(PARENT, "\\E"+SEGMENT+"\\Q"));
+        return this;
+    }
+
+    /**
+     * Set to <CODE>true</CODE> if a created object is returned in a list, as for alert channels.
+     * @param listOnCreate <CODE>true</CODE> if a created object is returned in a list
+     * @return This object
+     */
+    public Resource listOnCreate(boolean listOnCreate)
+    {
+        this.listOnCreate = listOnCreate;
+        return this;
+    }
+
+    /**
+     * Returns the name of the collection.
+     * @return The name of the collection
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the path of the collection.
+     * @return The path of the collection
+     */
+    public String getPath()
+    {
+        return path;
+    }
+
+    /**
+     * Returns the key of the array in list responses.
+     * @return The key of the array in list responses
+     */
+    public String getListKey()
+    {
+        return listKey;
+    }
+
+    /**
+     * Returns the key of the object in single object requests and responses.
+     * @return The key of the object, or <CODE>null</CODE> if the object is not wrapped
+     */
+    public String getItemKey()
+    {
+        return itemKey;
+    }
+
+    /**
+     * Returns the API that serves the collection.
+     * @return The API that serves the collection
+     */
+    public Api getApi()
+    {
+        return api;
+    }
+
+    /**
+     * Returns <CODE>true</CODE> if a created object is returned in a list.
+     * @return <CODE>true</CODE> if a created object is returned in a list
+     */
+    public boolean isListOnCreate()
+    {
+        return listOnCreate;
+    }
+
+    /**
+     * Returns the field holding the id of the parent object.
+     * @return The field holding the id of the parent object, or <CODE>null</CODE> if the collection has no parent
+     */
+    public String getParentField()
+    {
+        return parentField;
+    }
+
+    /**
+     * Returns the matcher if the given path is the collection path, otherwise <CODE>null</CODE>.
+     * @param path The path of the request
+     * @return The matcher, with the id of the parent as the first group if the path has a parent
+     */
+    public Matcher matchCollection(String path)
+    {
+        return match(collectionPattern, path);
+    }
+
+    /**
+     * Returns the matcher if the given path is the path of an object, otherwise <CODE>null</CODE>.
+     * @param path The path of the request
+     * @return The matcher, with the id of the object as the last group
+     */
+    public Matcher matchItem(String path)
+    {
+        return match(itemPattern, path);
+    }
+
+    /**
+     * Returns the matcher if the given path is the path used to create an object under a parent, otherwise <CODE>null</CODE>.
+     * @param path The path of the request
+     * @return The matcher, with the id of the parent as the first group
+     */
+    public Matcher matchCreate(String path)
+    {
+        return createPattern != null ? match(createPattern, path) : null;
+    }
+
+    /**
+     * Returns the matcher if the whole of the given path matches the pattern.
+     */
+    private static Matcher match(Pattern pattern, String path)
+    {
+        Matcher m = pattern.matcher(path);
+        return m.matches() ? m : null;
+    }
+
+    /**
+     * Returns the objects in the collection, optionally filtered by parent.
+     * @param parentId The id of the parent object, or <CODE>null</CODE> to return all the objects
+     * @return The objects in the collection
+     */
+    public synchronized List<JsonObject> list(String parentId)
+    {
+        List<JsonObject> ret = new ArrayList<JsonObject>(objects.size());
+        for(JsonObject object : objects.values())
+        {
+            if(parentId == null || parentField == null || parentId.equals(getString(object, parentField)))
+                ret.add(object);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the object with the given id.
+     * @param id The id of the object
+     * @return The object, or <CODE>null</CODE> if the object does not exist
+     */
+    public synchronized JsonObject get(String id)
+    {
+        return objects.get(id);
+    }
+
+    /**
+     * Adds the given object to the collection, assigning a new id if it does not have one.
+     * @param object The object to add
+     * @param parentId The id of the parent object, or <CODE>null</CODE> if the object has no parent
+     * @return The object added
+     */
+    public synchronized JsonObject create(JsonObject object, String parentId)
+    {
+        if(parentId != null && parentField != null)
+            object.add(parentField, id(parentId));
+
+        String idField = idType == IdType.KEY ? "key" : "id";
+        String id = getString(object, idField);
+        if(id == null)
+        {
+            if(idType == IdType.UUID)
+                id = UUID.randomUUID().toString();
+            else if(idType == IdType.KEY)
+                id = getString(object, "category")+":"+getString(object, "name");
+            else
+                id = Long.toString(ids.incrementAndGet());
+            object.add(idField, id(id));
+        }
+
+        objects.put(id, object);
+        return object;
+    }
+
+    /**
+     * Merges the fields of the given object into the existing object with the given id.
+     * @param id The id of the object to update
+     * @param fields The fields to update
+     * @return The updated object, or <CODE>null</CODE> if the object does not exist
+     */
+    public synchronized JsonObject update(String id, JsonObject fields)
+    {
+        JsonObject object = objects.get(id);
+        if(object != null)
+        {
+            for(Map.Entry<String,JsonElement> entry : fields.entrySet())
+            {
+                if(!entry.getKey().equals("id") && !entry.getKey().equals("key"))
+                    object.add(entry.getKey(), entry.getValue());
+            }
+        }
+        return object;
+    }
+
+    /**
+     * Removes the object with the given id.
+     * @param id The id of the object to remove
+     * @return The removed object, or <CODE>null</CODE> if the object does not exist
+     */
+    public synchronized JsonObject delete(String id)
+    {
+        return objects.remove(id);
+    }
+
+    /**
+     * Removes all the objects from the collection.
+     */
+    public synchronized void clear()
+    {
+        objects.clear();
+    }
+
+    /**
+     * Returns the number of objects in the collection.
+     * @return The number of objects in the collection
+     */
+    public synchronized int size()
+    {
+        return objects.size();
+    }
+
+    /**
+     * Returns the JSON value for the given id, as a number if the collection uses numeric ids.
+     */
+    private JsonPrimitive id(String id)
+    {
+        if(idType == IdType.NUMBER)
+        {
+            try
+            {
+                return new JsonPrimitive(Long.parseLong(id));
+            }
+            catch(NumberFormatException e)
+            {
+            }
+        }
+        return new JsonPrimitive(id);
+    }
+
+    /**
+     * Returns the value of the given field as a string.
+     * @param object The object containing the field
+     * @param field The name of the field
+     * @return The value of the field, or <CODE>null</CODE> if the field is missing or not a primitive
+     */
+    public static String getString(JsonObject object, String field)
+    {
+        JsonElement element = object.get(field);
+        if(element == null || !element.isJsonPrimitive())
+            return null;
+        return element.getAsString();
+    }
+}
\ No newline at end of file
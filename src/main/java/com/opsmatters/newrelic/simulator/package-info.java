@@ -0,0 +1,4 @@
+/**
+ * The classes used to simulate the New Relic APIs for offline testing.
+ */
+package com.opsmatters.newrelic.simulator;
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.clients;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import com.opsmatters.newrelic.api.exceptions.ErrorResponseException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the opening and closing of the circuit of {@link CircuitBreaker}.
+ *
+ * @author Gerald Curley (opsmatters)
+ */
+public class CircuitBreakerTest
+{
+    @Test
+    public void testOpensAfterThreshold() throws Exception
+    {
+        CircuitBreaker breaker = new CircuitBreaker("test").threshold(3);
+        failCalls(breaker, new ErrorResponseException(500, "Internal Server Error"), 2);
+        assertFalse(breaker.isOpen());
+        failCalls(breaker, new ErrorResponseException(503, "Service Unavailable"), 1);
+        assertTrue(breaker.isOpen());
+    }
+
+    @Test
+    public void testIOErrorsCounted() throws Exception
+    {
+        CircuitBreaker breaker = new CircuitBreaker("test").threshold(2);
+        failCalls(breaker, new IllegalStateException(new IOException("connection reset")), 2);
+        assertTrue(breaker.isOpen());
+    }
+
+    @Test
+    public void testRejectsCallsWhileOpen() throws Exception
+    {
+        CircuitBreaker breaker = new CircuitBreaker("test").threshold(1);
+        failCalls(breaker, new ErrorResponseException(500, "Internal Server Error"), 1);
+
+        AtomicInteger calls = new AtomicInteger();
+        try
+        {
+            breaker.call(succeeding(calls));
+            fail("expected CircuitOpenException");
+        }
+        catch(CircuitOpenException e)
+        {
+            assertTrue(e.getRetryAfter() > 0L);
+        }
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    public void testSuccessResetsFailures() throws Exception
+    {
+        CircuitBreaker breaker = new CircuitBreaker("test").threshold(3);
+        failCalls(breaker, new ErrorResponseException(500, "Internal Server Error"), 2);
+        breaker.call(succeeding(new AtomicInteger()));
+        failCalls(breaker, new ErrorResponseException(500, "Internal Server Error"), 2);
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    public void testOtherErrorsNotCounted() throws Exception
+    {
+        CircuitBreaker breaker = new CircuitBreaker("test").threshold(2);
+        failCalls(breaker, new ErrorResponseException(429, "Too Many Requests"), 3);
+        failCalls(breaker, new ErrorResponseException(404, "Not Found"), 3);
+        failCalls(breaker, new IllegalArgumentException("invalid"), 3);
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    public void testTrialSuccessCloses() throws Exception
+    {
+        CircuitBreaker breaker = new CircuitBreaker("test").threshold(1).openTime(10L);
+        failCalls(breaker, new ErrorResponseException(500, "Internal Server Error"), 1);
+        Thread.sleep(20L);
+
+        AtomicInteger calls = new AtomicInteger();
+        breaker.call(succeeding(calls));
+        assertEquals(1, calls.get());
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    public void testTrialFailureReopens() throws Exception
+    {
+        CircuitBreaker breaker = new CircuitBreaker("test").threshold(3).openTime(10L);
+        failCalls(breaker, new ErrorResponseException(500, "Internal Server Error"), 3);
+        Thread.sleep(20L);
+
+        // A single failed trial reopens the circuit without waiting for the threshold
+        failCalls(breaker, new ErrorResponseException(500, "Internal Server Error"), 1);
+        assertTrue(breaker.isOpen());
+        try
+        {
+            breaker.call(succeeding(new AtomicInteger()));
+            fail("expected CircuitOpenException");
+        }
+        catch(CircuitOpenException e)
+        {
+        }
+    }
+
+    /**
+     * Makes the given number of calls that fail with the given error.
+     */
+    private static void failCalls(CircuitBreaker breaker, final RuntimeException error, int count) throws Exception
+    {
+        for(int i = 0; i < count; i++)
+        {
+            try
+            {
+                breaker.call(new Callable<Object>()
+                {
+                    public Object call()
+                    {
+                        throw error;
+                    }
+                });
+                fail("expected an error");
+            }
+            catch(CircuitOpenException e)
+            {
+                throw e;
+            }
+            catch(RuntimeException e)
+            {
+                assertTrue(e == error);
+            }
+        }
+    }
+
+    /**
+     * Returns a call that succeeds, counting the number of times it is made.
+     */
+    private static Callable<Object> succeeding(final AtomicInteger calls)
+    {
+        return new Callable<Object>()
+        {
+            public Object call()
+            {
+                calls.incrementAndGet();
+                return null;
+            }
+        };
+    }
+}
\ No newline at end of file
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.clients;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests the expiry and invalidation of the lists in {@link LookupCache}.
+ *
+ * @author Gerald Curley (opsmatters)
+ */
+public class LookupCacheTest
+{
+    private static final String KEY = "api-key";
+    private static final String NAME = "alert_channels";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private AtomicInteger loads = new AtomicInteger();
+
+    @Before
+    public void setUp()
+    {
+        directory = new File(folder.getRoot(), "cache");
+    }
+
+    @Test
+    public void testListCached() throws Exception
+    {
+        LookupCache cache = new LookupCache(directory);
+        assertEquals(2, cache.get(KEY, NAME, Item.class, false, loader()).size());
+        assertEquals(2, cache.get(KEY, NAME, Item.class, false, loader()).size());
+        assertEquals(1, loads.get());
+
+        // A new cache reads the list from the file
+        new LookupCache(directory).get(KEY, NAME, Item.class, false, loader());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testRefresh() throws Exception
+    {
+        LookupCache cache = new LookupCache(directory);
+        cache.get(KEY, NAME, Item.class, false, loader());
+        cache.get(KEY, NAME, Item.class, true, loader());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testExpired() throws Exception
+    {
+        LookupCache cache = new LookupCache(directory).ttl(0L);
+        cache.get(KEY, NAME, Item.class, false, loader());
+        Thread.sleep(20L);
+        cache.get(KEY, NAME, Item.class, false, loader());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception
+    {
+        LookupCache cache = new LookupCache(directory);
+        cache.get(KEY, NAME, Item.class, false, loader());
+        cache.invalidate(KEY, NAME);
+        assertEquals(0, files().size());
+
+        // The list is removed from the file even if it was cached by another instance
+        new LookupCache(directory).get(KEY, NAME, Item.class, false, loader());
+        cache.invalidate(KEY, NAME);
+        cache.get(KEY, NAME, Item.class, false, loader());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testAccountsSeparate() throws Exception
+    {
+        LookupCache cache = new LookupCache(directory);
+        cache.get(KEY, NAME, Item.class, false, loader());
+        cache.get("other-key", NAME, Item.class, false, loader());
+        assertEquals(2, loads.get());
+
+        cache.invalidate("other-key", NAME);
+        cache.get(KEY, NAME, Item.class, false, loader());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testOnlyReferencesWritten() throws Exception
+    {
+        new LookupCache(directory).get(KEY, NAME, Item.class, false, loader());
+        File file = files().get(0);
+        String contents = new String(Files.readAllBytes(file.toPath()), "UTF-8");
+        assertFalse(contents.contains("secret"));
+        assertFalse(contents.contains(KEY));
+
+        List<Item> items = new LookupCache(directory).get(KEY, NAME, Item.class, false, loader());
+        assertEquals(Long.valueOf(1L), items.get(0).id);
+        assertEquals("ops", items.get(0).name);
+        assertEquals("slack", items.get(0).type);
+        assertNull(items.get(0).token);
+    }
+
+    @Test
+    public void testOwnerOnly() throws Exception
+    {
+        assumeTrue(Files.getFileStore(folder.getRoot().toPath()).supportsFileAttributeView("posix"));
+
+        new LookupCache(directory).get(KEY, NAME, Item.class, false, loader());
+        File file = files().get(0);
+        assertEquals(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE),
+            Files.getPosixFilePermissions(file.toPath()));
+        assertEquals(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE,
+            PosixFilePermission.OWNER_EXECUTE), Files.getPosixFilePermissions(file.getParentFile().toPath()));
+    }
+
+    @Test
+    public void testCorruptFileReloaded() throws Exception
+    {
+        new LookupCache(directory).get(KEY, NAME, Item.class, false, loader());
+        Files.write(files().get(0).toPath(), "{".getBytes("UTF-8"));
+        assertEquals(2, new LookupCache(directory).get(KEY, NAME, Item.class, false, loader()).size());
+        assertEquals(2, loads.get());
+    }
+
+    /**
+     * Returns the cache files for all accounts.
+     */
+    private List<File> files() throws IOException
+    {
+        File[] accounts = directory.listFiles();
+        assertTrue(accounts != null && accounts.length == 1);
+        return Arrays.asList(accounts[0].listFiles());
+    }
+
+    /**
+     * Returns a loader that counts the number of times the list is loaded.
+     */
+    private Callable<List<Item>> loader()
+    {
+        return new Callable<List<Item>>()
+        {
+            public List<Item> call()
+            {
+                loads.incrementAndGet();
+                return Arrays.asList(new Item(1L, "ops", "slack", "secret-1"), new Item(2L, "dev", "email", "secret-2"));
+            }
+        };
+    }
+
+    /**
+     * An object with a secret that should not be written to the cache files.
+     */
+    public static class Item
+    {
+        private Long id;
+        private String name;
+        private String type;
+        private String token;
+
+        public Item()
+        {
+        }
+
+        Item(Long id, String name, String type, String token)
+        {
+            this.id = id;
+            this.name = name;
+            this.type = type;
+            this.token = token;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.clients;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import com.opsmatters.newrelic.api.exceptions.ErrorResponseException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the additive increase and multiplicative decrease of the limits of {@link RateGovernor}.
+ *
+ * @author Gerald Curley (opsmatters)
+ */
+public class RateGovernorTest
+{
+    private static final double DELTA = 0.001d;
+
+    @Test
+    public void testSlowStart() throws Exception
+    {
+        RateGovernor governor = new RateGovernor(10.0d, 100.0d, 4, 32);
+        succeed(governor, 3);
+        assertEquals(13.0d, governor.getRate(), DELTA);
+        assertEquals(7, governor.getConcurrency());
+    }
+
+    @Test
+    public void testMaximumLimits() throws Exception
+    {
+        RateGovernor governor = new RateGovernor(10.0d, 12.0d, 4, 5);
+        succeed(governor, 5);
+        assertEquals(12.0d, governor.getRate(), DELTA);
+        assertEquals(5, governor.getConcurrency());
+    }
+
+    @Test
+    public void testRejectionHalvesLimits() throws Exception
+    {
+        RateGovernor governor = new RateGovernor(10.0d, 100.0d, 8, 32).pause(0L);
+        reject(governor);
+        assertEquals(5.0d, governor.getRate(), DELTA);
+        assertEquals(4, governor.getConcurrency());
+        assertEquals(1L, governor.getThrottled());
+    }
+
+    @Test
+    public void testAdditiveIncreaseAfterRejection() throws Exception
+    {
+        RateGovernor governor = new RateGovernor(10.0d, 100.0d, 8, 32).pause(0L);
+        reject(governor);
+        succeed(governor, 1);
+
+        // Each call adds a fraction of a call, so that the limits grow by one each round
+        assertEquals(5.2d, governor.getRate(), DELTA);
+        assertEquals(4, governor.getConcurrency());
+        succeed(governor, 4);
+        assertEquals(5, governor.getConcurrency());
+    }
+
+    @Test
+    public void testMinimumLimits() throws Exception
+    {
+        RateGovernor governor = new RateGovernor(1.0d, 10.0d, 1, 4).pause(0L);
+        reject(governor);
+        reject(governor);
+        assertEquals(0.5d, governor.getRate(), DELTA);
+        assertEquals(1, governor.getConcurrency());
+        assertEquals(2L, governor.getThrottled());
+    }
+
+    @Test
+    public void testOtherErrorsIgnored() throws Exception
+    {
+        RateGovernor governor = new RateGovernor(10.0d, 100.0d, 4, 32);
+        try
+        {
+            governor.call(new Callable<Object>()
+            {
+                public Object call()
+                {
+                    throw new ErrorResponseException(500, "Internal Server Error");
+                }
+            });
+            fail("expected an error");
+        }
+        catch(ErrorResponseException e)
+        {
+        }
+
+        assertEquals(10.0d, governor.getRate(), DELTA);
+        assertEquals(4, governor.getConcurrency());
+        assertEquals(0L, governor.getThrottled());
+    }
+
+    @Test
+    public void testBurstOfRejectionsDecreasesOnce() throws Exception
+    {
+        final RateGovernor governor = new RateGovernor(10.0d, 100.0d, 8, 32).pause(0L);
+        final CountDownLatch admitted = new CountDownLatch(1);
+        final CountDownLatch rejected = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            // A call admitted before the first rejection is rejected after it
+            Future<Object> inFlight = executor.submit(new Callable<Object>()
+            {
+                public Object call() throws Exception
+                {
+                    return governor.call(new Callable<Object>()
+                    {
+                        public Object call() throws Exception
+                        {
+                            admitted.countDown();
+                            rejected.await(5L, TimeUnit.SECONDS);
+                            throw new ErrorResponseException(429, "Too Many Requests");
+                        }
+                    });
+                }
+            });
+
+            admitted.await(5L, TimeUnit.SECONDS);
+            reject(governor);
+            rejected.countDown();
+            try
+            {
+                inFlight.get(5L, TimeUnit.SECONDS);
+                fail("expected an error");
+            }
+            catch(ExecutionException e)
+            {
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        assertEquals(5.0d, governor.getRate(), DELTA);
+        assertEquals(4, governor.getConcurrency());
+        assertEquals(2L, governor.getThrottled());
+    }
+
+    /**
+     * Makes the given number of successful calls.
+     */
+    private static void succeed(RateGovernor governor, int count) throws Exception
+    {
+        for(int i = 0; i < count; i++)
+        {
+            governor.call(new Callable<Object>()
+            {
+                public Object call()
+                {
+                    return null;
+                }
+            });
+        }
+    }
+
+    /**
+     * Makes a call that is rejected with a 429 response.
+     */
+    private static void reject(RateGovernor governor) throws Exception
+    {
+        try
+        {
+            governor.call(new Callable<Object>()
+            {
+                public Object call()
+                {
+                    throw new ErrorResponseException(429, "Too Many Requests");
+                }
+            });
+            fail("expected an error");
+        }
+        catch(ErrorResponseException e)
+        {
+        }
+    }
+}
\ No newline at end of file
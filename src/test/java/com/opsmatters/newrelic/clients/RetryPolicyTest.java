@@ -0,0 +1,213 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.clients;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import com.opsmatters.newrelic.api.exceptions.ErrorResponseException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the retries, idempotency and deadline of {@link RetryPolicy}.
+ *
+ * @author Gerald Curley (opsmatters)
+ */
+public class RetryPolicyTest
+{
+    @Test
+    public void testRetriesUntilSuccess() throws Exception
+    {
+        RetryPolicy policy = new RetryPolicy().retries(3).baseDelay(1L);
+        AtomicInteger calls = new AtomicInteger();
+        assertEquals("done", policy.call(failing(new ErrorResponseException(503, "Service Unavailable"), 2, calls)));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testRetriesIOErrors() throws Exception
+    {
+        RetryPolicy policy = new RetryPolicy().retries(3).baseDelay(1L);
+        AtomicInteger calls = new AtomicInteger();
+        policy.call(failing(new IllegalStateException(new IOException("connection reset")), 1, calls));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testRetriesExhausted() throws Exception
+    {
+        RetryPolicy policy = new RetryPolicy().retries(2).baseDelay(1L);
+        AtomicInteger calls = new AtomicInteger();
+        assertFails(policy, failing(new ErrorResponseException(500, "Internal Server Error"), 5, calls), true);
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testPermanentErrorNotRetried() throws Exception
+    {
+        RetryPolicy policy = new RetryPolicy().retries(3).baseDelay(1L);
+        AtomicInteger calls = new AtomicInteger();
+        assertFails(policy, failing(new ErrorResponseException(400, "Bad Request"), 1, calls), true);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testNonIdempotentNotRetriedOnServerError() throws Exception
+    {
+        RetryPolicy policy = new RetryPolicy().retries(3).baseDelay(1L);
+        AtomicInteger calls = new AtomicInteger();
+        assertFails(policy, failing(new ErrorResponseException(500, "Internal Server Error"), 1, calls), false);
+        assertEquals(1, calls.get());
+
+        // A timeout may have been processed, so the call is not repeated
+        calls.set(0);
+        assertFails(policy, failing(new IllegalStateException(new IOException("read timed out")), 1, calls), false);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testNonIdempotentRetriedWhenRejected() throws Exception
+    {
+        RetryPolicy policy = new RetryPolicy().retries(3).baseDelay(1L);
+        AtomicInteger calls = new AtomicInteger();
+        policy.call(failing(new ErrorResponseException(429, "Too Many Requests"), 1, calls), false);
+        assertEquals(2, calls.get());
+
+        calls.set(0);
+        policy.call(failing(new CircuitOpenException("test", 1L), 1, calls), false);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testDeadlinePassed() throws Exception
+    {
+        RetryPolicy policy = new RetryPolicy().deadline(System.currentTimeMillis()-1L);
+        AtomicInteger calls = new AtomicInteger();
+        try
+        {
+            policy.call(failing(null, 0, calls));
+            fail("expected DeadlineExceededException");
+        }
+        catch(DeadlineExceededException e)
+        {
+        }
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    public void testDeadlineStopsRetries() throws Exception
+    {
+        // The backoff before the retry would pass the deadline, so the error is returned at once
+        RetryPolicy policy = new RetryPolicy().retries(3).baseDelay(10000L)
+            .deadline(System.currentTimeMillis()+1000L);
+        AtomicInteger calls = new AtomicInteger();
+        long started = System.currentTimeMillis();
+        assertFails(policy, failing(new ErrorResponseException(503, "Service Unavailable"), 1, calls), true);
+        assertEquals(1, calls.get());
+        assertTrue(System.currentTimeMillis()-started < 1000L);
+    }
+
+    @Test
+    public void testDeadlineOnWorkerThread() throws Exception
+    {
+        final RetryPolicy policy = new RetryPolicy().deadline(System.currentTimeMillis()-1L);
+        final AtomicInteger calls = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            Future<String> future = executor.submit(new Callable<String>()
+            {
+                public String call() throws Exception
+                {
+                    return policy.call(failing(null, 0, calls));
+                }
+            });
+
+            try
+            {
+                future.get(5L, TimeUnit.SECONDS);
+                fail("expected an error");
+            }
+            catch(ExecutionException e)
+            {
+                assertTrue(e.getCause() instanceof DeadlineExceededException);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    public void testDelayBounds()
+    {
+        RetryPolicy policy = new RetryPolicy().baseDelay(100L).maxDelay(1000L);
+        for(int i = 0; i < 100; i++)
+        {
+            long delay = policy.getDelay(1);
+            assertTrue(delay >= 100L && delay <= 200L);
+            delay = policy.getDelay(10);
+            assertTrue(delay >= 500L && delay <= 1000L);
+        }
+    }
+
+    /**
+     * Asserts that the given call fails with the error thrown by the call.
+     */
+    private static void assertFails(RetryPolicy policy, Callable<String> call, boolean idempotent) throws Exception
+    {
+        try
+        {
+            policy.call(call, idempotent);
+            fail("expected an error");
+        }
+        catch(DeadlineExceededException e)
+        {
+            throw e;
+        }
+        catch(RuntimeException e)
+        {
+        }
+    }
+
+    /**
+     * Returns a call that fails with the given error the given number of times before succeeding,
+     * counting the number of times it is made.
+     */
+    private static Callable<String> failing(final RuntimeException error, final int failures, final AtomicInteger calls)
+    {
+        return new Callable<String>()
+        {
+            public String call()
+            {
+                if(calls.incrementAndGet() <= failures)
+                    throw error;
+                return "done";
+            }
+        };
+    }
+}
\ No newline at end of file
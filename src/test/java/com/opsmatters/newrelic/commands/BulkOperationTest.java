@@ -0,0 +1,211 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.commands;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.Test;
+import com.opsmatters.newrelic.api.exceptions.ErrorResponseException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the queueing, retries and deadline of {@link BulkOperation}.
+ *
+ * @author Gerald Curley (opsmatters)
+ */
+public class BulkOperationTest
+{
+    @Test
+    public void testSubmitBlocksWhenQueueFull() throws Exception
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+        final TestOperation operation = new TestOperation()
+        {
+            protected void process(Integer item)
+            {
+                await(release);
+                super.process(item);
+            }
+        };
+        operation.queueSize(1);
+        operation.start(1);
+
+        // One item is being processed and one is queued, so the third submit blocks
+        final AtomicInteger submitted = new AtomicInteger();
+        Thread producer = new Thread()
+        {
+            public void run()
+            {
+                for(int i = 0; i < 4; i++)
+                {
+                    operation.submit(i);
+                    submitted.incrementAndGet();
+                }
+            }
+        };
+        producer.start();
+        Thread.sleep(200L);
+        assertEquals(2, submitted.get());
+
+        release.countDown();
+        producer.join(5000L);
+        assertEquals(4, submitted.get());
+        assertTrue(operation.finish());
+        assertEquals(4, operation.getSucceeded());
+    }
+
+    @Test
+    public void testDeadlineLoggedOnce() throws Exception
+    {
+        TestOperation operation = new TestOperation();
+        operation.deadline(System.currentTimeMillis()-1L);
+
+        List<LogRecord> records = new ArrayList<LogRecord>();
+        Logger logger = Logger.getLogger(BulkOperation.class.getName());
+        Handler handler = capture(records);
+        logger.addHandler(handler);
+        try
+        {
+            assertFalse(operation.parallelism(2).execute(Arrays.asList(1, 2, 3, 4, 5)));
+        }
+        finally
+        {
+            logger.removeHandler(handler);
+        }
+
+        assertEquals(0, operation.calls.get());
+        assertEquals(5, operation.getFailed());
+        int expired = 0;
+        for(LogRecord record : records)
+        {
+            if(record.getLevel() == Level.SEVERE)
+            {
+                assertTrue(record.getMessage().contains("remaining items"));
+                ++expired;
+            }
+        }
+        assertEquals(1, expired);
+    }
+
+    @Test
+    public void testNonIdempotentNotRetriedOnServerError() throws Exception
+    {
+        TestOperation operation = new TestOperation();
+        operation.error = new ErrorResponseException(500, "Internal Server Error");
+        operation.failures = 1;
+        operation.idempotent(false).retries(3);
+        assertFalse(operation.execute(Arrays.asList(1)));
+        assertEquals(1, operation.calls.get());
+        assertEquals(1, operation.getFailed());
+    }
+
+    @Test
+    public void testIdempotentRetriedOnServerError() throws Exception
+    {
+        TestOperation operation = new TestOperation();
+        operation.error = new ErrorResponseException(500, "Internal Server Error");
+        operation.failures = 1;
+        operation.retries(1);
+        assertTrue(operation.execute(Arrays.asList(1)));
+        assertEquals(2, operation.calls.get());
+        assertEquals(1, operation.getSucceeded());
+    }
+
+    @Test
+    public void testNonIdempotentRetriedWhenRateLimited() throws Exception
+    {
+        TestOperation operation = new TestOperation();
+        operation.error = new ErrorResponseException(429, "Too Many Requests");
+        operation.failures = 1;
+        operation.idempotent(false).retries(1);
+        assertTrue(operation.execute(Arrays.asList(1)));
+        assertEquals(2, operation.calls.get());
+    }
+
+    /**
+     * Operation that counts its calls, failing the given number of calls with the given error.
+     */
+    private static class TestOperation extends BulkOperation<Integer>
+    {
+        AtomicInteger calls = new AtomicInteger();
+        RuntimeException error;
+        int failures;
+
+        TestOperation()
+        {
+            super("test item");
+        }
+
+        protected void process(Integer item)
+        {
+            if(calls.incrementAndGet() <= failures)
+                throw error;
+        }
+
+        protected String describe(Integer item)
+        {
+            return item.toString();
+        }
+    }
+
+    /**
+     * Waits for the given latch to be released.
+     */
+    private static void await(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await(5L, TimeUnit.SECONDS);
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns a log handler that adds the records it receives to the given list.
+     */
+    private static Handler capture(final List<LogRecord> records)
+    {
+        return new Handler()
+        {
+            public synchronized void publish(LogRecord record)
+            {
+                records.add(record);
+            }
+
+            public void flush()
+            {
+            }
+
+            public void close()
+            {
+            }
+        };
+    }
+}
\ No newline at end of file
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.commands;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.LinkedHashMap;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the changes computed and applied by {@link ImportPlan}.
+ *
+ * @author Gerald Curley (opsmatters)
+ */
+public class ImportPlanTest
+{
+    @Test
+    public void testCreateUpdateUnchanged()
+    {
+        TestPlan plan = new TestPlan();
+        plan.compute(Arrays.asList(item(1L, "a", 10L, 5), item(2L, "b", 10L, 5)),
+            Arrays.asList(item(null, "a", 10L, 5), item(null, "b", 10L, 6), item(null, "c", 10L, 5)), false);
+
+        assertEquals(1, plan.count(ImportPlan.Action.CREATE));
+        assertEquals(1, plan.count(ImportPlan.Action.UPDATE));
+        assertEquals(1, plan.count(ImportPlan.Action.NONE));
+        assertEquals(0, plan.count(ImportPlan.Action.DELETE));
+
+        ImportPlan.Change<Item> update = plan.getChanges().get(1);
+        assertEquals(ImportPlan.Action.UPDATE, update.getAction());
+        assertEquals(Collections.singletonList("threshold"), update.getProperties());
+    }
+
+    @Test
+    public void testPropertiesNotInFileIgnored()
+    {
+        TestPlan plan = new TestPlan();
+        plan.compute(Arrays.asList(item(1L, "a", 10L, 5)), Arrays.asList(item(null, "a", 10L, null)), false);
+        assertEquals(1, plan.count(ImportPlan.Action.NONE));
+    }
+
+    @Test
+    public void testSameNameInDifferentGroups()
+    {
+        TestPlan plan = new TestPlan();
+        plan.compute(Arrays.asList(item(1L, "a", 10L, 5)), Arrays.asList(item(null, "a", 20L, 5)), false);
+        assertEquals(1, plan.count(ImportPlan.Action.CREATE));
+        assertEquals(0, plan.count(ImportPlan.Action.NONE));
+    }
+
+    @Test
+    public void testMatchedOnFetchedGroup()
+    {
+        // The existing objects do not include their group
+        Map<Long,List<Item>> current = new LinkedHashMap<Long,List<Item>>();
+        current.put(10L, Arrays.asList(item(1L, "a", null, 5), item(2L, "b", null, 5)));
+        current.put(20L, Arrays.asList(item(3L, "a", null, 5)));
+
+        TestPlan plan = new TestPlan();
+        plan.compute(current, Arrays.asList(item(null, "a", 10L, 5)), true);
+
+        assertEquals(1, plan.count(ImportPlan.Action.NONE));
+        assertEquals(0, plan.count(ImportPlan.Action.CREATE));
+        assertEquals(1, plan.count(ImportPlan.Action.DELETE));
+        assertEquals("b", plan.getChanges().get(1).getCurrent().getName());
+    }
+
+    @Test
+    public void testPruneLimitedToGroupsInFile()
+    {
+        List<Item> current = Arrays.asList(item(1L, "a", 10L, 5), item(2L, "b", 10L, 5), item(3L, "c", 20L, 5));
+        List<Item> desired = Arrays.asList(item(null, "a", 10L, 5));
+
+        TestPlan plan = new TestPlan();
+        plan.compute(current, desired, false);
+        assertEquals(0, plan.count(ImportPlan.Action.DELETE));
+
+        plan.compute(current, desired, true);
+        assertEquals(1, plan.count(ImportPlan.Action.DELETE));
+        assertEquals(Long.valueOf(2L), plan.getChanges().get(1).getCurrent().getId());
+    }
+
+    @Test
+    public void testApplyUpdatesInPlace()
+    {
+        TestPlan plan = new TestPlan();
+        plan.compute(Arrays.asList(item(1L, "a", 10L, 5), item(2L, "b", 10L, 5)),
+            Arrays.asList(item(null, "a", 10L, 6), item(null, "c", 10L, 5)), true);
+
+        assertTrue(plan.apply(1, 0.0d, 0));
+        assertEquals(Arrays.asList("update 1", "create c", "delete 2"), plan.calls);
+    }
+
+    @Test
+    public void testCollectionOrderIgnored()
+    {
+        Item current = item(1L, "a", 10L, 5);
+        current.entities = Arrays.asList(3L, 1L, 2L);
+        Item desired = item(null, "a", 10L, 5);
+        desired.entities = Arrays.asList(1L, 2L, 3L);
+
+        TestPlan plan = new TestPlan();
+        plan.compute(Arrays.asList(current), Arrays.asList(desired), false);
+        assertEquals(1, plan.count(ImportPlan.Action.NONE));
+
+        desired.entities = Arrays.asList(1L, 2L, 4L);
+        plan.compute(Arrays.asList(current), Arrays.asList(desired), false);
+        assertEquals(1, plan.count(ImportPlan.Action.UPDATE));
+        assertEquals(Collections.singletonList("entities"), plan.getChanges().get(0).getProperties());
+    }
+
+    private static Item item(Long id, String name, Long policyId, Integer threshold)
+    {
+        Item ret = new Item();
+        ret.id = id;
+        ret.name = name;
+        ret.policyId = policyId;
+        ret.threshold = threshold;
+        return ret;
+    }
+
+    /**
+     * A plan that records the changes applied.
+     */
+    private static class TestPlan extends ImportPlan<Item>
+    {
+        private List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+
+        TestPlan()
+        {
+            super("item");
+        }
+
+        protected String key(Item item)
+        {
+            return item.getName();
+        }
+
+        protected Object group(Item item)
+        {
+            return item.getPolicyId();
+        }
+
+        protected String describe(Item item)
+        {
+            return item.getName();
+        }
+
+        protected void create(Item item)
+        {
+            calls.add("create "+item.getName());
+        }
+
+        protected void delete(Item item)
+        {
+            calls.add("delete "+item.getId());
+        }
+
+        protected void update(Item current, Item desired)
+        {
+            calls.add("update "+current.getId());
+        }
+    }
+
+    /**
+     * A bean with the properties compared by the plan.
+     */
+    public static class Item
+    {
+        private Long id;
+        private String name;
+        private Long policyId;
+        private Integer threshold;
+        private List<Long> entities;
+
+        public Long getId()
+        {
+            return id;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public Long getPolicyId()
+        {
+            return policyId;
+        }
+
+        public Integer getThreshold()
+        {
+            return threshold;
+        }
+
+        public List<Long> getEntities()
+        {
+            return entities;
+        }
+    }
+}
\ No newline at end of file
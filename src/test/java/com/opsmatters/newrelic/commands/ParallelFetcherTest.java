@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.commands;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the ordering of the results of {@link ParallelFetcher}.
+ *
+ * @author Gerald Curley (opsmatters)
+ */
+public class ParallelFetcherTest
+{
+    @Test
+    public void testFetchGroupsKeepsOrder()
+    {
+        ParallelFetcher fetcher = new ParallelFetcher(4);
+        try
+        {
+            List<List<String>> groups = fetcher.fetchGroups(Arrays.asList(5, 1, 4, 0, 3), new SlowFetch());
+            assertEquals(5, groups.size());
+            assertEquals(Arrays.asList("5a", "5b"), groups.get(0));
+            assertEquals(Arrays.asList("1a", "1b"), groups.get(1));
+            assertEquals(Arrays.asList("4a", "4b"), groups.get(2));
+            assertEquals(Arrays.asList("0a", "0b"), groups.get(3));
+            assertEquals(Arrays.asList("3a", "3b"), groups.get(4));
+        }
+        finally
+        {
+            fetcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testFetchAllKeepsOrder()
+    {
+        ParallelFetcher fetcher = new ParallelFetcher(4);
+        try
+        {
+            assertEquals(Arrays.asList("3a", "3b", "0a", "0b", "2a", "2b"),
+                fetcher.fetchAll(Arrays.asList(3, 0, 2), new SlowFetch()));
+        }
+        finally
+        {
+            fetcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testFetchEachKeepsOrder() throws IOException
+    {
+        final List<Integer> parents = new ArrayList<Integer>();
+        ParallelFetcher fetcher = new ParallelFetcher(2);
+        try
+        {
+            fetcher.fetchEach(Arrays.asList(4, 0, 3, 1, 2), new SlowFetch(), new ParallelFetcher.Sink<Integer,String>()
+            {
+                public void accept(Integer parent, List<String> items)
+                {
+                    assertEquals(parent+"a", items.get(0));
+                    parents.add(parent);
+                }
+            });
+        }
+        finally
+        {
+            fetcher.shutdown();
+        }
+        assertEquals(Arrays.asList(4, 0, 3, 1, 2), parents);
+    }
+
+    @Test
+    public void testFetchPagesStopsAtShortPage() throws IOException
+    {
+        final AtomicInteger items = new AtomicInteger();
+        ParallelFetcher fetcher = new ParallelFetcher(3);
+        try
+        {
+            int pages = fetcher.fetchPages(10, new ParallelFetcher.Page<Integer>()
+            {
+                public List<Integer> fetch(int offset, int limit)
+                {
+                    List<Integer> ret = new ArrayList<Integer>();
+                    for(int i = offset; i < Math.min(offset+limit, 25); i++)
+                        ret.add(i);
+                    return ret;
+                }
+            }, new ParallelFetcher.PageSink<Integer>()
+            {
+                public boolean accept(List<Integer> page)
+                {
+                    assertEquals(items.get(), page.get(0).intValue());
+                    items.addAndGet(page.size());
+                    return true;
+                }
+            });
+            assertEquals(3, pages);
+        }
+        finally
+        {
+            fetcher.shutdown();
+        }
+        assertEquals(25, items.get());
+    }
+
+    @Test
+    public void testErrorRethrown()
+    {
+        ParallelFetcher fetcher = new ParallelFetcher(2).retries(0);
+        try
+        {
+            fetcher.fetchAll(Arrays.asList(1, 2), new ParallelFetcher.Fetch<Integer,String>()
+            {
+                public List<String> fetch(List<Integer> parents)
+                {
+                    if(parents.get(0) == 2)
+                        throw new IllegalArgumentException("invalid parent");
+                    return Collections.singletonList("ok");
+                }
+            });
+            fail("expected IllegalArgumentException");
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+        finally
+        {
+            fetcher.shutdown();
+        }
+    }
+
+    /**
+     * Fetch that returns two items for each parent after a delay proportional to the parent,
+     * so that the fetches complete out of order.
+     */
+    private static class SlowFetch implements ParallelFetcher.Fetch<Integer,String>
+    {
+        public List<String> fetch(List<Integer> parents)
+        {
+            int parent = parents.get(0);
+            try
+            {
+                Thread.sleep(parent*20L);
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            return Arrays.asList(parent+"a", parent+"b");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.executor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.List;
+import java.util.ArrayList;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the splitting of the command lines read by {@link BatchRunner}.
+ *
+ * @author Gerald Curley (opsmatters)
+ */
+public class BatchRunnerTest
+{
+    @Test
+    public void testPlainArguments()
+    {
+        assertArrayEquals(new String[] {"list_alert_policies", "-x", "key"},
+            BatchRunner.tokenize("list_alert_policies  -x\tkey "));
+    }
+
+    @Test
+    public void testQuotedArguments()
+    {
+        assertArrayEquals(new String[] {"create_alert_policy", "-n", "My Policy", "it's", ""},
+            BatchRunner.tokenize("create_alert_policy -n \"My Policy\" \"it's\" ''"));
+        assertArrayEquals(new String[] {"-n", "a b\\c"},
+            BatchRunner.tokenize("-n 'a b\\c'"));
+        assertArrayEquals(new String[] {"prefix-quoted value"},
+            BatchRunner.tokenize("prefix-'quoted value'"));
+    }
+
+    @Test
+    public void testEscapedQuotes()
+    {
+        assertArrayEquals(new String[] {"-n", "say \"hi\""},
+            BatchRunner.tokenize("-n \"say \\\"hi\\\"\""));
+        assertArrayEquals(new String[] {"-n", "a b", "'c'"},
+            BatchRunner.tokenize("-n a\\ b \\'c\\'"));
+    }
+
+    @Test
+    public void testUnterminatedQuote()
+    {
+        try
+        {
+            BatchRunner.tokenize("-n \"My Policy");
+            fail("expected IllegalArgumentException");
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+    }
+
+    @Test
+    public void testBlankAndCommentLinesSkipped() throws IOException
+    {
+        TestRunner runner = new TestRunner();
+        BatchRunner batch = new BatchRunner(runner);
+        batch.run(new BufferedReader(new StringReader("\n   \n# list_alert_policies -x key\n  # indented comment\nlist_alert_channels -x key\n")));
+
+        assertEquals(1, runner.lines.size());
+        assertArrayEquals(new String[] {"list_alert_channels", "-x", "key"}, runner.lines.get(0));
+        assertEquals(1, batch.getSucceeded());
+        assertEquals(0, batch.getFailed());
+    }
+
+    @Test
+    public void testUnterminatedQuoteFailsLine() throws IOException
+    {
+        TestRunner runner = new TestRunner();
+        BatchRunner batch = new BatchRunner(runner);
+        batch.run(new BufferedReader(new StringReader("create_alert_policy -n 'My Policy\nlist_alert_channels -x key\n")));
+
+        assertEquals(1, runner.lines.size());
+        assertEquals(1, batch.getSucceeded());
+        assertEquals(1, batch.getFailed());
+    }
+
+    /**
+     * Runner that records the command lines it is given instead of executing them.
+     */
+    private static class TestRunner extends CommandRunner
+    {
+        List<String[]> lines = new ArrayList<String[]>();
+
+        TestRunner()
+        {
+            super(null);
+        }
+
+        public int run(String[] args, PrintStream out, PrintStream err)
+        {
+            lines.add(args);
+            return 0;
+        }
+    }
+}
\ No newline at end of file
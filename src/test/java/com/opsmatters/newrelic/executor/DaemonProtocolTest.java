@@ -0,0 +1,168 @@
+/*
+ * Copyright 2018 Gerald Curley
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.opsmatters.newrelic.executor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the framing of {@link DaemonProtocol}.
+ *
+ * @author Gerald Curley (opsmatters)
+ */
+public class DaemonProtocolTest
+{
+    @Test
+    public void testArgsRoundTrip() throws IOException
+    {
+        String[] args = {"list_alert_policies", "-x", "key", "-n", "caf\u00e9", ""};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DaemonProtocol.writeArgs(new DataOutputStream(bytes), args);
+        assertArrayEquals(args, DaemonProtocol.readArgs(input(bytes.toByteArray())));
+    }
+
+    @Test
+    public void testStringRoundTrip() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        DaemonProtocol.writeString(out, "token");
+        DaemonProtocol.writeString(out, "/home/caf\u00e9");
+        DataInputStream in = input(bytes.toByteArray());
+        assertEquals("token", DaemonProtocol.readString(in));
+        assertEquals("/home/caf\u00e9", DaemonProtocol.readString(in));
+    }
+
+    @Test
+    public void testLargeStringRejected() throws IOException
+    {
+        try
+        {
+            DaemonProtocol.readString(input(ints(DaemonProtocol.MAX_STRING_LENGTH+1)));
+            fail("expected ProtocolException");
+        }
+        catch(ProtocolException e)
+        {
+        }
+    }
+
+    @Test
+    public void testTokenValidation() throws IOException
+    {
+        assertTrue(DaemonProtocol.isValidToken("0123abcd", "0123abcd"));
+        assertFalse(DaemonProtocol.isValidToken("0123abcd", "0123abce"));
+        assertFalse(DaemonProtocol.isValidToken("0123abcd", "0123abc"));
+        assertFalse(DaemonProtocol.isValidToken("0123abcd", ""));
+    }
+
+    @Test
+    public void testFramesRoundTrip() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        DaemonProtocol.FrameOutputStream stdout = new DaemonProtocol.FrameOutputStream(out, DaemonProtocol.STDOUT);
+        stdout.write("hello".getBytes("UTF-8"));
+        stdout.write(new byte[0]);
+        DaemonProtocol.writeExit(out, 3);
+
+        DataInputStream in = input(bytes.toByteArray());
+        assertEquals(DaemonProtocol.STDOUT, in.readByte());
+        assertEquals("hello", new String(DaemonProtocol.readBytes(in), "UTF-8"));
+        assertEquals(DaemonProtocol.EXIT, in.readByte());
+        assertEquals(3, in.readInt());
+    }
+
+    @Test
+    public void testNegativeCountRejected() throws IOException
+    {
+        assertRejected(ints(-1));
+    }
+
+    @Test
+    public void testLargeCountRejected() throws IOException
+    {
+        assertRejected(ints(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testNegativeLengthRejected() throws IOException
+    {
+        assertRejected(ints(1, -5));
+    }
+
+    @Test
+    public void testLargeArgumentRejected() throws IOException
+    {
+        assertRejected(ints(1, DaemonProtocol.MAX_ARG_LENGTH+1));
+    }
+
+    @Test
+    public void testLargeFrameRejected() throws IOException
+    {
+        try
+        {
+            DaemonProtocol.readBytes(input(ints(DaemonProtocol.MAX_FRAME_LENGTH+1)));
+            fail("expected ProtocolException");
+        }
+        catch(ProtocolException e)
+        {
+        }
+    }
+
+    /**
+     * Asserts that reading the arguments from the given bytes fails with a protocol error.
+     */
+    private void assertRejected(byte[] b) throws IOException
+    {
+        try
+        {
+            DaemonProtocol.readArgs(input(b));
+            fail("expected ProtocolException");
+        }
+        catch(ProtocolException e)
+        {
+        }
+    }
+
+    /**
+     * Returns the given integers in the wire format.
+     */
+    private byte[] ints(int... values) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for(int value : values)
+            out.writeInt(value);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private DataInputStream input(byte[] b)
+    {
+        return new DataInputStream(new ByteArrayInputStream(b));
+    }
+}
\ No newline at end of file